@@ -11,7 +11,9 @@ import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 
+import java.util.Collection;
 import java.util.List;
+import javax.xml.namespace.QName;
 
 /**
  * TODO TODO TODO
@@ -43,4 +45,13 @@ public interface ParsingContext extends Cloneable {
     ParsingContext compat();
 
     XNodeProcessorEvaluationMode getEvaluationMode();
+
+    /**
+     * Top-level items of prism objects that should not be parsed. Such items are
+     * present in the parsed object only as empty ones, marked as incomplete.
+     * Useful when the caller knows it won't need them (e.g. when excluded by retrieve options).
+     */
+    ParsingContext itemsToSkip(Collection<? extends QName> itemNames);
+
+    Collection<? extends QName> getItemsToSkip();
 }
@@ -16,10 +16,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -345,15 +347,65 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     @Contract("_, true, null -> fail; _, false, !null -> fail")
     private boolean addAllInternal(Collection<V> newValues, boolean checkUniqueness, EquivalenceStrategy strategy) throws SchemaException {
         checkMutable();
+        ItemValueIndex<V> index = checkUniqueness ? createValueIndex(newValues, strategy) : null;
         boolean changed = false;
         for (V val: newValues) {
-            if (addInternal(val, checkUniqueness, strategy)) {
+            boolean added = index != null ?
+                    addInternal(val, true, strategy, index) :
+                    addInternal(val, checkUniqueness, strategy);
+            if (added) {
                 changed = true;
             }
         }
         return changed;
     }
 
+    /**
+     * Creates an index of current values, if it's worth it (there are many values) and it's possible
+     * (all existing and new values have an index key under given strategy). Otherwise returns null.
+     *
+     * Single-value operations (add, remove, contains, findValue) do not use the index: building it costs
+     * the same as the linear scan it would replace. Callers that add or remove many values should use the bulk
+     * methods, as delta application does.
+     */
+    @Nullable
+    private ItemValueIndex<V> createValueIndex(Collection<V> otherValues, EquivalenceStrategy strategy) {
+        if (!(strategy instanceof ParameterizedEquivalenceStrategy)
+                || otherValues.size() < 2
+                || values.size() + otherValues.size() < ItemValueIndex.THRESHOLD) {
+            return null;
+        }
+        ParameterizedEquivalenceStrategy parameterizedStrategy = (ParameterizedEquivalenceStrategy) strategy;
+        for (V value : otherValues) {
+            if (getIndexKey(value, parameterizedStrategy) == null) {
+                return null;
+            }
+        }
+        return ItemValueIndex.create(values, parameterizedStrategy, this::getIndexKey);
+    }
+
+    /**
+     * Returns the key under which the value is put into {@link ItemValueIndex}: values that are equal under
+     * given strategy (also with respect to all other values in this item) or that represent the same value
+     * (see {@link PrismValue#representsSameValue(PrismValue, boolean)}) must have equal keys.
+     * Returns null if there is no such key for the value.
+     *
+     * By default, {@link PrismValue#hashCode(ParameterizedEquivalenceStrategy)} is used for hashable values.
+     */
+    @Nullable
+    Object getIndexKey(@NotNull V value, @NotNull ParameterizedEquivalenceStrategy strategy) {
+        return isHashable(value) ? value.hashCode(strategy) : null;
+    }
+
+    /**
+     * Returns true if the value's {@link PrismValue#hashCode(ParameterizedEquivalenceStrategy)} is consistent
+     * with {@link PrismValue#equals(PrismValue, ParameterizedEquivalenceStrategy)}, i.e. equal values (also with
+     * respect to all other values in this item) always have the same hash code.
+     */
+    boolean isHashable(@NotNull V value) {
+        return false;
+    }
+
     @Override
     public boolean add(@NotNull V newValue, @NotNull EquivalenceStrategy equivalenceStrategy) throws SchemaException {
         return addInternal(newValue, true, equivalenceStrategy);
@@ -367,6 +419,15 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     // The checkUniqueness parameter is redundant but let's keep it for robustness.
     @Contract("_, true, null -> fail; _, false, !null -> fail")
     protected boolean addInternal(@NotNull V newValue, boolean checkEquivalents, EquivalenceStrategy equivalenceStrategy) throws SchemaException {
+        return addInternal(newValue, checkEquivalents, equivalenceStrategy, null);
+    }
+
+    /**
+     * @param index If present, existing equivalents are looked up using this index (instead of scanning all the values).
+     * The index is updated accordingly.
+     */
+    private boolean addInternal(@NotNull V newValue, boolean checkEquivalents, EquivalenceStrategy equivalenceStrategy,
+            @Nullable ItemValueIndex<V> index) throws SchemaException {
 
         if (checkEquivalents && equivalenceStrategy == null) {
             throw new IllegalArgumentException("Equivalence strategy must be present if checkEquivalents is true");
@@ -387,7 +448,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         if (checkEquivalents) {
             boolean exactEquivalentFound = false;
             boolean somethingRemoved = false;
-            Iterator<V> iterator = values.iterator();
+            Iterator<V> iterator = index != null ? index.getCandidates(newValue).iterator() : values.iterator();
             while (iterator.hasNext()) {
                 V currentValue = iterator.next();
                 if (equivalenceStrategy.equals(currentValue, newValue)) {
@@ -396,6 +457,9 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
                         exactEquivalentFound = true;
                     } else {
                         iterator.remove();
+                        if (index != null) {
+                            values.removeIf(value -> value == currentValue);
+                        }
                         currentValue.setParent(null);
                         somethingRemoved = true;
                     }
@@ -415,7 +479,11 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
             }
             newValue.applyDefinition(definition, false);
         }
-        return addInternalExecution(newValue);
+        boolean added = addInternalExecution(newValue);
+        if (added && index != null) {
+            index.add(newValue);
+        }
+        return added;
     }
 
     protected boolean addInternalExecution(@NotNull V newValue) {
@@ -488,6 +556,10 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
     @Override
     public boolean removeAll(Collection<V> newValues, @NotNull EquivalenceStrategy strategy) {
         checkMutable();
+        ItemValueIndex<V> index = createValueIndex(newValues, strategy);
+        if (index != null) {
+            return removeAllUsingIndex(newValues, index);
+        }
         boolean changed = false;
         for (V val: newValues) {
             if (remove(val, strategy)) {
@@ -497,6 +569,31 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition> e
         return changed;
     }
 
+    /**
+     * Values that represent the same value (see {@link PrismValue#representsSameValue(PrismValue, boolean)}) have the same
+     * index key, so the index lookup is sufficient here.
+     */
+    private boolean removeAllUsingIndex(Collection<V> valuesToRemove, ItemValueIndex<V> index) {
+        Set<V> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (V valueToRemove : valuesToRemove) {
+            Iterator<V> iterator = index.getCandidates(valueToRemove).iterator();
+            while (iterator.hasNext()) {
+                V candidate = iterator.next();
+                if (candidate.representsSameValue(valueToRemove, false)
+                        || candidate.equals(valueToRemove, index.getStrategy())) {
+                    iterator.remove();
+                    removed.add(candidate);
+                }
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        values.removeIf(removed::contains);
+        removed.forEach(value -> value.setParent(null));
+        return true;
+    }
+
     @Override
     public boolean remove(V value, @NotNull EquivalenceStrategy strategy) {
         checkMutable();
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+
+/**
+ * Hash index of values of a multi-valued item, used to avoid quadratic behavior when many values
+ * are added to or removed from a large item at once (see {@link ItemImpl#addAll(Collection, EquivalenceStrategy)}
+ * and {@link ItemImpl#removeAll(Collection, EquivalenceStrategy)}).
+ *
+ * Values are bucketed by a key provided by the item, see {@link ItemImpl#getIndexKey(PrismValue, ParameterizedEquivalenceStrategy)}:
+ * the hash code for property and reference values, the ID for container values. The buckets serve only
+ * as a candidate filter: the values in a bucket still have to be compared using the strategy.
+ *
+ * The index is transient: it is created for a single bulk operation and thrown away afterwards. (Values of an item
+ * can be modified in place and the list of values is exposed by {@link ItemImpl#getValues()}, so a permanent index
+ * could not be kept up to date.)
+ */
+class ItemValueIndex<V extends PrismValue> {
+
+    /**
+     * Minimal number of values (existing plus added/removed ones) for which the index is created.
+     * For smaller items the linear scan is cheaper.
+     */
+    static final int THRESHOLD = 50;
+
+    @NotNull private final ParameterizedEquivalenceStrategy strategy;
+
+    @NotNull private final BiFunction<V, ParameterizedEquivalenceStrategy, Object> keyFunction;
+
+    /** Values in each bucket are kept in the order in which they are present in the item. */
+    @NotNull private final Map<Object, List<V>> buckets = new HashMap<>();
+
+    private ItemValueIndex(@NotNull ParameterizedEquivalenceStrategy strategy,
+            @NotNull BiFunction<V, ParameterizedEquivalenceStrategy, Object> keyFunction) {
+        this.strategy = strategy;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Creates the index of given values. Returns null if some of them has no key.
+     */
+    @Nullable
+    static <V extends PrismValue> ItemValueIndex<V> create(@NotNull Collection<V> values,
+            @NotNull ParameterizedEquivalenceStrategy strategy,
+            @NotNull BiFunction<V, ParameterizedEquivalenceStrategy, Object> keyFunction) {
+        ItemValueIndex<V> index = new ItemValueIndex<>(strategy, keyFunction);
+        for (V value : values) {
+            if (!index.add(value)) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    @NotNull ParameterizedEquivalenceStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns values that can be equal to the given one. The returned list is live: removing a value
+     * through its iterator removes it from the index.
+     */
+    @NotNull List<V> getCandidates(@NotNull V value) {
+        Object key = keyFunction.apply(value, strategy);
+        List<V> bucket = key != null ? buckets.get(key) : null;
+        return bucket != null ? bucket : Collections.emptyList();
+    }
+
+    /**
+     * Returns false if the value has no key, so it cannot be indexed.
+     */
+    boolean add(@NotNull V value) {
+        Object key = keyFunction.apply(value, strategy);
+        if (key == null) {
+            return false;
+        }
+        buckets.computeIfAbsent(key, k -> new ArrayList<>(1))
+                .add(value);
+        return true;
+    }
+}
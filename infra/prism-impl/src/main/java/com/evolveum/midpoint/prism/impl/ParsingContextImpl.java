@@ -13,7 +13,10 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import javax.xml.namespace.QName;
 
 /**
  *
@@ -23,6 +26,7 @@ public class ParsingContextImpl implements ParsingContext {
     private XNodeProcessorEvaluationMode evaluationMode = XNodeProcessorEvaluationMode.STRICT;
     private boolean allowMissingRefTypes;
     private final List<String> warnings = new ArrayList<>();
+    private Collection<? extends QName> itemsToSkip = Collections.emptyList();
 
     ParsingContextImpl() {
     }
@@ -113,6 +117,7 @@ public class ParsingContextImpl implements ParsingContext {
         clone.evaluationMode = evaluationMode;
         clone.allowMissingRefTypes = allowMissingRefTypes;
         clone.warnings.addAll(warnings);
+        clone.itemsToSkip = itemsToSkip;
         return clone;
     }
 
@@ -121,6 +126,15 @@ public class ParsingContextImpl implements ParsingContext {
         return this;
     }
 
+    public ParsingContext itemsToSkip(Collection<? extends QName> itemNames) {
+        this.itemsToSkip = itemNames != null ? itemNames : Collections.emptyList();
+        return this;
+    }
+
+    public Collection<? extends QName> getItemsToSkip() {
+        return itemsToSkip;
+    }
+
     public ParsingContext compat() {
         this.setEvaluationMode(XNodeProcessorEvaluationMode.COMPAT);
         return this;
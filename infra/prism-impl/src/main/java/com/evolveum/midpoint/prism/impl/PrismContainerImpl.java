@@ -622,6 +622,20 @@ public class PrismContainerImpl<C extends Containerable> extends ItemImpl<PrismC
 //        }
 //    }
 
+    /**
+     * Container values are indexed by their IDs. This is possible only if the strategy does not consider values with
+     * different IDs equal; and only values having an ID can be indexed. (Hash codes of container values cannot be used,
+     * because they are not consistent with the equality for raw or otherwise non-hashable values of their items.)
+     */
+    @Override
+    Object getIndexKey(@NotNull PrismContainerValue<C> value, @NotNull ParameterizedEquivalenceStrategy strategy) {
+        if (strategy.isConsideringContainerIds() || strategy.isConsideringDifferentContainerIds()) {
+            return value.getId();
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public ContainerDelta<C> createDelta() {
         return new ContainerDeltaImpl<>(getPath(), getDefinition(), getPrismContext());
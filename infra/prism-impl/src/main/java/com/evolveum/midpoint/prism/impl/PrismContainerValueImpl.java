@@ -49,9 +49,24 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // The QNames here should be qualified if at all possible. Unqualified names are kept here nevertheless
     // (in order to maintain the ordering) but they are maintained in a separate set to know they require a separate
     // handling.
-    protected final LinkedHashMap<QName, Item<?, ?>> items = new LinkedHashMap<>();
+    // Do not access directly, use items() or findItemByQName() instead (see lazyCloneSource).
+    private final LinkedHashMap<QName, Item<?, ?>> items = new LinkedHashMap<>();
     protected final Set<String> unqualifiedItemNames = new HashSet<>();
 
+    /**
+     * If this value is a literal clone of an immutable value, the items are not copied when the clone is created
+     * but when they are needed. Until all of them are copied, this is the value that was cloned. Looking up an item
+     * by its qualified name copies only that item; anything that needs all the items (iteration, size, modification)
+     * copies the rest. As the source is immutable, the result is the same as if the items were copied eagerly.
+     * The typical case is an object taken from a cache and cloned for a caller that reads (or modifies) only a few
+     * of its items: items that are not touched at all are never copied.
+     *
+     * Reading a value must be safe for concurrent readers even if it copies the items. Hence the copying is done
+     * under the lock of this value, and this field is cleared only after all the items are in place.
+     * Readers that see it cleared can use {@link #items} without locking.
+     */
+    private volatile PrismContainerValueImpl<C> lazyCloneSource;
+
     private Long id;
 
     private C containerable = null;
@@ -119,12 +134,66 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
      *
      * @return set of items that the property container contains.
      */
+    private LinkedHashMap<QName, Item<?, ?>> items() {
+        if (lazyCloneSource != null) {
+            copyItemsFromLazyCloneSource();
+        }
+        return items;
+    }
+
+    private synchronized void copyItemsFromLazyCloneSource() {
+        PrismContainerValueImpl<C> source = lazyCloneSource;
+        if (source == null) {
+            return; // copied by another thread in the meantime
+        }
+        // Keeping the order of the source; some of the items may be already copied by findLazyCloneItem.
+        LinkedHashMap<QName, Item<?, ?>> copiedItems = new LinkedHashMap<>();
+        for (Map.Entry<QName, Item<?, ?>> entry : source.items().entrySet()) {
+            Item<?, ?> copied = items.get(entry.getKey());
+            copiedItems.put(entry.getKey(), copied != null ? copied : copyLazyCloneItem(entry.getValue()));
+        }
+        items.clear();
+        items.putAll(copiedItems);
+        unqualifiedItemNames.addAll(source.unqualifiedItemNames);
+        lazyCloneSource = null;
+    }
+
+    /**
+     * Finds an item of a lazy clone by its qualified name, copying only that item (if not copied yet).
+     */
+    private synchronized Item<?, ?> findLazyCloneItem(QName itemName) {
+        PrismContainerValueImpl<C> source = lazyCloneSource;
+        Item<?, ?> item = items.get(itemName);
+        if (item == null && source != null) {
+            Item<?, ?> sourceItem = source.items().get(itemName);
+            if (sourceItem != null) {
+                item = copyLazyCloneItem(sourceItem);
+                items.put(itemName, item);
+            }
+        }
+        return item;
+    }
+
+    private Item<?, ?> copyLazyCloneItem(Item<?, ?> sourceItem) {
+        Item<?, ?> clonedItem = sourceItem.cloneComplex(CloneStrategy.LITERAL);
+        clonedItem.setParent(this);
+        return clonedItem;
+    }
+
+    /**
+     * Returns true if this value is a lazy clone whose items are not all copied yet (see {@link #lazyCloneSource}).
+     * Used for diagnostics and in tests.
+     */
+    public boolean isLazyCloneIncomplete() {
+        return lazyCloneSource != null;
+    }
+
     @NotNull
     public Collection<Item<?, ?>> getItems() {
         if (isImmutable()) {
-            return Collections.unmodifiableCollection(items.values());
+            return Collections.unmodifiableCollection(items().values());
         } else {
-            return items.values();
+            return items().values();
         }
     }
 
@@ -132,7 +201,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @SuppressWarnings("unchecked")
     public <I extends Item<?, ?>> List<I> getItems(Class<I> type) {
         List<I> rv = new ArrayList<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (type.isAssignableFrom(item.getClass())) {
                 rv.add(((I) item));
             }
@@ -141,7 +210,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     public int size() {
-        return items.size();
+        return items().size();
     }
 
     /**
@@ -157,7 +226,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @NotNull
     public Set<PrismProperty<?>> getProperties() {
         Set<PrismProperty<?>> properties = new HashSet<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismProperty) {
                 properties.add((PrismProperty<?>) item);
             }
@@ -312,7 +381,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @NotNull
     public Collection<QName> getItemNames() {
-        return new ArrayList<>(items.keySet());
+        return new ArrayList<>(items().keySet());
     }
 
     public <IV extends PrismValue, ID extends ItemDefinition> void add(Item<IV, ID> item) throws SchemaException {
@@ -347,7 +416,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private <IV extends PrismValue, ID extends ItemDefinition> void simpleAdd(Item<IV, ID> item) {
         @NotNull ItemName itemName = item.getElementName();
-        items.put(itemName, item);
+        items().put(itemName, item);
         if (QNameUtil.isUnqualified(itemName)) {
             unqualifiedItemNames.add(itemName.getLocalPart());
         }
@@ -418,7 +487,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         Item<IV, ID> existingItem = findItem(item.getElementName(), Item.class);
         if (existingItem != null) {
             ItemName existingItemName = existingItem.getElementName();
-            items.remove(existingItemName);
+            items().remove(existingItemName);
             removeFromUnqualifiedIfNeeded(existingItemName);
             existingItem.setParent(null);
         }
@@ -426,7 +495,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     public void removeAll() {
         checkMutable();
-        Iterator<Item<?, ?>> iterator = items.values().iterator();
+        Iterator<Item<?, ?>> iterator = items().values().iterator();
         while (iterator.hasNext()) {
             Item<?, ?> item = iterator.next();
             item.setParent(null);
@@ -466,12 +535,13 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     public void clear() {
         checkMutable();
+        lazyCloneSource = null;
         items.clear();
         unqualifiedItemNames.clear();
     }
 
     public boolean contains(Item item) {
-        return items.values().contains(item);
+        return items().values().contains(item);
     }
 
     public boolean contains(ItemName itemName) {
@@ -554,7 +624,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     // todo optimize this some day
     public PrismReference findReferenceByCompositeObjectElementName(QName elementName) {
-        for (Item item : items.values()) {
+        for (Item item : items().values()) {
             if (item instanceof PrismReference) {
                 PrismReference ref = (PrismReference) item;
                 PrismReferenceDefinition refDef = ref.getDefinition();
@@ -687,6 +757,13 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private <IV extends PrismValue, ID extends ItemDefinition> Item<IV, ID> findItemByQName(QName subName) throws SchemaException {
+        PrismContainerValueImpl<C> source = lazyCloneSource;
+        if (source != null && QNameUtil.isQualified(subName)
+                && !source.unqualifiedItemNames.contains(subName.getLocalPart())) {
+            //noinspection unchecked
+            return (Item<IV, ID>) findLazyCloneItem(subName);
+        }
+        LinkedHashMap<QName, Item<?, ?>> items = items(); // also fills in unqualifiedItemNames for lazy clones
         if (QNameUtil.isUnqualified(subName) || unqualifiedItemNames.contains(subName.getLocalPart())) {
             return findItemByQNameFullScan(subName);
         } else {
@@ -698,7 +775,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     private <IV extends PrismValue, ID extends ItemDefinition> Item<IV, ID> findItemByQNameFullScan(QName subName) throws SchemaException {
 //        LOGGER.warn("Full scan while finding {} in {}", subName, this);
         Item<IV, ID> matching = null;
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (QNameUtil.match(subName, item.getElementName())) {
                 if (matching != null) {
                     String containerName = getParent() != null ? DebugUtil.formatElementName(getParent().getElementName()) : "";
@@ -840,7 +917,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
         QName subName = itemPath.firstToName();
         ItemPath rest = itemPath.rest();
-        Iterator<Item<?, ?>> itemsIterator = items.values().iterator();
+        Iterator<Item<?, ?>> itemsIterator = items().values().iterator();
         while (itemsIterator.hasNext()) {
             Item<?, ?> item = itemsIterator.next();
             ItemName itemName = item.getElementName();
@@ -868,7 +945,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private void removeUnqualifiedItemName(ItemName itemName) {
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (itemName.equals(item.getElementName())) {
                 return;
             }
@@ -901,7 +978,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void accept(Visitor visitor) {
         super.accept(visitor);
-        for (Item<?, ?> item : new ArrayList<>(items.values())) {     // to allow modifying item list via the acceptor
+        for (Item<?, ?> item : new ArrayList<>(items().values())) {     // to allow modifying item list via the acceptor
             item.accept(visitor);
         }
     }
@@ -922,7 +999,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             }
             QName subName = ItemPath.toName(first);
             ItemPath rest = path.rest();
-            for (Item<?, ?> item : items.values()) {            // todo unqualified names!
+            for (Item<?, ?> item : items().values()) {            // todo unqualified names!
                 if (subName.equals(item.getElementName())) {
                     item.accept(visitor, rest, recursive);
                 }
@@ -1152,7 +1229,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private void applyDefinitionToItems(boolean force) throws SchemaException {
         // We change items during this operation, so we need to create a copy of them.
-        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items.values());
+        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items().values());
 
         for (Item item : existingItems) {
             if (item.getDefinition() == null || force) {
@@ -1225,7 +1302,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             this.prismContext = prismContext;
         }
         super.revive(prismContext);
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.revive(prismContext);
         }
     }
@@ -1237,7 +1314,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public boolean hasNoItems() {
-        return items.isEmpty();
+        return items().isEmpty();
     }
 
     public boolean isIdOnly() {
@@ -1247,7 +1324,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void normalize() {
         checkMutable();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.normalize();
         }
     }
@@ -1258,7 +1335,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         if (getDefinition() == null) {
             throw new IllegalStateException("Definition-less container value " + this + " (" + myPath + " in " + rootItem + ")");
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (scope.isThorough()) {
                 if (item == null) {
                     throw new IllegalStateException("Null item in container value " + this + " (" + myPath + " in " + rootItem + ")");
@@ -1309,7 +1386,11 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         if (strategy == CloneStrategy.LITERAL) {
             clone.id = this.id;
         }
-        for (Item<?, ?> item : this.items.values()) {
+        if (strategy == CloneStrategy.LITERAL && isImmutable()) {
+            clone.lazyCloneSource = this;
+            return;
+        }
+        for (Item<?, ?> item : items().values()) {
             Item<?, ?> clonedItem = item.cloneComplex(strategy);
             clonedItem.setParent(clone);
             clone.simpleAdd(clonedItem);
@@ -1326,7 +1407,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
                 replaceComplexTypeDefinition(complexTypeDefinition.deepClone(ultraDeep ? null : new HashMap<>(), new HashMap<>(), postCloneAction));        // OK?
             }
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             deepCloneDefinitionItem(item, ultraDeep, clonedContainerDef, postCloneAction);
         }
     }
@@ -1388,7 +1469,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         // We also need to make sure that container valus that contain only metadata will produce zero hashcode
         // so it will not ruin hashcodes of parent containers
         int itemsHash = 0;
-        itemsHash = MiscUtil.unorderedCollectionHashcode(items.values(), item -> !item.isOperational());
+        itemsHash = MiscUtil.unorderedCollectionHashcode(items().values(), item -> !item.isOperational());
         if (itemsHash != 0) {
             result = prime * result + itemsHash;
         }
@@ -1464,7 +1545,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public String toHumanReadableString() {
-        return "id=" + id + ": " + items.size() + " items";
+        return "id=" + id + ": " + items().size() + " items";
     }
 
     @Override
@@ -1527,7 +1608,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
 
         // And now let's freeze it; from the bottom up.
-        for (Item item : items.values()) {
+        for (Item item : items().values()) {
             item.freeze();
         }
         super.performFreeze();
@@ -1654,7 +1735,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // Removes all unused definitions, in order to conserve heap. Assumes that the definition is not shared. Use with care!
     void trimItemsDefinitionsTrees(Collection<? extends ItemPath> alwaysKeep) {
         // to play safe, we won't touch PCV-specific complexTypeDefinition
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismContainer) {
                 Collection<ItemPath> alwaysKeepInSub = ItemPathCollectionsUtil.remainder(CollectionUtils.emptyIfNull(alwaysKeep),
                         item.getElementName(), false);
@@ -14,6 +14,7 @@ import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
 import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
 import com.evolveum.midpoint.prism.impl.delta.PropertyDeltaImpl;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismPrettyPrinter;
 import com.evolveum.midpoint.prism.impl.xnode.PrimitiveXNodeImpl;
 import com.evolveum.midpoint.util.*;
@@ -337,6 +338,24 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
         return (PropertyDelta<T>) super.diff(other, strategy);
     }
 
+    /**
+     * Only simple real values are hashable: raw values, DOM elements, protected strings and the like
+     * may be equal even if their hash codes differ.
+     */
+    @Override
+    boolean isHashable(@NotNull PrismPropertyValue<T> value) {
+        if (value.getRawElement() != null || value.getExpression() != null) {
+            return false;
+        }
+        Object realValue = value.getValue();
+        return realValue instanceof String
+                || realValue instanceof PolyString
+                || realValue instanceof QName
+                || realValue instanceof Boolean
+                || realValue instanceof Number
+                || realValue instanceof Enum;
+    }
+
     @Override
     protected void checkDefinition(PrismPropertyDefinition<T> def) {
         if (def == null) {
@@ -206,6 +206,16 @@ public class PrismReferenceImpl extends ItemImpl<PrismReferenceValue, PrismRefer
         return new ReferenceDeltaImpl(path, getDefinition(), prismContext);
     }
 
+    /**
+     * References with OID are compared by OID, relation and (optionally) other properties; the hash code covers OID
+     * and relation. The default relation is determined using prism context, so it has to be known if the relation is not set.
+     */
+    @Override
+    boolean isHashable(@NotNull PrismReferenceValue value) {
+        return value.getOid() != null
+                && (value.getRelation() != null || value.getPrismContext() != null);
+    }
+
     @Override
     protected void checkDefinition(PrismReferenceDefinition def) {
         if (def == null) {
@@ -1302,14 +1302,22 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
     }
 
     private void applyValuesToAdd(Item item) throws SchemaException {
-        if (valuesToAdd != null) {
-            if (item.getDefinition() != null && item.getDefinition().isSingleValue() && item.hasAnyValue() && valuesToAdd.size() == 1) {
-                V valueToAdd = valuesToAdd.iterator().next();
-                if (!valueToAdd.equals(item.getValue(), FOR_DELTA_ADD_APPLICATION)) {
-                    item.clear();
-                }
+        if (valuesToAdd == null || valuesToAdd.isEmpty()) {
+            return;
+        }
+        if (item.getDefinition() != null && item.getDefinition().isSingleValue() && item.hasAnyValue() && valuesToAdd.size() == 1) {
+            V valueToAdd = valuesToAdd.iterator().next();
+            if (!valueToAdd.equals(item.getValue(), FOR_DELTA_ADD_APPLICATION)) {
+                item.clear();
             }
-
+        }
+        if (valuesToAdd.stream().noneMatch(PrismValue::hasValueMetadata)) {
+            // No metadata to merge, so the values can be added in bulk. This allows the item to use an index
+            // when looking for existing equivalents (instead of comparing each added value with all the existing ones).
+            //noinspection unchecked
+            item.addAll(CloneUtil.cloneCollectionMembers(valuesToAdd), FOR_DELTA_ADD_APPLICATION);
+        } else {
+            // Values with metadata are merged one by one, using linear lookup of existing values.
             for (V valueToAdd : valuesToAdd) {
                 //noinspection unchecked
                 item.addRespectingMetadataAndCloning(valueToAdd, FOR_DELTA_ADD_APPLICATION, getProvenanceEquivalenceStrategy());
@@ -1322,9 +1330,18 @@ public abstract class ItemDeltaImpl<V extends PrismValue, D extends ItemDefiniti
     }
 
     private void applyValuesToDelete(Item item) {
-        for (V valueToDelete : emptyIfNull(valuesToDelete)) {
+        if (valuesToDelete == null || valuesToDelete.isEmpty()) {
+            return;
+        }
+        if (valuesToDelete.stream().noneMatch(PrismValue::hasValueMetadata)) {
+            // See applyValuesToAdd.
             //noinspection unchecked
-            item.removeRespectingMetadata(valueToDelete, FOR_DELTA_DELETE_APPLICATION, getProvenanceEquivalenceStrategy());
+            item.removeAll(valuesToDelete, FOR_DELTA_DELETE_APPLICATION);
+        } else {
+            for (V valueToDelete : valuesToDelete) {
+                //noinspection unchecked
+                item.removeRespectingMetadata(valueToDelete, FOR_DELTA_DELETE_APPLICATION, getProvenanceEquivalenceStrategy());
+            }
         }
     }
 
@@ -372,7 +372,11 @@ public class PrismUnmarshaller {
 
             }
             final Item<?, ?> item;
-            if (entry.getValue() == null) {
+            if (itemDef != null && shouldSkipItem(itemName, containerDef, pc)) {
+                // The caller is not interested in the content, so we avoid the parsing costs.
+                item = itemDef.instantiate();
+                item.setIncomplete(true);
+            } else if (entry.getValue() == null) {
                 if (itemDef != null) {
                     item = itemDef.instantiate();       // TODO or skip the creation altogether?
                 } else {
@@ -389,6 +393,12 @@ public class PrismUnmarshaller {
         }
     }
 
+    private boolean shouldSkipItem(QName itemName, PrismContainerDefinition<?> containerDef, ParsingContext pc) {
+        return containerDef instanceof PrismObjectDefinition
+                && !pc.getItemsToSkip().isEmpty()
+                && QNameUtil.matchAny(itemName, pc.getItemsToSkip());
+    }
+
     private boolean handleMissingDefinition(QName itemName, ItemDefinition<?> containerDef, TypeDefinition typeDefinition, ParsingContext pc, DebugDumpable object) throws SchemaException {
         SchemaMigration migration = determineSchemaMigration(typeDefinition, itemName);
         if (migration != null && pc.isCompat()) {
@@ -10,11 +10,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.midpoint.util.PrettyPrinter;
@@ -85,4 +90,115 @@ public class TestPerformance extends AbstractPrismTest {
         assertThat(assignmentContainer.size()).isEqualTo(ITERATIONS);
         // we skip the 20k-line dump, it's heavy on some (*cough*Windows) consoles and crashes JVM
     }
+
+    /**
+     * Adds and removes many values to/from large multi-valued items. Without the value index this is quadratic
+     * (each added value is compared to all existing ones), so we check how the time grows with the item size.
+     */
+    @Test
+    public void testPerfAddRemoveManyValues() throws Exception {
+        // GIVEN
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+
+        for (int size : new int[] { 1_000, 10_000, 50_000 }) {
+            PrismObject<UserType> user = userDefinition.instantiate();
+            PrismProperty<String> additionalNames = user.findOrCreateProperty(USER_ADDITIONALNAMES_QNAME);
+            PrismReference accountRef = user.findOrCreateReference(USER_ACCOUNTREF_QNAME);
+
+            List<PrismPropertyValue<String>> names = new ArrayList<>();
+            List<PrismReferenceValue> refs = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                names.add(ctx.itemFactory().createPropertyValue("name " + i));
+                refs.add(ctx.itemFactory().createReferenceValue("oid-" + i));
+            }
+
+            // WHEN
+            long tsStart = System.nanoTime();
+            additionalNames.addAll(names, EquivalenceStrategy.REAL_VALUE);
+            accountRef.addAll(refs, EquivalenceStrategy.REAL_VALUE);
+            // adding the same values again must not create duplicates
+            additionalNames.addAll(cloneValues(names), EquivalenceStrategy.REAL_VALUE);
+            accountRef.addAll(cloneValues(refs), EquivalenceStrategy.REAL_VALUE);
+            long ts1 = System.nanoTime();
+            additionalNames.removeAll(cloneValues(names.subList(0, size / 2)), EquivalenceStrategy.REAL_VALUE);
+            accountRef.removeAll(cloneValues(refs.subList(0, size / 2)), EquivalenceStrategy.REAL_VALUE);
+            long tsEnd = System.nanoTime();
+
+            // THEN
+            double addMillis = (ts1 - tsStart) / NANOS_TO_MILLIS_DOUBLE;
+            double removeMillis = (tsEnd - ts1) / NANOS_TO_MILLIS_DOUBLE;
+            System.out.println("Size " + size + ": add " + addMillis + "ms, remove " + removeMillis + "ms");
+
+            assertThat(additionalNames.size()).isEqualTo(size - size / 2);
+            assertThat(accountRef.size()).isEqualTo(size - size / 2);
+            assertThat(additionalNames.getValues().get(0).getValue()).isEqualTo("name " + size / 2);
+            assertThat(accountRef.getValues().get(0).getOid()).isEqualTo("oid-" + size / 2);
+
+            // The quadratic implementation needs tens of seconds for the largest size.
+            assertThat(addMillis + removeMillis)
+                    .as("time for %d values", size)
+                    .isLessThan(10_000d);
+        }
+    }
+
+    /**
+     * The same for container values; these are indexed by their IDs. Half of the values is removed by full values,
+     * a quarter by ID-only values.
+     */
+    @Test
+    public void testPerfAddRemoveManyContainerValues() throws Exception {
+        // GIVEN
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+
+        for (int size : new int[] { 1_000, 10_000, 50_000 }) {
+            PrismContainer<AssignmentType> source = userDefinition.instantiate().findOrCreateContainer(UserType.F_ASSIGNMENT);
+            for (int i = 0; i < size; i++) {
+                PrismContainerValue<AssignmentType> value = source.createNewValue();
+                value.setId((long) i + 1);
+                value.findOrCreateProperty(AssignmentType.F_DESCRIPTION).setRealValue("ass " + i);
+            }
+            List<PrismContainerValue<AssignmentType>> values = source.getValues();
+            List<PrismContainerValue<AssignmentType>> idOnlyValues = new ArrayList<>();
+            for (int i = size / 2; i < size / 2 + size / 4; i++) {
+                PrismContainerValue<AssignmentType> idOnlyValue = ctx.itemFactory().createContainerValue();
+                idOnlyValue.setId((long) i + 1);
+                idOnlyValues.add(idOnlyValue);
+            }
+            PrismContainer<AssignmentType> assignment = userDefinition.instantiate().findOrCreateContainer(UserType.F_ASSIGNMENT);
+
+            // WHEN
+            long tsStart = System.nanoTime();
+            assignment.addAll(cloneValues(values), ParameterizedEquivalenceStrategy.FOR_DELTA_ADD_APPLICATION);
+            // adding the same values again must not create duplicates
+            assignment.addAll(cloneValues(values), ParameterizedEquivalenceStrategy.FOR_DELTA_ADD_APPLICATION);
+            long ts1 = System.nanoTime();
+            assignment.removeAll(cloneValues(values.subList(0, size / 2)), ParameterizedEquivalenceStrategy.FOR_DELTA_DELETE_APPLICATION);
+            assignment.removeAll(idOnlyValues, ParameterizedEquivalenceStrategy.FOR_DELTA_DELETE_APPLICATION);
+            long tsEnd = System.nanoTime();
+
+            // THEN
+            double addMillis = (ts1 - tsStart) / NANOS_TO_MILLIS_DOUBLE;
+            double removeMillis = (tsEnd - ts1) / NANOS_TO_MILLIS_DOUBLE;
+            System.out.println("Size " + size + ": add " + addMillis + "ms, remove " + removeMillis + "ms");
+
+            int firstRemaining = size / 2 + size / 4;
+            assertThat(assignment.size()).isEqualTo(size - firstRemaining);
+            assertThat(assignment.getValues().get(0).getId()).isEqualTo((long) firstRemaining + 1);
+            assertThat(assignment.getValues().get(0).getPropertyRealValue(AssignmentType.F_DESCRIPTION, String.class))
+                    .isEqualTo("ass " + firstRemaining);
+
+            assertThat(addMillis + removeMillis)
+                    .as("time for %d values", size)
+                    .isLessThan(10_000d);
+        }
+    }
+
+    private <V extends PrismValue> List<V> cloneValues(List<V> values) {
+        //noinspection unchecked
+        return values.stream()
+                .map(value -> (V) value.clone())
+                .collect(Collectors.toList());
+    }
 }
@@ -7,12 +7,19 @@
 package com.evolveum.midpoint.prism;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.*;
 import javax.xml.namespace.QName;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.validation.Validator;
@@ -25,6 +32,7 @@ import com.evolveum.midpoint.prism.foo.ActivationType;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.midpoint.prism.impl.PrismContainerImpl;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
 import com.evolveum.midpoint.prism.impl.PrismReferenceValueImpl;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.util.DOMUtil;
@@ -95,6 +103,123 @@ public class TestPrismObjectConstruction extends AbstractPrismTest {
         assertTrue("Clone not equivalent", clone.equivalent(user));
     }
 
+    /**
+     * Clone of an immutable object copies the container values lazily. Checks that it is a correct, independent,
+     * mutable copy nevertheless.
+     */
+    @Test
+    public void testCloneImmutable() throws Exception {
+        // GIVEN
+        PrismContext ctx = getPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user = userDefinition.instantiate();
+        fillInUserDrake(user, true);
+        user.freeze();
+
+        // WHEN
+        PrismObject<UserType> clone = user.clone();
+
+        // THEN
+        assertFalse("Clone is immutable", clone.isImmutable());
+        assertTrue("Clone not equal", clone.equals(user));
+        assertUserDrake(clone, true, ctx);
+        PrismAsserts.assertParentConsistency(clone);
+
+        // WHEN
+        PrismContainerValue<AssignmentType> assignmentValue = clone.findContainer(USER_ASSIGNMENT_QNAME).getValues().get(0);
+        assignmentValue.findOrCreateProperty(USER_DESCRIPTION_QNAME).setRealValue("Changed description");
+
+        // THEN
+        assertFalse("Changed clone still equal", clone.equals(user));
+        PrismAsserts.assertParentConsistency(clone);
+        assertUserDrake(user, true, ctx);
+    }
+
+    /**
+     * Looking up an item in a clone of an immutable object copies only that item.
+     * The other items (and the values of the found container) stay uncopied until they are needed.
+     */
+    @Test
+    public void testCloneImmutableCopiesOnlyTouchedItems() throws Exception {
+        // GIVEN
+        PrismContext ctx = getPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user = userDefinition.instantiate();
+        fillInUserDrake(user, true);
+        user.freeze();
+
+        // WHEN
+        PrismObject<UserType> clone = user.clone();
+        PrismProperty<String> fullName = clone.findProperty(USER_FULLNAME_QNAME);
+        PrismContainer<AssignmentType> assignment = clone.findContainer(USER_ASSIGNMENT_QNAME);
+
+        // THEN
+        PrismContainerValueImpl<?> cloneValue = (PrismContainerValueImpl<?>) clone.getValue();
+        assertTrue("Untouched items of the object were copied", cloneValue.isLazyCloneIncomplete());
+        assertNotSame("Full name not copied", user.findProperty(USER_FULLNAME_QNAME), fullName);
+        assertSame("Wrong parent of full name", cloneValue, fullName.getParent());
+        for (PrismContainerValue<AssignmentType> assignmentValue : assignment.getValues()) {
+            assertTrue("Untouched assignment value was copied",
+                    ((PrismContainerValueImpl<?>) assignmentValue).isLazyCloneIncomplete());
+        }
+
+        // WHEN
+        Collection<QName> itemNames = cloneValue.getItemNames();
+
+        // THEN
+        assertFalse("Items of the object were not copied", cloneValue.isLazyCloneIncomplete());
+        assertEquals("Wrong order of items", user.getValue().getItemNames(), itemNames);
+        assertSame("Already copied item was copied again", fullName, clone.findProperty(USER_FULLNAME_QNAME));
+        assertTrue("Clone not equal", clone.equals(user));
+        PrismAsserts.assertParentConsistency(clone);
+    }
+
+    /**
+     * Reading a clone of an immutable object copies its items. Concurrent readers must see consistent data nevertheless.
+     */
+    @Test
+    public void testCloneImmutableConcurrentReads() throws Exception {
+        // GIVEN
+        PrismContext ctx = getPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user = userDefinition.instantiate();
+        fillInUserDrake(user, true);
+        user.freeze();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int iteration = 0; iteration < 100; iteration++) {
+                PrismObject<UserType> clone = user.clone();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+
+                // WHEN
+                for (int i = 0; i < threads; i++) {
+                    boolean lookupFirst = i % 2 == 0;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        if (lookupFirst) {
+                            assertNotNull("No full name", clone.findProperty(USER_FULLNAME_QNAME));
+                            assertNotNull("No assignment", clone.findContainer(USER_ASSIGNMENT_QNAME));
+                        }
+                        assertEquals("Wrong # of items", user.getValue().size(), clone.getValue().size());
+                        assertTrue("Clone not equal", clone.equals(user));
+                        return null;
+                    }));
+                }
+                start.countDown();
+
+                // THEN
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+                PrismAsserts.assertParentConsistency(clone);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void fillInUserDrake(PrismObject<UserType> user, boolean assertDefinitions) throws SchemaException {
         user.setOid(USER_OID);
 
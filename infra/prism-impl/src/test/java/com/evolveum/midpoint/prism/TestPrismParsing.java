@@ -385,6 +385,31 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         )), names);
     }
 
+    @Test
+    public void test650PrismParseFileWithItemsToSkip() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode()
+                .itemsToSkip(List.of(UserType.F_ASSIGNMENT));
+
+        when();
+        PrismObject<UserType> user = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME))
+                .context(parsingContext)
+                .parse();
+
+        then();
+        System.out.println("User:");
+        System.out.println(user.debugDump());
+        assertNotNull(user);
+        assertEquals("Wrong OID", USER_JACK_OID, user.getOid());
+        assertNotNull("No fullName", user.findProperty(USER_FULLNAME_QNAME));
+
+        PrismContainer<?> assignments = user.findContainer(UserType.F_ASSIGNMENT);
+        assertNotNull("No assignment container", assignments);
+        assertTrue("Assignment container is not empty", assignments.isEmpty());
+        assertTrue("Assignment container is not marked as incomplete", assignments.isIncomplete());
+    }
+
     @Test
     public void test700UserAliceMetadataOnXNodeLevel() throws Exception {
         given();
@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.ItemPathCollectionsUtil;
 import com.evolveum.midpoint.prism.path.UniformItemPath;
@@ -201,6 +202,40 @@ public class SelectorOptions<T> implements Serializable, DebugDumpable, ShortDum
         return defaultValue;
     }
 
+    /**
+     * Returns names of top-level items that are excluded by retrieve options as a whole,
+     * i.e. they need not be parsed from the serialized form of the object at all.
+     * Items having some of their sub-items explicitly included (or set to default) are not returned.
+     */
+    public static @NotNull Collection<ItemName> getExcludedTopLevelItems(Collection<SelectorOptions<GetOperationOptions>> options) {
+        List<SelectorOptions<GetOperationOptions>> retrieveOptions = filterRetrieveOptions(options);
+        if (retrieveOptions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ItemName> excluded = new ArrayList<>();
+        for (SelectorOptions<GetOperationOptions> option : retrieveOptions) {
+            ItemPath path = option.getItemPathOrNull();
+            if (option.getOptions().getRetrieve() == RetrieveOption.EXCLUDE && path != null && path.isSingleName()) {
+                ItemName name = path.asSingleNameOrFail();
+                if (!hasToLoadPath(name, retrieveOptions, true) && !hasNonExcludedSubPath(name, retrieveOptions)) {
+                    excluded.add(name);
+                }
+            }
+        }
+        return excluded;
+    }
+
+    private static boolean hasNonExcludedSubPath(ItemName name, List<SelectorOptions<GetOperationOptions>> retrieveOptions) {
+        for (SelectorOptions<GetOperationOptions> option : retrieveOptions) {
+            ItemPath path = option.getItemPathOrNull();
+            if (path != null && option.getOptions().getRetrieve() != RetrieveOption.EXCLUDE
+                    && name.isSubPath(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static List<SelectorOptions<GetOperationOptions>> filterRetrieveOptions(
             Collection<SelectorOptions<GetOperationOptions>> options) {
         return MiscUtil.streamOf(options)
@@ -250,6 +250,8 @@ public class CacheConfigurationManager {
         addCacheSettings(aggregate, CacheType.LOCAL_FOCUS_CONSTRAINT_CHECKER_CACHE, profile.getLocalFocusConstraintCheckerCache());
         addCacheSettings(aggregate, CacheType.LOCAL_SHADOW_CONSTRAINT_CHECKER_CACHE, profile.getLocalShadowConstraintCheckerCache());
         addCacheSettings(aggregate, CacheType.LOCAL_ASSOCIATION_TARGET_SEARCH_EVALUATOR_CACHE, profile.getLocalAssociationTargetSearchEvaluatorCache());
+        addCacheSettings(aggregate, CacheType.GLOBAL_ROLE_HIERARCHY_CACHE, profile.getGlobalRoleHierarchyCache());
+        addCacheSettings(aggregate, CacheType.GLOBAL_PRINCIPAL_CACHE, profile.getGlobalPrincipalCache());
         //addCacheSettings(aggregate, CacheType.LOCAL_DEFAULT_SEARCH_EVALUATOR_CACHE, profile.getLocalDefaultSearchEvaluatorCache());
     }
 
@@ -276,6 +278,9 @@ public class CacheConfigurationManager {
         if (increment.getMaxSize() != null) {
             configuration.setMaxSize(increment.getMaxSize());
         }
+        if (increment.getMaxWeight() != null) {
+            configuration.setMaxWeight(increment.getMaxWeight());
+        }
         if (increment.getTimeToLive() != null) {
             configuration.setTimeToLive(increment.getTimeToLive());
         }
@@ -315,6 +320,9 @@ public class CacheConfigurationManager {
             CacheObjectTypeConfiguration original, CacheObjectTypeSettingsType increment,
             CacheConfiguration configuration) {
         CacheObjectTypeConfiguration rv = original != null ? original : configuration.new CacheObjectTypeConfiguration();
+        if (increment.getMaxWeight() != null) {
+            rv.setMaxWeight(increment.getMaxWeight());
+        }
         if (increment.getTimeToLive() != null) {
             rv.setTimeToLive(increment.getTimeToLive());
         }
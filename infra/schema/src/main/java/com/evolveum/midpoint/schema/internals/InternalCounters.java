@@ -58,6 +58,11 @@ public enum InternalCounters {
 
     PROJECTOR_RUN_COUNT("projectorRunCount", "projector run count", null),
 
+    /**
+     * Projections processed by projector worker threads (see {@link InternalsConfig#getProjectorThreads()}).
+     */
+    PROJECTOR_PARALLEL_PROJECTION_COUNT("projectorParallelProjectionCount", "projector parallel projection count", null),
+
     TRIGGER_FIRED_COUNT("triggerFiredCount", "trigger fired count", null);
 
     // Used as localization key
@@ -56,6 +56,18 @@ public class InternalsConfig {
 
     private static boolean detailedAuthorizationLog = false;
 
+    /**
+     * Experimental: Groovy scripts are evaluated using thread-confined (reused) script instances
+     * and lazily resolved variables.
+     */
+    private static boolean scriptInstanceReuse = false;
+
+    /**
+     * Experimental: number of threads used to process independent projections in parallel in the projector.
+     * Zero (the default) means projections are processed sequentially, in the calling thread.
+     */
+    private static int projectorThreads = 0;
+
     public static boolean isPrismMonitoring() {
         return prismMonitoring;
     }
@@ -136,6 +148,22 @@ public class InternalsConfig {
         InternalsConfig.allowClearDataLogging = allowClearDataLogging;
     }
 
+    public static boolean isScriptInstanceReuse() {
+        return scriptInstanceReuse;
+    }
+
+    public static void setScriptInstanceReuse(boolean scriptInstanceReuse) {
+        InternalsConfig.scriptInstanceReuse = scriptInstanceReuse;
+    }
+
+    public static int getProjectorThreads() {
+        return projectorThreads;
+    }
+
+    public static void setProjectorThreads(int projectorThreads) {
+        InternalsConfig.projectorThreads = projectorThreads;
+    }
+
     public static void resetTestingPaths() {
         testingPaths = null;
     }
@@ -160,6 +188,8 @@ public class InternalsConfig {
         modelProfiling = internalsConfig.getBoolean("modelProfiling", modelProfiling);
         // TODO: testingPaths
         detailedAuthorizationLog = internalsConfig.getBoolean("detailedAuhotizationLog", detailedAuthorizationLog);
+        scriptInstanceReuse = internalsConfig.getBoolean("scriptInstanceReuse", scriptInstanceReuse);
+        projectorThreads = internalsConfig.getInt("projectorThreads", projectorThreads);
 
     }
 
@@ -174,6 +204,8 @@ public class InternalsConfig {
         modelProfiling = false;
         testingPaths = null;
         detailedAuthorizationLog = false;
+        scriptInstanceReuse = false;
+        projectorThreads = 0;
     }
 
     public static void setDevelopmentMode() {
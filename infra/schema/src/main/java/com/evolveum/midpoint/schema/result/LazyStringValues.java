@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema.result;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Values of operation result parameter, context or return item that are converted to strings only when
+ * they are really needed, i.e. when the result is serialized, dumped, traced, logged, or otherwise inspected.
+ *
+ * Most operation results are never looked at, so rendering e.g. whole objects or deltas eagerly is a waste.
+ * The original value is kept only until the first rendering.
+ *
+ * Used only for values that cannot change (immutable prism objects, deltas, and collections of them),
+ * so the rendering is the same as it would be at the time the value was added. The exception are values
+ * provided by explicit suppliers: here the caller is responsible for the supplier to return the right value. Such values are typically
+ * shared with caches or other parts of the code anyway, so keeping a reference to them does not consume
+ * extra memory. Mutable values are rendered eagerly, see {@link OperationResult}.
+ *
+ * The list is (conceptually) immutable; it is serialized as a plain list of strings.
+ */
+final class LazyStringValues extends AbstractList<String> implements Serializable {
+
+    private enum Kind { SINGLE, COLLECTION, SUPPLIER }
+
+    private Object value;
+    private final Kind kind;
+    private List<String> rendered;
+
+    private LazyStringValues(Object value, Kind kind) {
+        this.value = value;
+        this.kind = kind;
+    }
+
+    /**
+     * Single value (it must not be null).
+     */
+    static LazyStringValues of(Object value) {
+        return new LazyStringValues(value, Kind.SINGLE);
+    }
+
+    /**
+     * Collection of values, each of which is rendered separately (the collection must not be null).
+     * The caller is responsible for providing a collection that is not modified afterwards.
+     */
+    static LazyStringValues ofCollection(Collection<?> values) {
+        return new LazyStringValues(values, Kind.COLLECTION);
+    }
+
+    /**
+     * Single value provided by the supplier (it must not be null). The supplier is called at most once.
+     */
+    static LazyStringValues ofSupplier(Supplier<String> supplier) {
+        return new LazyStringValues(supplier, Kind.SUPPLIER);
+    }
+
+    @Override
+    public String get(int index) {
+        return render().get(index);
+    }
+
+    @Override
+    public int size() {
+        return render().size();
+    }
+
+    private synchronized List<String> render() {
+        if (rendered == null) {
+            switch (kind) {
+                case COLLECTION:
+                    Collection<?> values = (Collection<?>) value;
+                    List<String> strings = new ArrayList<>(values.size());
+                    for (Object v : values) {
+                        strings.add(v != null ? v.toString() : null);
+                    }
+                    rendered = Collections.unmodifiableList(strings);
+                    break;
+                case SUPPLIER:
+                    //noinspection unchecked
+                    rendered = Collections.singletonList(((Supplier<String>) value).get());
+                    break;
+                default:
+                    rendered = Collections.singletonList(value.toString());
+            }
+            value = null;
+        }
+        return rendered;
+    }
+
+    private Object writeReplace() {
+        return new ArrayList<>(render());
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Objects;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.namespace.QName;
@@ -31,6 +32,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.evolveum.midpoint.prism.Freezable;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.Visitable;
 import com.evolveum.midpoint.prism.Visitor;
@@ -154,6 +156,16 @@ public class OperationResult
     private boolean collectingLogEntries;               // NOT SERIALIZED
     private boolean startedLoggingOverride;             // NOT SERIALIZED
 
+    /** Depth of this result in the tree of results created by createSubresult/subresult methods. */
+    private int depth;                                  // NOT SERIALIZED
+
+    /**
+     * This result is deeper than the configured limit, so it can be removed from the parent when successful.
+     * See {@link OperationResultHandlingStrategyType#getSubresultDepthLimit()}.
+     */
+    private boolean collapsible;                        // NOT SERIALIZED
+    private boolean hasCollapsibleSubresults;           // NOT SERIALIZED
+
     /**
      * After a trace rooted at this operation result is stored, the dictionary that was extracted is stored here.
      * It is necessary to correctly interpret traces in this result and its subresults.
@@ -255,6 +267,7 @@ public class OperationResult
         building = false;
         if (futureParent != null) {
             futureParent.addSubresult(this);
+            futureParent.setDepthInformation(this);
             recordCallerReason(futureParent);
         }
         return this;
@@ -300,12 +313,33 @@ public class OperationResult
     }
 
     private Object[] createArguments() {
-        List<String> arguments = new ArrayList<>();
-        getParams().forEach((key, value) -> arguments.add(key + " => " + value));       // todo what with large values?
-        getContext().forEach((key, value) -> arguments.add("c:" + key + " => " + value));
+        List<Argument> arguments = new ArrayList<>();
+        getParams().forEach((key, value) -> arguments.add(new Argument("", key, value)));       // todo what with large values?
+        getContext().forEach((key, value) -> arguments.add(new Argument("c:", key, value)));
         return arguments.toArray();
     }
 
+    /**
+     * Argument for the invocation record. Formatted only if really needed (i.e. if profiling is on),
+     * in order to keep lazily rendered values unrendered.
+     */
+    private static class Argument {
+        private final String prefix;
+        private final String key;
+        private final Collection<String> value;
+
+        private Argument(String prefix, String key, Collection<String> value) {
+            this.prefix = prefix;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return prefix + key + " => " + value;
+        }
+    }
+
     public OperationResult createSubresult(String operation) {
         return createSubresult(operation, false, new Object[0]);
     }
@@ -318,11 +352,23 @@ public class OperationResult
         OperationResult subresult = new OperationResult(operation);
         subresult.recordCallerReason(this);
         addSubresult(subresult);
+        setDepthInformation(subresult);
         subresult.recordStart(operation, arguments);
         subresult.importance = minor ? MINOR : NORMAL;
         return subresult;
     }
 
+    private void setDepthInformation(OperationResult subresult) {
+        subresult.depth = depth + 1;
+        if (!subresult.isTraced()) {
+            Integer depthLimit = getSubresultDepthLimit();
+            if (depthLimit != null && subresult.depth > depthLimit) {
+                subresult.collapsible = true;
+                hasCollapsibleSubresults = true;
+            }
+        }
+    }
+
     // todo determine appropriate places where recordEnd() should be called
     public void recordEnd() {
         if (invocationRecord != null) {
@@ -664,6 +710,16 @@ public class OperationResult
         }
     }
 
+    /**
+     * Removes successful subresults that are below the configured depth limit.
+     * Their removal does not influence the status computed for this result.
+     */
+    private void removeCollapsedSubresults() {
+        if (hasCollapsibleSubresults && subresults != null && !isTraced()) {
+            subresults.removeIf(sub -> sub != null && sub.collapsible && sub.status == OperationResultStatus.SUCCESS);
+        }
+    }
+
     /**
      * Computes operation result status based on subtask status.
      */
@@ -675,6 +731,7 @@ public class OperationResult
         if (!skipFinish) {
             recordEnd();
         }
+        removeCollapsedSubresults();
         if (getSubresults().isEmpty()) {
             if (status == OperationResultStatus.UNKNOWN) {
                 status = OperationResultStatus.SUCCESS;
@@ -1102,31 +1159,31 @@ public class OperationResult
 
     @Override
     public OperationResult addParam(String name, PrismObject<? extends ObjectType> value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringifyLazily(value));
         return this;
     }
 
     @Override
     public OperationResult addParam(String name, ObjectType value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringifyLazily(value, value != null ? value.asPrismObject() : null));
         return this;
     }
 
     @Override
     public OperationResult addParam(String name, boolean value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringify(value));
         return this;
     }
 
     @Override
     public OperationResult addParam(String name, long value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringify(value));
         return this;
     }
 
     @Override
     public OperationResult addParam(String name, int value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringify(value));
         return this;
     }
 
@@ -1136,7 +1193,7 @@ public class OperationResult
         if (value != null && ObjectType.class.isAssignableFrom(value)) {
             getParams().put(name, collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri()));
         } else {
-            getParams().put(name, collectionize(stringify(value)));
+            getParams().put(name, stringify(value));
         }
         return this;
     }
@@ -1155,13 +1212,13 @@ public class OperationResult
 
     @Override
     public OperationResult addParam(String name, ObjectQuery value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringifyQuery(value));
         return this;
     }
 
     @Override
     public OperationResult addParam(String name, ObjectDelta<?> value) {
-        getParams().put(name, collectionize(stringify(value)));
+        getParams().put(name, stringifyLazily(value));
         return this;
     }
 
@@ -1171,9 +1228,15 @@ public class OperationResult
         return this;
     }
 
+    @Override
+    public OperationResult addParam(String name, Supplier<String> valueSupplier) {
+        getParams().put(name, valueSupplier != null ? LazyStringValues.ofSupplier(valueSupplier) : collectionize((String) null));
+        return this;
+    }
+
     @Override
     public OperationResult addArbitraryObjectAsParam(String paramName, Object paramValue) {
-        getParams().put(paramName, collectionize(stringify(paramValue)));
+        getParams().put(paramName, stringifyLazily(paramValue));
         return this;
     }
 
@@ -1198,31 +1261,31 @@ public class OperationResult
 
     @Override
     public OperationResult addContext(String name, PrismObject<? extends ObjectType> value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringifyLazily(value));
         return this;
     }
 
     @Override
     public OperationResult addContext(String name, ObjectType value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringifyLazily(value, value != null ? value.asPrismObject() : null));
         return this;
     }
 
     @Override
     public OperationResult addContext(String name, boolean value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringify(value));
         return this;
     }
 
     @Override
     public OperationResult addContext(String name, long value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringify(value));
         return this;
     }
 
     @Override
     public OperationResult addContext(String name, int value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringify(value));
         return this;
     }
 
@@ -1232,7 +1295,7 @@ public class OperationResult
         if (value != null && ObjectType.class.isAssignableFrom(value)) {
             getContext().put(name, collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri()));
         } else {
-            getContext().put(name, collectionize(stringify(value)));
+            getContext().put(name, stringify(value));
         }
         return this;
     }
@@ -1251,13 +1314,13 @@ public class OperationResult
 
     @Override
     public OperationResult addContext(String name, ObjectQuery value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringifyQuery(value));
         return this;
     }
 
     @Override
     public OperationResult addContext(String name, ObjectDelta<?> value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringifyLazily(value));
         return this;
     }
 
@@ -1267,9 +1330,15 @@ public class OperationResult
         return this;
     }
 
+    @Override
+    public OperationResult addContext(String name, Supplier<String> valueSupplier) {
+        getContext().put(name, valueSupplier != null ? LazyStringValues.ofSupplier(valueSupplier) : collectionize((String) null));
+        return this;
+    }
+
     @Override
     public OperationResult addArbitraryObjectAsContext(String name, Object value) {
-        getContext().put(name, collectionize(stringify(value)));
+        getContext().put(name, stringifyLazily(value));
         return this;
     }
 
@@ -1310,23 +1379,23 @@ public class OperationResult
     }
 
     public void addReturn(String name, PrismObject<? extends ObjectType> value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringifyLazily(value));
     }
 
     public void addReturn(String name, ObjectType value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringifyLazily(value, value != null ? value.asPrismObject() : null));
     }
 
     public void addReturn(String name, boolean value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringify(value));
     }
 
     public void addReturn(String name, long value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringify(value));
     }
 
     public void addReturn(String name, int value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringify(value));
     }
 
     @SuppressWarnings("unchecked")
@@ -1334,7 +1403,7 @@ public class OperationResult
         if (value != null && ObjectType.class.isAssignableFrom(value)) {
             getReturns().put(name, collectionize(ObjectTypes.getObjectType((Class<? extends ObjectType>) value).getObjectTypeUri()));
         } else {
-            getReturns().put(name, collectionize(stringify(value)));
+            getReturns().put(name, stringify(value));
         }
     }
 
@@ -1347,11 +1416,11 @@ public class OperationResult
     }
 
     public void addReturn(String name, ObjectQuery value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringifyQuery(value));
     }
 
     public void addReturn(String name, ObjectDelta<?> value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringifyLazily(value));
     }
 
     public void addReturn(String name, String... values) {
@@ -1359,18 +1428,49 @@ public class OperationResult
     }
 
     public void addArbitraryObjectAsReturn(String name, Object value) {
-        getReturns().put(name, collectionize(stringify(value)));
+        getReturns().put(name, stringifyLazily(value));
     }
 
     public void addArbitraryObjectCollectionAsReturn(String paramName, Collection<?> paramValue) {
         getReturns().put(paramName, stringifyCol(paramValue));
     }
 
-    private String stringify(Object value) {
-        if (value == null) {
-            return null;
+    private Collection<String> stringify(Object value) {
+        return collectionize(value == null ? null : value.toString());
+    }
+
+    /**
+     * Values that cannot change (e.g. immutable objects or deltas, typically the ones shared with caches)
+     * are converted to string only when needed, see {@link LazyStringValues}. Other values are converted
+     * immediately, so that they are recorded in the state they have now.
+     */
+    private Collection<String> stringifyLazily(Object value) {
+        return stringifyLazily(value, value);
+    }
+
+    /**
+     * @param state The object whose immutability guarantees that the string form of the value does not change.
+     */
+    private Collection<String> stringifyLazily(Object value, Object state) {
+        if (value != null && isImmutable(state)) {
+            return LazyStringValues.of(value);
         } else {
-            return value.toString();
+            return stringify(value);
+        }
+    }
+
+    /**
+     * Queries are mutable, but their expensive part - the filter - is often immutable (e.g. when coming
+     * from a cache or from a frozen definition). In such cases we take a cheap snapshot of the query, sharing
+     * the filter, and render it only when needed.
+     */
+    private Collection<String> stringifyQuery(ObjectQuery query) {
+        if (query != null && (query.getFilter() == null || query.getFilter().isImmutable())) {
+            ObjectQuery snapshot = query.cloneEmpty();
+            snapshot.setFilter(query.getFilter());
+            return LazyStringValues.of(snapshot);
+        } else {
+            return stringify(query);
         }
     }
 
@@ -1384,10 +1484,16 @@ public class OperationResult
         return Arrays.asList(values);
     }
 
+    /**
+     * Collection is rendered lazily only if all its (non-null) values are immutable. See {@link #stringifyLazily(Object)}.
+     */
     private Collection<String> stringifyCol(Collection<?> values) {
         if (values == null) {
             return null;
         }
+        if (!values.isEmpty() && values.stream().allMatch(value -> value == null || isImmutable(value))) {
+            return LazyStringValues.ofCollection(new ArrayList<>(values));
+        }
         Collection<String> out = new ArrayList<>(values.size());
         for (Object value : values) {
             if (value == null) {
@@ -1399,6 +1505,10 @@ public class OperationResult
         return out;
     }
 
+    private static boolean isImmutable(Object value) {
+        return value instanceof Freezable && ((Freezable) value).isImmutable();
+    }
+
     /**
      * @return Contains random long number, for better searching in logs.
      */
@@ -1954,7 +2064,8 @@ public class OperationResult
     }
 
     private boolean canCleanup(OperationResultImportanceType preserveDuringCleanup) {
-        return isLesserThan(importance, preserveDuringCleanup) && (status == OperationResultStatus.SUCCESS || status == OperationResultStatus.NOT_APPLICABLE);
+        return (collapsible || isLesserThan(importance, preserveDuringCleanup))
+                && (status == OperationResultStatus.SUCCESS || status == OperationResultStatus.NOT_APPLICABLE);
     }
 
     /**
@@ -2280,6 +2391,10 @@ public class OperationResult
         }
     }
 
+    private static Integer getSubresultDepthLimit() {
+        return getCurrentHandlingStrategy().getSubresultDepthLimit();
+    }
+
     private static int getSubresultStripThreshold() {
         return defaultIfNull(getCurrentHandlingStrategy().getSubresultStripThreshold(), DEFAULT_SUBRESULT_STRIP_THRESHOLD);
     }
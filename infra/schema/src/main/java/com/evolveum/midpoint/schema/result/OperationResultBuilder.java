@@ -18,6 +18,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.TracingProfileType;
 
 import javax.xml.namespace.QName;
 import java.util.Collection;
+import java.util.function.Supplier;
 
 /**
  *  Used to postpone initialization of OperationResult until parameters and context items are set - in order to log
@@ -55,6 +56,12 @@ public interface OperationResultBuilder {
 
     OperationResultBuilder addParam(String name, String... values);
 
+    /**
+     * The value is obtained from the supplier only when it is really needed, e.g. when the result is serialized
+     * or dumped. The supplier must return the same value as it would at the time of the call.
+     */
+    OperationResultBuilder addParam(String name, Supplier<String> valueSupplier);
+
     OperationResultBuilder addArbitraryObjectAsParam(String paramName, Object paramValue);
 
     OperationResultBuilder addArbitraryObjectCollectionAsParam(String name, Collection<?> value);
@@ -83,6 +90,11 @@ public interface OperationResultBuilder {
 
     OperationResultBuilder addContext(String name, String... values);
 
+    /**
+     * See {@link #addParam(String, Supplier)}.
+     */
+    OperationResultBuilder addContext(String name, Supplier<String> valueSupplier);
+
     OperationResultBuilder addArbitraryObjectAsContext(String name, Object value);
 
     @SuppressWarnings("unused")
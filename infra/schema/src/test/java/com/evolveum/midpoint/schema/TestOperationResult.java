@@ -11,18 +11,24 @@ import static org.testng.AssertJUnit.assertEquals;
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultImportanceType.MAJOR;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.Freezable;
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultHandlingStrategyType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 public class TestOperationResult extends AbstractSchemaTest {
 
@@ -208,6 +214,180 @@ public class TestOperationResult extends AbstractSchemaTest {
         checkResultConversion(root, true);
     }
 
+    @Test
+    public void testLazyParams() throws Exception {
+        given();
+        CountingValue value = new CountingValue("value", true);
+        CountingValue element = new CountingValue("element", true);
+
+        when("result with parameters is created and closed");
+        OperationResult root = new OperationResult("dummy");
+        OperationResult sub = root.createSubresult("sub");
+        sub.addArbitraryObjectAsParam("value", value);
+        sub.addArbitraryObjectCollectionAsContext("collection", Arrays.asList(element, null));
+        sub.computeStatus();
+        root.computeStatus();
+
+        then("values are not rendered");
+        assertEquals("Value was rendered prematurely", 0, value.rendered);
+        assertEquals("Element was rendered prematurely", 0, element.rendered);
+
+        when("result is serialized");
+        checkResultConversion(root, true);
+
+        then("values are rendered (only once)");
+        assertEquals("Wrong param", "value", sub.getParamSingle("value"));
+        assertEquals("Wrong context", Arrays.asList("element", null), sub.getContext().get("collection"));
+        assertEquals("Value was rendered wrong # of times", 1, value.rendered);
+        assertEquals("Element was rendered wrong # of times", 1, element.rendered);
+    }
+
+    @Test
+    public void testSupplierParams() throws Exception {
+        given();
+        AtomicInteger calls = new AtomicInteger();
+
+        when("result with supplied parameter is created and closed");
+        OperationResult result = new OperationResult("dummy");
+        result.addParam("supplied", () -> "value" + calls.incrementAndGet());
+        result.addContext("supplied", () -> "context");
+        result.computeStatus();
+
+        then("supplier is not called");
+        assertEquals("Supplier was called prematurely", 0, calls.get());
+
+        when("result is serialized");
+        checkResultConversion(result, true);
+
+        then("supplier is called (only once)");
+        assertEquals("Wrong param", "value1", result.getParamSingle("supplied"));
+        assertEquals("Wrong context", Collections.singletonList("context"), result.getContext().get("supplied"));
+        assertEquals("Supplier was called wrong # of times", 1, calls.get());
+    }
+
+    /**
+     * Query with immutable filter is rendered lazily, yet in the state it had when it was added.
+     * Query with mutable filter is rendered immediately.
+     */
+    @Test
+    public void testQueryParams() throws Exception {
+        given();
+        ObjectQuery immutableFilterQuery = getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("immutable")
+                .build();
+        immutableFilterQuery.getFilter().freeze();
+        String immutableFilterQueryString = immutableFilterQuery.toString();
+        ObjectQuery mutableFilterQuery = getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("mutable")
+                .build();
+        String mutableFilterQueryString = mutableFilterQuery.toString();
+
+        when("queries are added and then changed");
+        OperationResult result = new OperationResult("dummy");
+        result.addParam("immutableFilter", immutableFilterQuery);
+        result.addParam("mutableFilter", mutableFilterQuery);
+        immutableFilterQuery.setPaging(getPrismContext().queryFactory().createPaging(0, 10));
+        mutableFilterQuery.addFilter(getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_FULL_NAME).eqPoly("added")
+                .buildFilter());
+        result.computeStatus();
+
+        then("queries are recorded as they were");
+        assertEquals("Wrong immutable-filter query param", immutableFilterQueryString, result.getParamSingle("immutableFilter"));
+        assertEquals("Wrong mutable-filter query param", mutableFilterQueryString, result.getParamSingle("mutableFilter"));
+    }
+
+    @Test
+    public void testSubresultDepthLimit() throws Exception {
+        given();
+        OperationResult.applyOperationResultHandlingStrategy(
+                Arrays.asList(
+                        new OperationResultHandlingStrategyType(getPrismContext())
+                                .global(true)
+                                .subresultDepthLimit(2)
+                ), null);
+        OperationResult.setThreadLocalHandlingStrategy(null);
+
+        try {
+            when();
+            OperationResult root = new OperationResult("dummy");
+            OperationResult level1 = root.createSubresult("level1");
+            OperationResult level2 = level1.createSubresult("level2");
+            for (int i = 1; i <= 5; i++) {
+                OperationResult level3 = level2.subresult("level3").build();
+                level3.createSubresult("level4").recordSuccess();
+                level3.computeStatus();
+            }
+            OperationResult failing = level2.createSubresult("level3-failing");
+            failing.recordFatalError("Fatal");
+            level2.computeStatus();
+            level1.computeStatus();
+            root.computeStatus();
+            System.out.println("Result with depth limit:\n" + root.debugDump());
+
+            then();
+            assertEquals("Wrong overall status", OperationResultStatus.FATAL_ERROR, root.getStatus());
+            assertEquals("Wrong # of level1 subresults", 1, level1.getSubresults().size());
+            assertEquals("Wrong # of level2 subresults", 1, level2.getSubresults().size()); // only the failing one
+            assertEquals("Wrong remaining subresult", "level3-failing", level2.getSubresults().get(0).getOperation());
+        } finally {
+            OperationResult.applyOperationResultHandlingStrategy(Collections.emptyList(), null);
+            OperationResult.setThreadLocalHandlingStrategy(null);
+        }
+    }
+
+    /**
+     * Mutable values must be recorded in the state they had when they were added.
+     */
+    @Test
+    public void testMutableParams() throws Exception {
+        given();
+        CountingValue value = new CountingValue("before", false);
+        CountingValue element = new CountingValue("before", false);
+        List<CountingValue> collection = new ArrayList<>(Arrays.asList(element, new CountingValue("immutable", true)));
+
+        when("mutable values are added and then changed");
+        OperationResult result = new OperationResult("dummy");
+        result.addArbitraryObjectAsParam("value", value);
+        result.addArbitraryObjectCollectionAsContext("collection", collection);
+        value.string = "after";
+        element.string = "after";
+        collection.clear();
+        result.computeStatus();
+
+        then("values are recorded as they were");
+        assertEquals("Wrong param", "before", result.getParamSingle("value"));
+        assertEquals("Wrong context", Arrays.asList("before", "immutable"), result.getContext().get("collection"));
+    }
+
+    /** Counts how many times the value was converted to string. */
+    private static class CountingValue implements Freezable {
+        private String string;
+        private final boolean immutable;
+        private int rendered;
+
+        private CountingValue(String string, boolean immutable) {
+            this.string = string;
+            this.immutable = immutable;
+        }
+
+        @Override
+        public boolean isImmutable() {
+            return immutable;
+        }
+
+        @Override
+        public void freeze() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            rendered++;
+            return string;
+        }
+    }
+
     private void checkResultConversion(OperationResult result, boolean assertEquals) throws SchemaException {
         when();
         OperationResultType resultType = result.createOperationResultType();
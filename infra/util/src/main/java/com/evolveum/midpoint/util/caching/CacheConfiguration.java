@@ -22,6 +22,7 @@ import java.util.Map;
 public class CacheConfiguration implements DebugDumpable {
 
     private Integer maxSize;
+    private Long maxWeight;
     private Integer timeToLive;
     private Boolean traceMiss;
     private Boolean tracePass;
@@ -59,6 +60,7 @@ public class CacheConfiguration implements DebugDumpable {
     }
 
     public class CacheObjectTypeConfiguration {
+        private Long maxWeight;
         private Integer timeToLive;
         private Integer timeToVersionCheck;
         private Boolean traceMiss;
@@ -67,6 +69,17 @@ public class CacheConfiguration implements DebugDumpable {
         private Boolean clusterwideInvalidation;
         private Boolean safeRemoteInvalidation;
 
+        /**
+         * Memory budget for this type. Not inherited from the cache-level maxWeight, as that one covers all the types.
+         */
+        public Long getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(Long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
         public Integer getEffectiveTimeToLive() {
             return timeToLive != null ? timeToLive : CacheConfiguration.this.timeToLive;
         }
@@ -132,6 +145,7 @@ public class CacheConfiguration implements DebugDumpable {
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
+            append(sb, "maxWeight", maxWeight);
             append(sb, "timeToLive", timeToLive);
             append(sb, "timeToVersionCheck", timeToVersionCheck);
             append(sb, "traceMiss", traceMiss);
@@ -163,6 +177,14 @@ public class CacheConfiguration implements DebugDumpable {
         this.maxSize = maxSize;
     }
 
+    public Long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(Long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
     public Integer getTimeToLive() {
         return timeToLive;
     }
@@ -223,6 +245,9 @@ public class CacheConfiguration implements DebugDumpable {
         if (maxSize != null) {
             DebugUtil.debugDumpWithLabelLn(sb, "maxSize", maxSize, indent);
         }
+        if (maxWeight != null) {
+            DebugUtil.debugDumpWithLabelLn(sb, "maxWeight", maxWeight, indent);
+        }
         if (timeToLive != null) {
             DebugUtil.debugDumpWithLabelLn(sb, "timeToLive", timeToLive, indent);
         }
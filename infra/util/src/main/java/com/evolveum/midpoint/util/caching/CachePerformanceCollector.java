@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -44,6 +45,12 @@ public class CachePerformanceCollector implements DebugDumpable {
         @Experimental public final AtomicInteger overSizedQueries = new AtomicInteger(0);
         @Experimental public final AtomicInteger skippedStaleData = new AtomicInteger(0);
 
+        /**
+         * Time (in milliseconds) spent computing the values that were missing in the cache, e.g. compiling scripts.
+         * Applicable only to caches that compute the values themselves.
+         */
+        @Experimental public final AtomicLong computationTime = new AtomicLong(0);
+
         private AtomicInteger getHits() {
             return hits;
         }
@@ -87,6 +94,10 @@ public class CachePerformanceCollector implements DebugDumpable {
             int notAvailable = this.notAvailable.get();
             int sum = hits + weakHits + misses + passes + notAvailable;
             CacheUtil.formatPerformanceData(sb, hits, weakHits, misses, passes, notAvailable, sum);
+            long computationTime = this.computationTime.get();
+            if (computationTime > 0) {
+                sb.append(", computation time: ").append(computationTime).append(" ms");
+            }
         }
     }
 
@@ -136,6 +147,18 @@ public class CachePerformanceCollector implements DebugDumpable {
         increment(cacheClass, type, statisticsLevel, CacheData::getNotAvailable);
     }
 
+    @Experimental
+    public void registerComputationTime(Class<?> cacheClass, Class<?> type, StatisticsLevel statisticsLevel, long millis) {
+        String key = createKey(cacheClass, type, statisticsLevel);
+        if (key != null) {
+            getOrCreate(performanceMap, key).computationTime.addAndGet(millis);
+            Map<String, CacheData> localMap = threadLocalPerformanceMap.get();
+            if (localMap != null) {
+                getOrCreate(localMap, key).computationTime.addAndGet(millis);
+            }
+        }
+    }
+
     @Experimental
     public void registerSkippedStaleData(Class<?> type) {
         increment(null, type, CacheConfiguration.StatisticsLevel.PER_OBJECT_TYPE, CacheData::getSkippedStaleData);
@@ -148,14 +171,9 @@ public class CachePerformanceCollector implements DebugDumpable {
 
     private CacheData getOrCreate(Map<String, CacheData> performanceMap, String key) {
         if (performanceMap != null) {
-            CacheData existingData = performanceMap.get(key);
-            if (existingData != null) {
-                return existingData;
-            } else {
-                CacheData newData = new CacheData();
-                performanceMap.put(key, newData);
-                return newData;
-            }
+            // Both global and thread-local maps are concurrent, so this is atomic and no increment is lost
+            // when new key is registered by multiple threads at once.
+            return performanceMap.computeIfAbsent(key, k -> new CacheData());
         } else {
             return null;
         }
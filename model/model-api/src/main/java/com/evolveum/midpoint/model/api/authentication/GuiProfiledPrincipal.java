@@ -51,6 +51,17 @@ public class GuiProfiledPrincipal extends MidPointPrincipal {
         return clone;
     }
 
+    /**
+     * Semi-shallow clone with the focus replaced by another object representing the same focus (e.g. its fresh copy).
+     * Values compiled from assignments are shared, the ones derived from the focus object itself are not copied.
+     */
+    public GuiProfiledPrincipal cloneWithFocus(@NotNull FocusType focus) {
+        GuiProfiledPrincipal clone = new GuiProfiledPrincipal(focus);
+        copyCompiledValues(clone);
+        clone.compiledGuiProfile = this.compiledGuiProfile;
+        return clone;
+    }
+
     protected void copyValues(GuiProfiledPrincipal clone) {
         super.copyValues(clone);
         // No need to clone user profile here. It is essentially read-only.
@@ -33,6 +33,13 @@ public interface GuiProfiledPrincipalManager extends MidPointPrincipalManager {
     @Override
     GuiProfiledPrincipal getPrincipal(String username, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException;
 
+    /**
+     * Like {@link #getPrincipal(String, Class)}, but authorizations and GUI profile of the principal can be taken
+     * from the global principal cache (if enabled), skipping the evaluation of assignments. Meant for stateless
+     * requests (e.g. REST) where the principal is created over and over for the same focus.
+     */
+    GuiProfiledPrincipal getCachedPrincipal(String username, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException;
+
     @Override
     GuiProfiledPrincipal getPrincipalByOid(String oid, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException;
 
@@ -42,11 +42,31 @@ public interface DashboardService {
             Collection<SelectorOptions<GetOperationOptions>> options, Task task, OperationResult result, boolean recordProgress) throws SchemaException,
             ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException, ExpressionEvaluationException;
 
+    /**
+     * As {@link #searchObjectFromCollection(CollectionRefSpecificationType, QName, ResultHandler, Collection, Task, OperationResult, boolean)}
+     * but only objects belonging to given work bucket (if not null) are searched for. The task must be a worker task
+     * that the bucket belongs to.
+     */
+    void searchObjectFromCollection(CollectionRefSpecificationType collection, QName typeForFilter, ResultHandler<ObjectType> handler,
+            Collection<SelectorOptions<GetOperationOptions>> options, WorkBucketType workBucket, Task task, OperationResult result,
+            boolean recordProgress) throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException,
+            ConfigurationException, ExpressionEvaluationException;
+
     void searchObjectFromCollection(CollectionRefSpecificationType collectionConfig, AuditResultHandler handler,
             ObjectPaging paging, Task task, OperationResult result, boolean recordProgress)
             throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException,
             ExpressionEvaluationException;
 
+    /**
+     * Passes all audit records of given collection to the handler, ordered by timestamp (and event identifier).
+     * Records are fetched in pages of given size using keyset paging, so only one page is held in memory,
+     * and the collection filter is evaluated only once. Stops when the handler returns false.
+     */
+    void searchAuditRecordsFromCollection(CollectionRefSpecificationType collectionConfig, AuditResultHandler handler,
+            int pageSize, Task task, OperationResult result, boolean recordProgress)
+            throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException,
+            ExpressionEvaluationException;
+
     ObjectCollectionType getObjectCollectionType(DashboardWidgetType widget, Task task, OperationResult result) throws ObjectNotFoundException,
             SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException;
 
@@ -140,20 +140,16 @@ public abstract class AbstractCachingScriptEvaluator<I,C> extends AbstractScript
     }
 
     private C getCompiledScript(String codeString, ScriptExpressionEvaluationContext context) throws ExpressionEvaluationException, SecurityViolationException {
-        C compiledScript = scriptCache.getCode(context.getExpressionProfile(), codeString);
-        if (compiledScript != null) {
-            return compiledScript;
-        }
-        InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
         try {
-            compiledScript = compileScript(codeString, context);
+            return scriptCache.getOrCompileCode(context.getExpressionProfile(), codeString, () -> {
+                InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
+                return compileScript(codeString, context);
+            });
         } catch (ExpressionEvaluationException | SecurityViolationException e) {
             throw e;
         } catch (Exception e) {
             throw new ExpressionEvaluationException(e.getMessage() + " while compiling " + context.getContextDescription(), e);
         }
-        scriptCache.putCode(context.getExpressionProfile(), codeString, compiledScript);
-        return compiledScript;
     }
 
     protected abstract C compileScript(String codeString, ScriptExpressionEvaluationContext context) throws Exception;
@@ -7,7 +7,9 @@
 package com.evolveum.midpoint.model.common.expression.script;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 
 import com.evolveum.midpoint.common.LocalizationService;
@@ -50,6 +52,11 @@ public abstract class AbstractScriptEvaluator implements ScriptEvaluator {
 
     private static final Trace LOGGER = TraceManager.getTrace(AbstractScriptEvaluator.class);
 
+    /**
+     * Marker returned by {@link #resolveScriptVariable(String, ScriptExpressionEvaluationContext)} for unknown variables.
+     */
+    protected static final Object NO_SUCH_VARIABLE = new Object();
+
     private final PrismContext prismContext;
     private final Protector protector;
     private final LocalizationService localizationService;
@@ -113,15 +120,7 @@ public abstract class AbstractScriptEvaluator implements ScriptEvaluator {
                     continue;
                 }
                 String variableName = variableEntry.getKey();
-                ValueVariableModeType valueVariableMode = ObjectUtils.defaultIfNull(
-                        context.getExpressionType().getValueVariableMode(), ValueVariableModeType.REAL_VALUE);
-
-                //noinspection unchecked
-                TypedValue variableTypedValue = ExpressionUtil.convertVariableValue(variableEntry.getValue(), variableName,
-                        context.getObjectResolver(), context.getContextDescription(),
-                        context.getExpressionType().getObjectVariableMode(),
-                        valueVariableMode,
-                        prismContext, context.getTask(), context.getResult());
+                TypedValue variableTypedValue = convertScriptVariable(variableName, variableEntry.getValue(), context);
 
                 scriptVariableMap.put(variableName, variableTypedValue.getValue());
                 if (context.getTrace() != null && !variables.isAlias(variableName)) {
@@ -142,6 +141,69 @@ public abstract class AbstractScriptEvaluator implements ScriptEvaluator {
         return scriptVariableMap;
     }
 
+    private TypedValue convertScriptVariable(String variableName, TypedValue originalValue,
+            ScriptExpressionEvaluationContext context)
+            throws ExpressionSyntaxException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, ExpressionEvaluationException {
+        ValueVariableModeType valueVariableMode = ObjectUtils.defaultIfNull(
+                context.getExpressionType().getValueVariableMode(), ValueVariableModeType.REAL_VALUE);
+
+        //noinspection unchecked
+        return ExpressionUtil.convertVariableValue(originalValue, variableName,
+                context.getObjectResolver(), context.getContextDescription(),
+                context.getExpressionType().getObjectVariableMode(),
+                valueVariableMode,
+                prismContext, context.getTask(), context.getResult());
+    }
+
+    /**
+     * Names of all the variables that would be present in the map returned by {@link #prepareScriptVariablesValueMap(ScriptExpressionEvaluationContext)}.
+     */
+    protected Set<String> getScriptVariableNames(ScriptExpressionEvaluationContext context) {
+        Set<String> names = new HashSet<>();
+        if (context.getFunctions() != null) {
+            for (FunctionLibrary funcLib : context.getFunctions()) {
+                names.add(funcLib.getVariableName());
+            }
+        }
+        if (context.getVariables() != null) {
+            for (String variableName : context.getVariables().keySet()) {
+                if (variableName != null) {
+                    names.add(variableName);
+                }
+            }
+        }
+        names.add(ExpressionConstants.VAR_PRISM_CONTEXT);
+        return names;
+    }
+
+    /**
+     * Returns the value of single script variable, i.e. the value that would be present in the map returned by
+     * {@link #prepareScriptVariablesValueMap(ScriptExpressionEvaluationContext)} - but without the need to convert
+     * all the other variables. Variable values are not traced here.
+     *
+     * @return {@link #NO_SUCH_VARIABLE} if the variable does not exist
+     */
+    protected Object resolveScriptVariable(String variableName, ScriptExpressionEvaluationContext context)
+            throws ExpressionSyntaxException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, ExpressionEvaluationException {
+        ExpressionVariables variables = context.getVariables();
+        if (variableName != null && variables != null && variables.containsKey(variableName)) {
+            return convertScriptVariable(variableName, variables.get(variableName), context).getValue();
+        }
+        if (context.getFunctions() != null) {
+            for (FunctionLibrary funcLib : context.getFunctions()) {
+                if (funcLib.getVariableName().equals(variableName)) {
+                    return funcLib.getGenericFunctions();
+                }
+            }
+        }
+        if (ExpressionConstants.VAR_PRISM_CONTEXT.equals(variableName)) {
+            return prismContext;
+        }
+        return NO_SUCH_VARIABLE;
+    }
+
     /**
      * Cloning here is important: otherwise we can get cyclic references in object.fetchResult (pointing
      * to the object itself), preventing such object from being cloned.
@@ -6,59 +6,141 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 
 /**
  * Cache for compiled scripts and interpreters, aware of expression profiles.
  *
+ * Compiled code is kept in a bounded concurrent cache keyed by the expression profile and the source code.
+ * (The source code strings are usually kept by the expressions anyway, and their hash codes are cached by {@link String},
+ * so the lookup is cheap.) Compilation is "single-flight": when more threads ask for the same
+ * missing script at once, it is compiled only once and the other threads wait for the result.
+ *
+ * Hits, misses, and compilation time are reported to {@link CachePerformanceCollector}.
+ *
  * @param <C> compiled code
  * @author Radovan Semancik
  */
 public class ScriptCache<I,C> {
 
-    private final Map<String, I> interpreterCache = new HashMap<>();
-    private final Map<String, Map<String, C>> codeCache = new HashMap<>();
+    public static final int DEFAULT_MAX_SIZE = 10000;
 
-    public synchronized I getInterpreter(ExpressionProfile profile) {
+    /** Used instead of null profile identifier, as concurrent maps do not support null keys. */
+    private static final String NO_PROFILE_KEY = "";
+
+    private final Map<String, I> interpreterCache = new ConcurrentHashMap<>();
+    private final Cache<CodeKey, C> codeCache;
+
+    public ScriptCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ScriptCache(int maxSize) {
+        codeCache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public I getInterpreter(ExpressionProfile profile) {
         return interpreterCache.get(getProfileKey(profile));
     }
 
-    public synchronized void putInterpreter(ExpressionProfile profile, I interpreter) {
+    public void putInterpreter(ExpressionProfile profile, I interpreter) {
         interpreterCache.put(getProfileKey(profile), interpreter);
     }
 
-    public synchronized C getCode(ExpressionProfile profile, String sourceCodeKey) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
-            return null;
-        }
-        return profileCache.get(sourceCodeKey);
+    public C getCode(ExpressionProfile profile, String sourceCode) {
+        return codeCache.getIfPresent(new CodeKey(getProfileKey(profile), sourceCode));
     }
 
-    public synchronized void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
-            profileCache = new HashMap<>();
-            codeCache.put(profileKey, profileCache);
+    /**
+     * Returns the compiled code for given source, compiling it (at most once, even if called concurrently)
+     * if it's not cached yet. Exceptions thrown by the compiler are propagated as they are.
+     */
+    public C getOrCompileCode(ExpressionProfile profile, String sourceCode, Callable<C> compiler) throws Exception {
+        CodeKey key = new CodeKey(getProfileKey(profile), sourceCode);
+        C cached = codeCache.getIfPresent(key);
+        if (cached != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(ScriptCache.class, null, null);
+            return cached;
+        }
+        CachePerformanceCollector.INSTANCE.registerMiss(ScriptCache.class, null, null);
+        try {
+            return codeCache.get(key, () -> {
+                long start = System.currentTimeMillis();
+                try {
+                    return compiler.call();
+                } finally {
+                    CachePerformanceCollector.INSTANCE.registerComputationTime(ScriptCache.class, null, null,
+                            System.currentTimeMillis() - start);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw e;
+            }
         }
-        profileCache.put(sourceCodeKey, compiledCode);
     }
 
     private String getProfileKey(ExpressionProfile profile) {
         if (profile == null) {
-            return null;
+            return NO_PROFILE_KEY;
         } else {
             return profile.getIdentifier();
         }
     }
 
-    public synchronized void clear() {
-        codeCache.clear();
+    public long size() {
+        return codeCache.size();
     }
 
+    public void clear() {
+        codeCache.invalidateAll();
+    }
+
+    private static class CodeKey {
+
+        @NotNull private final String profileKey;
+        @NotNull private final String sourceCode;
+
+        private CodeKey(String profileKey, @NotNull String sourceCode) {
+            this.profileKey = Objects.requireNonNullElse(profileKey, NO_PROFILE_KEY);
+            this.sourceCode = sourceCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CodeKey)) {
+                return false;
+            }
+            CodeKey codeKey = (CodeKey) o;
+            return profileKey.equals(codeKey.profileKey) && sourceCode.equals(codeKey.sourceCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * profileKey.hashCode() + sourceCode.hashCode();
+        }
+    }
 }
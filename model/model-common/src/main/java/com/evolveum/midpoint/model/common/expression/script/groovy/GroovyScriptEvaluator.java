@@ -7,9 +7,14 @@
 package com.evolveum.midpoint.model.common.expression.script.groovy;
 
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.codehaus.groovy.control.CompilerConfiguration;
@@ -29,6 +34,8 @@ import com.evolveum.midpoint.schema.AccessDecision;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
 import com.evolveum.midpoint.schema.expression.ExpressionPermissionProfile;
 import com.evolveum.midpoint.schema.expression.ScriptExpressionProfile;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.util.exception.CommonException;
 import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 
@@ -63,6 +70,42 @@ public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<Groovy
      */
     private static final ScriptExpressionProfile BUILTIN_SCRIPT_EXPRESSION_PROFILE = new ScriptExpressionProfile(BUILTIN_EXPRESSION_PROFILE_NAME);
 
+    /**
+     * Maximal number of idle script instances kept per thread (used in script instance reuse mode).
+     */
+    private static final int MAX_IDLE_SCRIPT_INSTANCES_PER_THREAD = 100;
+
+    static final Object UNKNOWN_VARIABLE = NO_SUCH_VARIABLE;
+
+    /**
+     * Whether instances of given script class can be reused. Scripts that declare instance fields (e.g. using
+     * the @Field annotation) would carry their values over to the next run, so they are always instantiated anew.
+     * (Fields generated by the compiler are static, synthetic or transient.)
+     */
+    private static final ClassValue<Boolean> REUSABLE_SCRIPT_CLASSES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Idle script instances for the current thread (used in script instance reuse mode), in LRU order.
+     */
+    private final ThreadLocal<Map<Class<?>, Script>> idleScriptInstances = ThreadLocal.withInitial(
+            () -> new LinkedHashMap<Class<?>, Script>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Class<?>, Script> eldest) {
+                    return size() > MAX_IDLE_SCRIPT_INSTANCES_PER_THREAD;
+                }
+            });
+
     public GroovyScriptEvaluator(PrismContext prismContext, Protector protector, LocalizationService localizationService) {
         super(prismContext, protector, localizationService);
 
@@ -189,11 +232,16 @@ public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<Groovy
             throw new ExpressionEvaluationException("Expected groovy script class, but got "+compiledScriptClass);
         }
 
-        Binding binding = new Binding(prepareScriptVariablesValueMap(context));
+        Object resultObject;
+        if (InternalsConfig.isScriptInstanceReuse() && context.getTrace() == null) {
+            resultObject = runReusingScriptInstance(compiledScriptClass, context);
+        } else {
+            Binding binding = new Binding(prepareScriptVariablesValueMap(context));
 
-        Script scriptResultObject = InvokerHelper.createScript(compiledScriptClass, binding);
+            Script scriptResultObject = InvokerHelper.createScript(compiledScriptClass, binding);
 
-        Object resultObject = scriptResultObject.run();
+            resultObject = scriptResultObject.run();
+        }
 
         if (resultObject == null) {
             return null;
@@ -206,6 +254,48 @@ public class GroovyScriptEvaluator extends AbstractCachingScriptEvaluator<Groovy
         return resultObject;
     }
 
+    /**
+     * Runs the script using thread-confined script instance and lazily resolved variables.
+     * (Tracing requires all the variables to be resolved, so it is not supported here.)
+     *
+     * Idle instances are kept per thread, so an instance is never used by two threads at once.
+     * If the script is evaluated recursively (e.g. via a function library call), the nested evaluation
+     * does not find an idle instance, so it creates a new one.
+     *
+     * Instances of scripts with fields are not reused, see {@link #REUSABLE_SCRIPT_CLASSES}; variables are resolved
+     * lazily for them as well.
+     */
+    private Object runReusingScriptInstance(Class<?> compiledScriptClass, ScriptExpressionEvaluationContext context)
+            throws CommonException {
+        boolean reusable = REUSABLE_SCRIPT_CLASSES.get(compiledScriptClass);
+        Map<Class<?>, Script> idleInstances = idleScriptInstances.get();
+        Script script = reusable ? idleInstances.remove(compiledScriptClass) : null;
+        LazyScriptBinding binding = new LazyScriptBinding(this, context);
+        if (script == null) {
+            script = InvokerHelper.createScript(compiledScriptClass, binding);
+        } else {
+            script.setBinding(binding);
+        }
+        try {
+            return script.run();
+        } catch (LazyScriptBinding.VariableResolutionException e) {
+            throw e.getCause();
+        } finally {
+            if (reusable) {
+                script.setBinding(null); // not to hold the context (variables, task, result, ...) while idle
+                idleInstances.put(compiledScriptClass, script);
+            }
+        }
+    }
+
+    Set<String> getVariableNames(ScriptExpressionEvaluationContext context) {
+        return getScriptVariableNames(context);
+    }
+
+    Object resolveVariable(String name, ScriptExpressionEvaluationContext context) throws CommonException {
+        return resolveScriptVariable(name, context);
+    }
+
     static AccessDecision decideGroovyBuiltin(String className, String methodName) {
         return BUILTIN_SCRIPT_EXPRESSION_PROFILE.decideClassAccess(className, methodName);
     }
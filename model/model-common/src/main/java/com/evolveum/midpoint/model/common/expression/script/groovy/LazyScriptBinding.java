@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.common.expression.script.groovy;
+
+import java.util.Map;
+import java.util.Set;
+
+import groovy.lang.Binding;
+
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionEvaluationContext;
+import com.evolveum.midpoint.util.exception.CommonException;
+
+/**
+ * Groovy binding that resolves (converts) script variables only when the script actually reads them.
+ *
+ * Variable conversion can be expensive (e.g. resolving object references), and typical scripts use only
+ * a small fraction of the variables provided. Resolved values are remembered, so each variable is converted
+ * at most once. Variables set by the script itself take precedence, just as with the standard binding.
+ */
+class LazyScriptBinding extends Binding {
+
+    private final GroovyScriptEvaluator evaluator;
+    private final ScriptExpressionEvaluationContext context;
+
+    /** Names of the variables provided to the script; determined on first use. */
+    private Set<String> variableNames;
+
+    /** Whether all the variables were already resolved (e.g. because the script asked for the whole map). */
+    private boolean allResolved;
+
+    LazyScriptBinding(GroovyScriptEvaluator evaluator, ScriptExpressionEvaluationContext context) {
+        this.evaluator = evaluator;
+        this.context = context;
+    }
+
+    @Override
+    public Object getVariable(String name) {
+        Map<?, ?> variables = super.getVariables();
+        if (!allResolved && !variables.containsKey(name)) {
+            Object value = resolve(name);
+            if (value != GroovyScriptEvaluator.UNKNOWN_VARIABLE) {
+                super.setVariable(name, value);
+                return value;
+            }
+        }
+        return super.getVariable(name); // throws MissingPropertyException if there's no such variable
+    }
+
+    @Override
+    public boolean hasVariable(String name) {
+        return super.hasVariable(name)
+                || !allResolved && getVariableNames().contains(name);
+    }
+
+    @Override
+    public Map getVariables() {
+        if (!allResolved) {
+            Map<?, ?> variables = super.getVariables();
+            for (String name : getVariableNames()) {
+                if (!variables.containsKey(name)) {
+                    super.setVariable(name, resolve(name));
+                }
+            }
+            allResolved = true;
+        }
+        return super.getVariables();
+    }
+
+    private Set<String> getVariableNames() {
+        if (variableNames == null) {
+            variableNames = evaluator.getVariableNames(context);
+        }
+        return variableNames;
+    }
+
+    private Object resolve(String name) {
+        try {
+            return evaluator.resolveVariable(name, context);
+        } catch (CommonException e) {
+            throw new VariableResolutionException(e);
+        }
+    }
+
+    /**
+     * Carries checked exceptions from variable resolution through the script execution.
+     * Unwrapped by {@link GroovyScriptEvaluator}.
+     */
+    static class VariableResolutionException extends RuntimeException {
+        VariableResolutionException(CommonException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized CommonException getCause() {
+            return (CommonException) super.getCause();
+        }
+    }
+}
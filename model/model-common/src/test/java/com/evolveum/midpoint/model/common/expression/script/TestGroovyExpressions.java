@@ -492,6 +492,24 @@ public class TestGroovyExpressions extends AbstractScriptTest {
 
     }
 
+    /**
+     * Values of script fields (@Field) must not be carried over from one evaluation to another.
+     */
+    @Test
+    public void testFieldIsNotShared() throws Exception {
+        evaluateAndAssertStringScalarExpression(
+                "expression-field.xml",
+                "testFieldIsNotShared-1",
+                null,
+                "counter: 1");
+
+        evaluateAndAssertStringScalarExpression(
+                "expression-field.xml",
+                "testFieldIsNotShared-2",
+                null,
+                "counter: 1");
+    }
+
     /**
      * Almighty script can execute a process from string.
      */
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.common.expression.script;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+
+/**
+ * Runs Groovy expression tests with script instance reuse (and lazy variable resolution) turned on.
+ */
+public class TestGroovyExpressionsScriptInstanceReuse extends TestGroovyExpressions {
+
+    @BeforeClass
+    public void turnOnScriptInstanceReuse() {
+        InternalsConfig.setScriptInstanceReuse(true);
+    }
+
+    @AfterClass
+    public void turnOffScriptInstanceReuse() {
+        InternalsConfig.setScriptInstanceReuse(false);
+    }
+}
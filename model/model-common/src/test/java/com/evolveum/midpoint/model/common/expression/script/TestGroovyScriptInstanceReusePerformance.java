@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.common.expression.script;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+import org.xml.sax.SAXException;
+
+import com.evolveum.midpoint.common.Clock;
+import com.evolveum.midpoint.common.LocalizationTestUtil;
+import com.evolveum.midpoint.model.common.expression.functions.FunctionLibrary;
+import com.evolveum.midpoint.model.common.expression.functions.FunctionLibraryUtil;
+import com.evolveum.midpoint.model.common.expression.script.groovy.GroovyScriptEvaluator;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrimitiveType;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.crypto.KeyStoreBasedProtectorBuilder;
+import com.evolveum.midpoint.prism.crypto.Protector;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.repo.common.DirectoryFileObjectResolver;
+import com.evolveum.midpoint.repo.common.expression.ExpressionVariables;
+import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
+import com.evolveum.midpoint.schema.constants.MidPointConstants;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.test.util.InfraTestMixin;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEvaluatorType;
+
+/**
+ * Compares the performance of Groovy script evaluation with and without script instance reuse
+ * (with lazily resolved variables).
+ *
+ * This is a benchmark rather than a test, so it's not part of the default test suite.
+ */
+public class TestGroovyScriptInstanceReusePerformance extends AbstractUnitTest
+        implements InfraTestMixin {
+
+    private static final File TEST_DIR = new File("src/test/resources/expression/groovy");
+
+    private static final QName PROPERTY_NAME = new QName(MidPointConstants.NS_MIDPOINT_TEST_PREFIX, "whatever");
+
+    private static final int WARM_UP_ITERATIONS = 10_000;
+    private static final int ITERATIONS = 100_000;
+
+    /** Variables not used by the script; they simulate the usual mapping variables. */
+    private static final int UNUSED_VARIABLES = 20;
+
+    private ScriptExpressionFactory scriptExpressionFactory;
+
+    @BeforeSuite
+    public void setup() throws SchemaException, SAXException, IOException {
+        PrettyPrinter.setDefaultNamespacePrefix(MidPointConstants.NS_MIDPOINT_PUBLIC_PREFIX);
+        PrismTestUtil.resetPrismContext(MidPointPrismContextFactory.FACTORY);
+    }
+
+    @BeforeClass
+    public void setupFactory() {
+        PrismContext prismContext = getPrismContext();
+        Protector protector = KeyStoreBasedProtectorBuilder.create(prismContext).buildOnly();
+        Collection<FunctionLibrary> functions = new ArrayList<>();
+        functions.add(FunctionLibraryUtil.createBasicFunctionLibrary(prismContext, protector, new Clock()));
+        scriptExpressionFactory = new ScriptExpressionFactory(prismContext, null);
+        scriptExpressionFactory.setObjectResolver(new DirectoryFileObjectResolver(new File("src/test/resources/objects")));
+        scriptExpressionFactory.setFunctions(functions);
+        ScriptEvaluator evaluator = new GroovyScriptEvaluator(prismContext, protector, LocalizationTestUtil.getLocalizationService());
+        scriptExpressionFactory.registerEvaluator(evaluator.getLanguageUrl(), evaluator);
+    }
+
+    @AfterClass
+    public void resetInternals() {
+        InternalsConfig.setScriptInstanceReuse(false);
+    }
+
+    @Test
+    public void test100CompareEvaluationModes() throws Exception {
+        given();
+        ScriptExpression scriptExpression = createScriptExpression("expression-string-variables.xml");
+        ExpressionVariables variables = createVariables();
+
+        when("standard evaluation");
+        InternalsConfig.setScriptInstanceReuse(false);
+        long standard = measure(scriptExpression, variables);
+
+        when("evaluation with script instance reuse");
+        InternalsConfig.setScriptInstanceReuse(true);
+        long reuse = measure(scriptExpression, variables);
+
+        then();
+        display(String.format("Standard evaluation: %.2f µs/op, with script instance reuse: %.2f µs/op",
+                standard / 1000.0 / ITERATIONS, reuse / 1000.0 / ITERATIONS));
+    }
+
+    private long measure(ScriptExpression scriptExpression, ExpressionVariables variables) throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            evaluate(scriptExpression, variables);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            evaluate(scriptExpression, variables);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void evaluate(ScriptExpression scriptExpression, ExpressionVariables variables) throws Exception {
+        OperationResult result = new OperationResult("benchmark"); // not to accumulate subresults
+        ScriptExpressionEvaluationContext context = new ScriptExpressionEvaluationContext();
+        context.setVariables(variables);
+        context.setEvaluateNew(false);
+        context.setScriptExpression(scriptExpression);
+        context.setContextDescription("benchmark");
+        context.setResult(result);
+        List<PrismPropertyValue<String>> values = scriptExpression.evaluate(context);
+        assertEquals("Wrong result", "FOOBAR", values.get(0).getValue());
+    }
+
+    private ExpressionVariables createVariables() {
+        ExpressionVariables variables = ExpressionVariables.create(getPrismContext(),
+                "foo", "FOO", PrimitiveType.STRING,
+                "bar", "BAR", PrimitiveType.STRING);
+        for (int i = 0; i < UNUSED_VARIABLES; i++) {
+            variables.put("unused" + i, "value" + i, String.class);
+        }
+        return variables;
+    }
+
+    private ScriptExpression createScriptExpression(String fileName) throws SchemaException, IOException {
+        ScriptExpressionEvaluatorType scriptType = PrismTestUtil.parseAtomicValue(
+                new File(TEST_DIR, fileName), ScriptExpressionEvaluatorType.COMPLEX_TYPE);
+        ItemDefinition<?> outputDefinition = getPrismContext().definitionFactory()
+                .createPropertyDefinition(PROPERTY_NAME, DOMUtil.XSD_STRING);
+        ScriptExpression expression = new ScriptExpression(
+                scriptExpressionFactory.getEvaluators().get(scriptType.getLanguage()), scriptType);
+        expression.setOutputDefinition(outputDefinition);
+        expression.setObjectResolver(scriptExpressionFactory.getObjectResolver());
+        expression.setFunctions(new ArrayList<>(scriptExpressionFactory.getFunctions()));
+        return expression;
+    }
+}
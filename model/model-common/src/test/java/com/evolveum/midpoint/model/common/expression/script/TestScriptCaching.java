@@ -16,6 +16,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.namespace.QName;
 
 import org.testng.AssertJUnit;
@@ -122,6 +127,41 @@ public class TestScriptCaching extends AbstractUnitTest
         assertTrue("Even Horatio was wrong! " + horatio1Time + " -> " + horatio2Time, horatio2Time <= horatio1Time);
     }
 
+    /**
+     * Many threads asking for the same (missing) script at once should compile it only once.
+     */
+    @Test
+    public void testConcurrentCompilation() throws Exception {
+        given();
+        ScriptCache<Object, String> cache = new ScriptCache<>();
+        AtomicInteger compilations = new AtomicInteger();
+        int threads = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        when();
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.getOrCompileCode(null, "return 'hello'", () -> {
+                    compilations.incrementAndGet();
+                    Thread.sleep(100); // to make sure the other threads come while we are compiling
+                    return "compiled";
+                });
+            }));
+        }
+        start.countDown();
+
+        then();
+        for (Future<String> future : futures) {
+            assertEquals("Wrong compiled code", "compiled", future.get());
+        }
+        executor.shutdown();
+        assertEquals("Wrong number of compilations", 1, compilations.get());
+        assertEquals("Wrong cache size", 1, cache.size());
+    }
+
     private void assertScriptMonitor(int expCompilations, int expExecutions, String desc) {
         assertEquals("Unexpected number of script compilations after " + desc, expCompilations, InternalMonitor.getCount(InternalCounters.SCRIPT_COMPILE_COUNT));
         assertEquals("Unexpected number of script executions after " + desc, expExecutions, InternalMonitor.getCount(InternalCounters.SCRIPT_EXECUTION_COUNT));
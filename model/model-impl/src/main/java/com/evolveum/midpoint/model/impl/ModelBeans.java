@@ -11,6 +11,7 @@ import com.evolveum.midpoint.common.ActivationComputer;
 import com.evolveum.midpoint.model.common.ModelCommonBeans;
 
 import com.evolveum.midpoint.model.impl.lens.ClockworkMedic;
+import com.evolveum.midpoint.model.impl.lens.assignments.GlobalRoleHierarchyCache;
 import com.evolveum.midpoint.model.impl.lens.projector.ContextLoader;
 import com.evolveum.midpoint.model.impl.lens.projector.credentials.CredentialsProcessor;
 import com.evolveum.midpoint.model.impl.lens.projector.focus.ProjectionValueMetadataCreator;
@@ -55,4 +56,5 @@ public class ModelBeans {
     @Autowired public ProvisioningService provisioningService;
     @Autowired public ProjectionValueMetadataCreator projectionValueMetadataCreator;
     @Autowired public ActivationComputer activationComputer;
+    @Autowired public GlobalRoleHierarchyCache globalRoleHierarchyCache;
 }
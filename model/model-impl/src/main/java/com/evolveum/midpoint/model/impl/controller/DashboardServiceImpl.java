@@ -15,6 +15,7 @@ import com.evolveum.midpoint.audit.api.AuditResultHandler;
 import com.evolveum.midpoint.model.api.util.DashboardUtils;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
+import com.evolveum.midpoint.prism.query.OrderDirection;
 import com.evolveum.midpoint.schema.*;
 
 import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
@@ -501,6 +502,14 @@ public class DashboardServiceImpl implements DashboardService {
     public void searchObjectFromCollection(CollectionRefSpecificationType collectionConfig, QName typeForFilter, ResultHandler<ObjectType> handler,
             Collection<SelectorOptions<GetOperationOptions>> defaultOptions, Task task, OperationResult result, boolean recordProgress)
             throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException, ExpressionEvaluationException {
+        searchObjectFromCollection(collectionConfig, typeForFilter, handler, defaultOptions, null, task, result, recordProgress);
+    }
+
+    @Override
+    public void searchObjectFromCollection(CollectionRefSpecificationType collectionConfig, QName typeForFilter, ResultHandler<ObjectType> handler,
+            Collection<SelectorOptions<GetOperationOptions>> defaultOptions, WorkBucketType workBucket, Task task, OperationResult result,
+            boolean recordProgress)
+            throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException, ExpressionEvaluationException {
         Class<ObjectType> type = null;
 
         if (collectionConfig.getCollectionRef() != null && collectionConfig.getFilter() != null) {
@@ -535,6 +544,10 @@ public class DashboardServiceImpl implements DashboardService {
             type = compiledCollection.getTargetClass();
         }
 
+        if (workBucket != null) {
+            query = taskManager.narrowQueryForWorkBucket(query, type, null, task, workBucket, result);
+        }
+
         Collection<SelectorOptions<GetOperationOptions>> options;
         if (compiledCollection.getOptions() == null) {
             options = defaultOptions;
@@ -553,6 +566,72 @@ public class DashboardServiceImpl implements DashboardService {
             ObjectPaging paging, Task task, OperationResult result, boolean recordProgress)
             throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException, ExpressionEvaluationException {
 
+        ObjectFilter filter = getAuditCollectionFilter(collectionConfig, task, result);
+        ObjectQuery query = prismContext.queryFactory().createQuery();
+        query.setFilter(filter);
+        query.setPaging(paging);
+        @NotNull Collection<SelectorOptions<GetOperationOptions>> options = getAuditCollectionOptions(collectionConfig, task, result);
+        if (recordProgress) {
+            long count = auditService.countObjects(query, options, result);
+            task.setExpectedTotal(count);
+        }
+        @NotNull SearchResultList<AuditEventRecordType> auditRecords = auditService.searchObjects(query, options, result);
+        auditRecords.forEach(audit -> {
+            handler.handle(audit);
+        });
+    }
+
+    @Override
+    public void searchAuditRecordsFromCollection(CollectionRefSpecificationType collectionConfig, AuditResultHandler handler,
+            int pageSize, Task task, OperationResult result, boolean recordProgress)
+            throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException,
+            ExpressionEvaluationException {
+
+        ObjectFilter filter = getAuditCollectionFilter(collectionConfig, task, result);
+        @NotNull Collection<SelectorOptions<GetOperationOptions>> options = getAuditCollectionOptions(collectionConfig, task, result);
+        if (recordProgress) {
+            task.setExpectedTotal(auditService.countObjects(prismContext.queryFactory().createQuery(filter), options, result));
+        }
+
+        // Keyset paging: each page starts after the last record of the previous one, so records are neither skipped
+        // nor repeated when new records are added during the export, and the database does not need to skip
+        // over all the previous pages. The repository ID makes the ordering unique (event identifier is not
+        // suitable for this, as it can be null for older records).
+        AuditEventRecordType last = null;
+        while (true) {
+            ObjectQuery query = prismContext.queryFactory().createQuery(
+                    last != null ? prismContext.queryFactory().createAnd(filter.clone(), createAfterRecordFilter(last)) : filter);
+            ObjectPaging paging = prismContext.queryFactory().createPaging(0, pageSize);
+            paging.addOrderingInstruction(AuditEventRecordType.F_TIMESTAMP, OrderDirection.ASCENDING);
+            paging.addOrderingInstruction(AuditEventRecordType.F_REPO_ID, OrderDirection.ASCENDING);
+            query.setPaging(paging);
+            SearchResultList<AuditEventRecordType> page = auditService.searchObjects(query, options, result);
+            for (AuditEventRecordType record : page) {
+                if (!handler.handle(record)) {
+                    return;
+                }
+            }
+            if (page.size() < pageSize) {
+                return;
+            }
+            last = page.get(page.size() - 1);
+        }
+    }
+
+    private ObjectFilter createAfterRecordFilter(AuditEventRecordType record) {
+        return prismContext.queryFor(AuditEventRecordType.class)
+                .item(AuditEventRecordType.F_TIMESTAMP).gt(record.getTimestamp())
+                .or()
+                .block()
+                    .item(AuditEventRecordType.F_TIMESTAMP).eq(record.getTimestamp())
+                    .and().item(AuditEventRecordType.F_REPO_ID).gt(record.getRepoId())
+                .endBlock()
+                .buildFilter();
+    }
+
+    private ObjectFilter getAuditCollectionFilter(CollectionRefSpecificationType collectionConfig, Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, SecurityViolationException, CommunicationException, ConfigurationException,
+            ExpressionEvaluationException {
         if (collectionConfig.getCollectionRef() != null && collectionConfig.getFilter() != null) {
             LOGGER.error("CollectionRefSpecificationType contains CollectionRef and Filter, please define only one");
             throw new IllegalArgumentException("CollectionRefSpecificationType contains CollectionRef and Filter, please define only one");
@@ -568,10 +647,13 @@ public class DashboardServiceImpl implements DashboardService {
             throw new ConfigurationException("Couldn't find filter");
         }
 
-        filter = collectionProcessor.evaluateExpressionsInFilter(filter, result, task);
-        ObjectQuery query = prismContext.queryFactory().createQuery();
-        query.setFilter(filter);
-        query.setPaging(paging);
+        return collectionProcessor.evaluateExpressionsInFilter(filter, result, task);
+    }
+
+    @NotNull
+    private Collection<SelectorOptions<GetOperationOptions>> getAuditCollectionOptions(CollectionRefSpecificationType collectionConfig,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException,
+            CommunicationException, ConfigurationException, ExpressionEvaluationException {
         ObjectCollectionType collection = null;
         if (collectionConfig.getCollectionRef() != null) {
             ObjectReferenceType ref = collectionConfig.getCollectionRef();
@@ -579,15 +661,7 @@ public class DashboardServiceImpl implements DashboardService {
             collection = (ObjectCollectionType) modelService
                     .getObject(refType, ref.getOid(), null, task, result).asObjectable();
         }
-        @NotNull Collection<SelectorOptions<GetOperationOptions>> options = combineAuditOption(collectionConfig, collection, task, result);
-        if (recordProgress) {
-            long count = auditService.countObjects(query, options, result);
-            task.setExpectedTotal(count);
-        }
-        @NotNull SearchResultList<AuditEventRecordType> auditRecords = auditService.searchObjects(query, options, result);
-        auditRecords.forEach(audit -> {
-            handler.handle(audit);
-        });
+        return combineAuditOption(collectionConfig, collection, task, result);
     }
 
     @Override
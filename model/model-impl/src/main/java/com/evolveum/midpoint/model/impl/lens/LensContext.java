@@ -9,6 +9,7 @@ package com.evolveum.midpoint.model.impl.lens;
 import java.util.*;
 import java.util.Objects;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import javax.xml.namespace.QName;
 
@@ -211,7 +212,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
      */
     private transient Collection<ProgressListener> progressListeners;
 
-    private final Map<String, Long> sequences = new HashMap<>();
+    private final Map<String, Long> sequences = new ConcurrentHashMap<>();
 
     /**
      * Moved from ProjectionValuesProcessor TODO consider if necessary to
@@ -902,9 +903,10 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         return projCtx;
     }
 
-    private Map<String, ResourceType> getResourceCache() {
+    // synchronized because projections can be processed in parallel (see InternalsConfig.projectorThreads)
+    private synchronized Map<String, ResourceType> getResourceCache() {
         if (resourceCache == null) {
-            resourceCache = new HashMap<>();
+            resourceCache = new ConcurrentHashMap<>();
         }
         return resourceCache;
     }
@@ -928,7 +930,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
      * @see LensContext#rememberResource(ResourceType)
      */
     public ResourceType getResource(String resourceOid) {
-        return getResourceCache().get(resourceOid);
+        return resourceOid != null ? getResourceCache().get(resourceOid) : null;
     }
 
     /**
@@ -1025,7 +1027,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         if (resourceCache == null) {
             return null;
         }
-        Map<String, ResourceType> clonedMap = new HashMap<>();
+        Map<String, ResourceType> clonedMap = new ConcurrentHashMap<>();
         for (Entry<String, ResourceType> entry : resourceCache.entrySet()) {
             clonedMap.put(entry.getKey(), entry.getValue());
         }
@@ -1488,7 +1490,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         return conflictingProjectionContexts;
     }
 
-    public void addConflictingProjectionContext(LensProjectionContext conflictingContext) {
+    public synchronized void addConflictingProjectionContext(LensProjectionContext conflictingContext) {
         conflictingProjectionContexts.add(conflictingContext);
     }
 
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.assignments;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
+import com.evolveum.midpoint.schema.cache.CacheType;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.caching.CacheConfiguration;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.caching.CacheUtil;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Global cache of role hierarchy closures used during assignment evaluation.
+ *
+ * {@link EvaluatedAssignmentTargetCache} is reset for every focus and the local repository cache lives only while
+ * a single item is processed. So e.g. a recompute of many users used to walk (and fetch) the same business role ->
+ * application role -> meta-role graph over and over. This cache keeps, for each role that is assigned directly
+ * to a focus (the "root"), the closure of roles reachable from it via inducements and role (meta-role) assignments
+ * that reference their targets by OID. The closure is fetched at once, level by level, and then shared by evaluations
+ * of all focal objects having the root role assigned.
+ *
+ * Only user-independent edges are served from here: targets referenced by OID from a role in the closure.
+ * Direct assignments of the focus and targets specified by a filter (that can contain expressions depending
+ * on the focus) are always resolved in the usual way. Conditions, mappings, evaluation order matching and the payload
+ * of the roles are evaluated for each focus as before, because their results are bound to the whole assignment path
+ * (including the focus).
+ *
+ * Objects are stored immutable; clients get their clones. A closure is invalidated when any of its roles is changed
+ * (also on other nodes, see {@link #isClusterwideInvalidationRequired(Class)}), and expires after the time to live
+ * configured for the root type. Hits and misses are reported to {@link CachePerformanceCollector}, so they are visible
+ * in task statistics.
+ *
+ * Configured via {@link CacheType#GLOBAL_ROLE_HIERARCHY_CACHE}.
+ */
+@Component
+public class GlobalRoleHierarchyCache implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(GlobalRoleHierarchyCache.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(GlobalRoleHierarchyCache.class.getName() + ".content");
+    private static final Trace PERFORMANCE_ADVISOR = TraceManager.getPerformanceAdvisorTrace();
+
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired private CacheConfigurationManager cacheConfigurationManager;
+    @Autowired @Qualifier("cacheRepositoryService") private RepositoryService repositoryService;
+    @Autowired private PrismContext prismContext;
+
+    /**
+     * Closures indexed by OID of their root role.
+     */
+    private final Map<String, Closure> closures = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each invalidation. Closures fetched while an invalidation took place are not stored,
+     * because they might be outdated already.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    /**
+     * Returns true if the closure of given root can be obtained from this cache (now).
+     */
+    boolean supports(@NotNull ObjectType root) {
+        CacheConfiguration configuration = getConfiguration();
+        return configuration != null
+                && root.getOid() != null
+                && root instanceof AbstractRoleType
+                && configuration.supportsObjectType(root.getClass());
+    }
+
+    /**
+     * Returns (a clone of) the target object, taking it from the closure of given root. The closure is fetched
+     * if it's not cached or if it's expired. Targets outside of the closure are fetched from the repository.
+     * Caller should check {@link #supports(ObjectType)} first.
+     */
+    @NotNull
+    <T extends ObjectType> PrismObject<T> get(@NotNull ObjectType root, @NotNull Class<T> targetClass, @NotNull String oid,
+            OperationResult result) throws ObjectNotFoundException, SchemaException {
+        CacheConfiguration configuration = getConfiguration();
+        CacheConfiguration.CacheObjectTypeConfiguration typeConfiguration =
+                configuration != null ? configuration.getForObjectType(root.getClass()) : null;
+        CacheConfiguration.StatisticsLevel statisticsLevel =
+                CacheConfiguration.getStatisticsLevel(typeConfiguration, configuration);
+        CachePerformanceCollector collector = CachePerformanceCollector.INSTANCE;
+
+        if (configuration == null || typeConfiguration == null || !typeConfiguration.supportsCaching()) {
+            collector.registerNotAvailable(GlobalRoleHierarchyCache.class, root.getClass(), statisticsLevel);
+            return repositoryService.getObject(targetClass, oid, null, result);
+        }
+
+        long now = System.currentTimeMillis();
+        Closure closure = closures.get(root.getOid());
+        if (closure != null && !closure.isExpired(now)) {
+            log("Cache HIT for closure of {}", false, root);
+            collector.registerHit(GlobalRoleHierarchyCache.class, root.getClass(), statisticsLevel);
+        } else {
+            log("Cache MISS for closure of {}", CacheConfiguration.getTraceMiss(typeConfiguration, configuration), root);
+            collector.registerMiss(GlobalRoleHierarchyCache.class, root.getClass(), statisticsLevel);
+            closure = fetchAndStore(root.getOid(), configuration, typeConfiguration, now, result);
+        }
+
+        PrismObject<? extends ObjectType> object = closure.objects.get(oid);
+        if (object != null && targetClass.isAssignableFrom(object.getCompileTimeClass())) {
+            //noinspection unchecked
+            return (PrismObject<T>) object.clone();
+        } else {
+            // E.g. a target that does not exist (any more), or is not of a cached type.
+            LOGGER.trace("{}:{} is not in the closure of {}, getting it from the repository", targetClass.getSimpleName(),
+                    oid, root);
+            return repositoryService.getObject(targetClass, oid, null, result);
+        }
+    }
+
+    @NotNull
+    private Closure fetchAndStore(String rootOid, CacheConfiguration configuration,
+            CacheConfiguration.CacheObjectTypeConfiguration typeConfiguration, long now, OperationResult result)
+            throws SchemaException {
+        long invalidationsBefore = invalidations.get();
+        Integer timeToLive = typeConfiguration.getEffectiveTimeToLive();
+        Closure closure = new Closure(
+                fetchClosureObjects(rootOid, configuration, result),
+                timeToLive != null ? now + timeToLive * 1000L : Long.MAX_VALUE);
+        if (invalidations.get() != invalidationsBefore) {
+            LOGGER.trace("Cache was invalidated while closure of {} was being fetched, not storing it", rootOid);
+        } else if (!hasRoomFor(rootOid, configuration.getMaxSize(), now)) {
+            LOGGER.trace("Cache is full ({} closures), not storing closure of {}", closures.size(), rootOid);
+        } else {
+            closures.put(rootOid, closure);
+        }
+        return closure;
+    }
+
+    private boolean hasRoomFor(String rootOid, Integer maxSize, long now) {
+        if (maxSize == null || closures.size() < maxSize || closures.containsKey(rootOid)) {
+            return true;
+        }
+        closures.values().removeIf(c -> c.isExpired(now));
+        return closures.size() < maxSize;
+    }
+
+    /**
+     * Fetches the root and all roles reachable from it, one level (i.e. one repository search) at a time.
+     */
+    private Map<String, PrismObject<? extends ObjectType>> fetchClosureObjects(String rootOid,
+            CacheConfiguration configuration, OperationResult result) throws SchemaException {
+        Collection<SelectorOptions<GetOperationOptions>> readOnly = GetOperationOptions.createReadOnlyCollection();
+        Map<String, PrismObject<? extends ObjectType>> objects = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        Set<String> level = Collections.singleton(rootOid);
+        seen.add(rootOid);
+        while (!level.isEmpty()) {
+            ObjectQuery query = prismContext.queryFor(AbstractRoleType.class)
+                    .id(level.toArray(new String[0]))
+                    .build();
+            Set<String> nextLevel = new HashSet<>();
+            for (PrismObject<AbstractRoleType> object :
+                    repositoryService.searchObjects(AbstractRoleType.class, query, readOnly, result)) {
+                PrismObject<AbstractRoleType> immutableObject = object.isImmutable() ? object : object.clone();
+                immutableObject.freeze();
+                objects.put(object.getOid(), immutableObject);
+                AbstractRoleType role = immutableObject.asObjectable();
+                collectTargets(role.getInducement(), configuration, seen, nextLevel);
+                collectTargets(role.getAssignment(), configuration, seen, nextLevel);
+            }
+            level = nextLevel;
+        }
+        LOGGER.trace("Fetched closure of {}: {} object(s)", rootOid, objects.size());
+        return Collections.unmodifiableMap(objects);
+    }
+
+    private void collectTargets(List<AssignmentType> assignments, CacheConfiguration configuration,
+            Set<String> seen, Set<String> nextLevel) {
+        for (AssignmentType assignment : assignments) {
+            ObjectReferenceType targetRef = assignment.getTargetRef();
+            if (targetRef == null || targetRef.getOid() == null || targetRef.getType() == null) {
+                continue;
+            }
+            Class<?> targetClass = prismContext.getSchemaRegistry().determineCompileTimeClass(targetRef.getType());
+            if (targetClass != null && configuration.supportsObjectType(targetClass) && seen.add(targetRef.getOid())) {
+                nextLevel.add(targetRef.getOid());
+            }
+        }
+    }
+
+    private CacheConfiguration getConfiguration() {
+        return cacheConfigurationManager.getConfiguration(CacheType.GLOBAL_ROLE_HIERARCHY_CACHE);
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null || isRoleType(type)) {
+            invalidations.incrementAndGet();
+            if (oid != null) {
+                closures.values().removeIf(closure -> closure.objects.containsKey(oid));
+            } else {
+                closures.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean isClusterwideInvalidationRequired(@NotNull Class<?> type) {
+        CacheConfiguration configuration = getConfiguration();
+        return isRoleType(type) && configuration != null && configuration.isAvailable();
+    }
+
+    private boolean isRoleType(Class<?> type) {
+        return AbstractRoleType.class.isAssignableFrom(type) || type.isAssignableFrom(AbstractRoleType.class);
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(new SingleCacheStateInformationType(prismContext)
+                .name(GlobalRoleHierarchyCache.class.getName())
+                .size(closures.size()));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            closures.forEach((oid, closure) ->
+                    LOGGER_CONTENT.info("Cached role hierarchy closure: {}: {}", oid, closure.objects.keySet()));
+        }
+    }
+
+    private static void log(String message, boolean info, Object... params) {
+        CacheUtil.log(LOGGER, PERFORMANCE_ADVISOR, message, info, params);
+    }
+
+    private static class Closure {
+
+        /** Immutable objects in the closure (including the root), indexed by OID. */
+        @NotNull private final Map<String, PrismObject<? extends ObjectType>> objects;
+        private final long expiresAt;
+
+        private Closure(@NotNull Map<String, PrismObject<? extends ObjectType>> objects, long expiresAt) {
+            this.objects = objects;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -199,10 +199,31 @@ class TargetsEvaluation<AH extends AssignmentHolderType> extends AbstractEvaluat
             OperationResult result) throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException,
             CommunicationException, ConfigurationException, SecurityViolationException {
         ObjectReferenceType targetRef = segment.assignment.getTargetRef();
+        ObjectType root = getHierarchyRoot(segment, ctx, targetRef);
+        if (root != null && ctx.ae.beans.globalRoleHierarchyCache.supports(root)) {
+            Class<? extends ObjectType> targetClass = ctx.ae.prismContext.getSchemaRegistry()
+                    .determineClassForTypeRequired(targetRef.getType(), ObjectType.class);
+            return Collections.singletonList(
+                    ctx.ae.beans.globalRoleHierarchyCache.get(root, targetClass, targetRef.getOid(), result));
+        }
         ReferenceResolver.FilterEvaluator filterEvaluator = createFilterEvaluator(segment, ctx);
         return ctx.ae.referenceResolver.resolve(targetRef, null, REPOSITORY, filterEvaluator, ctx.task, result);
     }
 
+    /**
+     * Targets of inducements and of assignments in roles (i.e. not the ones in the focus) are the same for all the focal
+     * objects, provided they are referenced by OID. Such targets belong to the role hierarchy (closure) of the role
+     * that is assigned directly, i.e. the target of the first segment. Returns that role, if applicable.
+     */
+    private ObjectType getHierarchyRoot(AssignmentPathSegmentImpl segment, EvaluationContext<AH> ctx,
+            ObjectReferenceType targetRef) {
+        if (segment.direct || targetRef.getOid() == null || targetRef.getType() == null) {
+            return null;
+        } else {
+            return ctx.assignmentPath.first().getTarget();
+        }
+    }
+
     @NotNull
     private ReferenceResolver.FilterEvaluator createFilterEvaluator(AssignmentPathSegmentImpl segment,
             EvaluationContext<AH> ctx) {
@@ -10,6 +10,7 @@ import static com.evolveum.midpoint.model.impl.lens.LensUtil.getExportType;
 import static com.evolveum.midpoint.schema.internals.InternalsConfig.consistencyChecks;
 import static com.evolveum.midpoint.schema.result.OperationResult.DEFAULT;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -650,6 +651,7 @@ public class ContextLoader implements ProjectorProcessor {
         if (linkRef == null) {
             return;
         }
+        prefetchLinkedShadows(context, linkRef, result);
         for (PrismReferenceValue linkRefVal : linkRef.getValues()) {
             String oid = linkRefVal.getOid();
             if (StringUtils.isBlank(oid)) {
@@ -722,6 +724,27 @@ public class ContextLoader implements ProjectorProcessor {
         }
     }
 
+    /**
+     * Shadows from linkRefs are loaded one by one via provisioning (see above). Here we fetch them all
+     * from the repository using a single query, so these calls are served from the local repository cache
+     * (entered for the clockwork run).
+     */
+    private <F extends FocusType> void prefetchLinkedShadows(LensContext<F> context, PrismReference linkRef,
+            OperationResult result) throws SchemaException {
+        List<String> oidsToLoad = new ArrayList<>();
+        for (PrismReferenceValue linkRefVal : linkRef.getValues()) {
+            String oid = linkRefVal.getOid();
+            if (StringUtils.isNotBlank(oid) && linkRefVal.getObject() == null && findAccountContext(oid, context) == null) {
+                oidsToLoad.add(oid);
+            }
+        }
+        if (oidsToLoad.size() > 1) {
+            LOGGER.trace("Prefetching {} shadows from linkRef", oidsToLoad.size());
+            cacheRepositoryService.getObjects(ShadowType.class, oidsToLoad,
+                    SelectorOptions.createCollection(GetOperationOptions.createReadOnly()), result);
+        }
+    }
+
     private <F extends FocusType> void loadLinkRefsFromDelta(LensContext<F> context, PrismObject<F> focus,
             LensFocusContext<F> focusContext, Task task, OperationResult result) throws SchemaException,
             ObjectNotFoundException, CommunicationException, ConfigurationException,
@@ -399,6 +399,38 @@ public class DependencyProcessor {
         return createAnotherContext(context, origProjectionContext, discr);
     }
 
+    /**
+     * Returns true if the projection neither depends on any other projection nor any other projection depends on it,
+     * and there are no other-order contexts for the same resource object type. Such projections can be processed
+     * independently of each other (e.g. in parallel).
+     */
+    <F extends ObjectType> boolean isIndependent(LensContext<F> context, LensProjectionContext projContext) {
+        ResourceShadowDiscriminator discriminator = projContext.getResourceShadowDiscriminator();
+        if (projContext.getResource() == null || discriminator == null || discriminator.getResourceOid() == null
+                || !projContext.getDependencies().isEmpty()) {
+            return false;
+        }
+        for (LensProjectionContext otherContext : context.getProjectionContexts()) {
+            if (otherContext == projContext) {
+                continue;
+            }
+            if (otherContext.compareResourceShadowDiscriminator(discriminator, false)) {
+                return false;
+            }
+            if (otherContext.getResource() == null) {
+                return false;
+            }
+            for (ResourceObjectTypeDependencyType dependency : otherContext.getDependencies()) {
+                ResourceShadowDiscriminator refDiscr = new ResourceShadowDiscriminator(dependency,
+                        otherContext.getResource().getOid(), otherContext.getKind());
+                if (projContext.compareResourceShadowDiscriminator(refDiscr, false)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Check that the dependencies are still satisfied. Also check for high-orders vs low-order operation consistency
      * and stuff like that.
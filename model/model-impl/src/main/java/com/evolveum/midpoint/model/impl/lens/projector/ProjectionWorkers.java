@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.projector;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Bounded pool of threads used by {@link Projector} to process independent projections in parallel.
+ * The number of threads is given by {@link InternalsConfig#getProjectorThreads()}.
+ *
+ * Submitted work runs with the security context of the submitting thread and with its own local repository caches.
+ * Other thread-local information (e.g. cache and operation performance statistics) is not transferred.
+ */
+@Component
+public class ProjectionWorkers {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ProjectionWorkers.class);
+
+    private static final ThreadLocal<Boolean> INSIDE_WORKER = new ThreadLocal<>();
+
+    @Autowired private CacheConfigurationManager cacheConfigurationManager;
+
+    private ExecutorService executor;
+    private int executorThreads;
+
+    /**
+     * A piece of work to be executed in a worker thread.
+     */
+    @FunctionalInterface
+    interface Work {
+        void run() throws Exception;
+    }
+
+    /**
+     * Handle to submitted work.
+     */
+    static class Execution {
+
+        private final Future<Throwable> future;
+
+        private Execution(Future<Throwable> future) {
+            this.future = future;
+        }
+
+        /**
+         * Waits for the work to finish. Returns the exception thrown by the work (if any).
+         */
+        Throwable await() {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SystemException("Interrupted while waiting for a projection to be processed", e);
+            } catch (ExecutionException e) {
+                return e.getCause(); // should not occur, as the work never throws
+            }
+        }
+    }
+
+    boolean isInsideWorker() {
+        return Boolean.TRUE.equals(INSIDE_WORKER.get());
+    }
+
+    Execution submit(Work work) {
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        return new Execution(getExecutor().submit(() -> {
+            INSIDE_WORKER.set(true);
+            SecurityContextHolder.setContext(securityContext);
+            RepositoryCache.enterLocalCaches(cacheConfigurationManager);
+            try {
+                work.run();
+                return null;
+            } catch (Throwable t) {
+                return t;
+            } finally {
+                RepositoryCache.exitLocalCaches();
+                SecurityContextHolder.clearContext();
+                INSIDE_WORKER.remove();
+            }
+        }));
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        int threads = Math.max(InternalsConfig.getProjectorThreads(), 1);
+        if (executor == null || executorThreads != threads) {
+            if (executor != null) {
+                executor.shutdown(); // running work is finished
+            }
+            LOGGER.debug("Starting {} projector worker threads", threads);
+            executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+            executorThreads = threads;
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "projector-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -9,7 +9,10 @@ package com.evolveum.midpoint.model.impl.lens.projector;
 import static com.evolveum.midpoint.model.api.ProgressInformation.ActivityType.PROJECTOR;
 import static com.evolveum.midpoint.model.api.ProgressInformation.StateType.ENTERING;
 import static com.evolveum.midpoint.model.impl.lens.LensUtil.getExportType;
+import static java.util.Collections.emptyList;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.evolveum.midpoint.model.impl.lens.projector.focus.ObjectTemplateProcessor;
@@ -31,6 +34,7 @@ import com.evolveum.midpoint.model.impl.util.ModelImplUtils;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.PreconditionViolationException;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
@@ -43,6 +47,7 @@ import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.PolicyViolationException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
@@ -65,6 +70,7 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 public class Projector {
 
     private static final String OPERATION_PROJECT_PROJECTION = Projector.class.getName() + ".projectProjection";
+    private static final String OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL = Projector.class.getName() + ".projectProjectionsInParallel";
 
     @Autowired private ContextLoader contextLoader;
     @Autowired private AssignmentHolderProcessor assignmentHolderProcessor;
@@ -76,6 +82,7 @@ public class Projector {
     @Autowired private ObjectTemplateProcessor objectTemplateProcessor;
     @Autowired private Clock clock;
     @Autowired private ClockworkMedic medic;
+    @Autowired private ProjectionWorkers projectionWorkers;
 
     private static final Trace LOGGER = TraceManager.getTrace(Projector.class);
 
@@ -198,12 +205,16 @@ public class Projector {
                 dependencyProcessor.sortProjectionsToWaves(context, result);
 
                 // In the future we may want the ability to select only some projections to process.
+                List<LensProjectionContext> parallelProjections = selectProjectionsForParallelProcessing(context, result);
+                if (!parallelProjections.isEmpty()) {
+                    projectInParallel(context, parallelProjections, partialProcessingOptions, now, activityDescription,
+                            task, result);
+                }
                 for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
-                    medic.partialExecute(Components.PROJECTION,
-                            (result1) -> projectProjection(context, projectionContext,
-                                    partialProcessingOptions, now, activityDescription, task, result1),
-                            partialProcessingOptions::getProjection,
-                            Projector.class, context, projectionContext, result);
+                    if (!parallelProjections.contains(projectionContext)) {
+                        projectProjectionComponent(context, projectionContext, partialProcessingOptions, now,
+                                activityDescription, task, result);
+                    }
                 }
 
                 // If there exists some conflicting projection contexts, add them to the context so they will be recomputed
@@ -248,6 +259,111 @@ public class Projector {
         }
     }
 
+    private <F extends ObjectType> void projectProjectionComponent(LensContext<F> context,
+            LensProjectionContext projectionContext, PartialProcessingOptionsType partialProcessingOptions,
+            XMLGregorianCalendar now, String activityDescription, Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException,
+            PreconditionViolationException {
+        medic.partialExecute(Components.PROJECTION,
+                (result1) -> projectProjection(context, projectionContext,
+                        partialProcessingOptions, now, activityDescription, task, result1),
+                partialProcessingOptions::getProjection,
+                Projector.class, context, projectionContext, result);
+    }
+
+    /**
+     * Selects projections that can be processed in parallel (see {@link InternalsConfig#getProjectorThreads()}):
+     * those of the current wave that are independent of all the other ones. Returns empty list if parallel processing
+     * is not enabled or not applicable.
+     *
+     * Parallel processing is not used if the operation is traced or the context is inspected, as tracing and inspectors
+     * are not prepared for concurrent updates. It is not used in projector workers either, to avoid waiting for the pool
+     * from within the pool.
+     */
+    private <F extends ObjectType> List<LensProjectionContext> selectProjectionsForParallelProcessing(
+            LensContext<F> context, OperationResult result) {
+        if (InternalsConfig.getProjectorThreads() <= 0 || projectionWorkers.isInsideWorker()
+                || result.isTraced() || context.getInspector() != null || medic.getClockworkInspector() != null
+                || InternalsConfig.isConsistencyChecks()) {
+            return emptyList();
+        }
+        List<LensProjectionContext> selected = new ArrayList<>();
+        for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
+            if (projectionContext.getWave() == context.getProjectionWave() && !projectionContext.isCompleted()
+                    && dependencyProcessor.isIndependent(context, projectionContext)) {
+                selected.add(projectionContext);
+            }
+        }
+        return selected.size() > 1 ? selected : emptyList();
+    }
+
+    /**
+     * Projects given projections in parallel. Each projection gets its own (detached) operation result;
+     * these are then attached to the parent result in the original order of the projections, so the result
+     * tree looks the same as in the case of sequential processing. If more projections fail with an exception,
+     * the exception of the first one (in the original order) is thrown.
+     */
+    private <F extends ObjectType> void projectInParallel(LensContext<F> context, List<LensProjectionContext> projections,
+            PartialProcessingOptionsType partialProcessingOptions, XMLGregorianCalendar now, String activityDescription,
+            Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException,
+            PreconditionViolationException {
+        LOGGER.trace("Projecting {} independent projections in parallel", projections.size());
+        List<OperationResult> projectionResults = new ArrayList<>(projections.size());
+        List<ProjectionWorkers.Execution> executions = new ArrayList<>(projections.size());
+        for (LensProjectionContext projectionContext : projections) {
+            OperationResult projectionResult = new OperationResult(OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL);
+            projectionResults.add(projectionResult);
+            InternalMonitor.recordCount(InternalCounters.PROJECTOR_PARALLEL_PROJECTION_COUNT);
+            executions.add(projectionWorkers.submit(
+                    () -> projectProjectionComponent(context, projectionContext, partialProcessingOptions, now,
+                            activityDescription, task, projectionResult)));
+        }
+        Throwable firstFailure = null;
+        for (int i = 0; i < projections.size(); i++) {
+            Throwable failure = executions.get(i).await();
+            if (failure != null && firstFailure == null) {
+                firstFailure = failure;
+            }
+            projectionResults.get(i).getSubresults().forEach(result::addSubresult);
+        }
+        if (firstFailure != null) {
+            throwFailure(firstFailure);
+        }
+    }
+
+    private void throwFailure(Throwable t) throws SchemaException, ObjectNotFoundException, CommunicationException,
+            ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, PreconditionViolationException {
+        if (t instanceof SchemaException) {
+            throw (SchemaException) t;
+        } else if (t instanceof ObjectNotFoundException) {
+            throw (ObjectNotFoundException) t;
+        } else if (t instanceof CommunicationException) {
+            throw (CommunicationException) t;
+        } else if (t instanceof ConfigurationException) {
+            throw (ConfigurationException) t;
+        } else if (t instanceof SecurityViolationException) {
+            throw (SecurityViolationException) t;
+        } else if (t instanceof PolicyViolationException) {
+            throw (PolicyViolationException) t;
+        } else if (t instanceof ExpressionEvaluationException) {
+            throw (ExpressionEvaluationException) t;
+        } else if (t instanceof ObjectAlreadyExistsException) {
+            throw (ObjectAlreadyExistsException) t;
+        } else if (t instanceof PreconditionViolationException) {
+            throw (PreconditionViolationException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new SystemException("Unexpected exception while projecting: " + t.getMessage(), t);
+        }
+    }
+
     private <F extends ObjectType> void projectProjection(LensContext<F> context, LensProjectionContext projectionContext,
             PartialProcessingOptionsType partialProcessingOptions,
             XMLGregorianCalendar now, String activityDescription, Task task, OperationResult parentResult)
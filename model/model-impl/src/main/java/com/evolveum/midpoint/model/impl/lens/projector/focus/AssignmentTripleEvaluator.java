@@ -6,9 +6,7 @@
  */
 package com.evolveum.midpoint.model.impl.lens.projector.focus;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -33,7 +31,10 @@ import com.evolveum.midpoint.prism.delta.builder.S_ValuesEntry;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.ItemDeltaItem;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ResourceShadowDiscriminator;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.FocusTypeUtil;
 import com.evolveum.midpoint.schema.util.SchemaDebugUtil;
@@ -45,6 +46,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.LifecycleStateModelType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -126,6 +128,7 @@ public class AssignmentTripleEvaluator<AH extends AssignmentHolderType> {
         // account type (intent). Therefore several constructions for the same resource and intent may appear in the resulting
         // sets. This is not good as we want only a single account for each resource/intent combination. But that will be
         // sorted out later.
+        prefetchAssignmentTargets(assignmentCollection);
         for (SmartAssignmentElement assignmentElement : assignmentCollection) {
             processAssignment(assignmentElement);
         }
@@ -133,6 +136,34 @@ public class AssignmentTripleEvaluator<AH extends AssignmentHolderType> {
         return evaluatedAssignmentTriple;
     }
 
+    /**
+     * Targets of the assignments are resolved one by one during the evaluation. Here we fetch the ones referenced
+     * by OID from the repository in bulk (one query per target type), so they are then taken from the local
+     * repository cache. Missing targets are not reported here, this is left to the evaluation itself.
+     */
+    private void prefetchAssignmentTargets(SmartAssignmentCollection<AH> assignmentCollection) throws SchemaException {
+        Map<Class<? extends ObjectType>, Set<String>> oidsByType = new HashMap<>();
+        for (SmartAssignmentElement assignmentElement : assignmentCollection) {
+            ObjectReferenceType targetRef = assignmentElement.getAssignmentCVal().asContainerable().getTargetRef();
+            if (targetRef == null || targetRef.getOid() == null || targetRef.getType() == null) {
+                continue;
+            }
+            Class<? extends ObjectType> targetClass = ObjectTypes.getObjectTypeClassIfKnown(targetRef.getType());
+            if (targetClass != null) {
+                oidsByType.computeIfAbsent(targetClass, k -> new LinkedHashSet<>()).add(targetRef.getOid());
+            }
+        }
+        Collection<SelectorOptions<GetOperationOptions>> options =
+                SelectorOptions.createCollection(GetOperationOptions.createReadOnly());
+        for (Map.Entry<Class<? extends ObjectType>, Set<String>> entry : oidsByType.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                LOGGER.trace("Prefetching {} assignment targets of type {}", entry.getValue().size(),
+                        entry.getKey().getSimpleName());
+                beans.cacheRepositoryService.getObjects(entry.getKey(), entry.getValue(), options, result);
+            }
+        }
+    }
+
     @NotNull
     private Collection<AssignmentType> getVirtualAssignments() throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
         Collection<AssignmentType> forcedAssignments = LensUtil.getForcedAssignments(focusContext.getLifecycleModel(),
@@ -43,6 +43,7 @@ import com.evolveum.midpoint.model.api.context.AbstractAuthenticationContext;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
 import com.evolveum.midpoint.util.exception.CommunicationException;
 import com.evolveum.midpoint.util.exception.ConfigurationException;
@@ -265,7 +266,12 @@ public abstract class AuthenticationEvaluatorImpl<C extends AbstractCredentialTy
 
         MidPointPrincipal principal;
         try {
-            principal = focusProfileService.getPrincipal(enteredUsername, clazz);
+            if (SchemaConstants.CHANNEL_REST_URI.equals(connEnv.getChannel())) {
+                // REST requests are authenticated one by one, so it pays off to cache the compiled principal.
+                principal = focusProfileService.getCachedPrincipal(enteredUsername, clazz);
+            } else {
+                principal = focusProfileService.getPrincipal(enteredUsername, clazz);
+            }
         } catch (ObjectNotFoundException e) {
             recordAuthenticationFailure(enteredUsername, connEnv, "no focus");
             throw new UsernameNotFoundException("web.security.provider.invalid");
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.security;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.common.Clock;
+import com.evolveum.midpoint.model.api.authentication.GuiProfiledPrincipal;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
+import com.evolveum.midpoint.schema.cache.CacheType;
+import com.evolveum.midpoint.util.caching.CacheConfiguration;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.caching.CacheUtil;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Global cache of compiled principals (authorizations, delegations, security policy and GUI profile), used for
+ * stateless requests like REST calls. Without it, each request evaluates all the assignments of the focus again,
+ * which is expensive for service accounts calling the API many times per minute.
+ *
+ * The focus itself is always read from the repository (it is needed for the credentials check anyway). A cached
+ * principal is used only if the focus was not changed since the principal was compiled. The version is not enough
+ * for this check, because each authentication updates the focus (last successful login, failed logins, lockout).
+ * So if the version differs, the focus is compared with the cached one, ignoring the authentication-related items.
+ *
+ * Changes of roles, orgs, archetypes (i.e. any abstract roles), system configuration, and security policies clear
+ * the whole cache. Changes of a focus clear entries of principals for which it is a delegator. Invalidation events
+ * from other nodes are handled the same way; while the cache is enabled, it requires them to be sent for these types
+ * (see {@link #isClusterwideInvalidationRequired(Class)}).
+ *
+ * As assignments can also become valid or invalid just by passing the time, entries expire at the nearest future
+ * validity boundary (`validFrom` or `validTo`) of the focus and its assignments. Validity of inducements and of
+ * assignments of roles is not checked, so each entry expires after the configured time to live anyway
+ * ({@link #DEFAULT_TIME_TO_LIVE} seconds if not configured).
+ *
+ * Hits and misses are reported to {@link CachePerformanceCollector}.
+ *
+ * Configured via {@link CacheType#GLOBAL_PRINCIPAL_CACHE}; disabled by default.
+ */
+@Component
+public class GlobalPrincipalCache implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(GlobalPrincipalCache.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(GlobalPrincipalCache.class.getName() + ".content");
+    private static final Trace PERFORMANCE_ADVISOR = TraceManager.getPerformanceAdvisorTrace();
+
+    /** Items that are updated on authentication. They do not influence the compiled principal. */
+    private static final List<ItemPath> AUTHENTICATION_DATA_PATHS = Arrays.asList(
+            FocusType.F_CREDENTIALS,
+            FocusType.F_BEHAVIOR,
+            ItemPath.create(FocusType.F_ACTIVATION, ActivationType.F_LOCKOUT_STATUS),
+            ItemPath.create(FocusType.F_ACTIVATION, ActivationType.F_LOCKOUT_EXPIRATION_TIMESTAMP),
+            ObjectType.F_METADATA);
+
+    /** Time to live (in seconds) of an entry if not configured. */
+    static final int DEFAULT_TIME_TO_LIVE = 60;
+
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired private CacheConfigurationManager cacheConfigurationManager;
+    @Autowired private PrismContext prismContext;
+    @Autowired private Clock clock;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented when the whole cache is cleared. Principals compiled while this happened are not stored,
+     * because they might be outdated already.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    /**
+     * Returns true if principals for given focus can be cached (now).
+     */
+    boolean supports(@NotNull PrismObject<? extends FocusType> focus) {
+        CacheConfiguration configuration = getConfiguration();
+        return configuration != null && configuration.supportsObjectType(focus.getCompileTimeClass());
+    }
+
+    /**
+     * To be obtained before the principal is compiled and passed to {@link #put(PrismObject, GuiProfiledPrincipal, long)}.
+     */
+    long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Returns the principal for given (freshly read) focus, if there is a cached one compiled for the same focus state.
+     * The returned principal has the provided focus object, so it can be freely modified by the caller.
+     * The focus has to be provided as it was read from the repository, i.e. before any recomputation.
+     */
+    @Nullable
+    GuiProfiledPrincipal get(@NotNull PrismObject<? extends FocusType> focus) {
+        CacheConfiguration configuration = getConfiguration();
+        Class<? extends FocusType> type = focus.getCompileTimeClass();
+        CacheConfiguration.CacheObjectTypeConfiguration typeConfiguration =
+                configuration != null ? configuration.getForObjectType(type) : null;
+        CacheConfiguration.StatisticsLevel statisticsLevel =
+                CacheConfiguration.getStatisticsLevel(typeConfiguration, configuration);
+        CachePerformanceCollector collector = CachePerformanceCollector.INSTANCE;
+
+        if (typeConfiguration == null || !typeConfiguration.supportsCaching()) {
+            collector.registerNotAvailable(GlobalPrincipalCache.class, type, statisticsLevel);
+            return null;
+        }
+
+        String oid = focus.getOid();
+        Entry entry = entries.get(oid);
+        if (entry != null && entry.isExpired(clock.currentTimeMillis())) {
+            entries.remove(oid, entry);
+            entry = null;
+        }
+        if (entry != null && !Objects.equals(entry.version, focus.getVersion())) {
+            if (stripAuthenticationData(focus.clone()).equivalent(entry.focus)) {
+                // Only authentication-related data was changed (most probably by the previous authentication).
+                Entry updated = entry.withVersion(focus.getVersion());
+                entries.replace(oid, entry, updated);
+                entry = updated;
+            } else {
+                entries.remove(oid, entry);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            log("Cache MISS for {}:{}", CacheConfiguration.getTraceMiss(typeConfiguration, configuration),
+                    type.getSimpleName(), oid);
+            collector.registerMiss(GlobalPrincipalCache.class, type, statisticsLevel);
+            return null;
+        }
+
+        log("Cache HIT for {}:{}", false, type.getSimpleName(), oid);
+        collector.registerHit(GlobalPrincipalCache.class, type, statisticsLevel);
+        return entry.principal.cloneWithFocus(focus.asObjectable());
+    }
+
+    /**
+     * Stores the principal (that was compiled without errors).
+     *
+     * @param focusAsRead The focus as it was read from the repository, before recomputation. It is taken over by the cache.
+     * @param invalidationsBefore Value of {@link #getInvalidations()} before the principal was compiled.
+     */
+    void put(@NotNull PrismObject<? extends FocusType> focusAsRead, @NotNull GuiProfiledPrincipal principal,
+            long invalidationsBefore) {
+        CacheConfiguration configuration = getConfiguration();
+        CacheConfiguration.CacheObjectTypeConfiguration typeConfiguration =
+                configuration != null ? configuration.getForObjectType(focusAsRead.getCompileTimeClass()) : null;
+        if (typeConfiguration == null || !typeConfiguration.supportsCaching()) {
+            return;
+        }
+        if (invalidations.get() != invalidationsBefore) {
+            LOGGER.trace("Cache was invalidated while principal for {} was being compiled, not storing it", focusAsRead);
+            return;
+        }
+
+        long now = clock.currentTimeMillis();
+        Integer maxSize = configuration.getMaxSize();
+        if (maxSize != null && entries.size() >= maxSize && !entries.containsKey(focusAsRead.getOid())) {
+            entries.values().removeIf(e -> e.isExpired(now));
+            if (entries.size() >= maxSize) {
+                LOGGER.trace("Cache is full ({} entries), not storing principal for {}", entries.size(), focusAsRead);
+                return;
+            }
+        }
+        Integer timeToLive = typeConfiguration.getEffectiveTimeToLive();
+        long expiresAt = Math.min(
+                now + (timeToLive != null ? timeToLive : DEFAULT_TIME_TO_LIVE) * 1000L,
+                getNextValidityChange(focusAsRead.asObjectable(), now));
+        PrismObject<? extends FocusType> immutableFocus = stripAuthenticationData(focusAsRead);
+        immutableFocus.freeze();
+        entries.put(focusAsRead.getOid(),
+                new Entry(focusAsRead.getVersion(), immutableFocus, principal.cloneWithFocus(immutableFocus.asObjectable()),
+                        expiresAt));
+    }
+
+    /**
+     * Returns the nearest time after `now` when the focus or any of its assignments becomes valid or invalid
+     * (or {@link Long#MAX_VALUE} if there is none).
+     */
+    private static long getNextValidityChange(FocusType focus, long now) {
+        long next = getNextValidityChange(focus.getActivation(), now, Long.MAX_VALUE);
+        for (AssignmentType assignment : focus.getAssignment()) {
+            next = getNextValidityChange(assignment.getActivation(), now, next);
+        }
+        return next;
+    }
+
+    private static long getNextValidityChange(ActivationType activation, long now, long next) {
+        if (activation != null) {
+            next = getNextValidityChange(activation.getValidFrom(), now, next);
+            next = getNextValidityChange(activation.getValidTo(), now, next);
+        }
+        return next;
+    }
+
+    private static long getNextValidityChange(XMLGregorianCalendar boundary, long now, long next) {
+        if (boundary != null) {
+            long millis = XmlTypeConverter.toMillis(boundary);
+            if (millis > now && millis < next) {
+                return millis;
+            }
+        }
+        return next;
+    }
+
+    private static PrismObject<? extends FocusType> stripAuthenticationData(PrismObject<? extends FocusType> focus) {
+        focus.getValue().removeItems(AUTHENTICATION_DATA_PATHS);
+        return focus;
+    }
+
+    private CacheConfiguration getConfiguration() {
+        return cacheConfigurationManager.getConfiguration(CacheType.GLOBAL_PRINCIPAL_CACHE);
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null
+                || isCompiledFrom(type)
+                || oid == null && (FocusType.class.isAssignableFrom(type) || type.isAssignableFrom(FocusType.class))) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        } else if (FocusType.class.isAssignableFrom(type)) {
+            // Changes of the focus itself are detected when the principal is retrieved. But the focus can be
+            // a delegator of other principals.
+            entries.values().removeIf(entry -> entry.hasDelegator(oid));
+        }
+    }
+
+    /**
+     * Changes made on other nodes must reach us too: otherwise we would use principals compiled from outdated
+     * roles, security policies or delegators until the entries expire.
+     */
+    @Override
+    public boolean isClusterwideInvalidationRequired(@NotNull Class<?> type) {
+        CacheConfiguration configuration = getConfiguration();
+        return configuration != null && configuration.isAvailable()
+                && (isCompiledFrom(type) || isAssignableEitherWay(type, FocusType.class));
+    }
+
+    /**
+     * Changes of which types of objects may influence (any) compiled principal?
+     */
+    private boolean isCompiledFrom(Class<?> type) {
+        return isAssignableEitherWay(type, AbstractRoleType.class)
+                || isAssignableEitherWay(type, SystemConfigurationType.class)
+                || isAssignableEitherWay(type, SecurityPolicyType.class);
+    }
+
+    private boolean isAssignableEitherWay(Class<?> type, Class<?> other) {
+        return other.isAssignableFrom(type) || type.isAssignableFrom(other);
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(new SingleCacheStateInformationType(prismContext)
+                .name(GlobalPrincipalCache.class.getName())
+                .size(entries.size()));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            entries.forEach((oid, entry) -> LOGGER_CONTENT.info("Cached principal: {}: {} (version {})",
+                    oid, entry.focus, entry.version));
+        }
+    }
+
+    private static void log(String message, boolean info, Object... params) {
+        CacheUtil.log(LOGGER, PERFORMANCE_ADVISOR, message, info, params);
+    }
+
+    private static class Entry {
+
+        /** Version of the focus for which the principal is known to be valid. */
+        private final String version;
+
+        /** The focus (as read from the repository) without authentication-related data. Immutable. */
+        @NotNull private final PrismObject<? extends FocusType> focus;
+
+        /** Compiled principal; cloned (with the current focus) when provided to clients. */
+        @NotNull private final GuiProfiledPrincipal principal;
+
+        private final long expiresAt;
+
+        private Entry(String version, @NotNull PrismObject<? extends FocusType> focus,
+                @NotNull GuiProfiledPrincipal principal, long expiresAt) {
+            this.version = version;
+            this.focus = Objects.requireNonNull(focus);
+            this.principal = Objects.requireNonNull(principal);
+            this.expiresAt = expiresAt;
+        }
+
+        private Entry withVersion(String newVersion) {
+            return new Entry(newVersion, focus, principal, expiresAt);
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        private boolean hasDelegator(String oid) {
+            return principal.getDelegatorWithOtherPrivilegesLimitationsCollection().stream()
+                    .anyMatch(d -> d.getDelegator() != null && oid.equals(d.getDelegator().getOid()));
+        }
+    }
+}
@@ -11,6 +11,7 @@ import static java.util.Collections.emptyList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 
@@ -82,6 +83,8 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
     private TaskManager taskManager;
     @Autowired
     private SecurityContextManager securityContextManager;
+    @Autowired
+    private GlobalPrincipalCache principalCache;
 
     // registry is not available e.g. during tests
     @Autowired(required = false)
@@ -97,6 +100,35 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
     @Override
     public GuiProfiledPrincipal getPrincipal(String username, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
         OperationResult result = new OperationResult(OPERATION_GET_PRINCIPAL);
+        PrismObject<FocusType> focus = getFocusByUsername(username, clazz, result);
+        return getPrincipal(focus, null, result);
+    }
+
+    @Override
+    public GuiProfiledPrincipal getCachedPrincipal(String username, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
+        OperationResult result = new OperationResult(OPERATION_GET_PRINCIPAL);
+        PrismObject<FocusType> focus = getFocusByUsername(username, clazz, result);
+        if (!principalCache.supports(focus)) {
+            return getPrincipal(focus, null, result);
+        }
+
+        long invalidationsBefore = principalCache.getInvalidations();
+        GuiProfiledPrincipal cached = principalCache.get(focus);
+        if (cached != null) {
+            // The focus has to be recomputed (e.g. because of the effective activation status), but assignments
+            // need not be evaluated again.
+            PrismObject<SystemConfigurationType> systemConfiguration = getSystemConfiguration(result);
+            focusComputer.recompute(focus, getLifecycleModel(focus, systemConfiguration));
+            return cached;
+        }
+
+        PrismObject<FocusType> focusAsRead = focus.clone();
+        return createPrincipal(focus, null,
+                compiled -> principalCache.put(focusAsRead, compiled, invalidationsBefore), result);
+    }
+
+    private PrismObject<FocusType> getFocusByUsername(String username, Class<? extends FocusType> clazz, OperationResult result)
+            throws ObjectNotFoundException {
         PrismObject<FocusType> focus;
         try {
             focus = findByUsername(username, clazz, result);
@@ -111,8 +143,7 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
             LOGGER.warn("Error getting user with name '{}', reason: {}.", username, ex.getMessage(), ex);
             throw new SystemException(ex.getMessage(), ex);
         }
-
-        return getPrincipal(focus, null, result);
+        return focus;
     }
 
     @Override
@@ -132,6 +163,15 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
         if (focus == null) {
             return null;
         }
+        return createPrincipal(focus, authorizationTransformer, null, result);
+    }
+
+    /**
+     * @param compiledPrincipalConsumer Called if the principal was compiled without errors.
+     */
+    private GuiProfiledPrincipal createPrincipal(PrismObject<? extends FocusType> focus,
+            AuthorizationTransformer authorizationTransformer,
+            Consumer<GuiProfiledPrincipal> compiledPrincipalConsumer, OperationResult result) {
         securityContextManager.setTemporaryPrincipalOid(focus.getOid());
         try {
             PrismObject<SystemConfigurationType> systemConfiguration = getSystemConfiguration(result);
@@ -139,7 +179,10 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
 
             focusComputer.recompute(focus, lifecycleModel);
             GuiProfiledPrincipal principal = new GuiProfiledPrincipal(focus.asObjectable());
-            initializePrincipalFromAssignments(principal, systemConfiguration, authorizationTransformer);
+            boolean compiled = initializePrincipalFromAssignments(principal, systemConfiguration, authorizationTransformer);
+            if (compiled && compiledPrincipalConsumer != null) {
+                compiledPrincipalConsumer.accept(principal);
+            }
             return principal;
         } finally {
             securityContextManager.clearTemporaryPrincipalOid();
@@ -257,16 +300,23 @@ public class GuiProfiledPrincipalManagerImpl implements GuiProfiledPrincipalMana
         return list.get(0);
     }
 
-    private void initializePrincipalFromAssignments(GuiProfiledPrincipal principal, PrismObject<SystemConfigurationType> systemConfiguration, AuthorizationTransformer authorizationTransformer) {
+    /**
+     * @return false if there was an error (including errors in evaluation of individual assignments, which are
+     * only logged, so the principal may be incomplete)
+     */
+    private boolean initializePrincipalFromAssignments(GuiProfiledPrincipal principal, PrismObject<SystemConfigurationType> systemConfiguration, AuthorizationTransformer authorizationTransformer) {
         Task task = taskManager.createTaskInstance(GuiProfiledPrincipalManagerImpl.class.getName() + ".initializePrincipalFromAssignments");
         OperationResult result = task.getResult();
         try {
             guiProfileCompiler.compileUserProfile(principal, systemConfiguration, authorizationTransformer, task, result);
+            result.computeStatus();
+            return !result.isError();
         } catch (Throwable e) {
             // Do not let any error stop processing here. This code is used during user login. An error here can stop login procedure. We do not
             // want that. E.g. wrong adminGuiConfig may prohibit login on administrator, therefore ruining any chance of fixing the situation.
             LOGGER.error("Error compiling user profile for {}: {}", principal, e.getMessage(), e);
             // Do NOT re-throw the exception here. Just go on.
+            return false;
         }
     }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.util;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.audit.api.AuditService;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskListener;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.task.api.TaskRunResult;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Makes sure that audit records created by a task are stored when the task run finishes,
+ * even if they are written asynchronously (see {@link AuditService#flush()}).
+ */
+@Component
+public class AuditFlushingTaskListener implements TaskListener {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AuditFlushingTaskListener.class);
+
+    @Autowired private TaskManager taskManager;
+    @Autowired private AuditService auditService;
+
+    @PostConstruct
+    public void init() {
+        taskManager.registerTaskListener(this);
+        LOGGER.trace("Task listener registered.");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        taskManager.unregisterTaskListener(this);
+    }
+
+    @Override
+    public void onTaskStart(Task task) {
+        // nothing to do here
+    }
+
+    @Override
+    public void onTaskFinish(Task task, TaskRunResult runResult) {
+        auditService.flush();
+    }
+
+    @Override
+    public void onTaskThreadStart(Task task, boolean isRecovering) {
+        // nothing to do here
+    }
+
+    @Override
+    public void onTaskThreadFinish(Task task) {
+        // nothing to do here
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.model.impl.AbstractInternalModelIntegrationTest;
+import com.evolveum.midpoint.model.impl.lens.assignments.GlobalRoleHierarchyCache;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests {@link GlobalRoleHierarchyCache} as enabled by the default caching profile.
+ *
+ * Hierarchy: business role -(inducement)-> application role -(assignment)-> meta role.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-test-main.xml" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class TestGlobalRoleHierarchyCache extends AbstractInternalModelIntegrationTest {
+
+    @Autowired private CacheRegistry cacheRegistry;
+
+    private String metaRoleOid;
+    private String applicationRoleOid;
+    private String businessRoleOid;
+    private String user1Oid;
+    private String user2Oid;
+
+    private int hitsBefore;
+    private int missesBefore;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        metaRoleOid = addObjectToRepo(new RoleType(prismContext)
+                .name("hierarchy-meta"), initResult);
+        applicationRoleOid = addObjectToRepo(new RoleType(prismContext)
+                .name("hierarchy-application")
+                .assignment(new AssignmentType(prismContext)
+                        .targetRef(metaRoleOid, RoleType.COMPLEX_TYPE)), initResult);
+        businessRoleOid = addObjectToRepo(new RoleType(prismContext)
+                .name("hierarchy-business")
+                .inducement(new AssignmentType(prismContext)
+                        .targetRef(applicationRoleOid, RoleType.COMPLEX_TYPE)), initResult);
+
+        user1Oid = addUserWithBusinessRole("hierarchy-user1", initResult);
+        user2Oid = addUserWithBusinessRole("hierarchy-user2", initResult);
+    }
+
+    private String addUserWithBusinessRole(String name, OperationResult result) throws Exception {
+        return addObjectToRepo(new UserType(prismContext)
+                .name(name)
+                .assignment(new AssignmentType(prismContext)
+                        .targetRef(businessRoleOid, RoleType.COMPLEX_TYPE)), result);
+    }
+
+    private String addObjectToRepo(ObjectType object, OperationResult result) throws Exception {
+        PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
+        repoAddObject(prismObject, result);
+        return prismObject.getOid();
+    }
+
+    /**
+     * The first evaluation fetches the closure of the business role, the second one reuses it.
+     */
+    @Test
+    public void test100ClosureIsReused() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        when("first user is recomputed");
+        rememberCacheCounters();
+        recomputeUser(user1Oid, task, result);
+
+        then("closure is fetched");
+        assertTrue("No cache miss", getMisses() > 0);
+        assertMembership(user1Oid);
+
+        when("second user is recomputed");
+        rememberCacheCounters();
+        recomputeUser(user2Oid, task, result);
+
+        then("closure is reused");
+        assertEquals("Unexpected cache miss", 0, getMisses());
+        assertTrue("No cache hit", getHits() > 0);
+        assertMembership(user2Oid);
+    }
+
+    /**
+     * Change of a role in the closure invalidates the closure.
+     */
+    @Test
+    public void test110RoleChangeInvalidatesClosure() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        modifyObjectReplaceProperty(RoleType.class, metaRoleOid, RoleType.F_DESCRIPTION, task, result, "changed");
+
+        when();
+        rememberCacheCounters();
+        recomputeUser(user1Oid, task, result);
+
+        then();
+        assertTrue("No cache miss", getMisses() > 0);
+        assertMembership(user1Oid);
+    }
+
+    /**
+     * Role changes must be propagated to other nodes, otherwise they would use outdated closures.
+     */
+    @Test
+    public void test120ClusterwideInvalidation() {
+        expect();
+        assertTrue("Clusterwide invalidation is not required for roles",
+                cacheRegistry.isClusterwideInvalidationRequired(RoleType.class));
+        assertFalse("Clusterwide invalidation is required for shadows",
+                cacheRegistry.isClusterwideInvalidationRequired(ShadowType.class));
+    }
+
+    private void assertMembership(String userOid) throws Exception {
+        PrismObject<UserType> user = getUser(userOid);
+        assertUser(user, "after")
+                .roleMembershipRefs()
+                    .assertRoleMemberhipRefs(2)
+                    .assertRole(businessRoleOid)
+                    .assertRole(applicationRoleOid);
+    }
+
+    private void rememberCacheCounters() {
+        CachePerformanceCollector.CacheData data = getCacheData();
+        hitsBefore = data != null ? data.hits.get() : 0;
+        missesBefore = data != null ? data.misses.get() : 0;
+    }
+
+    private int getHits() {
+        CachePerformanceCollector.CacheData data = getCacheData();
+        return data != null ? data.hits.get() - hitsBefore : 0;
+    }
+
+    private int getMisses() {
+        CachePerformanceCollector.CacheData data = getCacheData();
+        return data != null ? data.misses.get() - missesBefore : 0;
+    }
+
+    private CachePerformanceCollector.CacheData getCacheData() {
+        return CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap().get(GlobalRoleHierarchyCache.class.getName());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.model.api.context.SynchronizationPolicyDecision;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
+import com.evolveum.midpoint.schema.ResourceShadowDiscriminator;
+import com.evolveum.midpoint.schema.internals.InternalCounters;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentPolicyEnforcementType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Runs {@link TestProjector} tests with independent projections processed in parallel.
+ * In addition, checks that projections on several independent resources are really processed in parallel,
+ * with the same results as if they were processed sequentially.
+ *
+ * Consistency checks are switched off, as parallel processing is not used when they are on.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-test-main.xml" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestProjectorParallel extends TestProjector {
+
+    private static final File RESOURCE_DUMMY_PARALLEL_A_FILE = new File(TEST_DIR, "resource-dummy-parallel-a.xml");
+    private static final String RESOURCE_DUMMY_PARALLEL_A_OID = "10000000-0000-0000-0000-00000000EEA4";
+    private static final String RESOURCE_DUMMY_PARALLEL_A_INSTANCE_NAME = "parallel-a";
+
+    private static final File RESOURCE_DUMMY_PARALLEL_B_FILE = new File(TEST_DIR, "resource-dummy-parallel-b.xml");
+    private static final String RESOURCE_DUMMY_PARALLEL_B_OID = "10000000-0000-0000-0000-00000000EEB4";
+    private static final String RESOURCE_DUMMY_PARALLEL_B_INSTANCE_NAME = "parallel-b";
+
+    private static final int PROJECTOR_THREADS = 4;
+
+    private boolean consistencyChecksBefore;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+        initDummyResourcePirate(RESOURCE_DUMMY_PARALLEL_A_INSTANCE_NAME, RESOURCE_DUMMY_PARALLEL_A_FILE,
+                RESOURCE_DUMMY_PARALLEL_A_OID, initTask, initResult);
+        initDummyResourcePirate(RESOURCE_DUMMY_PARALLEL_B_INSTANCE_NAME, RESOURCE_DUMMY_PARALLEL_B_FILE,
+                RESOURCE_DUMMY_PARALLEL_B_OID, initTask, initResult);
+        consistencyChecksBefore = InternalsConfig.isConsistencyChecks();
+        InternalsConfig.setConsistencyChecks(false);
+        InternalsConfig.setProjectorThreads(PROJECTOR_THREADS);
+    }
+
+    @AfterClass
+    public void resetInternals() {
+        InternalsConfig.setProjectorThreads(0);
+        InternalsConfig.setConsistencyChecks(consistencyChecksBefore);
+    }
+
+    /**
+     * Assigns accounts on three independent resources to a new user. The projections should be processed
+     * in parallel, and the result should be the same as when processing them sequentially.
+     */
+    @Test
+    public void test900AssignAccountsOnIndependentResources() throws Exception {
+        // GIVEN
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        assumeAssignmentPolicy(AssignmentPolicyEnforcementType.FULL);
+
+        PrismObject<UserType> user = new UserType(prismContext)
+                .name("paula")
+                .fullName("Paula Parallel")
+                .asPrismObject();
+        repoAddObject(user, result);
+
+        // WHEN (parallel)
+        when("parallel");
+        rememberCounter(InternalCounters.PROJECTOR_PARALLEL_PROJECTION_COUNT);
+        LensContext<UserType> parallelContext = createContextAssigningAccounts(user.getOid(), result);
+        projector.project(parallelContext, "test", task, result);
+
+        // THEN (parallel)
+        then("parallel");
+        displayDumpable("Output context (parallel)", parallelContext);
+        assertSuccess(result);
+        assertCounterIncrement(InternalCounters.PROJECTOR_PARALLEL_PROJECTION_COUNT, 3);
+
+        // WHEN (sequential)
+        when("sequential");
+        InternalsConfig.setProjectorThreads(0);
+        LensContext<UserType> sequentialContext;
+        try {
+            sequentialContext = createContextAssigningAccounts(user.getOid(), result);
+            projector.project(sequentialContext, "test", task, result);
+        } finally {
+            InternalsConfig.setProjectorThreads(PROJECTOR_THREADS);
+        }
+
+        // THEN (sequential)
+        then("sequential");
+        displayDumpable("Output context (sequential)", sequentialContext);
+        assertSuccess(result);
+        assertCounterIncrement(InternalCounters.PROJECTOR_PARALLEL_PROJECTION_COUNT, 0);
+
+        assertEquals("Wrong number of projection contexts", 3, parallelContext.getProjectionContexts().size());
+        assertEquals("Wrong number of projection contexts", 3, sequentialContext.getProjectionContexts().size());
+        assertSameProjection(parallelContext, sequentialContext, RESOURCE_DUMMY_OID);
+        assertSameProjection(parallelContext, sequentialContext, RESOURCE_DUMMY_PARALLEL_A_OID);
+        assertSameProjection(parallelContext, sequentialContext, RESOURCE_DUMMY_PARALLEL_B_OID);
+    }
+
+    private LensContext<UserType> createContextAssigningAccounts(String userOid, OperationResult result)
+            throws Exception {
+        LensContext<UserType> context = createUserLensContext();
+        fillContextWithUser(context, userOid, result);
+        ObjectDelta<UserType> delta = createAccountAssignmentUserDelta(userOid, RESOURCE_DUMMY_OID, "default", true);
+        delta.merge(createAccountAssignmentUserDelta(userOid, RESOURCE_DUMMY_PARALLEL_A_OID, "default", true));
+        delta.merge(createAccountAssignmentUserDelta(userOid, RESOURCE_DUMMY_PARALLEL_B_OID, "default", true));
+        addFocusDeltaToContext(context, delta);
+        return context;
+    }
+
+    private void assertSameProjection(LensContext<UserType> parallelContext, LensContext<UserType> sequentialContext,
+            String resourceOid) {
+        ResourceShadowDiscriminator discriminator =
+                new ResourceShadowDiscriminator(resourceOid, ShadowKindType.ACCOUNT, "default", null, false);
+        LensProjectionContext parallel = parallelContext.findProjectionContext(discriminator);
+        LensProjectionContext sequential = sequentialContext.findProjectionContext(discriminator);
+        assertNotNull("No projection context for " + resourceOid + " (parallel)", parallel);
+        assertNotNull("No projection context for " + resourceOid + " (sequential)", sequential);
+        assertEquals("Wrong policy decision for " + resourceOid,
+                SynchronizationPolicyDecision.ADD, parallel.getSynchronizationPolicyDecision());
+        assertEquals("Different policy decisions for " + resourceOid,
+                sequential.getSynchronizationPolicyDecision(), parallel.getSynchronizationPolicyDecision());
+        PrismObject<ShadowType> parallelNew = parallel.getObjectNew();
+        PrismObject<ShadowType> sequentialNew = sequential.getObjectNew();
+        assertNotNull("No new account for " + resourceOid + " (parallel)", parallelNew);
+        assertTrue("Different new accounts for " + resourceOid + ":\nparallel: " + parallelNew.debugDump()
+                        + "\nsequential: " + sequentialNew.debugDump(),
+                parallelNew.equals(sequentialNew, EquivalenceStrategy.REAL_VALUE));
+    }
+}
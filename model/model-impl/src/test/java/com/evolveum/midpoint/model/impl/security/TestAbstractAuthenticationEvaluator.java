@@ -124,6 +124,13 @@ public abstract class TestAbstractAuthenticationEvaluator<V, AC extends Abstract
                 return principal;
             }
 
+            @Override
+            public GuiProfiledPrincipal getCachedPrincipal(String username, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
+                GuiProfiledPrincipal principal = focusProfileService.getCachedPrincipal(username, clazz);
+                addFakeAuthorization(principal);
+                return principal;
+            }
+
             @Override
             public GuiProfiledPrincipal getPrincipalByOid(String oid, Class<? extends FocusType> clazz) throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException, SecurityViolationException, ExpressionEvaluationException {
                 GuiProfiledPrincipal principal = focusProfileService.getPrincipalByOid(oid, clazz);
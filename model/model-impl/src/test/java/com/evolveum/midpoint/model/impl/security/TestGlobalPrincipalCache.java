@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.security;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.model.api.authentication.GuiProfiledPrincipal;
+import com.evolveum.midpoint.model.api.authentication.GuiProfiledPrincipalManager;
+import com.evolveum.midpoint.model.impl.AbstractInternalModelIntegrationTest;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.Authorization;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests {@link GlobalPrincipalCache} as used by {@link GuiProfiledPrincipalManager#getCachedPrincipal(String, Class)}.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-test-main.xml" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class TestGlobalPrincipalCache extends AbstractInternalModelIntegrationTest {
+
+    private static final String AUTZ_CACHED_URL = "http://midpoint.evolveum.com/xml/ns/test/authorization#cached";
+
+    private static final int TIME_TO_LIVE = 600;
+
+    private static final String USER_CACHED_NAME = "cached";
+    private static final String USER_DEPUTY_NAME = "cached-deputy";
+    private static final String USER_TEMPORARY_NAME = "cached-temporary";
+    private static final String USER_ERRATIC_NAME = "cached-erratic";
+
+    @Autowired private GuiProfiledPrincipalManager guiProfiledPrincipalManager;
+    @Autowired private CacheConfigurationManager cacheConfigurationManager;
+    @Autowired private CacheRegistry cacheRegistry;
+
+    private String roleOid;
+    private String userCachedOid;
+
+    private int hitsBefore;
+    private int missesBefore;
+
+    @Override
+    public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+        super.initSystem(initTask, initResult);
+
+        cacheConfigurationManager.applyCachingConfiguration(
+                new SystemConfigurationType(prismContext)
+                        .internals(new InternalsConfigurationType(prismContext)
+                                .caching(new CachingConfigurationType(prismContext)
+                                        .profile(new CachingProfileType(prismContext)
+                                                .global(true)
+                                                .globalPrincipalCache(new CacheSettingsType(prismContext)
+                                                        .timeToLive(TIME_TO_LIVE)
+                                                        .objectTypeSettings(new CacheObjectTypeSettingsType(prismContext)
+                                                                .objectType(UserType.COMPLEX_TYPE)))))));
+
+        PrismObject<RoleType> role = new RoleType(prismContext)
+                .name("cached-role")
+                .authorization(new AuthorizationType(prismContext)
+                        .action(AUTZ_CACHED_URL))
+                .asPrismObject();
+        repoAddObject(role, initResult);
+        roleOid = role.getOid();
+
+        PrismObject<UserType> userCached = new UserType(prismContext)
+                .name(USER_CACHED_NAME)
+                .assignment(new AssignmentType(prismContext)
+                        .targetRef(roleOid, RoleType.COMPLEX_TYPE))
+                .asPrismObject();
+        repoAddObject(userCached, initResult);
+        userCachedOid = userCached.getOid();
+
+        repoAddObject(new UserType(prismContext)
+                .name(USER_DEPUTY_NAME)
+                .assignment(new AssignmentType(prismContext)
+                        .targetRef(userCachedOid, UserType.COMPLEX_TYPE, SchemaConstants.ORG_DEPUTY))
+                .asPrismObject(), initResult);
+
+        AssignmentType erraticAssignment = new AssignmentType(prismContext)
+                .targetRef(roleOid, RoleType.COMPLEX_TYPE);
+        erraticAssignment.beginCondition()
+                .beginExpression()
+                .expressionEvaluator(
+                        new JAXBElement<>(new QName("script"), ScriptExpressionEvaluatorType.class,
+                                new ScriptExpressionEvaluatorType().code("throw new IllegalStateException('erratic')")));
+        repoAddObject(new UserType(prismContext)
+                .name(USER_ERRATIC_NAME)
+                .assignment(erraticAssignment)
+                .asPrismObject(), initResult);
+    }
+
+    /**
+     * The first authentication compiles the principal, the second one takes it from the cache.
+     */
+    @Test
+    public void test100CacheHit() throws Exception {
+        when();
+        rememberCacheCounters();
+        GuiProfiledPrincipal first = getCachedPrincipal(USER_CACHED_NAME);
+        GuiProfiledPrincipal second = getCachedPrincipal(USER_CACHED_NAME);
+
+        then();
+        assertCacheCounters(1, 1);
+        assertCachedAuthorization(first);
+        assertCachedAuthorization(second);
+        assertEquals("Wrong focus", userCachedOid, second.getOid());
+    }
+
+    /**
+     * Authentication-related data (here, the last successful login) do not influence the compiled principal.
+     * They are written directly to the repository, just like the authentication does.
+     */
+    @Test
+    public void test105AuthenticationDataChange() throws Exception {
+        given();
+        OperationResult result = getTestOperationResult();
+        repositoryService.modifyObject(UserType.class, userCachedOid,
+                prismContext.deltaFor(UserType.class)
+                        .item(UserType.F_BEHAVIOR, BehaviorType.F_AUTHENTICATION,
+                                AuthenticationBehavioralDataType.F_LAST_SUCCESSFUL_LOGIN)
+                        .replace(new LoginEventType(prismContext)
+                                .timestamp(clock.currentTimeXMLGregorianCalendar()))
+                        .asItemDeltas(),
+                result);
+
+        when();
+        rememberCacheCounters();
+        getCachedPrincipal(USER_CACHED_NAME);
+
+        then();
+        assertCacheCounters(1, 0);
+    }
+
+    @Test
+    public void test110FocusChange() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        getCachedPrincipal(USER_CACHED_NAME);
+        modifyUserReplace(userCachedOid, UserType.F_FULL_NAME, task, result, createPolyString("Cached User"));
+
+        when();
+        rememberCacheCounters();
+        GuiProfiledPrincipal principal = getCachedPrincipal(USER_CACHED_NAME);
+
+        then();
+        assertCacheCounters(0, 1);
+        assertEquals("Wrong full name", "Cached User", principal.getFocus().getFullName().getOrig());
+        assertCachedAuthorization(principal);
+    }
+
+    @Test
+    public void test120RoleChange() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        getCachedPrincipal(USER_CACHED_NAME);
+        modifyObjectReplaceProperty(RoleType.class, roleOid, RoleType.F_DESCRIPTION, task, result, "changed");
+
+        when();
+        rememberCacheCounters();
+        getCachedPrincipal(USER_CACHED_NAME);
+        getCachedPrincipal(USER_CACHED_NAME);
+
+        then();
+        assertCacheCounters(1, 1);
+    }
+
+    /**
+     * The delegator is not the authenticated focus, so its change must be handled by the invalidation.
+     */
+    @Test
+    public void test130DelegatorChange() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        getCachedPrincipal(USER_DEPUTY_NAME);
+
+        rememberCacheCounters();
+        GuiProfiledPrincipal cached = getCachedPrincipal(USER_DEPUTY_NAME);
+        assertCacheCounters(1, 0);
+        assertEquals("Wrong # of delegators", 1, cached.getDelegatorWithOtherPrivilegesLimitationsCollection().size());
+        assertCachedAuthorization(cached);
+
+        modifyUserReplace(userCachedOid, UserType.F_FULL_NAME, task, result, createPolyString("Cached Delegator"));
+
+        when();
+        rememberCacheCounters();
+        GuiProfiledPrincipal principal = getCachedPrincipal(USER_DEPUTY_NAME);
+
+        then();
+        assertCacheCounters(0, 1);
+        assertEquals("Wrong # of delegators", 1, principal.getDelegatorWithOtherPrivilegesLimitationsCollection().size());
+    }
+
+    /**
+     * Principal whose assignment could not be evaluated is incomplete, so it must not be cached.
+     */
+    @Test
+    public void test140CompileError() throws Exception {
+        when();
+        rememberCacheCounters();
+        getCachedPrincipal(USER_ERRATIC_NAME);
+        getCachedPrincipal(USER_ERRATIC_NAME);
+
+        then();
+        assertCacheCounters(0, 2);
+    }
+
+    /**
+     * Entry expires when an assignment becomes invalid, even if the time to live did not pass yet.
+     */
+    @Test
+    public void test150AssignmentValidityBoundary() throws Exception {
+        given();
+        OperationResult result = getTestOperationResult();
+        repoAddObject(new UserType(prismContext)
+                .name(USER_TEMPORARY_NAME)
+                .assignment(new AssignmentType(prismContext)
+                        .targetRef(roleOid, RoleType.COMPLEX_TYPE)
+                        .activation(new ActivationType(prismContext)
+                                .validTo(XmlTypeConverter.createXMLGregorianCalendar(
+                                        clock.currentTimeMillis() + TIME_TO_LIVE * 1000L / 2))))
+                .asPrismObject(), result);
+        assertCachedAuthorization(getCachedPrincipal(USER_TEMPORARY_NAME));
+
+        try {
+            when();
+            clock.overrideDuration(TIME_TO_LIVE * 1000L * 3 / 4);
+            rememberCacheCounters();
+            GuiProfiledPrincipal principal = getCachedPrincipal(USER_TEMPORARY_NAME);
+
+            then();
+            assertCacheCounters(0, 1);
+            assertTrue("Authorization of invalid assignment is present: " + principal.getAuthorities(),
+                    principal.getAuthorities().stream().noneMatch(a -> a.getAction().contains(AUTZ_CACHED_URL)));
+        } finally {
+            clock.resetOverride();
+        }
+    }
+
+    @Test
+    public void test160TimeToLive() throws Exception {
+        given();
+        getCachedPrincipal(USER_CACHED_NAME);
+
+        try {
+            when();
+            clock.overrideDuration(TIME_TO_LIVE * 1000L + 1);
+            rememberCacheCounters();
+            getCachedPrincipal(USER_CACHED_NAME);
+
+            then();
+            assertCacheCounters(0, 1);
+        } finally {
+            clock.resetOverride();
+        }
+    }
+
+    /**
+     * Changes of roles, security policies and (delegator) focuses on other nodes must be propagated to this node.
+     */
+    @Test
+    public void test170ClusterwideInvalidation() {
+        expect();
+        assertTrue("Clusterwide invalidation is not required for roles",
+                cacheRegistry.isClusterwideInvalidationRequired(RoleType.class));
+        assertTrue("Clusterwide invalidation is not required for abstract roles",
+                cacheRegistry.isClusterwideInvalidationRequired(AbstractRoleType.class));
+        assertTrue("Clusterwide invalidation is not required for security policies",
+                cacheRegistry.isClusterwideInvalidationRequired(SecurityPolicyType.class));
+        assertTrue("Clusterwide invalidation is not required for users (delegators)",
+                cacheRegistry.isClusterwideInvalidationRequired(UserType.class));
+        assertFalse("Clusterwide invalidation is required for shadows",
+                cacheRegistry.isClusterwideInvalidationRequired(ShadowType.class));
+    }
+
+    private GuiProfiledPrincipal getCachedPrincipal(String name) throws Exception {
+        GuiProfiledPrincipal principal = guiProfiledPrincipalManager.getCachedPrincipal(name, UserType.class);
+        assertNotNull("No principal for " + name, principal);
+        return principal;
+    }
+
+    private void assertCachedAuthorization(GuiProfiledPrincipal principal) {
+        assertTrue("No authorization from the role: " + principal.getAuthorities(),
+                principal.getAuthorities().stream()
+                        .map(Authorization::getAction)
+                        .anyMatch(actions -> actions.contains(AUTZ_CACHED_URL)));
+    }
+
+    private void rememberCacheCounters() {
+        CachePerformanceCollector.CacheData data = getCacheData();
+        hitsBefore = data != null ? data.hits.get() : 0;
+        missesBefore = data != null ? data.misses.get() : 0;
+    }
+
+    private void assertCacheCounters(int expectedHits, int expectedMisses) {
+        CachePerformanceCollector.CacheData data = getCacheData();
+        assertNotNull("No cache performance data", data);
+        assertEquals("Wrong # of cache hits", expectedHits, data.hits.get() - hitsBefore);
+        assertEquals("Wrong # of cache misses", expectedMisses, data.misses.get() - missesBefore);
+    }
+
+    private CachePerformanceCollector.CacheData getCacheData() {
+        return CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap().get(GlobalPrincipalCache.class.getName());
+    }
+}
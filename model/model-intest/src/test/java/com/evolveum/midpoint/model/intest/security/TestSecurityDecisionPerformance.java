@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.intest.security;
+
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import javax.xml.namespace.QName;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.model.api.ModelAuthorizationAction;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.MidPointPrincipal;
+import com.evolveum.midpoint.security.enforcer.api.AuthorizationParameters;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Measures the latency of security decisions for a principal with many authorizations,
+ * with authorizations compiled once (the standard behavior) and compiled again for each decision
+ * (which approximates the cost of evaluation without the compiled form).
+ *
+ * This is a benchmark rather than a test, so it's not part of the default test suite.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-model-intest-test-main.xml" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestSecurityDecisionPerformance extends AbstractSecurityTest {
+
+    private static final int MANY_AUTHORIZATIONS = 300;
+    private static final String AUTZ_MANY_URL_PREFIX = "http://midpoint.evolveum.com/xml/ns/test/authorization#many";
+
+    private static final int WARM_UP_ITERATIONS = 1_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void test100CompareDecisionLatency() throws Exception {
+        given();
+        login(USER_ADMINISTRATOR_USERNAME);
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        String roleOid = addObject(createRoleWithManyAuthorizations().asPrismObject(), task, result);
+        assignRole(USER_JACK_OID, roleOid);
+
+        PrismObject<UserType> userJack = getUser(USER_JACK_OID);
+        PrismObject<OrgType> org3 = new OrgType(prismContext).name("many-3").asPrismObject();
+        PrismObject<RoleType> role3 = new RoleType(prismContext).name("many-3").asPrismObject();
+        login(USER_JACK_USERNAME);
+        MidPointPrincipal principal = securityContextManager.getPrincipal();
+
+        Decision decision = (t, r) -> {
+            assertTrue(isAuthorized(ModelAuthorizationAction.READ.getUrl(), userJack, t, r));
+            assertTrue(isAuthorized(AUTZ_MANY_URL_PREFIX + 3, org3, t, r));
+            assertFalse(isAuthorized(AUTZ_MANY_URL_PREFIX + 3, role3, t, r));
+        };
+
+        when("authorizations are compiled once");
+        long compiledOnce = measure(decision, null, task);
+
+        when("authorizations are compiled for each decision");
+        long compiledEachTime = measure(decision, principal, task);
+
+        then();
+        display(String.format("Decisions (3 per iteration), authorizations compiled once: %.2f µs/op,"
+                        + " compiled for each decision: %.2f µs/op",
+                compiledOnce / 1000.0 / ITERATIONS, compiledEachTime / 1000.0 / ITERATIONS));
+    }
+
+    /**
+     * @param principalToReset If not null, compiled authorizations of this principal are dropped before each iteration.
+     */
+    private long measure(Decision decision, MidPointPrincipal principalToReset, Task task) throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            run(decision, principalToReset, task);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            run(decision, principalToReset, task);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void run(Decision decision, MidPointPrincipal principalToReset, Task task) throws Exception {
+        if (principalToReset != null) {
+            principalToReset.setCompiledAuthorizations(null);
+        }
+        decision.run(task, new OperationResult("benchmark")); // not to accumulate subresults
+    }
+
+    private RoleType createRoleWithManyAuthorizations() throws Exception {
+        RoleType role = new RoleType(prismContext)
+                .name("many-authorizations");
+        QName[] types = { OrgType.COMPLEX_TYPE, RoleType.COMPLEX_TYPE, ServiceType.COMPLEX_TYPE };
+        for (int i = 0; i < MANY_AUTHORIZATIONS; i++) {
+            QName type = types[i % types.length];
+            ObjectFilter nameFilter = prismContext.queryFor(ObjectType.class)
+                    .item(ObjectType.F_NAME).eqPoly("many-" + i)
+                    .buildFilter();
+            role.authorization(new AuthorizationType()
+                    .action(AUTZ_MANY_URL_PREFIX + i)
+                    .object(new OwnedObjectSelectorType()
+                            .type(type)
+                            .filter(prismContext.getQueryConverter().createSearchFilterType(nameFilter))));
+        }
+        role.authorization(new AuthorizationType()
+                .action(ModelAuthorizationAction.READ.getUrl())
+                .object(new OwnedObjectSelectorType()
+                        .type(UserType.COMPLEX_TYPE)));
+        return role;
+    }
+
+    private boolean isAuthorized(String actionUrl, PrismObject<? extends ObjectType> object, Task task, OperationResult result)
+            throws CommonException {
+        return securityEnforcer.isAuthorized(actionUrl, AuthorizationPhaseType.EXECUTION,
+                AuthorizationParameters.Builder.buildObject(object), null, task, result);
+    }
+
+    @FunctionalInterface
+    private interface Decision {
+        void run(Task task, OperationResult result) throws Exception;
+    }
+}
@@ -6,22 +6,27 @@
  */
 package com.evolveum.midpoint.model.intest.security;
 
-import static org.testng.AssertJUnit.assertEquals;
-import static org.testng.AssertJUnit.assertNotNull;
-import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.*;
+
+import javax.xml.namespace.QName;
 
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.model.api.ModelAuthorizationAction;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.NoneFilter;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.security.api.AuthorizationConstants;
 import com.evolveum.midpoint.security.api.MidPointPrincipal;
+import com.evolveum.midpoint.security.enforcer.api.AuthorizationParameters;
+import com.evolveum.midpoint.security.enforcer.api.ObjectSecurityConstraints;
 import com.evolveum.midpoint.task.api.Task;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.AuthorizationPhaseType;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
 /**
  * @author semancik
@@ -30,6 +35,9 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 @DirtiesContext(classMode = ClassMode.AFTER_CLASS)
 public class TestSecurityPrincipal extends AbstractSecurityTest {
 
+    private static final int MANY_AUTHORIZATIONS = 300;
+    private static final String AUTZ_MANY_URL_PREFIX = "http://midpoint.evolveum.com/xml/ns/test/authorization#many";
+
     @Override
     public void initSystem(Task initTask, OperationResult initResult) throws Exception {
         super.initSystem(initTask, initResult);
@@ -381,4 +389,86 @@ public class TestSecurityPrincipal extends AbstractSecurityTest {
         login(USER_ADMINISTRATOR_USERNAME);
         unassignOrg(USER_JACK_OID, ORG_INDIRECT_PIRATE_OID);
     }
+
+    /**
+     * Security decisions for a principal with hundreds of authorizations, most of them not applicable
+     * for the operations (or object types) used, as it is usual in real deployments.
+     * The authorizations are compiled once and the compiled form is reused, also by clones of the principal.
+     */
+    @Test
+    public void test130JackManyAuthorizations() throws Exception {
+        // GIVEN
+        login(USER_ADMINISTRATOR_USERNAME);
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        RoleType role = new RoleType(prismContext)
+                .name("many-authorizations");
+        QName[] types = { OrgType.COMPLEX_TYPE, RoleType.COMPLEX_TYPE, ServiceType.COMPLEX_TYPE };
+        for (int i = 0; i < MANY_AUTHORIZATIONS; i++) {
+            QName type = types[i % types.length];
+            ObjectFilter nameFilter = prismContext.queryFor(ObjectType.class)
+                    .item(ObjectType.F_NAME).eqPoly("many-" + i)
+                    .buildFilter();
+            role.authorization(new AuthorizationType()
+                    .action(AUTZ_MANY_URL_PREFIX + i)
+                    .action(i % 10 == 0 ? ModelAuthorizationAction.READ.getUrl() : ModelAuthorizationAction.MODIFY.getUrl())
+                    .object(new OwnedObjectSelectorType()
+                            .type(type)
+                            .filter(prismContext.getQueryConverter().createSearchFilterType(nameFilter))));
+        }
+        role.authorization(new AuthorizationType()
+                .action(ModelAuthorizationAction.READ.getUrl())
+                .object(new OwnedObjectSelectorType()
+                        .type(UserType.COMPLEX_TYPE)));
+        String roleOid = addObject(role.asPrismObject(), task, result);
+        try {
+            assignRole(USER_JACK_OID, roleOid);
+
+            PrismObject<UserType> userJack = getUser(USER_JACK_OID);
+            PrismObject<OrgType> org0 = new OrgType(prismContext).name("many-0").asPrismObject(); // authorization #0
+            PrismObject<OrgType> org3 = new OrgType(prismContext).name("many-3").asPrismObject(); // authorization #3
+            PrismObject<RoleType> role3 = new RoleType(prismContext).name("many-3").asPrismObject(); // wrong type for #3
+            login(USER_JACK_USERNAME);
+            MidPointPrincipal principal = securityContextManager.getPrincipal();
+            String readUrl = ModelAuthorizationAction.READ.getUrl();
+
+            // WHEN
+            when();
+            assertTrue("Not authorized to read jack", isAuthorized(readUrl, userJack, task, result));
+            Object compiled = principal.getCompiledAuthorizations(Object.class);
+
+            // THEN
+            then();
+            assertNotNull("Authorizations were not compiled", compiled);
+            assertTrue("Not authorized for #0 on org", isAuthorized(AUTZ_MANY_URL_PREFIX + 0, org0, task, result));
+            assertTrue("Not authorized for #3 on org", isAuthorized(AUTZ_MANY_URL_PREFIX + 3, org3, task, result));
+            assertFalse("Authorized for #0 on jack", isAuthorized(AUTZ_MANY_URL_PREFIX + 0, userJack, task, result));
+            assertFalse("Authorized for #3 on other org", isAuthorized(AUTZ_MANY_URL_PREFIX + 3, org0, task, result));
+            assertFalse("Authorized for #3 on role", isAuthorized(AUTZ_MANY_URL_PREFIX + 3, role3, task, result));
+
+            ObjectSecurityConstraints constraints = securityEnforcer.compileSecurityConstraints(userJack, null, task, result);
+            assertEquals("Wrong read decision", AuthorizationDecisionType.ALLOW,
+                    constraints.findAllItemsDecision(readUrl, AuthorizationPhaseType.EXECUTION));
+
+            ObjectFilter filter = securityEnforcer.preProcessObjectFilter(new String[] { readUrl }, AuthorizationPhaseType.EXECUTION,
+                    OrgType.class, null, null, null, null, task, result);
+            displayDumpable("Org read filter", filter);
+            assertFalse("Orgs are not readable: " + filter, filter instanceof NoneFilter);
+
+            assertSame("Authorizations were compiled again", compiled, principal.getCompiledAuthorizations(Object.class));
+            assertSame("Compiled authorizations are not shared with the clone", compiled,
+                    principal.clone().getCompiledAuthorizations(Object.class));
+        } finally {
+            login(USER_ADMINISTRATOR_USERNAME);
+            unassignRole(USER_JACK_OID, roleOid);
+            deleteObject(RoleType.class, roleOid, task, result);
+        }
+    }
+
+    private boolean isAuthorized(String actionUrl, PrismObject<? extends ObjectType> object, Task task, OperationResult result)
+            throws CommonException {
+        return securityEnforcer.isAuthorized(actionUrl, AuthorizationPhaseType.EXECUTION,
+                AuthorizationParameters.Builder.buildObject(object), null, task, result);
+    }
 }
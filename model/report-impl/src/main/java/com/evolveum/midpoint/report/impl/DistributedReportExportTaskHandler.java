@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.report.impl.controller.engine.EngineController;
+import com.evolveum.midpoint.report.impl.controller.fileformat.CsvController;
+import com.evolveum.midpoint.report.impl.controller.fileformat.FileFormatController;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.*;
+import com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SecurityViolationException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Exports a part of an object collection report: the objects from one work bucket. The records are written
+ * (without the header) to a partial file named after the bucket sequential number. The partial files are then
+ * concatenated by {@link DistributedReportMergeTaskHandler}.
+ *
+ * Intended to be used in a partitioned task (generic partitioning handler): the first partition uses this handler
+ * with work buckets and workers, the second one uses the merge handler. Only CSV export of object (not audit)
+ * collections is supported. If workers run on multiple nodes, the export directory has to be shared among them.
+ */
+@Component
+public class DistributedReportExportTaskHandler implements WorkBucketAwareTaskHandler {
+
+    private static final Trace LOGGER = TraceManager.getTrace(DistributedReportExportTaskHandler.class);
+
+    public static final String HANDLER_URI = "http://midpoint.evolveum.com/xml/ns/public/report/distributed-export/handler-3";
+
+    private static final String PARTS_DIRECTORY_SUFFIX = ".parts";
+    private static final String PART_FILE_PREFIX = "bucket-";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    @Autowired private ReportServiceImpl reportService;
+    @Autowired private ReportTaskHandler reportTaskHandler;
+
+    @PostConstruct
+    protected void initialize() {
+        LOGGER.trace("Registering with taskManager as a handler for {}", HANDLER_URI);
+        reportService.getTaskManager().registerHandler(HANDLER_URI, this);
+    }
+
+    @Override
+    public TaskWorkBucketProcessingResult run(RunningTask task, WorkBucketType workBucket,
+            TaskPartitionDefinitionType partitionDefinition, TaskWorkBucketProcessingResult previousRunResult) {
+        OperationResult result = task.getResult()
+                .createSubresult(DistributedReportExportTaskHandler.class.getSimpleName() + ".run");
+        TaskWorkBucketProcessingResult runResult = new TaskWorkBucketProcessingResult();
+        runResult.setOperationResult(result);
+        runResult.setBucketComplete(false);
+        runResult.setShouldContinue(false);
+
+        File temporaryFile = null;
+        try {
+            ReportType report = resolveReport(task, result);
+            CsvController csvController = getCsvController(report);
+
+            File partsDirectory = getPartsDirectory(report, task, result);
+            if (!partsDirectory.isDirectory() && !partsDirectory.mkdirs() && !partsDirectory.isDirectory()) {
+                throw new IllegalStateException("Couldn't create directory " + partsDirectory);
+            }
+            File partFile = getPartFile(partsDirectory, workBucket.getSequentialNumber());
+            temporaryFile = new File(partsDirectory, partFile.getName() + TEMPORARY_FILE_SUFFIX);
+
+            LOGGER.debug("Exporting bucket #{} of {} into {}", workBucket.getSequentialNumber(), report, partFile);
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                csvController.processCollectionBucket(report.getObjectCollection(), workBucket, output, task, result);
+            }
+
+            if (!task.canRun()) {
+                LOGGER.debug("Task {} was interrupted, bucket #{} will be processed again", task, workBucket.getSequentialNumber());
+                Files.deleteIfExists(temporaryFile.toPath());
+                result.recordStatus(OperationResultStatus.WARNING, "Interrupted");
+                runResult.setRunResultStatus(TaskRunResultStatus.INTERRUPTED);
+                return runResult;
+            }
+
+            // The bucket can be processed repeatedly (e.g. after a failure), so the previous version is simply replaced.
+            Files.move(temporaryFile.toPath(), partFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            result.computeStatus();
+        } catch (Exception e) {
+            LOGGER.error("Couldn't export bucket #{} in {}: {}", workBucket.getSequentialNumber(), task, e.getMessage(), e);
+            result.recordFatalError(e.getMessage(), e);
+            deleteQuietly(temporaryFile);
+            runResult.setRunResultStatus(TaskRunResultStatus.PERMANENT_ERROR);
+            return runResult;
+        }
+
+        runResult.setRunResultStatus(TaskRunResultStatus.FINISHED);
+        runResult.setBucketComplete(true);
+        runResult.setShouldContinue(task.canRun());
+        return runResult;
+    }
+
+    ReportType resolveReport(Task task, OperationResult result) throws Exception {
+        ReportType report = reportService.getObjectResolver().resolve(task.getObjectRefOrClone(), ReportType.class, null,
+                "resolving report", task, result);
+        if (!reportService.isAuthorizedToRunReport(report.asPrismObject(), task, result)) {
+            LOGGER.error("Task {} is not authorized to run report {}", task, report);
+            throw new SecurityViolationException("Not authorized");
+        }
+        return report;
+    }
+
+    /**
+     * Returns CSV controller for given report, checking that the report can be exported in a distributed way.
+     */
+    CsvController getCsvController(ReportType report) {
+        if (report.getObjectCollection() == null || report.getObjectCollection().getCollection() == null) {
+            throw new IllegalArgumentException("Distributed export is supported only for object collection reports");
+        }
+        EngineController engineController = reportTaskHandler.resolveEngine(report);
+        FileFormatController fileFormatController = reportTaskHandler.resolveExport(report, engineController.getDefaultFileFormat());
+        if (!(fileFormatController instanceof CsvController)) {
+            throw new IllegalArgumentException("Distributed export is supported only for CSV file format, not for "
+                    + fileFormatController.getType());
+        }
+        return (CsvController) fileFormatController;
+    }
+
+    /**
+     * Directory for partial files. It is specific to the whole task tree, so the worker tasks and the merging task
+     * (being in the same tree) share it.
+     */
+    static File getPartsDirectory(ReportType report, Task task, OperationResult result) throws SchemaException {
+        String name = report.getName().getOrig() + "-" + task.getTaskTreeId(result) + PARTS_DIRECTORY_SUFFIX;
+        return new File(EngineController.getExportDir(), name);
+    }
+
+    private static File getPartFile(File partsDirectory, int bucketNumber) {
+        return new File(partsDirectory, getPartFileName(bucketNumber));
+    }
+
+    static String getPartFileName(int bucketNumber) {
+        return String.format("%s%09d", PART_FILE_PREFIX, bucketNumber);
+    }
+
+    static boolean isPartFile(File file) {
+        return file.isFile() && file.getName().startsWith(PART_FILE_PREFIX) && !file.getName().endsWith(TEMPORARY_FILE_SUFFIX);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            LOGGER.warn("Couldn't delete temporary file {}", file);
+        }
+    }
+
+    @Override
+    public String getCategoryName(Task task) {
+        return TaskCategory.REPORT;
+    }
+
+    @Override
+    public String getArchetypeOid() {
+        return SystemObjectsType.ARCHETYPE_REPORT_TASK.value();
+    }
+
+    @Override
+    public String getDefaultChannel() {
+        return null; // The channel URI should be provided by the task creator.
+    }
+}
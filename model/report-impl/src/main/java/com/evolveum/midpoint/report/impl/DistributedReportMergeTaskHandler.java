@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.report.impl.controller.engine.EngineController;
+import com.evolveum.midpoint.report.impl.controller.fileformat.CsvController;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.TaskWorkStateTypeUtil;
+import com.evolveum.midpoint.task.api.*;
+import com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Merges partial files created by {@link DistributedReportExportTaskHandler} into the final report: writes the header
+ * and then the parts in the order of work buckets. After that the report data object is created and the post report
+ * script is executed, just like in {@link ReportTaskHandler}.
+ *
+ * Should run as the partition following the exporting one, so all the buckets are complete at that time.
+ */
+@Component
+public class DistributedReportMergeTaskHandler implements TaskHandler {
+
+    private static final Trace LOGGER = TraceManager.getTrace(DistributedReportMergeTaskHandler.class);
+
+    public static final String HANDLER_URI = "http://midpoint.evolveum.com/xml/ns/public/report/distributed-export-merge/handler-3";
+
+    @Autowired private ReportServiceImpl reportService;
+    @Autowired private ReportTaskHandler reportTaskHandler;
+    @Autowired private DistributedReportExportTaskHandler exportTaskHandler;
+
+    @PostConstruct
+    protected void initialize() {
+        LOGGER.trace("Registering with taskManager as a handler for {}", HANDLER_URI);
+        reportService.getTaskManager().registerHandler(HANDLER_URI, this);
+    }
+
+    @Override
+    public TaskRunResult run(RunningTask task, TaskPartitionDefinitionType partitionDefinition) {
+        OperationResult result = task.getResult()
+                .createSubresult(DistributedReportMergeTaskHandler.class.getSimpleName() + ".run");
+        TaskRunResult runResult = new TaskRunResult();
+        runResult.setOperationResult(result);
+
+        try {
+            ReportType report = exportTaskHandler.resolveReport(task, result);
+            CsvController csvController = exportTaskHandler.getCsvController(report);
+            EngineController engineController = reportTaskHandler.resolveEngine(report);
+
+            File partsDirectory = DistributedReportExportTaskHandler.getPartsDirectory(report, task, result);
+            List<File> parts = getParts(partsDirectory, getNumberOfBuckets(task, result));
+
+            String reportDataFilePath = engineController.getDestinationFileName(report, csvController);
+            LOGGER.debug("Merging {} part(s) from {} into {}", parts.size(), partsDirectory, reportDataFilePath);
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(reportDataFilePath))) {
+                csvController.processCollectionHeader(report.getObjectCollection(), output, task, result);
+                for (File part : parts) {
+                    Files.copy(part.toPath(), output);
+                }
+            }
+
+            reportTaskHandler.saveReportDataType(reportDataFilePath, report, csvController, task, result);
+            LOGGER.trace("create report output type : {}", reportDataFilePath);
+
+            if (report.getPostReportScript() != null) {
+                reportTaskHandler.processPostReportScript(report, reportDataFilePath, task, result);
+            }
+
+            FileUtils.deleteDirectory(partsDirectory);
+            result.computeStatus();
+        } catch (Exception ex) {
+            LOGGER.error("Merging report parts: {}", ex.getMessage(), ex);
+            result.recordFatalError(ex.getMessage(), ex);
+            runResult.setRunResultStatus(TaskRunResultStatus.PERMANENT_ERROR);
+            return runResult;
+        }
+
+        runResult.setRunResultStatus(TaskRunResultStatus.FINISHED);
+        return runResult;
+    }
+
+    /**
+     * Returns the number of buckets of the exporting partition, i.e. the number of parts to be merged.
+     * The exporting partition is the sibling of this task that has the {@link DistributedReportExportTaskHandler} handler.
+     * All its buckets must be complete.
+     */
+    private int getNumberOfBuckets(Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+        Task parent = task.getParentTask(result);
+        if (parent == null) {
+            throw new IllegalStateException("Task " + task + " has no parent; it should be a partition following"
+                    + " the exporting one");
+        }
+        for (Task sibling : parent.listSubtasks(true, result)) {
+            if (DistributedReportExportTaskHandler.HANDLER_URI.equals(sibling.getHandlerUri())) {
+                return getNumberOfCompleteBuckets(sibling);
+            }
+        }
+        throw new IllegalStateException("No exporting partition found in " + parent);
+    }
+
+    private int getNumberOfCompleteBuckets(Task exportTask) {
+        TaskWorkStateType workState = exportTask.getWorkState();
+        if (workState == null) {
+            throw new IllegalStateException("No buckets in " + exportTask + "; was the export run?");
+        }
+        WorkBucketType lastBucket = TaskWorkStateTypeUtil.getLastBucket(workState.getBucket());
+        int buckets = lastBucket != null ? lastBucket.getSequentialNumber() : 0;
+        if (workState.getNumberOfBuckets() != null && workState.getNumberOfBuckets() != buckets) {
+            throw new IllegalStateException("Only " + buckets + " out of " + workState.getNumberOfBuckets()
+                    + " buckets were created in " + exportTask);
+        }
+        // Buckets that are not listed are complete (they can be removed when they are no longer needed).
+        for (WorkBucketType bucket : workState.getBucket()) {
+            if (bucket.getState() != WorkBucketStateType.COMPLETE) {
+                throw new IllegalStateException("Bucket #" + bucket.getSequentialNumber() + " in " + exportTask
+                        + " is not complete (" + bucket.getState() + ")");
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns the parts ordered by bucket number, checking that there is exactly one for each bucket.
+     */
+    static List<File> getParts(File partsDirectory, int numberOfBuckets) {
+        File[] files = partsDirectory.listFiles();
+        List<File> parts = files != null
+                ? Arrays.stream(files)
+                        .filter(DistributedReportExportTaskHandler::isPartFile)
+                        .sorted(Comparator.comparing(File::getName))
+                        .collect(Collectors.toList())
+                : List.of();
+        if (parts.size() > numberOfBuckets) {
+            LOGGER.warn("There are {} parts in {} but only {} buckets; ignoring the extra ones", parts.size(),
+                    partsDirectory, numberOfBuckets);
+            parts = parts.subList(0, numberOfBuckets);
+        }
+        for (int i = 0; i < numberOfBuckets; i++) {
+            String expectedName = DistributedReportExportTaskHandler.getPartFileName(i + 1);
+            if (i >= parts.size() || !expectedName.equals(parts.get(i).getName())) {
+                throw new IllegalStateException("Part " + expectedName + " is missing in " + partsDirectory
+                        + "; were all the " + numberOfBuckets + " buckets processed?");
+            }
+        }
+        return parts;
+    }
+
+    @Override
+    public String getCategoryName(Task task) {
+        return TaskCategory.REPORT;
+    }
+
+    @Override
+    public String getArchetypeOid() {
+        return SystemObjectsType.ARCHETYPE_REPORT_TASK.value();
+    }
+
+    @Override
+    public String getDefaultChannel() {
+        return null; // The channel URI should be provided by the task creator.
+    }
+}
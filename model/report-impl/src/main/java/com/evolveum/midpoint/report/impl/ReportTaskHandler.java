@@ -163,7 +163,7 @@ public class ReportTaskHandler implements TaskHandler {
 
     }
 
-    private EngineController resolveEngine(ReportType parentReport) {
+    EngineController resolveEngine(ReportType parentReport) {
         if (parentReport.getDashboard() != null) {
             return new DashboardEngineController(reportService);
         }
@@ -174,7 +174,7 @@ public class ReportTaskHandler implements TaskHandler {
         throw new IllegalArgumentException("Report don't contains engine");
     }
 
-    private FileFormatController resolveExport(ReportType parentReport, FileFormatTypeType defaultType) {
+    FileFormatController resolveExport(ReportType parentReport, FileFormatTypeType defaultType) {
         FileFormatConfigurationType fileFormat;
         if (parentReport.getFileFormat() == null || parentReport.getFileFormat().getType() == null) {
             fileFormat = new FileFormatConfigurationType();
@@ -203,7 +203,7 @@ public class ReportTaskHandler implements TaskHandler {
         return SystemObjectsType.ARCHETYPE_REPORT_TASK.value();
     }
 
-    private void saveReportDataType(String filePath, ReportType reportType, FileFormatController fileFormatController, Task task,
+    void saveReportDataType(String filePath, ReportType reportType, FileFormatController fileFormatController, Task task,
             OperationResult parentResult) throws Exception {
 
         String fileName = FilenameUtils.getBaseName(filePath);
@@ -256,7 +256,7 @@ public class ReportTaskHandler implements TaskHandler {
         subResult.computeStatus();
     }
 
-    private void processPostReportScript(ReportType parentReport, String reportOutputFilePath, Task task, OperationResult parentResult) {
+    void processPostReportScript(ReportType parentReport, String reportOutputFilePath, Task task, OperationResult parentResult) {
         CommandLineScriptType scriptType = parentReport.getPostReportScript();
         if (scriptType == null) {
             LOGGER.debug("No post report script found in {}, skipping", parentReport);
@@ -18,8 +18,6 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
-import org.apache.commons.io.FileUtils;
-
 import java.io.File;
 import java.util.List;
 
@@ -41,7 +39,7 @@ public class CollectionEngineController extends EngineController {
             ObjectCollectionReportEngineConfigurationType collectionConfig = parentReport.getObjectCollection();
 
             String reportFilePath = getDestinationFileName(parentReport, fileFormatController);
-            FileUtils.writeByteArrayToFile(new File(reportFilePath), fileFormatController.processCollection(parentReport.getName().getOrig(), collectionConfig, task, result));
+            fileFormatController.processCollection(parentReport.getName().getOrig(), collectionConfig, new File(reportFilePath), task, result);
             return reportFilePath;
         } else {
             LOGGER.error("CollectionRefSpecification is null");
@@ -45,7 +45,7 @@ public abstract class EngineController {
 
     public abstract FileFormatTypeType getDefaultFileFormat();
 
-    String getDestinationFileName(ReportType reportType, FileFormatController fileFormatController) {
+    public String getDestinationFileName(ReportType reportType, FileFormatController fileFormatController) {
         File exportDir = getExportDir();
         if (!exportDir.exists() || !exportDir.isDirectory()) {
             if (!exportDir.mkdir()) {
@@ -58,11 +58,11 @@ public abstract class EngineController {
         return new File(exportDir, fileName).getPath();
     }
 
-    private File getExportDir() {
+    public static File getExportDir() {
         return new File(getMidPointHomeDirName(), "export");
     }
 
-    private String getMidPointHomeDirName() {
+    private static String getMidPointHomeDirName() {
         return System.getProperty(MidpointConfiguration.MIDPOINT_HOME_PROPERTY);
     }
 
@@ -44,6 +44,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author skublik
@@ -53,6 +54,8 @@ public class CsvController extends FileFormatController {
 
     private static final Trace LOGGER = TraceManager.getTrace(CsvController.class);
 
+    private static final int AUDIT_PAGE_SIZE = 1000;
+
     public CsvController(FileFormatConfigurationType fileFormatConfiguration, ReportType report, ReportServiceImpl reportService) {
         super(fileFormatConfiguration, report, reportService);
     }
@@ -121,6 +124,41 @@ public class CsvController extends FileFormatController {
 
     @Override
     public byte[] processCollection(String nameOfReport, ObjectCollectionReportEngineConfigurationType collectionConfig, Task task, OperationResult result) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportCollection(collectionConfig, output, true, true, null, task, result);
+        return output.toByteArray();
+    }
+
+    /**
+     * Records are written to the file as they are found, so the memory consumption does not depend on the size of the report.
+     */
+    @Override
+    public void processCollection(String nameOfReport, ObjectCollectionReportEngineConfigurationType collectionConfig,
+            File outputFile, Task task, OperationResult result) throws Exception {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            exportCollection(collectionConfig, output, true, true, null, task, result);
+        }
+    }
+
+    /**
+     * Writes records for objects from given work bucket (without the header). Used by distributed report export.
+     * Audit collections are not supported here.
+     */
+    public void processCollectionBucket(ObjectCollectionReportEngineConfigurationType collectionConfig, WorkBucketType workBucket,
+            OutputStream output, Task task, OperationResult result) throws Exception {
+        exportCollection(collectionConfig, output, false, true, workBucket, task, result);
+    }
+
+    /**
+     * Writes only the header (if it is configured to be present). Used by distributed report export.
+     */
+    public void processCollectionHeader(ObjectCollectionReportEngineConfigurationType collectionConfig, OutputStream output,
+            Task task, OperationResult result) throws Exception {
+        exportCollection(collectionConfig, output, true, false, null, task, result);
+    }
+
+    private void exportCollection(ObjectCollectionReportEngineConfigurationType collectionConfig, OutputStream output,
+            boolean writeHeader, boolean writeRecords, WorkBucketType workBucket, Task task, OperationResult result) throws Exception {
         CollectionRefSpecificationType collectionRefSpecification = collectionConfig.getCollection();
         ObjectReferenceType ref = collectionRefSpecification.getCollectionRef();
         ObjectCollectionType collection = null;
@@ -133,16 +171,16 @@ public class CsvController extends FileFormatController {
 
         CompiledObjectCollectionView compiledCollection = createCompiledView(collectionConfig, collection);
 
-        byte[] csvFile;
         if (!isAuditCollection(collectionRefSpecification, task, result)) {
-            csvFile = createTableBoxForObjectView(collectionRefSpecification, compiledCollection,
-                    collectionConfig.getCondition(), task, result);
+            createTableBoxForObjectView(collectionRefSpecification, compiledCollection, collectionConfig.getCondition(),
+                    output, writeHeader, writeRecords, workBucket, task, result);
         } else {
-            csvFile = createTableForAuditView(collectionRefSpecification, compiledCollection, collectionConfig.getCondition(), task, result);
+            if (workBucket != null) {
+                throw new ConfigurationException("Distributed export of audit records is not supported");
+            }
+            createTableForAuditView(collectionRefSpecification, compiledCollection, collectionConfig.getCondition(),
+                    output, writeHeader, writeRecords, task, result);
         }
-
-
-        return csvFile;
     }
 
     private CompiledObjectCollectionView createCompiledView(ObjectCollectionReportEngineConfigurationType collectionConfig, boolean useDefaultView, Task task, OperationResult result)
@@ -191,12 +229,12 @@ public class CsvController extends FileFormatController {
         return compiledCollection;
     }
 
-    private byte[] createTableForAuditView(CollectionRefSpecificationType collectionRef, CompiledObjectCollectionView compiledCollection,
-            ExpressionType condition, Task task, OperationResult result) throws CommunicationException, ObjectNotFoundException, SchemaException,
-            SecurityViolationException, ConfigurationException, ExpressionEvaluationException {
+    private void createTableForAuditView(CollectionRefSpecificationType collectionRef, CompiledObjectCollectionView compiledCollection,
+            ExpressionType condition, OutputStream output, boolean writeHeader, boolean writeRecords, Task task, OperationResult result)
+            throws CommunicationException, ObjectNotFoundException, SchemaException, SecurityViolationException, ConfigurationException,
+            ExpressionEvaluationException, IOException {
 
         List<String> headers = new ArrayList<>();
-        List<List<String>> records = new ArrayList<>();
 
         List<GuiObjectColumnType> columns;
         if (compiledCollection.getColumns().isEmpty()) {
@@ -213,12 +251,22 @@ public class CsvController extends FileFormatController {
 
         });
 
+        CSVPrinter printer = createPrinter(output, headers, writeHeader);
+        if (!writeRecords) {
+            printer.flush();
+            return;
+        }
+
+        AtomicReference<IOException> writeException = new AtomicReference<>();
         AuditResultHandler handler = new AuditResultHandler() {
 
             public int i = 1;
 
             @Override
             public boolean handle(AuditEventRecordType auditRecord) {
+                if (writeException.get() != null || task instanceof RunningTask && !((RunningTask) task).canRun()) {
+                    return false;
+                }
                 recordProgress(task, i, result, LOGGER);
                 i++;
                 boolean writeRecord = true;
@@ -243,7 +291,7 @@ public class CsvController extends FileFormatController {
                             LOGGER.error("Couldn't create singleValueContainer for audit record " + auditRecord);
                         }
                     });
-                    records.add(items);
+                    printRecord(printer, items, writeException);
                 }
                 return true;
             }
@@ -254,43 +302,23 @@ public class CsvController extends FileFormatController {
             }
         };
 
-        getReportService().getDashboardService().searchObjectFromCollection(collectionRef, handler, null, task, result, true);
-
-        CSVFormat csvFormat = createCsvFormat();
-        if (Boolean.TRUE.equals(isHeader())) {
-            String[] arrayHeader = new String[headers.size()];
-            arrayHeader = headers.toArray(arrayHeader);
-            csvFormat = csvFormat.withHeader(arrayHeader)
-                    .withSkipHeaderRecord(false);
-        } else {
-            csvFormat = csvFormat.withSkipHeaderRecord(true);
-        }
-        try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(output, getEncoding()), csvFormat);
-            for (List<String> record : records) {
-                printer.printRecord(record.toArray());
-            }
-            printer.flush();
-
-            return output.toByteArray();
-        } catch (IOException e) {
-            LOGGER.error("Couldn't create CSVPrinter", e);
-        }
-        return null;
+        // Audit records are fetched page by page, so only one page is kept in memory at a time.
+        getReportService().getDashboardService().searchAuditRecordsFromCollection(collectionRef, handler, AUDIT_PAGE_SIZE,
+                task, result, true);
+        finish(printer, writeException);
     }
 
-    private byte[] createTableBoxForObjectView(CollectionRefSpecificationType collection, CompiledObjectCollectionView compiledCollection, ExpressionType condition, Task task, OperationResult result)
-            throws CommunicationException, ObjectNotFoundException, SchemaException, SecurityViolationException, ConfigurationException, ExpressionEvaluationException {
+    private void createTableBoxForObjectView(CollectionRefSpecificationType collection, CompiledObjectCollectionView compiledCollection,
+            ExpressionType condition, OutputStream output, boolean writeHeader, boolean writeRecords, WorkBucketType workBucket,
+            Task task, OperationResult result)
+            throws CommunicationException, ObjectNotFoundException, SchemaException, SecurityViolationException, ConfigurationException,
+            ExpressionEvaluationException, IOException {
 
         Class<ObjectType> type = resolveType(collection, compiledCollection);
         Collection<SelectorOptions<GetOperationOptions>> options = DefaultColumnUtils.createOption(type, getReportService().getSchemaHelper());
         PrismObjectDefinition<ObjectType> def = getReportService().getPrismContext().getSchemaRegistry().findItemDefinitionByCompileTimeClass(type, PrismObjectDefinition.class);
 
-        CompiledObjectCollectionView columnsCompiledView;
-
         List<String> headers = new ArrayList<>();
-        List<List<String>> records = new ArrayList<>();
 
         List<GuiObjectColumnType> columns;
         if (compiledCollection.getColumns().isEmpty()) {
@@ -305,9 +333,25 @@ public class CsvController extends FileFormatController {
             headers.add(label);
         });
 
+        CSVPrinter printer = createPrinter(output, headers, writeHeader);
+        if (!writeRecords) {
+            printer.flush();
+            return;
+        }
+
+        AtomicReference<IOException> writeException = new AtomicReference<>();
         AtomicInteger index = new AtomicInteger(1);
         ResultHandler<ObjectType> handler = (value, prentResult) -> {
-            recordProgress(task, index.get(), result, LOGGER);
+            if (writeException.get() != null) {
+                return false;
+            }
+            if (workBucket != null && task instanceof RunningTask) {
+                // Progress of a bucket worker is cumulative over buckets and is stored only from time to time,
+                // not for each record.
+                ((RunningTask) task).incrementProgressAndStoreStatsIfNeeded();
+            } else {
+                recordProgress(task, index.get(), result, LOGGER);
+            }
             index.getAndIncrement();
             boolean writeRecord = true;
             if (condition != null) {
@@ -326,35 +370,45 @@ public class CsvController extends FileFormatController {
                     ExpressionType expression = column.getExport() != null ? column.getExport().getExpression() : null;
                     items.add(getRealValueAsString(column, value, path, expression, task, result));
                 });
-                records.add(items);
+                printRecord(printer, items, writeException);
             }
             return true;
         };
-        getReportService().getDashboardService().searchObjectFromCollection(collection, compiledCollection.getContainerType(), handler, options, task, result, true);
+        getReportService().getDashboardService().searchObjectFromCollection(collection, compiledCollection.getContainerType(),
+                handler, options, workBucket, task, result, workBucket == null);
+        finish(printer, writeException);
+    }
 
+    private CSVPrinter createPrinter(OutputStream output, List<String> headers, boolean writeHeader) throws IOException {
         CSVFormat csvFormat = createCsvFormat();
-        if (Boolean.TRUE.equals(isHeader())) {
+        if (writeHeader && Boolean.TRUE.equals(isHeader())) {
             String[] arrayHeader = new String[headers.size()];
             arrayHeader = headers.toArray(arrayHeader);
             csvFormat = csvFormat.withHeader(arrayHeader)
-                            .withSkipHeaderRecord(false);
+                    .withSkipHeaderRecord(false);
         } else {
             csvFormat = csvFormat.withSkipHeaderRecord(true);
         }
+        return new CSVPrinter(new BufferedWriter(new OutputStreamWriter(output, getEncoding())), csvFormat);
+    }
 
+    private void printRecord(CSVPrinter printer, List<String> record, AtomicReference<IOException> writeException) {
         try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(output, getEncoding()), csvFormat);
-            for (List<String> record : records) {
-                printer.printRecord(record.toArray());
-            }
-            printer.flush();
-
-            return output.toByteArray();
+            printer.printRecord(record.toArray());
         } catch (IOException e) {
-            LOGGER.error("Couldn't create CSVPrinter", e);
+            LOGGER.error("Couldn't write report record", e);
+            writeException.compareAndSet(null, e);
         }
-        return null;
+    }
+
+    /**
+     * Flushes the printer (but does not close the underlying stream). Rethrows the first write exception, if any.
+     */
+    private void finish(CSVPrinter printer, AtomicReference<IOException> writeException) throws IOException {
+        if (writeException.get() != null) {
+            throw writeException.get();
+        }
+        printer.flush();
     }
 
     @Override
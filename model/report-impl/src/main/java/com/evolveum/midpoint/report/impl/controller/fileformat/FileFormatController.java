@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.report.impl.controller.fileformat;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -15,6 +16,7 @@ import com.evolveum.midpoint.model.api.util.DashboardUtils;
 import com.evolveum.midpoint.schema.DeltaConvertor;
 
 import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.model.api.authentication.CompiledObjectCollectionView;
@@ -81,6 +83,15 @@ public abstract class FileFormatController {
 
     public abstract byte[] processCollection(String nameOfReport, ObjectCollectionReportEngineConfigurationType collectionConfig, Task task, OperationResult result) throws Exception;
 
+    /**
+     * Writes the report for given collection into the output file. Controllers that can stream the records
+     * (i.e. write them as they are found, without keeping them in memory) should override this method.
+     */
+    public void processCollection(String nameOfReport, ObjectCollectionReportEngineConfigurationType collectionConfig,
+            File outputFile, Task task, OperationResult result) throws Exception {
+        FileUtils.writeByteArrayToFile(outputFile, processCollection(nameOfReport, collectionConfig, task, result));
+    }
+
     protected void recordProgress(Task task, long progress, OperationResult opResult, Trace logger) {
         try {
             task.setProgressImmediate(progress, opResult);
@@ -44,6 +44,7 @@ public abstract class BasicNewReportTest extends AbstractReportIntegrationTest {
     public static final File COLLECTION_TASK_FILE = new File(COMMON_DIR, "object-collection-all-task.xml");
     public static final File COLLECTION_USER_FILE = new File(COMMON_DIR, "object-collection-all-user.xml");
     public static final File COLLECTION_AUDIT_FILE = new File(COMMON_DIR, "object-collection-all-audit-records.xml");
+    public static final String COLLECTION_AUDIT_OID = "00000000-0000-0000-0001-000000001234";
     public static final File COLLECTION_ASSIGNMENT_HOLDER_FILE = new File(COMMON_DIR, "object-collection-all-assignment-holder.xml");
     public static final File COLLECTION_SHADOW_FILE = new File(COMMON_DIR, "object-collection-shadow-of-resource.xml");
     public static final File DASHBOARD_DEFAULT_COLUMNS_FILE = new File(COMMON_DIR, "dashboard-default-columns.xml");
@@ -9,10 +9,13 @@ package com.evolveum.midpoint.report;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
 
+import com.evolveum.midpoint.audit.api.AuditResultHandler;
 import com.evolveum.midpoint.model.api.ModelExecuteOptions;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
@@ -21,6 +24,7 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.test.util.MidPointTestConstants;
 import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.xml.ns._public.common.audit_3.AuditEventRecordType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
 import org.testng.annotations.Test;
@@ -112,6 +116,47 @@ public class TestCsvReport extends BasicNewReportTest {
         super.test105CreateAuditCollectionReportEmpty();
     }
 
+    /**
+     * Audit records are exported page by page. Here the pages are very small, to check that no record
+     * is skipped or repeated at page boundaries.
+     */
+    @Test
+    public void test106SearchAuditRecordsInPages() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        CollectionRefSpecificationType collectionRef = new CollectionRefSpecificationType()
+                .collectionRef(COLLECTION_AUDIT_OID, ObjectCollectionType.COMPLEX_TYPE);
+        List<String> allAtOnce = searchAuditRecords(collectionRef, Integer.MAX_VALUE, task, result);
+
+        when();
+        List<String> inPages = searchAuditRecords(collectionRef, 2, task, result);
+
+        then();
+        assertSuccess(result);
+        assertTrue("Expected more than one page of audit records, got " + allAtOnce.size(), allAtOnce.size() > 2);
+        assertEquals("Records searched in pages differ", allAtOnce, inPages);
+        assertEquals("Duplicate records", inPages.size(), new HashSet<>(inPages).size());
+    }
+
+    private List<String> searchAuditRecords(CollectionRefSpecificationType collectionRef, int pageSize, Task task,
+            OperationResult result) throws Exception {
+        List<String> eventIdentifiers = new ArrayList<>();
+        dashboardService.searchAuditRecordsFromCollection(collectionRef, new AuditResultHandler() {
+            @Override
+            public boolean handle(AuditEventRecordType auditRecord) {
+                eventIdentifiers.add(auditRecord.getEventIdentifier());
+                return true;
+            }
+
+            @Override
+            public int getProgress() {
+                return eventIdentifiers.size();
+            }
+        }, pageSize, task, result, false);
+        return eventIdentifiers;
+    }
+
     @Override
     public void test110CreateObjectCollectionReportWithDefaultColumn() throws Exception {
         expectedColumns = 6;
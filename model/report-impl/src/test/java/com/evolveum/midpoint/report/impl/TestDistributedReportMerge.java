@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests selection of part files to be merged by {@link DistributedReportMergeTaskHandler}.
+ */
+public class TestDistributedReportMerge extends AbstractUnitTest {
+
+    private File partsDirectory;
+
+    @BeforeMethod
+    public void createPartsDirectory() throws IOException {
+        partsDirectory = Files.createTempDirectory("report-parts").toFile();
+    }
+
+    @AfterMethod
+    public void deletePartsDirectory() throws IOException {
+        FileUtils.deleteDirectory(partsDirectory);
+    }
+
+    @Test
+    public void test100AllParts() throws Exception {
+        given();
+        createParts(3, 1, 2);
+
+        when();
+        List<File> parts = DistributedReportMergeTaskHandler.getParts(partsDirectory, 3);
+
+        then();
+        assertPartNumbers(parts, 1, 2, 3);
+    }
+
+    @Test
+    public void test110MissingPartInTheMiddle() throws Exception {
+        given();
+        createParts(1, 3);
+
+        expect();
+        assertMissingPart(3);
+    }
+
+    /**
+     * The last part is missing, e.g. because the last bucket was not processed. This is detectable
+     * only by comparing the parts with the number of buckets.
+     */
+    @Test
+    public void test120MissingLastPart() throws Exception {
+        given();
+        createParts(1, 2);
+
+        expect();
+        assertMissingPart(3);
+    }
+
+    /**
+     * Parts for buckets that do not exist (any more) are not merged.
+     */
+    @Test
+    public void test130ExtraPart() throws Exception {
+        given();
+        createParts(1, 2, 3);
+
+        when();
+        List<File> parts = DistributedReportMergeTaskHandler.getParts(partsDirectory, 2);
+
+        then();
+        assertPartNumbers(parts, 1, 2);
+    }
+
+    @Test
+    public void test140NoBuckets() throws Exception {
+        given();
+        FileUtils.deleteDirectory(partsDirectory);
+
+        when();
+        List<File> parts = DistributedReportMergeTaskHandler.getParts(partsDirectory, 0);
+
+        then();
+        assertTrue("Unexpected parts: " + parts, parts.isEmpty());
+    }
+
+    @Test
+    public void test150NoPartsForExistingBuckets() throws Exception {
+        given();
+        FileUtils.deleteDirectory(partsDirectory);
+
+        expect();
+        assertMissingPart(1);
+    }
+
+    private void createParts(int... bucketNumbers) throws IOException {
+        for (int bucketNumber : bucketNumbers) {
+            File part = new File(partsDirectory, DistributedReportExportTaskHandler.getPartFileName(bucketNumber));
+            FileUtils.writeStringToFile(part, "record " + bucketNumber + "\n", "UTF-8");
+        }
+    }
+
+    private void assertMissingPart(int numberOfBuckets) {
+        try {
+            DistributedReportMergeTaskHandler.getParts(partsDirectory, numberOfBuckets);
+            fail("Unexpected success");
+        } catch (IllegalStateException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    private void assertPartNumbers(List<File> parts, Integer... expected) {
+        List<String> expectedNames = List.of(expected).stream()
+                .map(DistributedReportExportTaskHandler::getPartFileName)
+                .collect(Collectors.toList());
+        List<String> actualNames = parts.stream()
+                .map(File::getName)
+                .collect(Collectors.toList());
+        assertEquals("Wrong parts", expectedNames, actualNames);
+    }
+}
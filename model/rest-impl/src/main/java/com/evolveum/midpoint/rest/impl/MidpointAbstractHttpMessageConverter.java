@@ -9,6 +9,8 @@ package com.evolveum.midpoint.rest.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.function.Function;
@@ -123,7 +125,10 @@ public abstract class MidpointAbstractHttpMessageConverter<T> extends AbstractHt
             } else {
                 serializedForm = serializer.serializeAnyData(object, fakeQName);
             }
-            outputMessage.getBody().write(serializedForm.getBytes(StandardCharsets.UTF_8));
+            // Writing through the writer avoids creating another (byte array) copy of the serialized form.
+            Writer writer = new OutputStreamWriter(outputMessage.getBody(), StandardCharsets.UTF_8);
+            writer.write(serializedForm);
+            writer.flush();
         } catch (SchemaException | RuntimeException e) {
             LoggingUtils.logException(LOGGER, "Couldn't marshal element to string: {}", e, object);
         }
@@ -8,15 +8,21 @@ package com.evolveum.midpoint.rest.impl;
 
 import static org.springframework.http.ResponseEntity.status;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.namespace.QName;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -30,6 +36,7 @@ import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.ItemPathCollectionsUtil;
+import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.DefinitionProcessingOption;
 import com.evolveum.midpoint.schema.DeltaConvertor;
@@ -41,6 +48,7 @@ import com.evolveum.midpoint.schema.expression.VariablesMap;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.security.api.SecurityUtil;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.Holder;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.LoggingUtils;
 import com.evolveum.midpoint.xml.ns._public.common.api_types_3.*;
@@ -609,6 +617,139 @@ public class ModelRestController extends AbstractRestController {
         return response;
     }
 
+    /**
+     * Streaming variant of {@link #searchObjects}: objects are written to the response as they are found,
+     * so the memory needed does not depend on the number of objects. The output is newline-delimited JSON
+     * (or XML if requested by Accept header), see {@link SearchResultStreamWriter}.
+     *
+     * The objects are returned in the order of their OIDs. If `maxSize` is set and reached, the operation result
+     * at the end of the output contains `continuationToken` return value; the next batch can be obtained by repeating
+     * the request with this token. Paging in the query itself is not supported. Continuation is available only
+     * for objects searched for in the repository: not for those handled by provisioning (e.g. shadows, unless `raw`)
+     * or task manager, as their ordering is not guaranteed.
+     *
+     * Errors found before the streaming starts are reported in the usual way, the later ones only
+     * in the operation result at the end of the output (as the HTTP status was already sent).
+     */
+    @PostMapping(value = "/{type}/search/stream",
+            produces = { SearchResultStreamWriter.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_XML_VALUE })
+    public <T extends ObjectType> ResponseEntity<?> searchObjectsStream(
+            @PathVariable("type") String type,
+            @RequestParam(value = "options", required = false) List<String> options,
+            @RequestParam(value = "include", required = false) List<String> include,
+            @RequestParam(value = "exclude", required = false) List<String> exclude,
+            @RequestParam(value = "resolveNames", required = false) List<String> resolveNames,
+            @RequestParam(value = "maxSize", required = false) Integer maxSize,
+            @RequestParam(value = SearchResultStreamWriter.CONTINUATION_TOKEN, required = false) String continuationToken,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestBody QueryType queryType,
+            HttpServletResponse httpResponse) {
+
+        Task task = initRequest();
+        OperationResult result = createSubresult(task, "searchObjectsStream");
+
+        //noinspection unchecked
+        Class<T> clazz = (Class<T>) ObjectTypes.getClassFromRestType(type);
+        ResponseEntity<?> response = null;
+        SearchResultStreamWriter writer = null;
+        try {
+            ObjectQuery query = prismContext.getQueryConverter().createObjectQuery(clazz, queryType);
+            if (query.getPaging() != null) {
+                throw new IllegalArgumentException("Paging is not supported for streaming search, use maxSize and "
+                        + SearchResultStreamWriter.CONTINUATION_TOKEN + " parameters instead");
+            }
+            if (maxSize != null && maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+            }
+            Collection<SelectorOptions<GetOperationOptions>> searchOptions = GetOperationOptions.fromRestOptions(options, include,
+                    exclude, resolveNames, DefinitionProcessingOption.ONLY_IF_EXISTS, prismContext);
+            boolean continuable = isSearchedInRepository(clazz, searchOptions);
+            if (continuationToken != null) {
+                checkContinuationToken(continuationToken, continuable, type);
+            }
+            ObjectPaging paging = prismContext.queryFactory().createPaging();
+            paging.setMaxSize(maxSize);
+            if (continuable) {
+                // Only strictly sequential iteration goes by OID; the cookie then means "objects after this OID".
+                paging.setCookie(continuationToken);
+                searchOptions = SelectorOptions.updateRootOptions(searchOptions,
+                        opt -> opt.setIterationMethod(IterationMethodType.STRICTLY_SEQUENTIAL_PAGING), GetOperationOptions::new);
+            }
+            query.setPaging(paging);
+
+            writer = SearchResultStreamWriter.create(accept, prismContext, httpResponse.getOutputStream());
+            httpResponse.setStatus(HttpStatus.OK.value());
+            httpResponse.setContentType(writer.getContentType());
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            writer.start();
+
+            SearchResultStreamWriter finalWriter = writer;
+            Holder<String> lastOid = new Holder<>();
+            AtomicInteger count = new AtomicInteger();
+            try {
+                modelService.searchObjectsIterative(clazz, query, (object, lResult) -> {
+                    try {
+                        removeExcludes(object, exclude);        // temporary measure until fixed in repo
+                        finalWriter.write(object);
+                    } catch (IOException | SchemaException e) {
+                        throw new SystemException("Couldn't write " + object + ": " + e.getMessage(), e);
+                    }
+                    lastOid.setValue(object.getOid());
+                    count.incrementAndGet();
+                    return true;
+                }, searchOptions, task, result);
+                if (continuable && maxSize != null && count.get() == maxSize) {
+                    result.addReturn(SearchResultStreamWriter.CONTINUATION_TOKEN, lastOid.getValue());
+                }
+                result.computeStatus();
+            } catch (Exception ex) {
+                LoggingUtils.logUnexpectedException(logger, "Streaming search failed after {} objects", ex, count.get());
+                result.recordFatalError(ex);
+            }
+            writer.finish(result.createOperationResultType());
+        } catch (Exception ex) {
+            if (writer == null) {
+                response = handleException(result, ex);
+            } else {
+                // Too late to report it in any other way.
+                LoggingUtils.logUnexpectedException(logger, "Couldn't finish streaming search response", ex);
+            }
+        }
+
+        result.computeStatus();
+        finishRequest(task, result);
+        return response; // null if the response was already written
+    }
+
+    /**
+     * Mirrors the decision of the model: objects of types not managed by provisioning or task manager,
+     * and all objects in raw mode, are searched for directly in the repository.
+     */
+    private boolean isSearchedInRepository(Class<? extends ObjectType> clazz,
+            Collection<SelectorOptions<GetOperationOptions>> searchOptions) {
+        ObjectTypes.ObjectManager manager = ObjectTypes.getObjectManagerForClass(clazz);
+        return manager == null || manager == ObjectTypes.ObjectManager.MODEL
+                || GetOperationOptions.isRaw(SelectorOptions.findRootOptions(searchOptions));
+    }
+
+    private void checkContinuationToken(String continuationToken, boolean continuable, String type) {
+        if (!continuable) {
+            throw new IllegalArgumentException(SearchResultStreamWriter.CONTINUATION_TOKEN
+                    + " is not supported for " + type + " (unless searched for in raw mode)");
+        }
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(continuationToken);
+        } catch (IllegalArgumentException e) {
+            uuid = null;
+        }
+        // UUID.fromString accepts also some non-canonical forms, like "1-2-3-4-5"
+        if (uuid == null || !uuid.toString().equalsIgnoreCase(continuationToken)) {
+            throw new IllegalArgumentException("Invalid " + SearchResultStreamWriter.CONTINUATION_TOKEN
+                    + ", expected OID (UUID): " + continuationToken);
+        }
+    }
+
     private void removeExcludes(PrismObject<? extends ObjectType> object, List<String> exclude)
             throws SchemaException {
         object.getValue().removePaths(
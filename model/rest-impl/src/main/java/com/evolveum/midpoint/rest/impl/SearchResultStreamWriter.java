@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.rest.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.MediaType;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
+
+/**
+ * Writes objects found by an iterative search to the output stream one by one, as they come.
+ * Only the object being written is kept in memory, regardless of the number of objects found.
+ *
+ * Supported formats:
+ *
+ * - JSON: newline-delimited JSON ({@link #APPLICATION_NDJSON}), each object on a single line.
+ * The last line contains the operation result.
+ * - XML: single `objects` element (in prism types namespace) containing the objects,
+ * with the operation result as the last child.
+ *
+ * The operation result contains {@link #CONTINUATION_TOKEN} return value if there may be more objects
+ * than were written (because of maxSize limit). See {@link ModelRestController#searchObjectsStream}.
+ */
+class SearchResultStreamWriter {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    static final String CONTINUATION_TOKEN = "continuationToken";
+
+    private static final QName OBJECTS_ELEMENT_NAME = new QName(PrismConstants.NS_TYPES, "objects");
+    private static final QName RESULT_ELEMENT_NAME = new QName(PrismConstants.NS_TYPES, "result");
+
+    /** JSON strings can't contain raw line breaks, so all the line breaks are from pretty printing. */
+    private static final Pattern LINE_BREAK_WITH_INDENTATION = Pattern.compile("[\r\n]+ *");
+
+    private final boolean xml;
+    @NotNull private final PrismContext prismContext;
+    @NotNull private final Writer writer;
+
+    private SearchResultStreamWriter(boolean xml, @NotNull PrismContext prismContext, @NotNull OutputStream output) {
+        this.xml = xml;
+        this.prismContext = prismContext;
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Chooses the format according to the Accept header: XML if explicitly requested, NDJSON otherwise.
+     */
+    static SearchResultStreamWriter create(String accept, @NotNull PrismContext prismContext, @NotNull OutputStream output) {
+        boolean xml = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_XML)
+                        && !mediaType.isWildcardType());
+        return new SearchResultStreamWriter(xml, prismContext, output);
+    }
+
+    String getContentType() {
+        return xml ? MediaType.APPLICATION_XML_VALUE : APPLICATION_NDJSON_VALUE;
+    }
+
+    void start() throws IOException {
+        if (xml) {
+            writer.write("<t:" + OBJECTS_ELEMENT_NAME.getLocalPart()
+                    + " xmlns:t=\"" + OBJECTS_ELEMENT_NAME.getNamespaceURI() + "\">\n");
+        }
+    }
+
+    void write(@NotNull PrismObject<?> object) throws IOException, SchemaException {
+        writeEntry(createSerializer().serialize(object));
+    }
+
+    /**
+     * Writes the operation result and flushes the output. The stream itself is not closed.
+     */
+    void finish(@NotNull OperationResultType result) throws IOException, SchemaException {
+        writeEntry(createSerializer().serializeAnyData(result, RESULT_ELEMENT_NAME));
+        if (xml) {
+            writer.write("</t:" + OBJECTS_ELEMENT_NAME.getLocalPart() + ">\n");
+        }
+        writer.flush();
+    }
+
+    private PrismSerializer<String> createSerializer() {
+        PrismSerializer<String> serializer = xml ? prismContext.xmlSerializer() : prismContext.jsonSerializer();
+        return serializer.options(SerializationOptions.createSerializeReferenceNames());
+    }
+
+    private void writeEntry(String serialized) throws IOException {
+        if (xml) {
+            writer.write(serialized);
+        } else {
+            writer.write(LINE_BREAK_WITH_INDENTATION.matcher(serialized.trim()).replaceAll(""));
+        }
+        writer.write('\n');
+    }
+}
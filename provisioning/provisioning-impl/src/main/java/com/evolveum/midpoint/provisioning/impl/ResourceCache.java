@@ -30,8 +30,8 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_CACHE;
 
@@ -69,11 +69,13 @@ public class ResourceCache implements Cache {
      * Note that prism objects in this map are always not null and immutable.
      * And they must remain immutable after getting them from the cache.
      *
-     * As for ConcurrentHashMap: Although we use synchronization whenever possible, let's be extra cautious here.
+     * The cache does not use any locking: immutable objects are published via ConcurrentHashMap
+     * and all check-then-act sequences (put, purge of wrong version) use conditional map operations
+     * (compare by identity), so a concurrent update of the entry is never lost and readers never block.
      */
-    private final Map<String, PrismObject<ResourceType>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PrismObject<ResourceType>> cache = new ConcurrentHashMap<>();
 
-    synchronized void put(PrismObject<ResourceType> resource) throws SchemaException {
+    void put(PrismObject<ResourceType> resource) throws SchemaException {
         String oid = resource.getOid();
         if (oid == null) {
             throw new SchemaException("Attempt to cache "+resource+" without an OID");
@@ -85,16 +87,23 @@ public class ResourceCache implements Cache {
         }
 
         PrismObject<ResourceType> cachedResource = cache.get(oid);
-        if (cachedResource == null) {
-            LOGGER.debug("Caching(new): {}", resource);
-            cache.put(oid, resource.createImmutableClone());
-        } else if (compareVersion(resource.getVersion(), cachedResource.getVersion())) {
+        if (cachedResource != null && compareVersion(version, cachedResource.getVersion())) {
             LOGGER.debug("Caching fizzle, resource already cached: {}", resource);
             // We already have equivalent resource, nothing to do
             //  TODO is this correct? What if the resource being put here is newer than the existing one (although having the same version)?
-        } else {
-            LOGGER.debug("Caching(replace): {}", resource);
-            cache.put(oid, resource.createImmutableClone());
+            return;
+        }
+
+        // Cloning is done outside of any map operation, so other threads are not blocked by it.
+        PrismObject<ResourceType> immutableClone = resource.createImmutableClone();
+        LOGGER.debug(cachedResource == null ? "Caching(new): {}" : "Caching(replace): {}", resource);
+        // Conditional put/replace: if some other thread has changed the entry in the meantime, its resource is kept.
+        // (We cannot tell which one is newer. Wrong version, if any, is detected and purged on the next get.)
+        boolean stored = cachedResource == null
+                ? cache.putIfAbsent(oid, immutableClone) == null
+                : cache.replace(oid, cachedResource, immutableClone);
+        if (!stored) {
+            LOGGER.debug("Caching fizzle, resource was concurrently changed in the cache: {}", resource);
         }
     }
 
@@ -105,67 +114,76 @@ public class ResourceCache implements Cache {
     /**
      * Gets a resource if it has specified version. If it has not, purges it from the cache (even if it exists there).
      */
-    synchronized PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
+    PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
         InternalMonitor.getResourceCacheStats().recordRequest();
 
-        PrismObject<ResourceType> resourceToReturn;
+        PrismObject<ResourceType> resourceToReturn = getInternal(oid, requestedVersion, readOnly);
+        if (resourceToReturn != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(ResourceCache.class, ResourceType.class, PER_CACHE);
+            InternalMonitor.getResourceCacheStats().recordHit();
+        } else {
+            CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
+            InternalMonitor.getResourceCacheStats().recordMiss();
+        }
+        return resourceToReturn;
+    }
+
+    private PrismObject<ResourceType> getInternal(@NotNull String oid, String requestedVersion, boolean readOnly) {
         PrismObject<ResourceType> cachedResource = cache.get(oid);
         if (cachedResource == null) {
             LOGGER.debug("MISS(not cached) for {} (get)", oid);
-            resourceToReturn = null;
+            return null;
         } else if (!compareVersion(requestedVersion, cachedResource.getVersion())) {
             LOGGER.debug("MISS(wrong version) for {} (req={}, actual={})", oid, requestedVersion, cachedResource.getVersion());
             LOGGER.trace("Cached resource version {} does not match requested resource version {}, purging from cache",
                     cachedResource.getVersion(), requestedVersion);
-            cache.remove(oid);
-            resourceToReturn = null;
+            // Conditional remove: if another thread has already replaced the entry, the new one is kept.
+            cache.remove(oid, cachedResource);
+            return null;
         } else if (readOnly) {
             cachedResource.checkImmutable();
             LOGGER.trace("HIT(read only) for {} (v{})", cachedResource, cachedResource.getVersion());
-            resourceToReturn = cachedResource;
+            return cachedResource;
         } else {
             LOGGER.debug("HIT(returning clone) for {} (v{})", cachedResource, cachedResource.getVersion());
-            resourceToReturn = cachedResource.clone();
+            return cachedResource.clone();
         }
-
-        if (resourceToReturn != null) {
-            CachePerformanceCollector.INSTANCE.registerHit(ResourceCache.class, ResourceType.class, PER_CACHE);
-            InternalMonitor.getResourceCacheStats().recordHit();
-        } else {
-            CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
-            InternalMonitor.getResourceCacheStats().recordMiss();
-        }
-        return resourceToReturn;
     }
 
     /**
      * Gets a resource without specifying requested version: returns one only if it has the same version as in the repo.
      *
-     * This requires a cooperation with the repository cache. Therefore this method is NOT synchronized
-     * and has operation result as its parameter.
+     * This requires a cooperation with the repository cache. Therefore this method has operation result as its parameter.
+     * Hits are reported as weak hits, because they require getVersion call to the repository.
      */
     PrismObject<ResourceType> getIfLatest(@NotNull String oid, boolean readonly, OperationResult parentResult)
             throws SchemaException, ObjectNotFoundException {
+        InternalMonitor.getResourceCacheStats().recordRequest();
+
         // First let's check if the cache contains given resource. If not, we can avoid getting version from the repo.
-        if (contains(oid)) {
+        PrismObject<ResourceType> resourceToReturn;
+        if (cache.containsKey(oid)) {
             String version = repositoryService.getVersion(ResourceType.class, oid, parentResult);
-            return get(oid, version, readonly);
+            resourceToReturn = getInternal(oid, version, readonly);
         } else {
             LOGGER.debug("MISS(not cached) for {} (getIfLatest)", oid);
+            resourceToReturn = null;
+        }
+
+        if (resourceToReturn != null) {
+            CachePerformanceCollector.INSTANCE.registerWeakHit(ResourceCache.class, ResourceType.class, PER_CACHE);
+            InternalMonitor.getResourceCacheStats().recordHit();
+        } else {
             CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
             InternalMonitor.getResourceCacheStats().recordMiss();
-            return null;
         }
-    }
-
-    private synchronized boolean contains(@NotNull String oid) {
-        return cache.containsKey(oid);
+        return resourceToReturn;
     }
 
     /**
      * Returns currently cached version. FOR DIAGNOSTICS ONLY.
      */
-    synchronized String getVersion(String oid) {
+    String getVersion(String oid) {
         if (oid == null) {
             return null;
         }
@@ -176,12 +194,12 @@ public class ResourceCache implements Cache {
         return cachedResource.getVersion();
     }
 
-    synchronized void remove(String oid) {
+    void remove(String oid) {
         cache.remove(oid);
     }
 
     @Override
-    public synchronized void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
         if (type == null || type.isAssignableFrom(ResourceType.class)) {
             if (oid != null) {
                 remove(oid);
@@ -193,7 +211,7 @@ public class ResourceCache implements Cache {
 
     @NotNull
     @Override
-    public synchronized Collection<SingleCacheStateInformationType> getStateInformation() {
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
         return Collections.singleton(
                 new SingleCacheStateInformationType(prismContext)
                         .name(ResourceCache.class.getName())
@@ -556,6 +556,7 @@ public class AuditEventRecord implements DebugDumpable {
         auditRecordType.setTaskOID(taskOid);
         auditRecordType.getResourceOid().addAll(resourceOids);
         auditRecordType.setTimestamp(MiscUtil.asXMLGregorianCalendar(timestamp));
+        auditRecordType.setRepoId(repoId);
         for (ObjectDeltaOperation delta : deltas) {
             ObjectDeltaOperationType odo = new ObjectDeltaOperationType();
             try {
@@ -34,6 +34,13 @@ public interface AuditService {
 
     void audit(AuditEventRecord record, Task task);
 
+    /**
+     * Waits until all audit records accepted so far are stored.
+     * Relevant only for services that write records asynchronously; no-op by default.
+     */
+    default void flush() {
+    }
+
     /**
      * Clean up audit records that are older than specified.
      *
@@ -24,4 +24,12 @@ public interface Cache {
     Collection<SingleCacheStateInformationType> getStateInformation();
 
     void dumpContent();
+
+    /**
+     * Returns true if this cache needs to be notified about changes of objects of given type
+     * made on other cluster nodes, even if no other cache needs that.
+     */
+    default boolean isClusterwideInvalidationRequired(@NotNull Class<?> type) {
+        return false;
+    }
 }
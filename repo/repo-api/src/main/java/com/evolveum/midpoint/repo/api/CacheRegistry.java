@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.repo.api;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.xml.ns._public.common.common_3.CachesStateInformationType;
 
 /**
@@ -21,4 +23,11 @@ public interface CacheRegistry {
     CachesStateInformationType getStateInformation();
 
     void dumpContent();
+
+    /**
+     * Returns true if any of the registered caches needs invalidation events for given type from other nodes.
+     *
+     * @see Cache#isClusterwideInvalidationRequired(Class)
+     */
+    boolean isClusterwideInvalidationRequired(@NotNull Class<?> type);
 }
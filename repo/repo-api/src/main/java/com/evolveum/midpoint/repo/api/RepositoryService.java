@@ -6,7 +6,10 @@
  */
 package com.evolveum.midpoint.repo.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -109,7 +112,10 @@ public interface RepositoryService {
 
     String CLASS_NAME_WITH_DOT = RepositoryService.class.getName() + ".";
     String GET_OBJECT = CLASS_NAME_WITH_DOT + "getObject";
+    String GET_OBJECTS = CLASS_NAME_WITH_DOT + "getObjects";
     String ADD_OBJECT = CLASS_NAME_WITH_DOT + "addObject";
+    String ADD_OBJECTS = CLASS_NAME_WITH_DOT + "addObjects";
+    String ADD_OBJECTS_OBJECT = ADD_OBJECTS + ".object";
     String DELETE_OBJECT = CLASS_NAME_WITH_DOT + "deleteObject";
     String SEARCH_OBJECTS = CLASS_NAME_WITH_DOT + "searchObjects";
     String SEARCH_CONTAINERS = CLASS_NAME_WITH_DOT + "searchContainers";
@@ -129,6 +135,7 @@ public interface RepositoryService {
     String KEY_ORIGINAL_OBJECT = "repositoryOriginalObject";
 
     String OP_ADD_OBJECT = "addObject";
+    String OP_ADD_OBJECTS = "addObjects";
     String OP_DELETE_OBJECT = "deleteObject";
     String OP_COUNT_OBJECTS = "countObjects";
     String OP_MODIFY_OBJECT = "modifyObject";
@@ -138,6 +145,7 @@ public interface RepositoryService {
     String OP_RETURN_UNUSED_VALUES_TO_SEQUENCE = "returnUnusedValuesToSequence";
     String OP_EXECUTE_QUERY_DIAGNOSTICS = "executeQueryDiagnostics";
     String OP_GET_OBJECT = "getObject";
+    String OP_GET_OBJECTS = "getObjects";
     String OP_SEARCH_SHADOW_OWNER = "searchShadowOwner";
     String OP_SEARCH_OBJECTS = "searchObjects";
     String OP_SEARCH_OBJECTS_ITERATIVE = "searchObjectsIterative";
@@ -159,6 +167,54 @@ public interface RepositoryService {
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException;
 
+    /**
+     * Returns objects for provided OIDs, e.g. targets of references that would be otherwise
+     * fetched one by one.
+     * <p>
+     * Unlike {@link #getObject}, this does not fail if some of the objects do not exist,
+     * these are simply missing in the returned list. Objects are returned in the order of their OIDs
+     * in the input collection, duplicate OIDs are ignored.
+     * <p>
+     * Default implementation simply calls {@link #getObject} for each OID.
+     * Implementations are encouraged to fetch the objects with a single query.
+     *
+     * @param oids OIDs of the objects to get, must not contain nulls
+     * @param parentResult parent OperationResult (in/out)
+     * @return existing objects in the order of provided OIDs
+     * @throws SchemaException error dealing with storage schema
+     * @throws IllegalArgumentException wrong OID format, etc.
+     */
+    @NotNull
+    default <O extends ObjectType> SearchResultList<PrismObject<O>> getObjects(
+            @NotNull Class<O> type,
+            @NotNull Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+        OperationResult result = parentResult.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type.getName())
+                .addParam("count", oids.size())
+                .build();
+        try {
+            SearchResultList<PrismObject<O>> objects = new SearchResultList<>(new ArrayList<>(oids.size()));
+            for (String oid : new LinkedHashSet<>(oids)) {
+                try {
+                    objects.add(getObject(type, oid, options, result));
+                } catch (ObjectNotFoundException e) {
+                    // missing objects are not an error here
+                    result.muteLastSubresultError();
+                }
+            }
+            return objects;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.computeStatusIfUnknown();
+        }
+    }
+
     /**
      * Returns object version for provided OID.
      * <p>
@@ -216,6 +272,52 @@ public interface RepositoryService {
             @NotNull OperationResult parentResult)
             throws ObjectAlreadyExistsException, SchemaException;
 
+    /**
+     * Adds multiple objects, e.g. during import or initial load.
+     * <p>
+     * Objects are added independently - failure to add one of them does not prevent adding the others.
+     * Outcome of each add operation is recorded as a separate subresult; this method does not throw
+     * exceptions related to individual objects. Overall atomicity is not guaranteed.
+     * <p>
+     * Default implementation simply calls {@link #addObject} for each object.
+     * Implementations are encouraged to add objects in batches with less transactions
+     * and database round-trips.
+     *
+     * @param objects objects to create, OIDs are set to the objects that are added successfully
+     * @return OIDs of the objects in the iteration order of the input collection,
+     * null for the objects that were not added
+     */
+    @NotNull
+    default <T extends ObjectType> List<String> addObjects(
+            @NotNull Collection<PrismObject<T>> objects,
+            RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+        OperationResult result = parentResult.subresult(ADD_OBJECTS)
+                .addParam("count", objects.size())
+                .addArbitraryObjectAsParam("options", options)
+                .build();
+        try {
+            List<String> oids = new ArrayList<>(objects.size());
+            for (PrismObject<T> object : objects) {
+                // each object has its own result, so the outcome is recorded even if addObject fails early
+                OperationResult objectResult = result.subresult(ADD_OBJECTS_OBJECT)
+                        .addParam("oid", object != null ? object.getOid() : null)
+                        .build();
+                try {
+                    oids.add(addObject(object, options, objectResult));
+                } catch (ObjectAlreadyExistsException | SchemaException | RuntimeException e) {
+                    objectResult.recordFatalError(e);
+                    oids.add(null);
+                } finally {
+                    objectResult.computeStatusIfUnknown();
+                }
+            }
+            return oids;
+        } finally {
+            result.computeStatus();
+        }
+    }
+
     /**
      * <p>Modifies object using relative change description.</p>
      * Must fail if user with
@@ -99,6 +99,14 @@ public class RepositoryCache implements RepositoryService, Cache {
         return getObjectOpHandler.getObject(type, oid, options, parentResult);
     }
 
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(@NotNull Class<T> type,
+            @NotNull Collection<String> oids, Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult) throws SchemaException {
+        return getObjectOpHandler.getObjects(type, oids, options, parentResult);
+    }
+
     @Override
     public <T extends ObjectType> String getVersion(Class<T> type, String oid, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException {
@@ -153,6 +161,12 @@ public class RepositoryCache implements RepositoryService, Cache {
         return modificationOpHandler.addObject(object, options, parentResult);
     }
 
+    @Override
+    public <T extends ObjectType> @NotNull List<String> addObjects(@NotNull Collection<PrismObject<T>> objects,
+            RepoAddOptions options, @NotNull OperationResult parentResult) {
+        return modificationOpHandler.addObjects(objects, options, parentResult);
+    }
+
     @NotNull
     public <T extends ObjectType> ModifyObjectResult<T> modifyObject(
             @NotNull Class<T> type, @NotNull String oid, @NotNull Collection<? extends ItemDelta<?, ?>> modifications,
@@ -47,6 +47,14 @@ public abstract class AbstractGlobalCache {
         }
     }
 
+    /**
+     * Total memory budget (estimated weight of all entries) for this cache; null means unlimited.
+     */
+    Long getMaxWeight() {
+        CacheConfiguration configuration = getConfiguration();
+        return configuration != null ? configuration.getMaxWeight() : null;
+    }
+
     long getExpiryTime(Class<?> type) {
         CacheObjectTypeConfiguration configuration = getConfiguration(type);
         if (configuration == null) {
@@ -9,7 +9,8 @@ package com.evolveum.midpoint.repo.cache.global;
 
 import org.jetbrains.annotations.NotNull;
 
-import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 /**
@@ -17,8 +18,24 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  */
 public class GlobalCacheObjectValue<T extends ObjectType> extends AbstractGlobalCacheValue {
 
+    /** Rough estimates of memory footprint of prism structures (in bytes). */
+    private static final int ITEM_OVERHEAD = 120;
+    private static final int VALUE_OVERHEAD = 80;
+
     @NotNull private final PrismObject<T> object;
 
+    /**
+     * Estimated memory footprint of the object. Computed only if a weight budget applies (see {@link #weigh(long)}),
+     * as the walk through the object is not free.
+     */
+    private int weight;
+
+    /**
+     * Order in which the weighed values were put into the cache; used to evict the oldest ones.
+     * Zero if the value is not weighed, i.e. its weight is not tracked by the cache.
+     */
+    private volatile long sequence;
+
     private volatile long checkVersionTime;
 
     public GlobalCacheObjectValue(@NotNull PrismObject<T> object, long checkVersionTime) {
@@ -26,6 +43,62 @@ public class GlobalCacheObjectValue<T extends ObjectType> extends AbstractGlobal
         this.checkVersionTime = checkVersionTime;
     }
 
+    /**
+     * Computes the weight of the object, so it can be tracked by the cache. Called before the value is put into the cache.
+     *
+     * @param sequence positive number determining the order of the weighed values
+     */
+    void weigh(long sequence) {
+        this.weight = estimateWeight(object);
+        this.sequence = sequence; // volatile write, publishes the weight
+    }
+
+    boolean isWeighed() {
+        return sequence != 0;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Estimates the memory footprint of the object by walking its items and values.
+     * This is much cheaper than serializing the object, yet it reflects the difference between
+     * e.g. a role with thousands of inducements and a tiny object well enough.
+     */
+    private static int estimateWeight(PrismObject<?> object) {
+        long[] weight = { 0 };
+        //noinspection unchecked
+        object.accept((Visitor) visitable -> {
+            if (visitable instanceof Item) {
+                weight[0] += ITEM_OVERHEAD;
+            } else if (visitable instanceof PrismValue) {
+                weight[0] += VALUE_OVERHEAD;
+                if (visitable instanceof PrismPropertyValue) {
+                    weight[0] += estimateRealValueWeight(((PrismPropertyValue<?>) visitable).getValue());
+                }
+            }
+        });
+        return (int) Math.min(weight[0], Integer.MAX_VALUE);
+    }
+
+    private static long estimateRealValueWeight(Object realValue) {
+        if (realValue instanceof String) {
+            return 2L * ((String) realValue).length();
+        } else if (realValue instanceof PolyString) {
+            PolyString polyString = (PolyString) realValue;
+            return 2L * (length(polyString.getOrig()) + length(polyString.getNorm()));
+        } else if (realValue instanceof byte[]) {
+            return ((byte[]) realValue).length;
+        } else {
+            return 0;
+        }
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
     String getObjectOid() {
         return object.getOid();
     }
@@ -43,6 +116,13 @@ public class GlobalCacheObjectValue<T extends ObjectType> extends AbstractGlobal
         return object;      // cloning is done in RepositoryCache
     }
 
+    /**
+     * Estimated weight of the object; zero if the value was not weighed.
+     */
+    public int getWeight() {
+        return isWeighed() ? weight : 0;
+    }
+
     public void setCheckVersionTime(long checkVersionTime) {
         this.checkVersionTime = checkVersionTime;
     }
@@ -14,7 +14,11 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 public class GlobalCacheQueryValue<T extends ObjectType> extends AbstractGlobalCacheValue {
 
-    @NotNull private final SearchResultList<T> result;
+    /**
+     * Immutable result list. It can be replaced by a patched one when an object is removed from the result
+     * during invalidation. (We do not put a new cache value in such cases, in order to keep the original expiration time.)
+     */
+    @NotNull private volatile SearchResultList<T> result;
 
     GlobalCacheQueryValue(@NotNull SearchResultList<T> result) {
         this.result = result;
@@ -24,6 +28,11 @@ public class GlobalCacheQueryValue<T extends ObjectType> extends AbstractGlobalC
         return result;
     }
 
+    public void setResult(@NotNull SearchResultList<T> result) {
+        result.checkImmutable();
+        this.result = result;
+    }
+
     @Override
     public String toString() {
         return "GlobalCacheQueryValue{" +
@@ -15,19 +15,34 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
 import org.cache2k.Cache2kBuilder;
+import org.cache2k.event.CacheEntryCreatedListener;
+import org.cache2k.event.CacheEntryEvictedListener;
+import org.cache2k.event.CacheEntryExpiredListener;
+import org.cache2k.event.CacheEntryRemovedListener;
+import org.cache2k.event.CacheEntryUpdatedListener;
 import org.cache2k.expiry.ExpiryPolicy;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PreDestroy;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Node-level cache for objects.
+ *
+ * Besides the entry count (maxSize) the cache can be bounded by estimated weight of the objects
+ * (see {@link GlobalCacheObjectValue#getWeight()}): both for the cache as a whole and for object types.
+ * A budget configured for an object type applies to all its subtypes as well (e.g. a budget for AbstractRoleType
+ * covers roles, orgs, services and archetypes together).
+ *
+ * Objects are weighed only if a budget applies to them. Weighed entries are tracked using cache2k entry listeners,
+ * per object class, in the order of insertion. When a budget is exceeded, the oldest entries (of the types
+ * covered by the budget) are evicted, without scanning the whole cache.
  */
 @Component
 public class GlobalObjectCache extends AbstractGlobalCache {
@@ -37,8 +52,20 @@ public class GlobalObjectCache extends AbstractGlobalCache {
 
     private static final String CACHE_NAME = "objectCache";
 
+    /**
+     * When a weight budget is exceeded, we evict entries until the weight drops to this fraction of the budget.
+     * This is to avoid scanning the cache on each put when the cache is full.
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
     private org.cache2k.Cache<String, GlobalCacheObjectValue> cache;
 
+    /** Weighed entries per (exact) object class. Maintained by entry listeners. */
+    private final Map<Class<?>, WeighedEntries> weighedEntries = new ConcurrentHashMap<>();
+
+    /** Source of {@link GlobalCacheObjectValue#getSequence()} values. */
+    private final AtomicLong lastSequence = new AtomicLong();
+
     public void initialize() {
         if (cache != null) {
             LOGGER.warn("Global object cache was already initialized -- ignoring this request.");
@@ -54,9 +81,52 @@ public class GlobalObjectCache extends AbstractGlobalCache {
                     .entryCapacity(capacity)
                     .expiryPolicy(getExpirePolicy())
                     .storeByReference(true) // this is default in the current version of cache2k; we need this because we update TTL value for cached objects
+                    .addListener((CacheEntryCreatedListener<String, GlobalCacheObjectValue>)
+                            (c, entry) -> entryAdded(entry.getValue()))
+                    .addListener((CacheEntryUpdatedListener<String, GlobalCacheObjectValue>)
+                            (c, currentEntry, newEntry) -> {
+                                entryRemoved(currentEntry.getValue());
+                                entryAdded(newEntry.getValue());
+                            })
+                    .addListener((CacheEntryRemovedListener<String, GlobalCacheObjectValue>)
+                            (c, entry) -> entryRemoved(entry.getValue()))
+                    .addListener((CacheEntryEvictedListener<String, GlobalCacheObjectValue>)
+                            (c, entry) -> entryRemoved(entry.getValue()))
+                    .addListener((CacheEntryExpiredListener<String, GlobalCacheObjectValue>)
+                            (c, entry) -> entryRemoved(entry.getValue()))
                     .build();
-            LOGGER.info("Created global repository object cache with a capacity of {} objects", capacity);
+            LOGGER.info("Created global repository object cache with a capacity of {} objects and maximal weight of {}",
+                    capacity, getMaxWeight());
+        }
+    }
+
+    private void entryAdded(GlobalCacheObjectValue<?> value) {
+        if (value != null && value.isWeighed()) {
+            weighedEntries.computeIfAbsent(value.getObjectType(), type -> new WeighedEntries())
+                    .add(value);
+        }
+    }
+
+    private void entryRemoved(GlobalCacheObjectValue<?> value) {
+        if (value != null && value.isWeighed()) {
+            WeighedEntries entries = weighedEntries.get(value.getObjectType());
+            if (entries != null) {
+                entries.remove(value);
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of the entries covered by a budget for given type (or by the total budget, if null).
+     */
+    private long getWeight(@Nullable Class<?> budgetType) {
+        long weight = 0;
+        for (Map.Entry<Class<?>, WeighedEntries> entry : weighedEntries.entrySet()) {
+            if (budgetType == null || budgetType.isAssignableFrom(entry.getKey())) {
+                weight += entry.getValue().weight.get();
+            }
         }
+        return weight;
     }
 
     private ExpiryPolicy<String, GlobalCacheObjectValue> getExpirePolicy() {
@@ -107,11 +177,88 @@ public class GlobalObjectCache extends AbstractGlobalCache {
         if (cache != null) {
             PrismObject<T> prismObject = cacheObject.getObject();
             prismObject.checkImmutable();
-            LOGGER.trace("Putting {} into cache (v{})", prismObject, prismObject.getVersion());
+            Class<? extends ObjectType> type = cacheObject.getObjectType();
+            Long totalBudget = getMaxWeight();
+            Map<Class<?>, Long> typeBudgets = getTypeBudgets(type);
+            if (totalBudget != null || !typeBudgets.isEmpty()) {
+                cacheObject.weigh(lastSequence.incrementAndGet());
+                for (Map.Entry<Class<?>, Long> typeBudget : typeBudgets.entrySet()) {
+                    if (cacheObject.getWeight() > typeBudget.getValue()) {
+                        LOGGER.trace("Not caching {} because its weight ({}) exceeds the budget for {} ({})", prismObject,
+                                cacheObject.getWeight(), typeBudget.getKey().getSimpleName(), typeBudget.getValue());
+                        cache.remove(cacheObject.getObjectOid()); // the old version (if any) is not current anymore
+                        return;
+                    }
+                }
+            }
+            LOGGER.trace("Putting {} into cache (v{}, weight {})", prismObject, prismObject.getVersion(), cacheObject.getWeight());
             cache.put(cacheObject.getObjectOid(), cacheObject);
+            typeBudgets.forEach(this::enforceWeightBudget);
+            if (totalBudget != null) {
+                enforceWeightBudget(null, totalBudget);
+            }
         }
     }
 
+    /**
+     * Returns the budgets (by the configured type) that apply to objects of given type.
+     */
+    private @NotNull Map<Class<?>, Long> getTypeBudgets(@NotNull Class<?> type) {
+        CacheConfiguration configuration = getConfiguration();
+        if (configuration == null) {
+            return Collections.emptyMap();
+        }
+        Map<Class<?>, Long> budgets = null;
+        for (Map.Entry<Class<?>, CacheConfiguration.CacheObjectTypeConfiguration> entry :
+                configuration.getObjectTypes().entrySet()) {
+            Long maxWeight = entry.getValue().getMaxWeight();
+            if (maxWeight != null && entry.getKey().isAssignableFrom(type)) {
+                if (budgets == null) {
+                    budgets = new HashMap<>();
+                }
+                budgets.put(entry.getKey(), maxWeight);
+            }
+        }
+        return budgets != null ? budgets : Collections.emptyMap();
+    }
+
+    /**
+     * If the budget is exceeded, evicts the oldest entries covered by it (entries of given type and its subtypes,
+     * or all entries if the type is null) until the weight drops below {@link #EVICTION_TARGET} of the budget.
+     * Concurrent evictions may evict a bit more than necessary; this is not a problem.
+     */
+    private void enforceWeightBudget(@Nullable Class<?> budgetType, long budget) {
+        if (getWeight(budgetType) <= budget) {
+            return;
+        }
+        long target = (long) (budget * EVICTION_TARGET);
+        int evicted = 0;
+        while (getWeight(budgetType) > target) {
+            WeighedEntries oldestIn = null;
+            Map.Entry<Long, GlobalCacheObjectValue<?>> oldest = null;
+            for (Map.Entry<Class<?>, WeighedEntries> entry : weighedEntries.entrySet()) {
+                if (budgetType == null || budgetType.isAssignableFrom(entry.getKey())) {
+                    Map.Entry<Long, GlobalCacheObjectValue<?>> first = entry.getValue().bySequence.firstEntry();
+                    if (first != null && (oldest == null || first.getKey() < oldest.getKey())) {
+                        oldest = first;
+                        oldestIn = entry.getValue();
+                    }
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            GlobalCacheObjectValue<?> value = oldest.getValue();
+            if (cache.removeIfEquals(value.getObjectOid(), value)) {
+                evicted++; // the entry was forgotten by the listener
+            } else {
+                oldestIn.remove(value); // not in the cache anymore (e.g. expired but not reported yet)
+            }
+        }
+        LOGGER.debug("Weight budget of {} for {} exceeded: evicted {} entries", budget,
+                budgetType != null ? budgetType.getSimpleName() : "the cache", evicted);
+    }
+
     @Override
     protected CacheType getCacheType() {
         return CacheType.GLOBAL_REPO_OBJECT_CACHE;
@@ -120,27 +267,35 @@ public class GlobalObjectCache extends AbstractGlobalCache {
     @Override
     public void clear() {
         if (cache != null) {
-            cache.clear();
+            // Unlike clear(), this notifies the listeners, so the tracked weights stay consistent with the cache
+            // content even if objects are being put into the cache concurrently.
+            cache.removeAll();
         }
     }
 
     public Collection<SingleCacheStateInformationType> getStateInformation() {
         Map<Class<?>, Integer> counts = new HashMap<>();
+        Map<Class<?>, Long> typeWeights = new HashMap<>();
         AtomicInteger size = new AtomicInteger(0);
+        AtomicLong weight = new AtomicLong(0);
         if (cache != null) {
             cache.invokeAll(cache.keys(), e -> {
                 Class<?> objectType = e.getValue().getObjectType();
                 counts.compute(objectType, (type, count) -> count != null ? count+1 : 1);
+                typeWeights.merge(objectType, (long) e.getValue().getWeight(), Long::sum); // only weighed entries count
                 size.incrementAndGet();
+                weight.addAndGet(e.getValue().getWeight());
                 return null;
             });
             SingleCacheStateInformationType info = new SingleCacheStateInformationType(prismContext)
                     .name(GlobalObjectCache.class.getName())
-                    .size(size.get());
+                    .size(size.get())
+                    .weight(weight.get());
             counts.forEach((type, count) ->
                     info.beginComponent()
                         .name(type.getSimpleName())
-                        .size(count));
+                        .size(count)
+                        .weight(typeWeights.get(type)));
             return Collections.singleton(info);
         } else {
             return Collections.emptySet();
@@ -158,6 +313,28 @@ public class GlobalObjectCache extends AbstractGlobalCache {
         }
     }
 
+    /**
+     * Entries of given object class whose weight is tracked, ordered by {@link GlobalCacheObjectValue#getSequence()}.
+     */
+    private static class WeighedEntries {
+
+        private final ConcurrentSkipListMap<Long, GlobalCacheObjectValue<?>> bySequence = new ConcurrentSkipListMap<>();
+        private final AtomicLong weight = new AtomicLong();
+
+        private void add(GlobalCacheObjectValue<?> value) {
+            if (bySequence.put(value.getSequence(), value) == null) {
+                weight.addAndGet(value.getWeight());
+            }
+        }
+
+        /** Idempotent: the weight is subtracted only by the call that actually removed the value. */
+        private void remove(GlobalCacheObjectValue<?> value) {
+            if (bySequence.remove(value.getSequence(), value)) {
+                weight.addAndGet(-value.getWeight());
+            }
+        }
+    }
+
     public Long getNextVersionCheckTime(@NotNull Class<? extends ObjectType> type) {
         CacheConfiguration cacheConfiguration = getConfiguration();
         CacheConfiguration.CacheObjectTypeConfiguration typeConfiguration = cacheConfiguration.getForObjectType(type);
@@ -97,6 +97,7 @@ class GetObjectOpExecution<O extends ObjectType>
         if (readOnly) {
             return immutable;
         } else {
+            // Cheap: container values of an immutable object are copied only when they are accessed.
             return immutable.clone();
         }
     }
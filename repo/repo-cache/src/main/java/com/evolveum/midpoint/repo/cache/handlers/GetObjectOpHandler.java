@@ -14,8 +14,7 @@ import static com.evolveum.midpoint.schema.GetOperationOptions.isAllowNotFound;
 import static com.evolveum.midpoint.schema.SelectorOptions.findRootOptions;
 import static com.evolveum.midpoint.schema.util.TraceUtil.isAtLeastMinimal;
 
-import java.util.Collection;
-import java.util.Objects;
+import java.util.*;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
@@ -23,6 +22,7 @@ import org.springframework.stereotype.Component;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.repo.cache.global.GlobalCacheObjectValue;
 import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
@@ -38,6 +38,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.TracingLevelType;
 public class GetObjectOpHandler extends CachedOpHandler {
 
     private static final String GET_OBJECT = CLASS_NAME_WITH_DOT + "getObject";
+    private static final String GET_OBJECTS = CLASS_NAME_WITH_DOT + "getObjects";
 
     @NotNull
     public <T extends ObjectType> PrismObject<T> getObject(Class<T> type, String oid,
@@ -121,6 +122,130 @@ public class GetObjectOpHandler extends CachedOpHandler {
         }
     }
 
+    /**
+     * Objects found in local or global cache are taken from there, the rest is fetched from the repository
+     * by a single getObjects call and stored to the caches.
+     *
+     * Unlike getObject, global cache entries that need version check are treated as misses: the version
+     * would have to be checked by a separate call for each object, so it's cheaper to load them along with the others.
+     */
+    @NotNull
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
+            throws SchemaException {
+
+        GetObjectsOpExecution<T> exec = initializeExecution(type, oids, options, parentResult);
+
+        try {
+            PassReason passReason = PassReason.determine(options, type);
+            if (passReason != null) { // local nor global cache not interested in caching these objects
+                exec.reportLocalAndGlobalPass(passReason);
+                return getObjectsInternal(type, oids, options, exec.result);
+            }
+
+            Set<String> uniqueOids = new LinkedHashSet<>(oids);
+            Map<String, PrismObject<T>> objectsByOid = new HashMap<>();
+            List<String> oidsToLoad = new ArrayList<>();
+            for (String oid : uniqueOids) {
+                PrismObject<T> cachedObject = getFromCaches(exec, oid);
+                if (cachedObject != null) {
+                    objectsByOid.put(oid, exec.prepareReturnValueWhenImmutable(cachedObject));
+                } else {
+                    oidsToLoad.add(oid);
+                }
+            }
+
+            if (!oidsToLoad.isEmpty()) {
+                for (PrismObject<T> object : getObjectsInternal(type, oidsToLoad, options, exec.result)) {
+                    objectsByOid.put(object.getOid(), cacheLoadedObject(object, exec.caches, exec.readOnly));
+                }
+                for (String oid : oidsToLoad) {
+                    if (!objectsByOid.containsKey(oid)) {
+                        globalObjectCache.remove(oid);
+                        globalVersionCache.remove(oid);
+                    }
+                }
+            }
+
+            SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+            for (String oid : uniqueOids) {
+                PrismObject<T> object = objectsByOid.get(oid);
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            return objects;
+        } catch (Throwable t) {
+            exec.result.recordFatalError(t);
+            throw t;
+        } finally {
+            exec.result.computeStatusIfUnknown();
+        }
+    }
+
+    /**
+     * Returns immutable object from local or global cache, or null if it's not there.
+     */
+    private <T extends ObjectType> PrismObject<T> getFromCaches(GetObjectsOpExecution<T> exec, String oid) {
+        if (!exec.local.available) {
+            exec.reportLocalNotAvailable();
+        } else if (!exec.local.supports) {
+            exec.reportLocalPass();
+        } else {
+            PrismObject<T> cachedObject = exec.local.cache.get(oid);
+            if (cachedObject != null) {
+                exec.reportLocalHit();
+                return cachedObject;
+            } else {
+                exec.reportLocalMiss();
+            }
+        }
+
+        if (!exec.global.available) {
+            exec.reportGlobalNotAvailable();
+            return null;
+        } else if (!exec.global.supports) {
+            exec.reportGlobalPass();
+            return null;
+        }
+
+        GlobalCacheObjectValue<T> cachedValue = globalObjectCache.get(oid);
+        if (cachedValue == null || cachedValue.shouldCheckVersion()) {
+            exec.reportGlobalMiss();
+            return null;
+        } else {
+            exec.reportGlobalHit();
+            PrismObject<T> cachedObject = cachedValue.getObject();
+            cacheUpdater.storeImmutableObjectToAllLocal(cachedObject, exec.caches);
+            return cachedObject;
+        }
+    }
+
+    private <T extends ObjectType> GetObjectsOpExecution<T> initializeExecution(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) {
+        OperationResult result = parentResult.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type)
+                .addParam("count", oids.size())
+                .addArbitraryObjectCollectionAsParam("options", options)
+                .build();
+
+        TracingLevelType tracingLevel = result.getTracingLevel(RepositoryGetObjectTraceType.class);
+        RepositoryGetObjectTraceType trace;
+        if (isAtLeastMinimal(tracingLevel)) {
+            trace = new RepositoryGetObjectTraceType(prismContext)
+                    .cache(true)
+                    .objectType(prismContext.getSchemaRegistry().determineTypeForClass(type))
+                    .options(String.valueOf(options));
+            result.addTrace(trace);
+        } else {
+            trace = null;
+        }
+
+        CacheSetAccessInfo<T> caches = cacheSetAccessInfoFactory.determine(type);
+        return new GetObjectsOpExecution<>(type, oids, options, result, trace, tracingLevel, prismContext, caches);
+    }
+
     private <T extends ObjectType> GetObjectOpExecution<T> initializeExecution(Class<T> type, String oid,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) {
         OperationResult result = parentResult.subresult(GET_OBJECT)
@@ -163,16 +288,7 @@ public class GetObjectOpHandler extends CachedOpHandler {
             throws SchemaException, ObjectNotFoundException {
         try {
             PrismObject<T> object = getObjectInternal(exec.type, exec.oid, exec.options, exec.result);
-            PrismObject<T> immutable = toImmutable(object);
-            cacheUpdater.storeImmutableObjectToObjectLocal(immutable, exec.caches);
-            cacheUpdater.storeImmutableObjectToObjectGlobal(immutable);
-            cacheUpdater.storeObjectToVersionGlobal(immutable, exec.caches.globalVersion);
-            cacheUpdater.storeObjectToVersionLocal(immutable, exec.caches.localVersion);
-            if (exec.readOnly) {
-                return immutable;
-            } else {
-                return object.cloneIfImmutable();
-            }
+            return cacheLoadedObject(object, exec.caches, exec.readOnly);
         } catch (ObjectNotFoundException | SchemaException ex) {
             globalObjectCache.remove(exec.oid);
             globalVersionCache.remove(exec.oid);
@@ -180,6 +296,32 @@ public class GetObjectOpHandler extends CachedOpHandler {
         }
     }
 
+    @NotNull
+    private <T extends ObjectType> SearchResultList<PrismObject<T>> getObjectsInternal(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) throws SchemaException {
+        Long startTime = repoOpStart();
+        try {
+            return repositoryService.getObjects(type, oids, options, parentResult);
+        } finally {
+            repoOpEnd(startTime);
+        }
+    }
+
+    // stores object loaded from the repository to the caches and returns directly returnable object
+    private <T extends ObjectType> PrismObject<T> cacheLoadedObject(PrismObject<T> object,
+            CacheSetAccessInfo<T> caches, boolean readOnly) {
+        PrismObject<T> immutable = toImmutable(object);
+        cacheUpdater.storeImmutableObjectToObjectLocal(immutable, caches);
+        cacheUpdater.storeImmutableObjectToObjectGlobal(immutable);
+        cacheUpdater.storeObjectToVersionGlobal(immutable, caches.globalVersion);
+        cacheUpdater.storeObjectToVersionLocal(immutable, caches.localVersion);
+        if (readOnly) {
+            return immutable;
+        } else {
+            return object.cloneIfImmutable();
+        }
+    }
+
     private <T extends ObjectType> PrismObject<T> toImmutable(PrismObject<T> object) {
         if (object.isImmutable()) {
             return object;
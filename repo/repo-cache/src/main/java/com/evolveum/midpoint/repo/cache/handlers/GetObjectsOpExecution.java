@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.handlers;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
+import com.evolveum.midpoint.repo.cache.local.LocalObjectCache;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RepositoryGetObjectTraceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TracingLevelType;
+
+/**
+ * Execution of getObjects operation.
+ *
+ * Cache events (hit, miss, ...) are reported for each OID separately, so the statistics are comparable
+ * with the ones for getObject. The trace contains only the last cache use, though.
+ */
+class GetObjectsOpExecution<O extends ObjectType>
+        extends CachedOpExecution<RepositoryGetObjectTraceType, LocalObjectCache, GlobalObjectCache, O> {
+
+    @NotNull final Collection<String> oids;
+
+    GetObjectsOpExecution(Class<O> type, @NotNull Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result,
+            RepositoryGetObjectTraceType trace, TracingLevelType tracingLevel,
+            PrismContext prismContext, CacheSetAccessInfo<O> caches) {
+        super(type, options, result, caches, caches.localObject, caches.globalObject, trace, tracingLevel, prismContext, "getObjects");
+        this.oids = oids;
+    }
+
+    @Override
+    String getDescription() {
+        return type.getSimpleName() + ":" + oids.size() + " OID(s)";
+    }
+
+    @Override
+    Class<LocalObjectCache> getLocalCacheClass() {
+        return LocalObjectCache.class;
+    }
+
+    @Override
+    Class<GlobalObjectCache> getGlobalCacheClass() {
+        return GlobalObjectCache.class;
+    }
+
+    @NotNull PrismObject<O> prepareReturnValueWhenImmutable(PrismObject<O> immutable) {
+        immutable.checkImmutable();
+        if (readOnly) {
+            return immutable;
+        } else {
+            return immutable.clone();
+        }
+    }
+}
@@ -24,6 +24,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 
 import static com.evolveum.midpoint.repo.cache.RepositoryCache.CLASS_NAME_WITH_DOT;
@@ -38,6 +40,7 @@ import static com.evolveum.midpoint.schema.util.TraceUtil.isAtLeastNormal;
 public class ModificationOpHandler extends BaseOpHandler {
 
     private static final String ADD_OBJECT = CLASS_NAME_WITH_DOT + "addObject";
+    private static final String ADD_OBJECTS = CLASS_NAME_WITH_DOT + "addObjects";
     private static final String MODIFY_OBJECT = CLASS_NAME_WITH_DOT + "modifyObject";
     private static final String DELETE_OBJECT = CLASS_NAME_WITH_DOT + "deleteObject";
     private static final String ADVANCE_SEQUENCE = CLASS_NAME_WITH_DOT + "advanceSequence";
@@ -100,6 +103,45 @@ public class ModificationOpHandler extends BaseOpHandler {
         }
     }
 
+    @NotNull
+    public <T extends ObjectType> List<String> addObjects(Collection<PrismObject<T>> objects, RepoAddOptions options,
+            OperationResult parentResult) {
+        OperationResult result = parentResult.subresult(ADD_OBJECTS)
+                .addParam("count", objects.size())
+                .addArbitraryObjectAsParam("options", options)
+                .build();
+        try {
+            List<String> oids;
+            Long startTime = MonitoringUtil.repoOpStart();
+            try {
+                oids = repositoryService.addObjects(objects, options, result);
+            } finally {
+                MonitoringUtil.repoOpEnd(startTime);
+            }
+            // Same as for addObject, we don't cache the objects, only invalidate.
+            Iterator<String> oidIterator = oids.iterator();
+            for (PrismObject<T> object : objects) {
+                String oid = oidIterator.next();
+                if (oid == null) {
+                    continue; // not added
+                }
+                if (options != null && options.isOverwrite()) {
+                    invalidator.invalidateCacheEntries(object.getCompileTimeClass(), oid,
+                            new ModifyObjectResult<>(object.getUserData(RepositoryService.KEY_ORIGINAL_OBJECT), object,
+                                    Collections.emptyList()), result);
+                } else {
+                    invalidator.invalidateCacheEntries(object.getCompileTimeClass(), oid, new AddObjectResult<>(object), result);
+                }
+            }
+            return oids;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.computeStatusIfUnknown();
+        }
+    }
+
     @NotNull
     public <T extends ObjectType> ModifyObjectResult<T> modifyObject(@NotNull Class<T> type, @NotNull String oid,
             @NotNull Collection<? extends ItemDelta<?, ?>> modifications,
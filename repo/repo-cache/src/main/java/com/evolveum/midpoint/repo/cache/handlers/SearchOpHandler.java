@@ -28,6 +28,7 @@ import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultBuilder;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.FocusType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
@@ -59,17 +60,18 @@ public class SearchOpHandler extends CachedOpHandler {
     public <T extends ObjectType> SearchResultList<PrismObject<T>> searchObjects(Class<T> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) throws SchemaException {
 
-        SearchOpExecution<T> exec = initializeExecution(type, query, options, parentResult, SEARCH_OBJECTS);
+        // Checks related to both caches
+        PassReason passReason = PassReason.determine(options, type);
+        QueryKey<T> key = passReason == null ? new QueryKey<>(type, query) : null;
+
+        SearchOpExecution<T> exec = initializeExecution(type, query, key, options, parentResult, SEARCH_OBJECTS);
 
         try {
-            // Checks related to both caches
-            PassReason passReason = PassReason.determine(options, type);
-            if (passReason != null) {
+            if (key == null) {
                 exec.reportLocalAndGlobalPass(passReason);
                 SearchResultList<PrismObject<T>> objects = searchObjectsInternal(type, query, options, exec.result);
                 return exec.prepareReturnValueAsIs(objects);
             }
-            QueryKey<T> key = new QueryKey<>(type, query);
 
             // Let's try local cache
             if (!exec.local.available) {
@@ -119,17 +121,18 @@ public class SearchOpHandler extends CachedOpHandler {
             ResultHandler<T> handler, Collection<SelectorOptions<GetOperationOptions>> options,
             boolean strictlySequential, OperationResult parentResult) throws SchemaException {
 
-        SearchOpExecution<T> exec = initializeExecution(type, query, options, parentResult, SEARCH_OBJECTS_ITERATIVE);
+        // Checks related to both caches
+        PassReason passReason = PassReason.determine(options, type);
+        QueryKey<T> key = passReason == null ? new QueryKey<>(type, query) : null;
+
+        SearchOpExecution<T> exec = initializeExecution(type, query, key, options, parentResult, SEARCH_OBJECTS_ITERATIVE);
         ReportingResultHandler<T> reportingHandler = new ReportingResultHandler<>(handler, exec);
 
         try {
-            // Checks related to both caches
-            PassReason passReason = PassReason.determine(options, type);
-            if (passReason != null) {
+            if (key == null) {
                 exec.reportLocalAndGlobalPass(passReason);
                 return searchObjectsIterativeInternal(type, query, reportingHandler, options, strictlySequential, exec.result);
             }
-            QueryKey<T> key = new QueryKey<>(type, query);
 
             // Let's try local cache
             if (!exec.local.available) {
@@ -177,13 +180,22 @@ public class SearchOpHandler extends CachedOpHandler {
         }
     }
 
+    /**
+     * @param key Cache key for the query, if the query is cacheable. Its query is a private copy that is not changed
+     * afterwards, so it can be rendered into the operation result lazily.
+     */
     private <T extends ObjectType> SearchOpExecution<T> initializeExecution(Class<T> type, ObjectQuery query,
-            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult, String opName)
-            throws SchemaException {
-        OperationResult result = parentResult.subresult(CLASS_NAME_WITH_DOT + opName)
+            QueryKey<T> key, Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult,
+            String opName) throws SchemaException {
+        OperationResultBuilder builder = parentResult.subresult(CLASS_NAME_WITH_DOT + opName)
                 .addQualifier(type.getSimpleName())
-                .addParam("type", type)
-                .addParam("query", query)
+                .addParam("type", type);
+        if (key != null) {
+            builder.addParam("query", () -> String.valueOf(key.getQuery()));
+        } else {
+            builder.addParam("query", query);
+        }
+        OperationResult result = builder
                 .addArbitraryObjectCollectionAsParam("options", options)
                 .build();
 
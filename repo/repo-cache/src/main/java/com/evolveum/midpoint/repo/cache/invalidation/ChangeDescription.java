@@ -52,6 +52,28 @@ public abstract class ChangeDescription {
         this.oid = oid;
     }
 
+    /**
+     * What should be done with a cached query result when this change occurs.
+     */
+    enum QueryResultAction {
+
+        /**
+         * The result is not affected by the change.
+         */
+        KEEP,
+
+        /**
+         * The changed object is in the result but it no longer belongs there (it was deleted or it does not match
+         * the filter anymore). The result can be patched by removing the object.
+         */
+        REMOVE_OBJECT,
+
+        /**
+         * The result is (or may be) affected in a way we cannot patch. It has to be evicted.
+         */
+        EVICT
+    }
+
     /**
      * Describes an OBJECT ADD operation.
      */
@@ -98,6 +120,11 @@ public abstract class ChangeDescription {
             }
         }
 
+        @Override
+        boolean isStateAfterChangeKnown() {
+            return modifyInfo.getObjectAfter() != null;
+        }
+
         @Override
         public String toString() {
             return "Modify{" +
@@ -145,6 +172,11 @@ public abstract class ChangeDescription {
             return safeInvalidation;
         }
 
+        @Override
+        boolean isStateAfterChangeKnown() {
+            return false;
+        }
+
         @Override
         public String toString() {
             return "Any{" +
@@ -238,6 +270,48 @@ public abstract class ChangeDescription {
         }
     }
 
+    /**
+     * Determines what to do with the given cached query result. Unlike {@link #mayAffect(QueryKey, SearchResultList,
+     * MatchingRuleRegistry)} it distinguishes the situations where the result can be patched instead of being evicted:
+     * if the changed object was deleted or it no longer matches the filter, it is simply removed from the result
+     * (and the approximate number of results in its metadata is decreased).
+     *
+     * This is possible only for queries without offset/max size: otherwise the removal would shift the page boundaries.
+     * (Objects that start or continue to match the filter are not added nor replaced, as we cannot be sure that
+     * the object after change has the same content as objects returned by the search, e.g. w.r.t. incomplete items.)
+     */
+    QueryResultAction determineQueryResultAction(QueryKey<?> queryKey, SearchResultList list,
+            MatchingRuleRegistry matchingRuleRegistry) {
+        if (!mayAffect(queryKey, list, matchingRuleRegistry)) {
+            return QueryResultAction.KEEP;
+        }
+        ObjectFilter filter = getFilter(queryKey);
+        if (filter == null || !listContainsOid(list, oid) || !isStateAfterChangeKnown() || hasPagingLimits(queryKey)) {
+            return QueryResultAction.EVICT;
+        }
+        try {
+            return mayMatchAfterChange(filter, list, matchingRuleRegistry) ?
+                    QueryResultAction.EVICT : QueryResultAction.REMOVE_OBJECT;
+        } catch (Throwable t) {
+            LOGGER.debug("Couldn't match object being changed to cached query -- evicting the query:\n"
+                    + "change description = {}\nfilter = {}", this, filter, t);
+            return QueryResultAction.EVICT;
+        }
+    }
+
+    /**
+     * Do we know the state of the object after the change, i.e. is {@link #mayMatchAfterChange(ObjectFilter,
+     * SearchResultList, MatchingRuleRegistry)} exact when returning false?
+     */
+    boolean isStateAfterChangeKnown() {
+        return true;
+    }
+
+    private static boolean hasPagingLimits(QueryKey<?> queryKey) {
+        ObjectQuery query = queryKey.getQuery();
+        return query != null && (query.getOffset() != null || query.getMaxSize() != null);
+    }
+
     public abstract boolean mayMatchAfterChange(@NotNull ObjectFilter filter, SearchResultList list, MatchingRuleRegistry matchingRuleRegistry)
             throws SchemaException;
 
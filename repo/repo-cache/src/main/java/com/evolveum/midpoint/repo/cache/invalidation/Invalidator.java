@@ -13,6 +13,7 @@ import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.repo.api.CacheDispatcher;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.global.GlobalCacheQueryValue;
 import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
@@ -22,6 +23,7 @@ import com.evolveum.midpoint.repo.cache.local.LocalVersionCache;
 import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.repo.api.CacheRegistry;
 import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.SearchResultMetadata;
 import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -112,7 +114,8 @@ public class Invalidator {
             boolean clusterwide = TYPES_ALWAYS_INVALIDATED_CLUSTERWIDE.contains(type) ||
                     globalObjectCache.hasClusterwideInvalidationFor(type) ||
                     globalVersionCache.hasClusterwideInvalidationFor(type) ||
-                    globalQueryCache.hasClusterwideInvalidationFor(type);
+                    globalQueryCache.hasClusterwideInvalidationFor(type) ||
+                    type != null && cacheRegistry.isClusterwideInvalidationRequired(type);
             cacheDispatcher.dispatchInvalidation(type, oid, clusterwide,
                     new CacheInvalidationContext(false, new RepositoryCacheInvalidationDetails(additionalInfo)));
         } catch (Throwable t) {
@@ -125,30 +128,36 @@ public class Invalidator {
 
     private <T extends ObjectType> void clearQueryResultsLocally(LocalQueryCache cache, Class<T> type, String oid,
             Object additionalInfo, MatchingRuleRegistry matchingRuleRegistry) {
-        // TODO implement more efficiently
-
         ChangeDescription change = ChangeDescription.getFrom(type, oid, additionalInfo, true);
 
         long start = System.currentTimeMillis();
         int all = 0;
         int removed = 0;
+        int patched = 0;
         Iterator<Map.Entry<QueryKey, SearchResultList>> iterator = cache.getEntryIterator();
         while (iterator.hasNext()) {
             Map.Entry<QueryKey, SearchResultList> entry = iterator.next();
             QueryKey<?> queryKey = entry.getKey();
             all++;
-            if (change.mayAffect(queryKey, entry.getValue(), matchingRuleRegistry)) {
-                LOGGER.trace("Removing (from local cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
-                iterator.remove();
-                removed++;
+            switch (change.determineQueryResultAction(queryKey, entry.getValue(), matchingRuleRegistry)) {
+                case EVICT:
+                    LOGGER.trace("Removing (from local cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
+                    iterator.remove();
+                    removed++;
+                    break;
+                case REMOVE_OBJECT:
+                    LOGGER.trace("Removing {} from (local cache) query result for type={}, change={}: {}", oid, type, change, queryKey.getQuery());
+                    //noinspection unchecked
+                    entry.setValue(withoutObject(entry.getValue(), oid));
+                    patched++;
+                    break;
             }
         }
-        LOGGER.trace("Removed (from local cache) {} (of {}) query result entries of type {} in {} ms", removed, all, type, System.currentTimeMillis() - start);
+        LOGGER.trace("Removed (from local cache) {} and patched {} (of {}) query result entries of type {} in {} ms",
+                removed, patched, all, type, System.currentTimeMillis() - start);
     }
 
     private <T extends ObjectType> void clearQueryResultsGlobally(Class<T> type, String oid, CacheInvalidationContext context) {
-        // TODO implement more efficiently
-
         // Safe invalidation means we evict queries without looking at details of the change.
         boolean safeIfUnknown = !context.isFromRemoteNode() || globalQueryCache.shouldDoSafeRemoteInvalidationFor(type);
         ChangeDescription change = ChangeDescription.getFrom(type, oid, context, safeIfUnknown);
@@ -156,18 +165,58 @@ public class Invalidator {
         long start = System.currentTimeMillis();
         AtomicInteger all = new AtomicInteger(0);
         AtomicInteger removed = new AtomicInteger(0);
+        AtomicInteger patched = new AtomicInteger(0);
 
         globalQueryCache.invokeAll(entry -> {
             QueryKey queryKey = entry.getKey();
+            GlobalCacheQueryValue value = entry.getValue();
             all.incrementAndGet();
-            if (change.mayAffect(queryKey, entry.getValue().getResult(), matchingRuleRegistry)) {
-                LOGGER.trace("Removing (from global cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
-                entry.remove();
-                removed.incrementAndGet();
+            switch (change.determineQueryResultAction(queryKey, value.getResult(), matchingRuleRegistry)) {
+                case EVICT:
+                    LOGGER.trace("Removing (from global cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
+                    entry.remove();
+                    removed.incrementAndGet();
+                    break;
+                case REMOVE_OBJECT:
+                    LOGGER.trace("Removing {} from (global cache) query result for type={}, change={}: {}", oid, type, change, queryKey.getQuery());
+                    //noinspection unchecked
+                    value.setResult(withoutObject(value.getResult(), oid));
+                    patched.incrementAndGet();
+                    break;
             }
             return null;
         });
-        LOGGER.trace("Removed (from global cache) {} (of {}) query result entries of type {} in {} ms", removed, all, type, System.currentTimeMillis() - start);
+        LOGGER.trace("Removed (from global cache) {} and patched {} (of {}) query result entries of type {} in {} ms",
+                removed, patched, all, type, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns a (frozen) copy of the search result with the object of given OID removed.
+     *
+     * The approximate number of all results in the metadata is decreased accordingly. The paging cookie is kept:
+     * it denotes the position after which the next page starts, and that does not change by removing an object.
+     */
+    @NotNull
+    private static SearchResultList<?> withoutObject(@NotNull SearchResultList<?> list, @NotNull String oid) {
+        List<Object> remaining = new ArrayList<>(list.size());
+        for (Object o : list) {
+            if (!(o instanceof PrismObject<?>) || !oid.equals(((PrismObject<?>) o).getOid())) {
+                remaining.add(o);
+            }
+        }
+        SearchResultList<Object> patched = new SearchResultList<>(remaining, withoutObjects(list.getMetadata(),
+                list.size() - remaining.size()));
+        patched.freeze();
+        return patched;
+    }
+
+    private static SearchResultMetadata withoutObjects(SearchResultMetadata metadata, int removedCount) {
+        if (metadata == null || removedCount == 0 || metadata.getApproxNumberOfAllResults() == null) {
+            return metadata;
+        }
+        SearchResultMetadata patched = metadata.clone();
+        patched.setApproxNumberOfAllResults(Math.max(0, metadata.getApproxNumberOfAllResults() - removedCount));
+        return patched;
     }
 
     public void registerInvalidationEventsListener(InvalidationEventListener listener) {
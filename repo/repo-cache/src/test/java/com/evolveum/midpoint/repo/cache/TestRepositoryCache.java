@@ -8,6 +8,7 @@ package com.evolveum.midpoint.repo.cache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.fail;
 
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.displayCollection;
@@ -17,6 +18,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
@@ -40,6 +42,7 @@ import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
 import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.schema.*;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.statistics.CachePerformanceInformationUtil;
@@ -51,10 +54,7 @@ import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.ArchetypeType;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
-import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
 @SuppressWarnings("SameParameterValue")
@@ -68,6 +68,7 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
     @Autowired GlobalVersionCache globalVersionCache;
     @Autowired GlobalQueryCache globalQueryCache;
     @Autowired PrismContext prismContext;
+    @Autowired CacheConfigurationManager cacheConfigurationManager;
 
     @SuppressWarnings("unused") // used when heap dumps are uncommented
     private final long identifier = System.currentTimeMillis();
@@ -96,6 +97,41 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         testGetCachedObject(SystemConfigurationType.class);
     }
 
+    /**
+     * Objects already cached are taken from the cache, only the rest is fetched (by a single repository call).
+     */
+    @Test
+    public void test120GetArchetypes() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        OperationResult result = createOperationResult();
+        deleteExistingObjects(ArchetypeType.class, result);
+
+        clearStatistics();
+        clearCaches();
+
+        List<String> oids = new ArrayList<>();
+        for (PrismObject<ArchetypeType> archetype : generateObjects(ArchetypeType.class, 3, result)) {
+            oids.add(archetype.getOid());
+        }
+        repositoryCache.getObject(ArchetypeType.class, oids.get(1), null, result);
+        oids.add(0, "3bca1e9a-1c87-4e8f-a4f0-7f7b8ad6e1a0"); // non-existing
+
+        SearchResultList<PrismObject<ArchetypeType>> objects1 = repositoryCache.getObjects(ArchetypeType.class, oids, null, result);
+        displayValue("1st objects retrieved", objects1);
+        assertEquals("Wrong # of objects", 3, objects1.size());
+        assertEquals("Wrong order of objects", oids.subList(1, 4),
+                objects1.stream().map(PrismObject::getOid).collect(Collectors.toList()));
+        objects1.get(0).asObjectable().setDescription("garbage");
+
+        SearchResultList<PrismObject<ArchetypeType>> objects2 = repositoryCache.getObjects(ArchetypeType.class, oids, null, result);
+        assertEquals("Wrong # of objects", 3, objects2.size());
+        assertNull("Returned object was altered", objects2.get(0).asObjectable().getDescription());
+
+        dumpStatistics();
+        assertGetOperations(1);
+        assertOperations(RepositoryService.OP_GET_OBJECTS, 1);
+        oids.subList(1, 4).forEach(this::assertObjectIsCached);
+    }
+
     @Test
     public void test200SearchUsers() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
         testSearchUncachedObjects(UserType.class);
@@ -291,6 +327,205 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         assertThat(data.overSizedQueries.get()).as("over-sized counter").isEqualTo(2); // search + searchIterative
     }
 
+    /**
+     * Object modified so that it no longer matches the query filter is removed from the cached result;
+     * the query is not evicted.
+     */
+    @Test
+    public void test340ModifyOutOfFilterPatchesQueryResult() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        String costCenter = "cc_" + getTestNameShort();
+        List<String> oids = addArchetypesWithCostCenter(costCenter, 3, result);
+        ObjectQuery query = prismContext.queryFor(ArchetypeType.class)
+                .item(ArchetypeType.F_COST_CENTER).eq(costCenter)
+                .build();
+
+        clearStatistics();
+        clearCaches();
+        assertThat(repositoryCache.searchObjects(ArchetypeType.class, query, null, result)).hasSize(3);
+        assertQueryIsCached(ArchetypeType.class, query);
+
+        when("first archetype is moved out of the filter");
+        repositoryCache.modifyObject(ArchetypeType.class, oids.get(0),
+                prismContext.deltaFor(ArchetypeType.class)
+                        .item(ArchetypeType.F_COST_CENTER).replace("other")
+                        .asItemDeltas(),
+                result);
+
+        then("the query result is patched");
+        assertQueryResultOids(ArchetypeType.class, query, oids.subList(1, 3));
+        SearchResultList<PrismObject<ArchetypeType>> listAfter = repositoryCache.searchObjects(ArchetypeType.class, query, null, result);
+        assertThat(listAfter.stream().map(PrismObject::getOid)).containsExactlyInAnyOrderElementsOf(oids.subList(1, 3));
+        dumpStatistics();
+        assertOperations(RepositoryService.OP_SEARCH_OBJECTS, 1);
+    }
+
+    /**
+     * Deleted object is removed from the cached result; the query is not evicted.
+     */
+    @Test
+    public void test350DeletePatchesQueryResult() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        String costCenter = "cc_" + getTestNameShort();
+        List<String> oids = addArchetypesWithCostCenter(costCenter, 3, result);
+        ObjectQuery query = prismContext.queryFor(ArchetypeType.class)
+                .item(ArchetypeType.F_COST_CENTER).eq(costCenter)
+                .build();
+
+        clearStatistics();
+        clearCaches();
+        assertThat(repositoryCache.searchObjects(ArchetypeType.class, query, null, result)).hasSize(3);
+        assertQueryIsCached(ArchetypeType.class, query);
+
+        when("second archetype is deleted");
+        repositoryCache.deleteObject(ArchetypeType.class, oids.get(1), result);
+
+        then("the query result is patched");
+        List<String> expected = Arrays.asList(oids.get(0), oids.get(2));
+        assertQueryResultOids(ArchetypeType.class, query, expected);
+        SearchResultList<PrismObject<ArchetypeType>> listAfter = repositoryCache.searchObjects(ArchetypeType.class, query, null, result);
+        assertThat(listAfter.stream().map(PrismObject::getOid)).containsExactlyInAnyOrderElementsOf(expected);
+        dumpStatistics();
+        assertOperations(RepositoryService.OP_SEARCH_OBJECTS, 1);
+    }
+
+    private List<String> addArchetypesWithCostCenter(String costCenter, int count, OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException {
+        List<String> oids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            oids.add(repositoryCache.addObject(new ArchetypeType(prismContext)
+                    .name(costCenter + "." + i)
+                    .costCenter(costCenter)
+                    .asPrismObject(), null, result));
+        }
+        return oids;
+    }
+
+    /**
+     * Budget for a supertype (AbstractRoleType) applies to archetypes. The oldest entries are evicted.
+     */
+    @Test
+    public void test400WeightBudgetForSupertype() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        deleteExistingObjects(ArchetypeType.class, result);
+        int size = 10_000; // about 20 KB per object
+        int count = 10;
+        long budget = 100_000;
+        generateLargeObjects(ArchetypeType.class, size, count, result);
+        List<String> oids = repositoryCache.searchObjects(ArchetypeType.class, null, null, result).stream()
+                .map(PrismObject::getOid)
+                .collect(Collectors.toList());
+        try {
+            // archetypes are cached by the default profile; the budget is set for their supertype
+            applyObjectCacheSettings(new CacheObjectTypeSettingsType(prismContext)
+                    .objectType(AbstractRoleType.COMPLEX_TYPE)
+                    .maxWeight(budget));
+            clearCaches();
+
+            when();
+            for (String oid : oids) {
+                repositoryCache.getObject(ArchetypeType.class, oid, null, result);
+            }
+
+            then();
+            long weight = getObjectCacheWeight();
+            displayValue("Object cache weight", weight);
+            assertThat(weight).as("weight of the object cache").isBetween(1L, budget);
+            assertObjectIsNotCached(oids.get(0));
+            assertObjectIsCached(oids.get(count - 1));
+        } finally {
+            applyObjectCacheSettings(null);
+        }
+    }
+
+    /**
+     * Without any budget the objects are not weighed at all.
+     */
+    @Test
+    public void test410NoWeighingWithoutBudget() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        deleteExistingObjects(ArchetypeType.class, result);
+        generateObjects(ArchetypeType.class, 3, result);
+        clearCaches();
+
+        when();
+        repositoryCache.searchObjects(ArchetypeType.class, null, null, result)
+                .forEach(archetype -> assertObjectIsCached(archetype.getOid()));
+
+        then();
+        assertThat(getObjectCacheWeight()).as("weight of the object cache").isEqualTo(0L);
+    }
+
+    /**
+     * Clearing the cache resets the weights, so the budget is not exceeded by the weights of the objects
+     * that are no longer there.
+     */
+    @Test
+    public void test420ClearResetsWeights() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        deleteExistingObjects(ArchetypeType.class, result);
+        generateLargeObjects(ArchetypeType.class, 10_000, 3, result);
+        try {
+            applyObjectCacheSettings(null, 100_000L);
+            clearCaches();
+            List<String> oids = repositoryCache.searchObjects(ArchetypeType.class, null, null, result).stream()
+                    .map(PrismObject::getOid)
+                    .collect(Collectors.toList());
+            oids.forEach(this::assertObjectIsCached);
+            assertThat(getObjectCacheWeight()).as("weight before clear").isGreaterThan(0L);
+
+            when();
+            clearCaches();
+
+            then();
+            assertThat(getObjectCacheWeight()).as("weight after clear").isEqualTo(0L);
+            for (String oid : oids) {
+                repositoryCache.getObject(ArchetypeType.class, oid, null, result);
+                assertObjectIsCached(oid);
+            }
+            assertThat(getObjectCacheWeight()).as("weight after re-reading").isBetween(1L, 100_000L);
+        } finally {
+            applyObjectCacheSettings(null);
+        }
+    }
+
+    /**
+     * Applies the default caching profile with the global object cache settings amended as specified.
+     * Null means the default configuration.
+     */
+    private void applyObjectCacheSettings(CacheObjectTypeSettingsType objectTypeSettings) {
+        applyObjectCacheSettings(objectTypeSettings, null);
+    }
+
+    private void applyObjectCacheSettings(CacheObjectTypeSettingsType objectTypeSettings, Long maxWeight) {
+        if (objectTypeSettings == null && maxWeight == null) {
+            cacheConfigurationManager.applyCachingConfiguration(null);
+            return;
+        }
+        CacheSettingsType settings = new CacheSettingsType(prismContext)
+                .maxWeight(maxWeight);
+        if (objectTypeSettings != null) {
+            settings.getObjectTypeSettings().add(objectTypeSettings);
+        }
+        cacheConfigurationManager.applyCachingConfiguration(
+                new SystemConfigurationType(prismContext)
+                        .internals(new InternalsConfigurationType(prismContext)
+                                .caching(new CachingConfigurationType(prismContext)
+                                        .profile(new CachingProfileType(prismContext)
+                                                .global(true)
+                                                .globalRepoObjectCache(settings)))));
+    }
+
+    private long getObjectCacheWeight() {
+        Long weight = globalObjectCache.getStateInformation().iterator().next().getWeight();
+        return weight != null ? weight : 0;
+    }
+
     // Must be executed last, because naive deletion such large number of archetypes fails on OOM
     @Test
     public void test900HeapUsage() throws Exception {
@@ -474,6 +709,14 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         assertThat(value).as("cached version value for " + key).isNull();
     }
 
+    private <T extends ObjectType> void assertQueryResultOids(Class<T> type, ObjectQuery query, List<String> expectedOids) {
+        QueryKey<T> key = new QueryKey<>(type, query);
+        SearchResultList<PrismObject<ObjectType>> value = globalQueryCache.get(key);
+        assertThat(value).as("cached query result for " + key).isNotNull();
+        assertThat(value.stream().map(PrismObject::getOid)).as("OIDs in cached query result")
+                .containsExactlyInAnyOrderElementsOf(expectedOids);
+    }
+
     private void clearCaches() {
         globalObjectCache.clear();
         globalVersionCache.clear();
@@ -35,6 +35,12 @@ public class ProcessingCoordinator<I> {
 
     private static final long WORKER_THREAD_WAIT_FOR_REQUEST = 100L;
 
+    /**
+     * Default number of requests waiting in the queue for each worker thread.
+     * Actually, one should be sufficient but it doesn't hurt if queue is larger.
+     */
+    private static final int DEFAULT_WORKER_REQUESTS_PREFETCH = 2;
+
     private static final String OP_HANDLE_ASYNCHRONOUSLY = ProcessingCoordinator.class.getName() + ".handleAsynchronously";
     private static final String OP_EXECUTE_WORKER = ProcessingCoordinator.class.getName() + ".executeWorker";
 
@@ -43,7 +49,7 @@ public class ProcessingCoordinator<I> {
     private final int threadsCount;
     private final boolean multithreaded;
     private final List<OperationResult> workerSpecificResults;
-    private final RequestsBuffer<I> requestsBuffer;
+    private final RequestsBuffer<ItemProcessingRequest<I>> requestsBuffer;
 
     @NotNull private final TaskManager taskManager;
 
@@ -69,7 +75,8 @@ public class ProcessingCoordinator<I> {
         if (threadsCount > 0) {
             multithreaded = true;
             workerSpecificResults = new ArrayList<>(threadsCount);
-            requestsBuffer = new RequestsBuffer<>(threadsCount);
+            requestsBuffer = new RequestsBuffer<>(threadsCount, getWorkerRequestsPrefetch(),
+                    ItemProcessingRequest::getCorrelationValue);
         } else {
             multithreaded = false;
             workerSpecificResults = null;
@@ -210,7 +217,14 @@ public class ProcessingCoordinator<I> {
             while (canRun(workerTask)) {
 
                 workerTask.refreshLowLevelStatistics();
-                ItemProcessingRequest<I> request = requestsBuffer.poll(taskIdentifier);
+                ItemProcessingRequest<I> request;
+                try {
+                    // Waits for the request to come, if there's none available.
+                    request = requestsBuffer.poll(taskIdentifier, WORKER_THREAD_WAIT_FOR_REQUEST);
+                } catch (InterruptedException e) {
+                    logger.trace("Waiting interrupted, exiting");
+                    break;
+                }
 
                 if (request != null) {
                     try {
@@ -222,20 +236,11 @@ public class ProcessingCoordinator<I> {
                         treatOperationResultAfterOperation();
                         workerTask.setProgressTransient(workerTask.getProgress() + 1);
                     }
+                } else if (allItemsSubmitted.get()) {
+                    logger.trace("Queue is empty and nothing more is expected - exiting");
+                    break;
                 } else {
-                    if (allItemsSubmitted.get()) {
-                        logger.trace("Queue is empty and nothing more is expected - exiting");
-                        break;
-                    } else {
-                        logger.trace("No requests to be processed but expecting some to come. Waiting for {} msec", WORKER_THREAD_WAIT_FOR_REQUEST);
-                        try {
-                            //noinspection BusyWait
-                            Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
-                        } catch (InterruptedException e) {
-                            logger.trace("Waiting interrupted, exiting");
-                            break;
-                        }
-                    }
+                    logger.trace("No requests to be processed but expecting some to come.");
                 }
             }
 
@@ -265,6 +270,16 @@ public class ProcessingCoordinator<I> {
         }
     }
 
+    private int getWorkerRequestsPrefetch() {
+        PrismProperty<Integer> prefetchPrismProperty = coordinatorTask
+                .getExtensionPropertyOrClone(SchemaConstants.MODEL_EXTENSION_WORKER_REQUESTS_PREFETCH);
+        if (prefetchPrismProperty != null && prefetchPrismProperty.getRealValue() != null) {
+            return Math.max(prefetchPrismProperty.getRealValue(), 1);
+        } else {
+            return DEFAULT_WORKER_REQUESTS_PREFETCH;
+        }
+    }
+
     // TODO decide on this
     void updateOperationResult(OperationResult opResult) {
         if (multithreaded) {
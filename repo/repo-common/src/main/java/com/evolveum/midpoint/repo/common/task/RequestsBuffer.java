@@ -7,15 +7,20 @@
 
 package com.evolveum.midpoint.repo.common.task;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+import com.evolveum.midpoint.schema.AcknowledgementSink;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -36,26 +41,42 @@ import com.evolveum.midpoint.util.logging.TraceManager;
  * <p>Reservation is represented by a queue of requests waiting to be processed by specified subtask. A request gets
  * onto this queue if it's fetched from the global queue but cannot be processed because it is bound to a subtask different
  * from the current one. So it's put into "owning" task reserved requests queue. See {@link #reserve(ProcessChangeRequest, String)}.</p>
+ *
+ * <p>There is no buffer-wide lock held during processing or waiting. The global queue is a blocking queue with separate
+ * locks for producers and consumers, so the coordinator and the workers do not contend with each other, and idle workers
+ * wait for the requests instead of polling. Taking a request from the global queue and binding it is done in a short
+ * critical section (see {@link #pollLock}). Binding, reservation and unbinding of a correlation value must be atomic
+ * (otherwise a newer request could overtake a reserved one), so these are guarded by a lock stripe selected by
+ * the correlation value. Workers processing different correlation values rarely meet on the same stripe.</p>
+ *
+ * @param <R> Type of the requests. They must be comparable, so reserved requests can be processed in the correct order.
  */
 @SuppressWarnings("JavadocReference")
-class RequestsBuffer<I> {
+class RequestsBuffer<R extends AcknowledgementSink> {
 
     private static final Trace LOGGER = TraceManager.getTrace(RequestsBuffer.class);
 
     private static final long REQUEST_QUEUE_OFFER_TIMEOUT = 1000L;
 
+    /**
+     * Number of lock stripes guarding bindings and reservations, must be power of two.
+     */
+    private static final int LOCK_STRIPES = 64;
+
     /**
      * Global queue of waiting requests.
      */
-    private final BlockingQueue<ItemProcessingRequest<I>> globalQueue;
+    private final BlockingQueue<R> globalQueue;
 
     /**
      * Current bindings of resource objects (their identifiers) to subtasks.
      *
      * Entry key: primary resource object identifier (~ account ID)
      * Entry value: task identifier
+     *
+     * Changes for a given key are made under {@link #lockFor(Object)} for that key.
      */
-    private final Map<Object, String> bindingsMap = new HashMap<>();
+    private final Map<Object, String> bindingsMap = new ConcurrentHashMap<>();
 
     /**
      * Change requests reserved to be processed by each subtask.
@@ -63,60 +84,131 @@ class RequestsBuffer<I> {
      * Entry key: task identifier.
      * Entry value: queue of requests. The requests are sorted by change identifier, to ensure processing in the correct order.
      */
-    private final Map<String, PriorityQueue<ItemProcessingRequest<I>>> reservedRequestsQueueMap = new HashMap<>();
+    private final Map<String, Queue<R>> reservedRequestsQueueMap = new ConcurrentHashMap<>();
+
+    /**
+     * Guards taking requests from the global queue and binding them, see {@link #poll(String, long)}.
+     * It is never held while waiting nor while processing a request. Unbinding
+     * ({@link #markProcessed(AcknowledgementSink, String)}) is not affected by it.
+     */
+    private final Lock pollLock = new ReentrantLock();
+
+    /**
+     * Signalled when a request is put into the global queue, or reserved for a worker.
+     */
+    private final Condition requestAvailable = pollLock.newCondition();
+
+    /**
+     * Determines the value against which requests are aligned, see {@link ItemProcessingRequest#getCorrelationValue()}.
+     */
+    private final Function<R, Object> correlationValueFunction;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
-    RequestsBuffer(int threadsCount) {
-        int globalQueueSize = threadsCount*2; // actually, size of threadsCount should be sufficient but it doesn't hurt if queue is larger
-        globalQueue = new ArrayBlockingQueue<>(globalQueueSize);
+    /**
+     * @param threadsCount Number of worker threads.
+     * @param prefetch Number of requests that can wait in the global queue for each worker thread.
+     */
+    RequestsBuffer(int threadsCount, int prefetch, Function<R, Object> correlationValueFunction) {
+        this.correlationValueFunction = correlationValueFunction;
+        globalQueue = new LinkedBlockingQueue<>(threadsCount * Math.max(prefetch, 1));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
 
     /**
      * Offers a request for processing.
      *
-     * This method is intentionally NOT synchronized.
-     *
      * @throws InterruptedException If present, the request was not put into the queue.
      */
-    boolean offer(ItemProcessingRequest<I> request) throws InterruptedException {
-        return globalQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+    boolean offer(R request) throws InterruptedException {
+        if (globalQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            signalRequestAvailable(false);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void signalRequestAvailable(boolean all) {
+        pollLock.lock();
+        try {
+            if (all) {
+                requestAvailable.signalAll();
+            } else {
+                requestAvailable.signal();
+            }
+        } finally {
+            pollLock.unlock();
+        }
     }
 
     /**
      * Tries to obtain a request to be processed by the specified subtask.
-     * Does NOT wait, it just checks reserved requests and global queues.
+     * If there is no reserved nor globally available request, it waits for one to arrive into the global queue
+     * (or to be reserved for the subtask), at most approximately the specified time.
+     *
+     * Taking a request from the global queue and binding it is atomic with regards to other workers (see {@link #pollLock}).
+     * Otherwise a worker could take and process a newer request for some identifier, while an older one (taken by another
+     * worker a moment earlier) is on the way to its reserved requests queue. The lock is released while waiting.
      *
      * Post-conditions:
-     * - Returns null only if there are no reserved nor globally available requests.
+     * - Returns null only if there are no reserved nor globally available requests (even after waiting).
      * - If the request is not null, the primary identifier of the request is (successfully) bound to the specified task.
+     *
+     * @throws InterruptedException If the waiting was interrupted.
      */
-    synchronized ItemProcessingRequest<I> poll(String taskIdentifier) {
+    R poll(String taskIdentifier, long timeout) throws InterruptedException {
 
-        ItemProcessingRequest<I> reserved = getNextReservedRequest(taskIdentifier);
+        // Fast path without the lock: reserved requests are always the oldest ones for their identifiers.
+        R reserved = pollReserved(taskIdentifier);
         if (reserved != null) {
-            LOGGER.trace("Got reserved (pre-assigned) request: {}", reserved);
-            if (bind(reserved, taskIdentifier)) {
-                return reserved;
-            } else {
-                throw new IllegalStateException("A reserved request couldn't be bound to the current task. Request = " +
-                        reserved + ", task = " + taskIdentifier);
-            }
+            return reserved;
         }
 
-        for (;;) {
-            ItemProcessingRequest<I> request = globalQueue.poll();
-            LOGGER.trace("Got request from global queue: {}", request);
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        pollLock.lockInterruptibly();
+        try {
+            for (;;) {
+                // Something could have been reserved for us in the meanwhile.
+                reserved = pollReserved(taskIdentifier);
+                if (reserved != null) {
+                    return reserved;
+                }
 
-            if (request == null) {
-                // Nothing in the queue for now. OK, let's try next time.
-                return null;
+                R request = globalQueue.poll();
+                LOGGER.trace("Got request from global queue: {}", request);
+                if (request != null) {
+                    if (bind(request, taskIdentifier)) {
+                        return request;
+                    } else {
+                        // The request was reserved for another task. We have to go and try another one.
+                        continue;
+                    }
+                }
+
+                if (remaining <= 0) {
+                    // Nothing in the queue for now. OK, let's try next time.
+                    return null;
+                }
+                remaining = requestAvailable.awaitNanos(remaining);
             }
+        } finally {
+            pollLock.unlock();
+        }
+    }
 
-            if (bind(request, taskIdentifier)) {
-                return request;
-            } else {
-                // The request couldn't be bound to the specified task. We have to go and try another one.
+    private R pollReserved(String taskIdentifier) {
+        R reserved = getNextReservedRequest(taskIdentifier);
+        if (reserved != null) {
+            LOGGER.trace("Got reserved (pre-assigned) request: {}", reserved);
+            if (!bind(reserved, taskIdentifier)) {
+                throw new IllegalStateException("A reserved request couldn't be bound to the current task. Request = " +
+                        reserved + ", task = " + taskIdentifier);
             }
         }
+        return reserved;
     }
 
     /**
@@ -126,29 +218,31 @@ class RequestsBuffer<I> {
      * @return true if the request was successfully bound to the current task;
      *         false if it was reassigned (so this task has to fetch another request).
      */
-    private boolean bind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        Object correlationValue = request.getCorrelationValue();
+    private boolean bind(R request, String taskIdentifier) {
+        Object correlationValue = correlationValueFunction.apply(request);
         if (correlationValue == null) {
-            LOGGER.warn("Null correlationValue in request {}", request.getCorrelationValue());
+            LOGGER.warn("Null correlationValue in request {}", request);
             return true;
         }
 
-        String boundTo = bindingsMap.get(correlationValue);
-        if (boundTo == null) {
-            LOGGER.trace("Binding {} to {}", correlationValue, taskIdentifier);
-            bindingsMap.put(correlationValue, taskIdentifier);
-            return true;
-        }
+        synchronized (lockFor(correlationValue)) {
+            String boundTo = bindingsMap.get(correlationValue);
+            if (boundTo == null) {
+                LOGGER.trace("Binding {} to {}", correlationValue, taskIdentifier);
+                bindingsMap.put(correlationValue, taskIdentifier);
+                return true;
+            }
 
-        if (boundTo.equals(taskIdentifier)) {
-            LOGGER.trace("Processing {} as it is already bound to current task: {}", correlationValue, taskIdentifier);
-            return true;
-        }
+            if (boundTo.equals(taskIdentifier)) {
+                LOGGER.trace("Processing {} as it is already bound to current task: {}", correlationValue, taskIdentifier);
+                return true;
+            }
 
-        LOGGER.trace("Request {} (ID {}) is already bound to another task {}. Moving it to the reserved"
-                + " requests queue for that task. Current task: {}", request, correlationValue, boundTo, taskIdentifier);
-        reserve(request, boundTo);
-        return false;
+            LOGGER.trace("Request {} (ID {}) is already bound to another task {}. Moving it to the reserved"
+                    + " requests queue for that task. Current task: {}", request, correlationValue, boundTo, taskIdentifier);
+            reserve(request, boundTo);
+            return false;
+        }
     }
 
     /**
@@ -157,8 +251,8 @@ class RequestsBuffer<I> {
      *
      * @return Change reserved for given task; or null if there's nothing there.
      */
-    private ItemProcessingRequest<I> getNextReservedRequest(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
+    private R getNextReservedRequest(String taskIdentifier) {
+        Queue<R> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
         if (reservedRequests != null) {
             return reservedRequests.poll();
         } else {
@@ -166,42 +260,46 @@ class RequestsBuffer<I> {
         }
     }
 
-    private void reserve(ItemProcessingRequest<I> request, String owningTaskIdentifier) {
+    private void reserve(R request, String owningTaskIdentifier) {
         reservedRequestsQueueMap
-                .computeIfAbsent(owningTaskIdentifier, key -> new PriorityQueue<>())
+                .computeIfAbsent(owningTaskIdentifier, key -> new PriorityBlockingQueue<>())
                 .offer(request);
+        // The owner may be waiting for a request; we do not know which of the waiting workers it is.
+        signalRequestAvailable(true);
     }
 
     /**
      * Marks specified request as processed: Unbinds its primary identifier from the calling subtask.
      */
-    synchronized void markProcessed(ItemProcessingRequest<I> request, String taskIdentifier) {
+    void markProcessed(R request, String taskIdentifier) {
         unbind(request, taskIdentifier);
     }
 
-    private void unbind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        Object correlationValue = request.getCorrelationValue();
+    private void unbind(R request, String taskIdentifier) {
+        Object correlationValue = correlationValueFunction.apply(request);
         LOGGER.trace("Trying to unbind {} from {}", correlationValue, taskIdentifier);
         if (correlationValue == null) {
             LOGGER.trace("correlationValue is null (warning has been already issued): {}", request);
             return;
         }
 
-        if (isReserved(correlationValue, taskIdentifier)) {
-            LOGGER.trace("...but it is reserved to its owner (some relevant changes are waiting), so not unbinding now");
-            return;
-        }
+        synchronized (lockFor(correlationValue)) {
+            if (isReserved(correlationValue, taskIdentifier)) {
+                LOGGER.trace("...but it is reserved to its owner (some relevant changes are waiting), so not unbinding now");
+                return;
+            }
 
-        String previousOwner = bindingsMap.remove(correlationValue);
-        LOGGER.trace("Unbound (previous owner was: {})", previousOwner);
-        assert taskIdentifier.equals(previousOwner);
+            String previousOwner = bindingsMap.remove(correlationValue);
+            LOGGER.trace("Unbound (previous owner was: {})", previousOwner);
+            assert taskIdentifier.equals(previousOwner);
+        }
     }
 
     private boolean isReserved(Object primaryIdentifier, String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
+        Queue<R> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
         if (reservedRequests != null) {
-            for (ItemProcessingRequest<I> request : reservedRequests) {
-                if (primaryIdentifier.equals(request.getCorrelationValue())) {
+            for (R request : reservedRequests) {
+                if (primaryIdentifier.equals(correlationValueFunction.apply(request))) {
                     return true;
                 }
             }
@@ -209,8 +307,13 @@ class RequestsBuffer<I> {
         return false;
     }
 
-    synchronized int getReservedRequestsCount(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
+    private Object lockFor(Object correlationValue) {
+        int hash = correlationValue.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    int getReservedRequestsCount(String taskIdentifier) {
+        Queue<R> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
         return reservedRequests != null ? reservedRequests.size() : 0;
     }
 
@@ -224,9 +327,9 @@ class RequestsBuffer<I> {
         return nackCounter.get();
     }
 
-    private void nackAll(Queue<ItemProcessingRequest<I>> queue, AtomicInteger counter, OperationResult result) {
+    private void nackAll(Queue<R> queue, AtomicInteger counter, OperationResult result) {
         for (;;) {
-            ItemProcessingRequest<I> request = queue.poll();
+            R request = queue.poll();
             if (request == null) {
                 break;
             } else {
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.common.task;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.schema.AcknowledgementSink;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests {@link RequestsBuffer} with multiple workers.
+ */
+public class TestRequestsBuffer extends AbstractUnitTest {
+
+    private static final int WORKERS = 4;
+    private static final int CORRELATION_VALUES = 10;
+    private static final int REQUESTS = 2000;
+    private static final long POLL_TIMEOUT = 100;
+
+    /**
+     * All requests are processed exactly once, requests with the same correlation value are processed
+     * one at a time and in the order in which they were submitted.
+     */
+    @Test
+    public void test100MultipleWorkers() throws Exception {
+        given();
+        RequestsBuffer<TestRequest> buffer = new RequestsBuffer<>(WORKERS, 2, TestRequest::getCorrelationValue);
+        AtomicBoolean allSubmitted = new AtomicBoolean();
+        Map<Integer, List<Integer>> processed = new ConcurrentHashMap<>();
+        Set<Integer> inProgress = ConcurrentHashMap.newKeySet();
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        try {
+            when("requests are processed by multiple workers");
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < WORKERS; w++) {
+                String taskIdentifier = "worker-" + w;
+                futures.add(executor.submit(() -> {
+                    for (;;) {
+                        TestRequest request = buffer.poll(taskIdentifier, POLL_TIMEOUT);
+                        if (request == null) {
+                            if (allSubmitted.get()) {
+                                return null;
+                            }
+                            continue;
+                        }
+                        try {
+                            if (!inProgress.add(request.correlationValue)) {
+                                problems.add("Concurrent processing of " + request);
+                            }
+                            processed.computeIfAbsent(request.correlationValue, k -> Collections.synchronizedList(new ArrayList<>()))
+                                    .add(request.sequence);
+                            Thread.yield();
+                            inProgress.remove(request.correlationValue);
+                        } finally {
+                            buffer.markProcessed(request, taskIdentifier);
+                        }
+                    }
+                }));
+            }
+
+            for (int i = 0; i < REQUESTS; i++) {
+                TestRequest request = new TestRequest(i % CORRELATION_VALUES, i);
+                while (!buffer.offer(request)) {
+                    // queue is full, let's try again
+                }
+            }
+            allSubmitted.set(true);
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+
+            then("all requests are processed in order, one at a time for each correlation value");
+            assertEquals("Problems: " + problems, 0, problems.size());
+            int count = 0;
+            for (Map.Entry<Integer, List<Integer>> entry : processed.entrySet()) {
+                List<Integer> sequences = entry.getValue();
+                List<Integer> sorted = new ArrayList<>(sequences);
+                Collections.sort(sorted);
+                assertEquals("Wrong order for " + entry.getKey(), sorted, sequences);
+                count += sequences.size();
+            }
+            assertEquals("Wrong # of processed requests", REQUESTS, count);
+            assertEquals("Wrong # of correlation values", CORRELATION_VALUES, processed.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A waiting worker gets the request as soon as it is offered, not after the timeout.
+     */
+    @Test
+    public void test110WaitingWorkerIsWokenUp() throws Exception {
+        given();
+        RequestsBuffer<TestRequest> buffer = new RequestsBuffer<>(WORKERS, 2, TestRequest::getCorrelationValue);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TestRequest> waiting = executor.submit(() -> buffer.poll("worker-0", TimeUnit.MINUTES.toMillis(1)));
+
+            when("request is offered");
+            Thread.sleep(100);
+            assertTrue("Request was not accepted", buffer.offer(new TestRequest(1, 1)));
+
+            then("waiting worker gets it");
+            TestRequest request = waiting.get(10, TimeUnit.SECONDS);
+            assertNotNull("No request", request);
+            assertEquals("Wrong request", 1, request.sequence);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A request bound to another worker is reserved for it; the polling worker gets the next one instead of null.
+     */
+    @Test
+    public void test120RequestReservedForOtherWorker() throws Exception {
+        given();
+        RequestsBuffer<TestRequest> buffer = new RequestsBuffer<>(WORKERS, 2, TestRequest::getCorrelationValue);
+        buffer.offer(new TestRequest(1, 1));
+        TestRequest first = buffer.poll("worker-0", 0);
+        assertNotNull("No first request", first);
+
+        when("worker-1 polls while the next request for the same value is waiting");
+        buffer.offer(new TestRequest(1, 2));
+        buffer.offer(new TestRequest(2, 3));
+        TestRequest other = buffer.poll("worker-1", 0);
+
+        then("it gets the request with other correlation value, the first one is reserved for worker-0");
+        assertNotNull("No request for worker-1", other);
+        assertEquals("Wrong request for worker-1", 3, other.sequence);
+        assertEquals("Wrong # of requests reserved for worker-0", 1, buffer.getReservedRequestsCount("worker-0"));
+
+        buffer.markProcessed(first, "worker-0");
+        TestRequest reserved = buffer.poll("worker-0", 0);
+        assertNotNull("No reserved request for worker-0", reserved);
+        assertEquals("Wrong reserved request", 2, reserved.sequence);
+    }
+
+    private static class TestRequest implements AcknowledgementSink, Comparable<TestRequest> {
+
+        private final int correlationValue;
+        private final int sequence;
+
+        private TestRequest(int correlationValue, int sequence) {
+            this.correlationValue = correlationValue;
+            this.sequence = sequence;
+        }
+
+        private Object getCorrelationValue() {
+            return correlationValue;
+        }
+
+        @Override
+        public void acknowledge(boolean release, OperationResult result) {
+        }
+
+        @Override
+        public int compareTo(@NotNull TestRequest o) {
+            return Integer.compare(sequence, o.sequence);
+        }
+
+        @Override
+        public String toString() {
+            return "TestRequest{" + correlationValue + "/" + sequence + "}";
+        }
+    }
+}
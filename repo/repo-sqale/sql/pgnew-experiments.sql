@@ -241,6 +241,87 @@ order by relpages desc;
 -- find sequence name for serial column (e.g. to alter its value later)
 select pg_get_serial_sequence('m_qname', 'id');
 
+-- ORG HIERARCHY benchmark (org closure materialized view, see pgnew-repo.sql)
+-- The counterpart for the old repository (closure maintained incrementally by OrgClosureManager)
+-- is OrgClosurePerformanceTest3 in repo-sql-impl-test; it uses the same hierarchy and operations,
+-- so the timings can be compared directly.
+-- 1111 orgs in a tree with fan-out 10 (root org-0, 10 + 100 + 1000 orgs below it), OIDs are derived
+-- from names so they are the same for each run. 10 users are added under each leaf org.
+INSERT INTO m_uri (uri)
+SELECT 'http://midpoint.evolveum.com/xml/ns/public/common/org-3#default'
+WHERE NOT EXISTS (SELECT 1 FROM m_uri
+    WHERE uri = 'http://midpoint.evolveum.com/xml/ns/public/common/org-3#default');
+
+INSERT INTO m_org (oid, name_norm, name_orig, version)
+SELECT md5('org-' || r)::uuid, 'org-' || r, 'org-' || r, 1
+from generate_series(0, 1110) as r;
+
+-- parent of org N is org (N-1)/10
+INSERT INTO m_ref_object_parent_org (owner_oid, targetOid, targetType, relation_id)
+SELECT md5('org-' || r)::uuid, md5('org-' || (r - 1) / 10)::uuid, 15,
+    (SELECT id FROM m_uri WHERE uri = 'http://midpoint.evolveum.com/xml/ns/public/common/org-3#default')
+from generate_series(1, 1110) as r;
+
+-- users in leaf orgs (orgs 111-1110)
+INSERT INTO m_user (oid, name_norm, name_orig, version)
+SELECT md5('user-' || r)::uuid, 'user-' || r, 'user-' || r, 1
+from generate_series(1110, 11109) as r;
+INSERT INTO m_ref_object_parent_org (owner_oid, targetOid, targetType, relation_id)
+SELECT md5('user-' || r)::uuid, md5('org-' || r / 10)::uuid, 15,
+    (SELECT id FROM m_uri WHERE uri = 'http://midpoint.evolveum.com/xml/ns/public/common/org-3#default')
+from generate_series(1110, 11109) as r;
+vacuum analyze;
+
+-- refresh (time it in the client), then check the size: 1111 * (average depth + 1) rows
+-- (test100LoadOrgStructure prints the size of the closure table for comparison)
+select count(*) from m_org_closure_change;
+CALL m_refresh_org_closure(true);
+select count(*) from m_org_closure;
+-- this one should do nothing, as no change happened since the last refresh
+CALL m_refresh_org_closure();
+-- this is what testOrgClosureConsistency checks, should be 0
+select m_org_closure_differences();
+
+-- isAnySubordinate(org-1, [org-123]), should be true (test200IsAnySubordinate)
+EXPLAIN (ANALYZE, BUFFERS, FORMAT TEXT)
+SELECT oc.descendant_oid FROM m_org_closure oc
+WHERE oc.ancestor_oid = md5('org-1')::uuid
+    AND oc.descendant_oid IN (md5('org-123')::uuid)
+LIMIT 1;
+
+-- org filter SUBTREE for users under org-1 (1/10 of users, test210CountUsersInSubtree)
+EXPLAIN (ANALYZE, BUFFERS, FORMAT TEXT)
+SELECT count(*) FROM m_user u
+WHERE EXISTS (SELECT 1 FROM m_ref_object_parent_org pref
+    WHERE pref.owner_oid = u.oid
+        AND pref.targetOid IN (SELECT oc.descendant_oid FROM m_org_closure oc
+            WHERE oc.ancestor_oid = md5('org-1')::uuid));
+
+-- the same without closure, with recursive CTE evaluated in the query; compare with the previous one
+EXPLAIN (ANALYZE, BUFFERS, FORMAT TEXT)
+WITH RECURSIVE sub (oid) AS (
+    SELECT md5('org-1')::uuid
+    UNION
+    SELECT chi.owner_oid FROM sub JOIN m_ref_object_parent_org chi ON chi.targetOid = sub.oid
+    WHERE EXISTS (SELECT 1 FROM m_org o WHERE o.oid = chi.owner_oid)
+)
+SELECT count(*) FROM m_user u
+WHERE EXISTS (SELECT 1 FROM m_ref_object_parent_org pref
+    WHERE pref.owner_oid = u.oid AND pref.targetOid IN (SELECT oid FROM sub));
+
+-- ANCESTORS of org-123 (should be org-12, org-1, org-0)
+SELECT o.name_orig FROM m_org o
+WHERE o.oid IN (SELECT oc.ancestor_oid FROM m_org_closure oc
+    WHERE oc.descendant_oid = md5('org-123')::uuid AND oc.ancestor_oid != md5('org-123')::uuid);
+
+-- move subtree of org-11 (11 orgs) under org-10 and refresh (time it, test300MoveSubtree),
+-- the old repository updates only the affected closure rows, here the whole view is recomputed
+UPDATE m_ref_object_parent_org SET targetOid = md5('org-10')::uuid
+WHERE owner_oid = md5('org-11')::uuid;
+select m_org_closure_differences(); -- closure is stale now
+CALL m_refresh_org_closure();
+select count(*) from m_org_closure where ancestor_oid = md5('org-10')::uuid;
+
 -- PRACTICAL UTILITY FUNCTIONS
 
 -- based on https://dba.stackexchange.com/a/22571
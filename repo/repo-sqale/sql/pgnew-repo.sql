@@ -333,6 +333,25 @@ CREATE TRIGGER m_service_oid_delete_tr AFTER DELETE ON m_service
 CREATE INDEX m_service_name_orig_idx ON m_service (name_orig);
 ALTER TABLE m_service ADD CONSTRAINT m_service_name_norm_key UNIQUE (name_norm);
 
+CREATE TABLE m_org (
+    oid UUID NOT NULL PRIMARY KEY REFERENCES m_object_oid(oid),
+    objectTypeClass INTEGER GENERATED ALWAYS AS (15) STORED,
+    displayOrder INTEGER,
+    tenant BOOLEAN
+)
+    INHERITS (m_abstract_role);
+
+CREATE TRIGGER m_org_oid_insert_tr BEFORE INSERT ON m_org
+    FOR EACH ROW EXECUTE PROCEDURE insert_object_oid();
+CREATE TRIGGER m_org_update_tr BEFORE UPDATE ON m_org
+    FOR EACH ROW EXECUTE PROCEDURE before_update_object();
+CREATE TRIGGER m_org_oid_delete_tr AFTER DELETE ON m_org
+    FOR EACH ROW EXECUTE PROCEDURE delete_object_oid();
+
+CREATE INDEX m_org_name_orig_idx ON m_org (name_orig);
+ALTER TABLE m_org ADD CONSTRAINT m_org_name_norm_key UNIQUE (name_norm);
+CREATE INDEX m_org_displayOrder_idx ON m_org (displayOrder);
+
 /* TODO as array/JSON, it's List<String>
 CREATE TABLE m_service_type (
     service_oid VARCHAR(36) NOT NULL,
@@ -344,6 +363,138 @@ ALTER TABLE IF EXISTS m_service_type
 */
 -- endregion
 
+-- region Org hierarchy
+-- Parent org references of all objects (ObjectType.parentOrgRef), one row per reference value.
+-- Rows are deleted together with the owner (FK to OID pool is cascaded).
+CREATE TABLE m_ref_object_parent_org (
+    owner_oid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    targetOid UUID NOT NULL,
+    targetType INTEGER, -- soft-references m_objtype
+    relation_id INTEGER NOT NULL, -- soft-references m_uri
+
+    PRIMARY KEY (owner_oid, relation_id, targetOid)
+);
+CREATE INDEX m_ref_object_parent_org_targetOid_idx ON m_ref_object_parent_org (targetOid);
+
+-- Org closure: all (ancestor, descendant) pairs of orgs, including (org, org) for each org.
+-- Only orgs are here, other objects (e.g. users) are related to the orgs via parent org refs.
+-- Unlike the old repository, the closure is not maintained incrementally by midPoint code.
+-- It is a materialized view refreshed by m_refresh_org_closure() before it is used,
+-- but only if the org hierarchy changed since the last refresh.
+-- UNION (not UNION ALL) removes duplicates for DAG hierarchies and stops the recursion on cycles.
+-- The closure computed on the fly; materialized by m_org_closure, also used to check it.
+CREATE VIEW m_org_closure_computed AS
+WITH RECURSIVE org_h (ancestor_oid, descendant_oid) AS (
+    SELECT oid, oid FROM m_org
+    UNION
+    SELECT par.ancestor_oid, chi.owner_oid
+    FROM org_h par
+        JOIN m_ref_object_parent_org chi ON chi.targetOid = par.descendant_oid
+    WHERE EXISTS (SELECT 1 FROM m_org o WHERE o.oid = chi.owner_oid)
+)
+SELECT * FROM org_h;
+
+CREATE MATERIALIZED VIEW m_org_closure AS
+SELECT * FROM m_org_closure_computed;
+
+-- unique index is also required for REFRESH MATERIALIZED VIEW CONCURRENTLY
+CREATE UNIQUE INDEX m_org_closure_asc_desc_idx ON m_org_closure (ancestor_oid, descendant_oid);
+CREATE INDEX m_org_closure_desc_asc_idx ON m_org_closure (descendant_oid, ancestor_oid);
+
+-- Changes of the org hierarchy not yet reflected in the closure, one row per changing statement
+-- (or changed parent ref of an org). Triggers below only insert here, so concurrent writers
+-- do not contend on any shared row; rows are deleted by the refresh.
+CREATE TABLE m_org_closure_change (
+    id BIGSERIAL NOT NULL PRIMARY KEY
+);
+
+CREATE OR REPLACE FUNCTION mark_org_closure_for_refresh()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO m_org_closure_change DEFAULT VALUES;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+-- Only parent refs of orgs affect the closure; owner row exists when its refs are inserted
+-- or modified, for deleted orgs the statement trigger on m_org below takes care of it.
+CREATE OR REPLACE FUNCTION mark_org_closure_for_refresh_parent_org()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        IF NOT EXISTS (SELECT 1 FROM m_org WHERE oid = OLD.owner_oid) THEN
+            RETURN NULL;
+        END IF;
+    ELSIF NOT EXISTS (SELECT 1 FROM m_org WHERE oid = NEW.owner_oid) THEN
+        RETURN NULL;
+    END IF;
+
+    -- trigger functions can't be called directly, this repeats mark_org_closure_for_refresh()
+    INSERT INTO m_org_closure_change DEFAULT VALUES;
+
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER m_ref_object_parent_org_mark_refresh_tr
+    AFTER INSERT OR UPDATE OR DELETE ON m_ref_object_parent_org
+    FOR EACH ROW EXECUTE PROCEDURE mark_org_closure_for_refresh_parent_org();
+CREATE TRIGGER m_ref_object_parent_org_mark_refresh_trunc_tr
+    AFTER TRUNCATE ON m_ref_object_parent_org
+    FOR EACH STATEMENT EXECUTE PROCEDURE mark_org_closure_for_refresh();
+-- New org is its own ancestor/descendant, deleted org must disappear from the closure.
+CREATE TRIGGER m_org_mark_refresh_tr
+    AFTER INSERT OR DELETE ON m_org
+    FOR EACH STATEMENT EXECUTE PROCEDURE mark_org_closure_for_refresh();
+CREATE TRIGGER m_org_mark_refresh_trunc_tr
+    AFTER TRUNCATE ON m_org
+    FOR EACH STATEMENT EXECUTE PROCEDURE mark_org_closure_for_refresh();
+
+-- Refreshes the closure if there was any change since the last refresh (or always if forced).
+-- Pending changes are checked first without any locking, so this is cheap when nothing changed.
+-- Concurrent refreshes are serialized with transaction advisory lock, the waiting ones then
+-- typically find out there is nothing to refresh anymore.
+-- The refresh is concurrent, so queries using the closure are not blocked while it runs.
+CREATE OR REPLACE PROCEDURE m_refresh_org_closure(force BOOLEAN = false)
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    change_ids BIGINT[];
+BEGIN
+    IF NOT force AND NOT EXISTS (SELECT 1 FROM m_org_closure_change) THEN
+        RETURN;
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(47); -- any unique number is fine
+
+    -- Only changes committed before the refresh are deleted, these are surely included in it.
+    SELECT array_agg(id) INTO change_ids FROM m_org_closure_change;
+    IF force OR change_ids IS NOT NULL THEN
+        REFRESH MATERIALIZED VIEW CONCURRENTLY m_org_closure;
+        DELETE FROM m_org_closure_change WHERE id = ANY(change_ids);
+    END IF;
+END $$;
+
+-- Returns the number of (ancestor, descendant) pairs that are missing in the closure
+-- or that are superfluous there, compared to the closure computed from the current hierarchy.
+-- This is 0 unless the closure is stale (or broken).
+CREATE OR REPLACE FUNCTION m_org_closure_differences()
+    RETURNS BIGINT
+    LANGUAGE sql
+    STABLE
+AS $$
+SELECT count(*) FROM (
+    (SELECT * FROM m_org_closure_computed EXCEPT SELECT * FROM m_org_closure)
+    UNION ALL
+    (SELECT * FROM m_org_closure EXCEPT SELECT * FROM m_org_closure_computed)
+) diff
+$$;
+-- endregion
+
 -- region OTHER tables
 -- "concrete" table, allows insert and defines "final" objectTypeClass with GENERATED
 CREATE TABLE m_resource (
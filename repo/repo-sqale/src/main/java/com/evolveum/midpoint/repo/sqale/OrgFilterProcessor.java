@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import java.util.UUID;
+import javax.xml.namespace.QName;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.sql.SQLExpressions;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismReferenceValue;
+import com.evolveum.midpoint.prism.query.OrgFilter;
+import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
+import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReference;
+import com.evolveum.midpoint.repo.sqlbase.QueryException;
+import com.evolveum.midpoint.repo.sqlbase.filtering.FilterProcessor;
+import com.evolveum.midpoint.util.QNameUtil;
+
+/**
+ * Filter processor for {@link OrgFilter}, using parent org references and org closure.
+ * Semantics is the same as for the old repository:
+ * <ul>
+ *     <li>ONE_LEVEL - objects with parentOrgRef to the org;</li>
+ *     <li>SUBTREE - objects with parentOrgRef to the org or any of its descendants;</li>
+ *     <li>ANCESTORS - all ancestors of the org (not the org itself);</li>
+ *     <li>root filter - objects without any parentOrgRef.</li>
+ * </ul>
+ * Filters using the closure only mark the query context, the closure is refreshed (if needed)
+ * right before the query is executed, see {@link SqaleQueryContext#beforeQuery()}.
+ */
+public class OrgFilterProcessor implements FilterProcessor<OrgFilter> {
+
+    private final SqaleQueryContext<?, ?, ?> context;
+
+    public OrgFilterProcessor(SqaleQueryContext<?, ?, ?> context) {
+        this.context = context;
+    }
+
+    @Override
+    public Predicate process(OrgFilter filter) throws QueryException {
+        QObject<?> objectPath = context.path();
+        QReference ref = new QReference("pref", QReference.PARENT_ORG_TABLE_NAME);
+
+        if (filter.isRoot()) {
+            return SQLExpressions.selectOne()
+                    .from(ref)
+                    .where(ref.ownerOid.eq(objectPath.oid))
+                    .notExists();
+        }
+
+        PrismReferenceValue orgRef = filter.getOrgRef();
+        if (orgRef == null || orgRef.getOid() == null) {
+            throw new QueryException("No organization OID defined in the org filter: " + filter);
+        }
+        UUID orgOid = UUID.fromString(orgRef.getOid());
+        Predicate relationPredicate = relationPredicate(ref, orgRef.getRelation());
+
+        QOrgClosure closure = new QOrgClosure("oc");
+        switch (filter.getScope()) {
+            case ONE_LEVEL:
+                return SQLExpressions.selectOne()
+                        .from(ref)
+                        .where(ExpressionUtils.allOf(
+                                ref.ownerOid.eq(objectPath.oid),
+                                ref.targetOid.eq(orgOid),
+                                relationPredicate))
+                        .exists();
+            case ANCESTORS:
+                context.markOrgClosureUsage();
+                return objectPath.oid.in(
+                        SQLExpressions.select(closure.ancestorOid)
+                                .from(closure)
+                                .where(closure.descendantOid.eq(orgOid)
+                                        .and(closure.ancestorOid.ne(orgOid))));
+            case SUBTREE:
+            default:
+                context.markOrgClosureUsage();
+                return SQLExpressions.selectOne()
+                        .from(ref)
+                        .where(ExpressionUtils.allOf(
+                                ref.ownerOid.eq(objectPath.oid),
+                                ref.targetOid.in(
+                                        SQLExpressions.select(closure.descendantOid)
+                                                .from(closure)
+                                                .where(closure.ancestorOid.eq(orgOid))),
+                                relationPredicate))
+                        .exists();
+        }
+    }
+
+    private Predicate relationPredicate(QReference ref, QName relation) {
+        if (relation == null || QNameUtil.match(PrismConstants.Q_ANY, relation)) {
+            return null; // allOf ignores nulls
+        }
+        Integer relationId = ((SqaleRepoContext) context.sqlRepoContext()).getCachedUriId(relation);
+        return ref.relationId.eq(relationId);
+    }
+}
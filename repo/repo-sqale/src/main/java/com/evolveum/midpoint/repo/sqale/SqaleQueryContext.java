@@ -13,12 +13,14 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.path.CanonicalItemPath;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.OrgFilter;
 import com.evolveum.midpoint.repo.sqale.qmodel.SqaleModelMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
 import com.evolveum.midpoint.repo.sqlbase.SqlQueryContext;
 import com.evolveum.midpoint.repo.sqlbase.SqlRepoContext;
 import com.evolveum.midpoint.repo.sqlbase.SqlTransformerContext;
+import com.evolveum.midpoint.repo.sqlbase.filtering.FilterProcessor;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryModelMapping;
 import com.evolveum.midpoint.repo.sqlbase.mapping.SqlTransformer;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
@@ -37,16 +39,24 @@ public class SqaleQueryContext<S, Q extends QObject<R>, R extends MObject>
         // we must take care of unique alias names for JOINs, which is what we want.
         query.getMetadata().setValidate(true);
 
-        return new SqaleQueryContext<>(rootPath, rootMapping, transformerContext, sqlRepoContext, query);
+        return new SqaleQueryContext<>(rootPath, rootMapping, transformerContext, sqlRepoContext, query, null);
     }
 
+    /** Context of the whole query, null for the root context itself. */
+    private final SqaleQueryContext<?, ?, ?> rootContext;
+
+    /** True if the org closure is used by the query, so it must be refreshed before the query runs. */
+    private boolean orgClosureUsed;
+
     private SqaleQueryContext(
             Q entityPath,
             SqaleModelMapping<S, Q, R> mapping,
             SqlTransformerContext transformerContext,
             SqlRepoContext sqlRepoContext,
-            SQLQuery<?> query) {
+            SQLQuery<?> query,
+            SqaleQueryContext<?, ?, ?> rootContext) {
         super(entityPath, mapping, sqlRepoContext, transformerContext, query);
+        this.rootContext = rootContext;
     }
 
     @Override
@@ -54,6 +64,29 @@ public class SqaleQueryContext<S, Q extends QObject<R>, R extends MObject>
         return mapping.createTransformer(transformerContext);
     }
 
+    @Override
+    public FilterProcessor<OrgFilter> createOrgFilterProcessor() {
+        return new OrgFilterProcessor(this);
+    }
+
+    public void markOrgClosureUsage() {
+        if (rootContext != null) {
+            rootContext.markOrgClosureUsage();
+        } else {
+            orgClosureUsed = true;
+        }
+    }
+
+    /**
+     * Refreshes the org closure if the query uses it.
+     */
+    @Override
+    public void beforeQuery() {
+        if (orgClosureUsed) {
+            ((SqaleRepoContext) sqlRepoContext).refreshOrgClosure(false);
+        }
+    }
+
     @Override
     public <T> Class<? extends T> qNameToSchemaClass(@NotNull QName qName) {
         return transformerContext.qNameToSchemaClass(qName);
@@ -74,6 +107,7 @@ public class SqaleQueryContext<S, Q extends QObject<R>, R extends MObject>
     deriveNew(DQ newPath, QueryModelMapping<?, DQ, DR> newMapping) {
         return (SqlQueryContext<?, DQ, DR>) new SqaleQueryContext(
                 (QObject<?>) newPath, (SqaleModelMapping<?, ?, ?>) newMapping,
-                transformerContext, sqlRepoContext, sqlQuery);
+                transformerContext, sqlRepoContext, sqlQuery,
+                rootContext != null ? rootContext : this);
     }
 }
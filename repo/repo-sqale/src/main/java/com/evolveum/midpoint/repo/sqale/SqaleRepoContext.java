@@ -10,6 +10,8 @@ import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
 import javax.xml.namespace.QName;
 
+import com.querydsl.core.types.dsl.Expressions;
+
 import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
 import com.evolveum.midpoint.repo.sqlbase.SqlRepoContext;
@@ -46,8 +48,42 @@ public class SqaleRepoContext extends SqlRepoContext {
         return uriCache.getIdMandatory(uri);
     }
 
-    /** Returns ID for URI creating new cache row in DB as needed. */
+    /**
+     * Returns ID for URI creating new cache row in DB as needed.
+     * The new row is not inserted using the provided session but committed in a separate transaction,
+     * see {@link UriCache#processCachedUri}.
+     */
     public Integer processCachedUri(String uri, JdbcSession jdbcSession) {
-        return uriCache.processCachedUri(uri, jdbcSession);
+        return uriCache.processCachedUri(uri, this::newJdbcSession);
+    }
+
+    /**
+     * Refreshes org closure (materialized view) if the org hierarchy was changed since the last
+     * refresh - this is checked by the procedure in the database before it takes any lock,
+     * so it's cheap when nothing changed.
+     * Must be called before the closure is used in queries, but not during the query translation.
+     * Runs in its own short transaction, so the refresh is committed (and visible to other nodes)
+     * before the query runs.
+     *
+     * @param force refresh the closure even if no change was detected
+     */
+    public void refreshOrgClosure(boolean force) {
+        try (JdbcSession jdbcSession = newJdbcSession().startTransaction()) {
+            jdbcSession.executeStatement("CALL m_refresh_org_closure(" + force + ")");
+        }
+    }
+
+    /**
+     * Compares the org closure (materialized view) with the closure computed from the current
+     * org hierarchy and returns the number of differing (ancestor, descendant) pairs.
+     * This computes the whole closure, so it's expensive - it is meant for diagnostics only.
+     */
+    public long countOrgClosureDifferences() {
+        try (JdbcSession jdbcSession = newJdbcSession().startReadOnlyTransaction()) {
+            Long differences = jdbcSession.newQuery()
+                    .select(Expressions.numberTemplate(Long.class, "m_org_closure_differences()"))
+                    .fetchOne();
+            return differences != null ? differences : 0;
+        }
     }
 }
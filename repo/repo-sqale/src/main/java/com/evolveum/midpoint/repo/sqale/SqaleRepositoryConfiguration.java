@@ -34,6 +34,7 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
 
     private static final int DEFAULT_MIN_POOL_SIZE = 8;
     private static final int DEFAULT_MAX_POOL_SIZE = 20;
+    private static final int DEFAULT_ITERATIVE_SEARCH_PAGE_SIZE = 100;
 
     /**
      * Database kind - either explicitly configured or derived from other options .
@@ -56,6 +57,8 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
     private final boolean useZipAudit;
     private final String fullObjectFormat;
 
+    private final int iterativeSearchByPagingBatchSize;
+
     private final String performanceStatisticsFile;
     private final int performanceStatisticsLevel;
 
@@ -94,6 +97,9 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         fullObjectFormat = System.getProperty(PROPERTY_FULL_OBJECT_FORMAT,
                 configuration.getString(PROPERTY_FULL_OBJECT_FORMAT, PrismContext.LANG_XML));
 
+        iterativeSearchByPagingBatchSize = configuration.getInt(
+                PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, DEFAULT_ITERATIVE_SEARCH_PAGE_SIZE);
+
         performanceStatisticsFile = configuration.getString(PROPERTY_PERFORMANCE_STATISTICS_FILE);
         performanceStatisticsLevel = configuration.getInt(PROPERTY_PERFORMANCE_STATISTICS_LEVEL,
                 SqlPerformanceMonitorImpl.LEVEL_LOCAL_STATISTICS);
@@ -149,6 +155,11 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         return fullObjectFormat;
     }
 
+    @Override
+    public int getIterativeSearchByPagingBatchSize() {
+        return iterativeSearchByPagingBatchSize;
+    }
+
     public SqaleRepositoryConfiguration validate() throws RepositoryServiceFactoryException {
         if (dataSource == null) {
             notEmpty(jdbcUrl, "JDBC Url is empty or not defined.");
@@ -157,6 +168,11 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
             notEmpty(driverClassName, "Driver class name is empty or not defined.");
         }
 
+        if (iterativeSearchByPagingBatchSize <= 0) {
+            throw new RepositoryServiceFactoryException("Property "
+                    + PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE + " must be positive number.");
+        }
+
         // TODO the rest from SqlRepoConf#validate except for Hibernate of course
 
         return this;
@@ -13,6 +13,7 @@ import javax.annotation.PreDestroy;
 
 import com.google.common.base.Strings;
 import com.querydsl.core.Tuple;
+import com.querydsl.sql.dml.SQLInsertClause;
 import com.querydsl.sql.dml.SQLUpdateClause;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -27,6 +28,8 @@ import com.evolveum.midpoint.prism.delta.ItemDeltaCollectionsUtil;
 import com.evolveum.midpoint.prism.delta.PropertyDelta;
 import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.*;
 import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
@@ -35,7 +38,9 @@ import com.evolveum.midpoint.repo.sqale.qmodel.SqaleModelMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.ObjectSqlTransformer;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
 import com.evolveum.midpoint.repo.sqlbase.*;
+import com.evolveum.midpoint.repo.sqlbase.mapping.SqlTransformer;
 import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
@@ -62,6 +67,12 @@ public class SqaleRepositoryService implements RepositoryService {
     private static final String OP_NAME_PREFIX = SqaleRepositoryService.class.getSimpleName() + '.';
     private static final int MAX_CONFLICT_WATCHERS = 10;
 
+    /** Max number of objects inserted in a single transaction by {@link #addObjects}. */
+    private static final int ADD_OBJECTS_BATCH_SIZE = 100;
+
+    /** Max number of OIDs in a single query executed by {@link #getObjects}. */
+    private static final int GET_OBJECTS_BATCH_SIZE = 1000;
+
     private final SqaleRepoContext sqlRepoContext;
     private final SchemaHelper schemaService;
     private final SqlQueryExecutor sqlQueryExecutor;
@@ -136,6 +147,68 @@ public class SqaleRepositoryService implements RepositoryService {
         return object;
     }
 
+    @Override
+    public @NotNull <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(
+            @NotNull Class<T> type,
+            @NotNull Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+
+        Objects.requireNonNull(type, "Object type must not be null.");
+        Objects.requireNonNull(oids, "OIDs must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        LOGGER.debug("Getting {} objects of type '{}': {}",
+                oids.size(), type.getSimpleName(), parentResult.getOperation());
+
+        OperationResult operationResult = parentResult.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .setMinor()
+                .addParam("type", type.getName())
+                .addParam("count", oids.size())
+                .build();
+
+        try {
+            Set<UUID> oidUuids = new LinkedHashSet<>();
+            for (String oid : oids) {
+                oidUuids.add(checkOid(oid));
+                InternalMonitor.recordRepositoryRead(type, oid);
+            }
+
+            Map<UUID, T> objectsByOid = new HashMap<>();
+            List<UUID> batch = new ArrayList<>(Math.min(oidUuids.size(), GET_OBJECTS_BATCH_SIZE));
+            for (UUID oidUuid : oidUuids) {
+                batch.add(oidUuid);
+                if (batch.size() == GET_OBJECTS_BATCH_SIZE) {
+                    readByOids(type, batch, options, objectsByOid);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                readByOids(type, batch, options, objectsByOid);
+            }
+
+            SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+            for (UUID oidUuid : oidUuids) {
+                T object = objectsByOid.get(oidUuid);
+                if (object != null) {
+                    //noinspection unchecked
+                    objects.add((PrismObject<T>) object.asPrismObject());
+                }
+            }
+            return objects;
+        } catch (RuntimeException e) {
+            handleGeneralException(e, operationResult);
+            throw new SystemException(e);
+        } catch (Throwable t) {
+            operationResult.recordFatalError(t);
+            throw t;
+        } finally {
+            operationResult.computeStatusIfUnknown();
+        }
+    }
+
     private UUID checkOid(String oid) {
         Objects.requireNonNull(oid, "Oid must not be null");
         try {
@@ -180,6 +253,41 @@ public class SqaleRepositoryService implements RepositoryService {
                 .toSchemaObject(result, root, options);
     }
 
+    /**
+     * Reads objects with provided OIDs using a single query and shortest possible read-only
+     * transaction, found objects are put into the provided map.
+     * Only for {@link #getObjects}, non-existing objects are silently skipped.
+     */
+    private <S extends ObjectType, Q extends QObject<R>, R extends MObject> void readByOids(
+            @NotNull Class<S> schemaType,
+            @NotNull Collection<UUID> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull Map<UUID, S> objectsByOid)
+            throws SchemaException {
+
+        SqaleModelMapping<S, Q, R> rootMapping =
+                sqlRepoContext.getMappingBySchemaType(schemaType);
+        final Q root = rootMapping.defaultAlias();
+
+        List<Tuple> result;
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+            result = sqlRepoContext.newQuery(jdbcSession.connection())
+                    .from(root)
+                    .select(rootMapping.selectExpressions(root, options))
+                    .where(root.oid.in(oids))
+                    .fetch();
+        }
+
+        SqlTransformer<S, Q, R> transformer = rootMapping.createTransformer(transformerContext);
+        for (Tuple row : result) {
+            if (row.get(root.fullObject) == null) {
+                continue; // the same treatment as in readByOid, as if the object didn't exist
+            }
+            S object = transformer.toSchemaObject(row, root, options);
+            objectsByOid.put(row.get(root.oid), object);
+        }
+    }
+
     /** Read object using provided {@link JdbcSession} as a part of already running transaction. */
     private <S extends ObjectType, Q extends QObject<R>, R extends MObject> S readByOid(
             @NotNull JdbcSession jdbcSession,
@@ -222,31 +330,12 @@ public class SqaleRepositoryService implements RepositoryService {
             @NotNull OperationResult parentResult)
             throws ObjectAlreadyExistsException, SchemaException {
 
-        Objects.requireNonNull(object, "Object must not be null.");
-        PolyString name = object.getName();
-        if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
-            throw new SchemaException("Attempt to add object without name.");
-        }
         Objects.requireNonNull(parentResult, "Operation result must not be null.");
 
         if (options == null) {
             options = new RepoAddOptions();
         }
-
-        //noinspection ConstantConditions
-        LOGGER.debug(
-                "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
-                object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
-                options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
-        if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
-            CryptoUtil.checkEncrypted(object);
-        }
-
-        if (InternalsConfig.consistencyChecks) {
-            object.checkConsistence(ConsistencyCheckScope.THOROUGH);
-        } else {
-            object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
-        }
+        checkObjectForAdd(object, options);
 
         OperationResult operationResult = parentResult.subresult(ADD_OBJECT)
                 .addQualifier(object.asObjectable().getClass().getSimpleName())
@@ -301,6 +390,200 @@ public class SqaleRepositoryService implements RepositoryService {
         }
     }
 
+    private <T extends ObjectType> void checkObjectForAdd(
+            @NotNull PrismObject<T> object, @NotNull RepoAddOptions options)
+            throws SchemaException {
+        Objects.requireNonNull(object, "Object must not be null.");
+        PolyString name = object.getName();
+        if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
+            throw new SchemaException("Attempt to add object without name.");
+        }
+
+        //noinspection ConstantConditions
+        LOGGER.debug(
+                "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
+                object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
+                options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
+        if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
+            CryptoUtil.checkEncrypted(object);
+        }
+
+        if (InternalsConfig.consistencyChecks) {
+            object.checkConsistence(ConsistencyCheckScope.THOROUGH);
+        } else {
+            object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
+        }
+    }
+
+    /**
+     * Adds objects in batches, each batch is inserted in a single transaction using JDBC batching.
+     * OIDs are generated upfront (if not provided) so that the full object can be inserted
+     * with the same statement, there is no need for additional update as in {@link #addObject}.
+     * If any insert from the batch fails the whole batch is rolled back and its objects
+     * are added one by one to find out which object caused the problem.
+     */
+    @Override
+    @NotNull
+    public <T extends ObjectType> List<String> addObjects(
+            @NotNull Collection<PrismObject<T>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+        if (RepoAddOptions.isOverwrite(options)) {
+            // overwrite is not a plain insert, we leave it to addObject
+            return RepositoryService.super.addObjects(objects, options, parentResult);
+        }
+        RepoAddOptions addOptions = options != null ? options : new RepoAddOptions();
+
+        OperationResult operationResult = parentResult.subresult(ADD_OBJECTS)
+                .addParam("count", objects.size())
+                .addParam("options", addOptions.toString())
+                .build();
+        try {
+            List<String> oids = new ArrayList<>(objects.size());
+            List<PrismObject<T>> batch = new ArrayList<>(ADD_OBJECTS_BATCH_SIZE);
+            for (PrismObject<T> object : objects) {
+                batch.add(object);
+                if (batch.size() >= ADD_OBJECTS_BATCH_SIZE) {
+                    oids.addAll(addObjectsBatch(batch, addOptions, operationResult));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                oids.addAll(addObjectsBatch(batch, addOptions, operationResult));
+            }
+            return oids;
+        } finally {
+            operationResult.computeStatusComposite();
+        }
+    }
+
+    private <T extends ObjectType> List<String> addObjectsBatch(
+            List<PrismObject<T>> objects, RepoAddOptions options, OperationResult result) {
+        List<PrismObject<T>> validObjects = new ArrayList<>(objects.size());
+        for (PrismObject<T> object : objects) {
+            if (object == null) {
+                // only this item fails, other objects are added normally
+                result.subresult(ADD_OBJECTS_OBJECT).build()
+                        .recordFatalError("Object must not be null.");
+                continue;
+            }
+            try {
+                checkObjectForAdd(object, options);
+                validObjects.add(object);
+            } catch (SchemaException | RuntimeException e) {
+                createAddObjectSubresult(object, result).recordFatalError(e);
+            }
+        }
+
+        List<String> originalOids = new ArrayList<>(validObjects.size());
+        List<String> originalVersions = new ArrayList<>(validObjects.size());
+        for (PrismObject<T> object : validObjects) {
+            originalOids.add(object.getOid());
+            originalVersions.add(object.getVersion());
+        }
+
+        // identity is important here, equals of prism objects compares the content
+        Map<PrismObject<T>, String> addedOids = new IdentityHashMap<>();
+        try {
+            addObjectsBatchAttempt(validObjects);
+            for (PrismObject<T> object : validObjects) {
+                addedOids.put(object, object.getOid());
+                createAddObjectSubresult(object, result).recordSuccess();
+            }
+        } catch (SchemaException | RuntimeException e) {
+            LOGGER.debug("Batch insert of {} objects failed, adding them one by one: {}",
+                    validObjects.size(), e.toString());
+            for (int i = 0; i < validObjects.size(); i++) {
+                PrismObject<T> object = validObjects.get(i);
+                // removing OIDs and versions set by the failed attempt
+                object.setOid(originalOids.get(i));
+                object.setVersion(originalVersions.get(i));
+                OperationResult objectResult = createAddObjectSubresult(object, result);
+                try {
+                    addedOids.put(object, addObject(object, options, objectResult));
+                } catch (ObjectAlreadyExistsException | SchemaException | RuntimeException e2) {
+                    objectResult.recordFatalError(e2);
+                } finally {
+                    objectResult.computeStatusIfUnknown();
+                }
+            }
+        }
+
+        List<String> oids = new ArrayList<>(objects.size());
+        for (PrismObject<T> object : objects) {
+            oids.add(addedOids.get(object));
+        }
+        return oids;
+    }
+
+    private OperationResult createAddObjectSubresult(PrismObject<?> object, OperationResult result) {
+        return result.subresult(ADD_OBJECTS_OBJECT)
+                .addQualifier(object.asObjectable().getClass().getSimpleName())
+                .addParam("oid", object.getOid())
+                .build();
+    }
+
+    private <T extends ObjectType> void addObjectsBatchAttempt(List<PrismObject<T>> objects)
+            throws SchemaException {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            try {
+                // one insert clause per table, rows are added as JDBC batches
+                Map<Class<?>, SQLInsertClause> inserts = new LinkedHashMap<>();
+                for (PrismObject<T> object : objects) {
+                    addToBatchInsert(object, inserts, jdbcSession);
+                }
+                for (SQLInsertClause insert : inserts.values()) {
+                    insert.execute();
+                }
+                // detail rows reference OIDs of the objects, so they must go after all the inserts
+                for (PrismObject<T> object : objects) {
+                    storeRelatedEntities(object, jdbcSession);
+                }
+            } catch (SchemaException | RuntimeException e) {
+                // closing the session commits, we don't want any part of the batch to stay
+                jdbcSession.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private <S extends ObjectType, Q extends QObject<R>, R extends MObject> void addToBatchInsert(
+            PrismObject<S> object, Map<Class<?>, SQLInsertClause> inserts, JdbcSession jdbcSession)
+            throws SchemaException {
+        SqaleModelMapping<S, Q, R> rootMapping =
+                sqlRepoContext.getMappingBySchemaType(object.getCompileTimeClass());
+        Q root = rootMapping.defaultAlias();
+
+        ObjectSqlTransformer<S, Q, R> transformer = (ObjectSqlTransformer<S, Q, R>)
+                rootMapping.createTransformer(transformerContext);
+
+        if (object.getOid() == null) {
+            object.setOid(UUID.randomUUID().toString());
+        }
+        if (object.getVersion() == null) {
+            object.setVersion("1");
+        }
+        R row = transformer.toRowObjectWithoutFullObject(object.asObjectable(), jdbcSession);
+        transformer.setFullObject(row, object.asObjectable());
+
+        inserts.computeIfAbsent(rootMapping.schemaType(), t -> jdbcSession.newInsert(root))
+                .populate(row)
+                .addBatch();
+    }
+
+    private <S extends ObjectType, Q extends QObject<R>, R extends MObject> void storeRelatedEntities(
+            PrismObject<S> object, JdbcSession jdbcSession) {
+        SqaleModelMapping<S, Q, R> rootMapping =
+                sqlRepoContext.getMappingBySchemaType(object.getCompileTimeClass());
+        ObjectSqlTransformer<S, Q, R> transformer = (ObjectSqlTransformer<S, Q, R>)
+                rootMapping.createTransformer(transformerContext);
+        transformer.storeRelatedEntities(object.asObjectable(), jdbcSession);
+    }
+
     private <S extends ObjectType, Q extends QObject<R>, R extends MObject> String addObjectAttempt(
             PrismObject<S> object, RepoAddOptions options, OperationResult result)
             throws SchemaException {
@@ -330,6 +613,8 @@ public class SqaleRepositoryService implements RepositoryService {
                     .where(root.oid.eq(oid))
                     .execute();
 
+            transformer.storeRelatedEntities(object.asObjectable(), jdbcSession);
+
             return oidString;
         }
     }
@@ -482,6 +767,11 @@ public class SqaleRepositoryService implements RepositoryService {
         update.set(root.fullObject, transformer.createFullObject(prismObject.asObjectable()));
         update.set(root.version, newVersion);
         update.execute();
+
+        if (narrowedModifications.stream().anyMatch(
+                m -> m.getPath().equivalent(ObjectType.F_PARENT_ORG_REF))) {
+            transformer.updateRelatedEntities(prismObject.asObjectable(), jdbcSession);
+        }
     }
 
     private void logTraceModifications(@NotNull Collection<? extends ItemDelta<?, ?>> modifications) {
@@ -515,8 +805,27 @@ public class SqaleRepositoryService implements RepositoryService {
     public <T extends ObjectType> int countObjects(Class<T> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
             throws SchemaException {
-        return 0;
-        // TODO
+        Objects.requireNonNull(type, "Object type must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        OperationResult operationResult = parentResult.subresult(COUNT_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type.getName())
+                .addParam("query", query)
+                .build();
+
+        try {
+            var queryContext = SqaleQueryContext.from(type, transformerContext, sqlRepoContext);
+            return sqlQueryExecutor.count(queryContext, query, options);
+        } catch (QueryException | RuntimeException e) {
+            handleGeneralException(e, operationResult);
+            throw new SystemException(e);
+        } catch (Throwable t) {
+            operationResult.recordFatalError(t);
+            throw t;
+        } finally {
+            operationResult.computeStatusIfUnknown();
+        }
     }
 
     @Override
@@ -592,8 +901,120 @@ public class SqaleRepositoryService implements RepositoryService {
             Class<T> type, ObjectQuery query, ResultHandler<T> handler,
             Collection<SelectorOptions<GetOperationOptions>> options, boolean strictlySequential,
             OperationResult parentResult) throws SchemaException {
-        return null;
-        // TODO
+        Objects.requireNonNull(type, "Object type must not be null.");
+        Objects.requireNonNull(handler, "Result handler must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        OperationResult operationResult = parentResult.subresult(SEARCH_OBJECTS_ITERATIVE)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type.getName())
+                .addParam("query", query)
+                .build();
+
+        try {
+            ObjectPaging paging = query != null ? query.getPaging() : null;
+            if (paging != null && (paging.hasOrdering() || paging.getOffset() != null)) {
+                // Custom ordering/offset can't be combined with paging by OID, we just obey it.
+                LOGGER.debug("Custom paging used for iterative search, all objects are fetched"
+                        + " at once, type={}, query={}", type, query);
+                SearchResultMetadata metadata = new SearchResultMetadata();
+                for (PrismObject<T> object : searchObjects(type, query, options, operationResult)) {
+                    if (!handler.handle(object, operationResult)) {
+                        metadata.setPartialResults(true);
+                        break;
+                    }
+                }
+                return metadata;
+            } else {
+                return searchObjectsIterativeByOidPaging(type, query, handler, options, operationResult);
+            }
+        } catch (QueryException | RuntimeException e) {
+            handleGeneralException(e, operationResult);
+            throw new SystemException(e);
+        } catch (Throwable t) {
+            operationResult.recordFatalError(t);
+            throw t;
+        } finally {
+            operationResult.computeStatusIfUnknown();
+        }
+    }
+
+    /**
+     * Iterates over all objects matching the query using keyset pagination (seek method).
+     * Objects are ordered by OID and each page is fetched with {@code oid > lastOid} condition
+     * in its own short read-only transaction - no OFFSET is used, so the cost of fetching
+     * a page does not grow with the number of already processed objects.
+     * Each row is transformed to the schema object right before it is sent to the handler,
+     * so only the current page of rows is held in memory.
+     * <p>
+     * This is also strictly sequential, objects are never repeated or skipped, although objects
+     * added during the iteration may or may not be processed depending on their OID.
+     * If the query paging contains a cookie, it is taken as the OID after which the iteration starts.
+     *
+     * @return metadata with the OID of the last handled object as the paging cookie (so the iteration
+     * can be continued after it) and partial results flag set if the handler stopped the iteration
+     */
+    private <S extends ObjectType, Q extends QObject<R>, R extends MObject>
+    SearchResultMetadata searchObjectsIterativeByOidPaging(
+            Class<S> type, ObjectQuery query, ResultHandler<S> handler,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            OperationResult operationResult)
+            throws SchemaException, QueryException {
+
+        ObjectFilter filter = query != null ? query.getFilter() : null;
+        Integer maxSize = query != null && query.getPaging() != null
+                ? query.getPaging().getMaxSize() : null;
+        int batchSize = sqlRepoContext.getJdbcRepositoryConfiguration()
+                .getIterativeSearchByPagingBatchSize();
+
+        // cookie from the paging means "continue after this OID"
+        String cookie = query != null && query.getPaging() != null ? query.getPaging().getCookie() : null;
+        UUID lastOid = cookie != null ? checkOid(cookie) : null;
+        SearchResultMetadata metadata = new SearchResultMetadata();
+        int handledObjects = 0;
+        while (true) {
+            int pageSize = maxSize != null
+                    ? Math.min(batchSize, maxSize - handledObjects)
+                    : batchSize;
+            if (pageSize <= 0) {
+                return metadata;
+            }
+
+            SqaleQueryContext<S, Q, R> queryContext =
+                    SqaleQueryContext.from(type, transformerContext, sqlRepoContext);
+            queryContext.process(filter);
+            queryContext.processOptions(options);
+            Q root = queryContext.root();
+            if (lastOid != null) {
+                queryContext.sqlQuery().where(root.oid.gt(lastOid));
+            }
+            queryContext.sqlQuery()
+                    .orderBy(root.oid.asc())
+                    .limit(pageSize);
+
+            PageOf<Tuple> page;
+            queryContext.beforeQuery();
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+                page = queryContext.executeQuery(jdbcSession.connection());
+            }
+
+            int pageRows = 0;
+            for (Tuple row : page) {
+                S object = queryContext.transformToSchemaType(row);
+                lastOid = UUID.fromString(object.getOid());
+                metadata.setPagingCookie(object.getOid());
+                pageRows++;
+                handledObjects++;
+                //noinspection unchecked
+                if (!handler.handle((PrismObject<S>) object.asPrismObject(), operationResult)) {
+                    metadata.setPartialResults(true);
+                    return metadata;
+                }
+            }
+            if (pageRows < pageSize) {
+                return metadata;
+            }
+        }
     }
 
     @Override
@@ -611,25 +1032,56 @@ public class SqaleRepositoryService implements RepositoryService {
         // TODO
     }
 
+    /**
+     * Uses org closure which is refreshed first if the org hierarchy was changed.
+     * Closure contains only orgs, so only orgs among the lower objects can be subordinate.
+     */
     @Override
-    public boolean isAnySubordinate(String upperOrgOid, Collection<String> lowerObjectOids)
-            throws SchemaException {
-        return false;
-        // TODO
+    public boolean isAnySubordinate(String upperOrgOid, Collection<String> lowerObjectOids) {
+        UUID upperOrgOidUuid = checkOid(upperOrgOid);
+        Objects.requireNonNull(lowerObjectOids, "lowerObjectOids must not be null.");
+
+        LOGGER.trace("Querying for subordination upper {}, lower {}", upperOrgOid, lowerObjectOids);
+        if (lowerObjectOids.isEmpty()) {
+            // trivial case
+            return false;
+        }
+
+        List<UUID> lowerObjectOidUuids = new ArrayList<>(lowerObjectOids.size());
+        for (String lowerObjectOid : lowerObjectOids) {
+            lowerObjectOidUuids.add(checkOid(lowerObjectOid));
+        }
+
+        sqlRepoContext.refreshOrgClosure(false);
+        QOrgClosure oc = new QOrgClosure("oc");
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+            return jdbcSession.newQuery()
+                    .select(oc.descendantOid)
+                    .from(oc)
+                    .where(oc.ancestorOid.eq(upperOrgOidUuid)
+                            .and(oc.descendantOid.in(lowerObjectOidUuids)))
+                    .fetchFirst() != null;
+        }
     }
 
     @Override
-    public <O extends ObjectType> boolean isDescendant(PrismObject<O> object, String orgOid)
-            throws SchemaException {
-        return false;
-        // TODO
+    public <O extends ObjectType> boolean isDescendant(PrismObject<O> object, String orgOid) {
+        List<ObjectReferenceType> objParentOrgRefs = object.asObjectable().getParentOrgRef();
+        List<String> objParentOrgOids = new ArrayList<>(objParentOrgRefs.size());
+        for (ObjectReferenceType objParentOrgRef : objParentOrgRefs) {
+            if (objParentOrgRef.getOid() != null) {
+                objParentOrgOids.add(objParentOrgRef.getOid());
+            }
+        }
+        return isAnySubordinate(orgOid, objParentOrgOids);
     }
 
     @Override
-    public <O extends ObjectType> boolean isAncestor(PrismObject<O> object, String oid)
-            throws SchemaException {
-        return false;
-        // TODO
+    public <O extends ObjectType> boolean isAncestor(PrismObject<O> object, String oid) {
+        if (object.getOid() == null) {
+            return false;
+        }
+        return isAnySubordinate(object.getOid(), Collections.singletonList(oid));
     }
 
     @Override
@@ -666,10 +1118,35 @@ public class SqaleRepositoryService implements RepositoryService {
         // TODO
     }
 
+    /**
+     * Compares the org closure with the closure computed from the current parent org references.
+     * Org closure is computed by the database, so it can be stale (not yet refreshed after a change)
+     * rather than inconsistent. If there are any differences and repair is requested, the closure
+     * is refreshed; otherwise they are only reported.
+     */
     @Override
     public void testOrgClosureConsistency(boolean repairIfNecessary, OperationResult testResult) {
-
-        // TODO
+        OperationResult operationResult =
+                testResult.createSubresult(OP_NAME_PREFIX + "testOrgClosureConsistency");
+        try {
+            long differences = sqlRepoContext.countOrgClosureDifferences();
+            operationResult.addReturn("differences", differences);
+            if (differences == 0) {
+                LOGGER.debug("Org closure is consistent with the org hierarchy.");
+                operationResult.recordSuccess();
+            } else if (repairIfNecessary) {
+                LOGGER.info("Org closure differs from the org hierarchy in {} rows, refreshing it.", differences);
+                sqlRepoContext.refreshOrgClosure(true);
+                operationResult.recordSuccess();
+            } else {
+                LOGGER.warn("Org closure differs from the org hierarchy in {} rows.", differences);
+                operationResult.recordWarning("Org closure differs from the org hierarchy in "
+                        + differences + " rows (it will be refreshed before it is used next time).");
+            }
+        } catch (RuntimeException e) {
+            operationResult.recordFatalError(e);
+            throw e;
+        }
     }
 
     @Override
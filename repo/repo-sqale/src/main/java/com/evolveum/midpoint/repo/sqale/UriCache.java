@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
@@ -78,9 +79,14 @@ public class UriCache {
     /**
      * Returns ID for URI creating new cache row in DB as needed.
      * Returns null for null URI parameter.
+     *
+     * New row is inserted in its own transaction (using a new session from the supplier)
+     * which is committed before the ID is cached.
+     * If the row was inserted in the transaction of the caller, the cache would contain an ID
+     * of non-existent row after the rollback of that transaction.
      */
     public synchronized @Nullable Integer processCachedUri(
-            @Nullable String uri, JdbcSession jdbcSession) {
+            @Nullable String uri, Supplier<JdbcSession> jdbcSessionSupplier) {
         if (uri == null) {
             return null;
         }
@@ -91,9 +97,12 @@ public class UriCache {
         }
 
         QUri qu = QUri.DEFAULT;
-        id = jdbcSession.newInsert(qu)
-                .set(qu.uri, uri)
-                .executeWithKey(qu.id);
+        try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startTransaction()) {
+            id = jdbcSession.newInsert(qu)
+                    .set(qu.uri, uri)
+                    .executeWithKey(qu.id);
+            jdbcSession.commit();
+        }
         updateMaps(MUri.of(id, uri));
 
         return id;
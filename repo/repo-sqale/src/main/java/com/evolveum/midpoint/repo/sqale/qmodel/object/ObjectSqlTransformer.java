@@ -9,9 +9,11 @@ package com.evolveum.midpoint.repo.sqale.qmodel.object;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.UUID;
 import javax.xml.namespace.QName;
 
 import com.querydsl.core.Tuple;
+import com.querydsl.sql.dml.SQLInsertClause;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismObject;
@@ -19,6 +21,8 @@ import com.evolveum.midpoint.prism.SerializationOptions;
 import com.evolveum.midpoint.repo.sqale.SqaleUtils;
 import com.evolveum.midpoint.repo.sqale.qmodel.SqaleTransformerBase;
 import com.evolveum.midpoint.repo.sqale.qmodel.common.QUri;
+import com.evolveum.midpoint.repo.sqale.qmodel.ref.MReference;
+import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReference;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
 import com.evolveum.midpoint.repo.sqlbase.SqlTransformerContext;
 import com.evolveum.midpoint.schema.GetOperationOptions;
@@ -53,7 +57,8 @@ public class ObjectSqlTransformer<S extends ObjectType, Q extends QObject<R>, R
         PrismObject<S> prismObject;
         String serializedForm = new String(row.get(entityPath.fullObject), StandardCharsets.UTF_8);
         try {
-            SqlTransformerContext.ParseResult<S> result = transformerContext.parsePrismObject(serializedForm);
+            SqlTransformerContext.ParseResult<S> result = transformerContext.parsePrismObject(
+                    serializedForm, SelectorOptions.getExcludedTopLevelItems(options));
             prismObject = result.prismObject;
             if (result.parsingContext.hasWarnings()) {
                 logger.warn("Object {} parsed with {} warnings",
@@ -123,6 +128,54 @@ public class ObjectSqlTransformer<S extends ObjectType, Q extends QObject<R>, R
         return row;
     }
 
+    /**
+     * Inserts rows of detail tables related to the object, currently only parentOrgRef values.
+     * The object row must be already inserted, because detail rows reference its OID.
+     * <p>
+     * *This must be called with active JDBC session* so it can create new {@link QUri} rows.
+     */
+    public void storeRelatedEntities(@NotNull S schemaObject, @NotNull JdbcSession jdbcSession) {
+        storeParentOrgRefs(schemaObject, jdbcSession);
+    }
+
+    /**
+     * Replaces rows of detail tables related to the object with its current state.
+     * This is simple, but not very efficient, so it's good to call it only if the related
+     * items were modified.
+     */
+    public void updateRelatedEntities(@NotNull S schemaObject, @NotNull JdbcSession jdbcSession) {
+        QReference ref = QReference.PARENT_ORG;
+        jdbcSession.newDelete(ref)
+                .where(ref.ownerOid.eq(oidToUUid(schemaObject.getOid())))
+                .execute();
+        storeRelatedEntities(schemaObject, jdbcSession);
+    }
+
+    private void storeParentOrgRefs(S schemaObject, JdbcSession jdbcSession) {
+        UUID ownerOid = oidToUUid(schemaObject.getOid());
+        QReference ref = QReference.PARENT_ORG;
+        SQLInsertClause insert = jdbcSession.newInsert(ref);
+        int rows = 0;
+        for (ObjectReferenceType parentOrgRef : schemaObject.getParentOrgRef()) {
+            if (parentOrgRef.getOid() == null) {
+                continue; // unresolved reference (e.g. with filter) has no place in the table
+            }
+            MReference row = new MReference();
+            row.ownerOid = ownerOid;
+            row.targetOid = oidToUUid(parentOrgRef.getOid());
+            row.targetType = parentOrgRef.getType() != null
+                    ? schemaTypeToCode(parentOrgRef.getType()) : null;
+            // null relation is normalized to the default one
+            row.relationId = processCachedUri(
+                    transformerContext.normalizeRelation(parentOrgRef.getRelation()), jdbcSession);
+            insert.populate(row).addBatch();
+            rows++;
+        }
+        if (rows > 0) {
+            insert.execute();
+        }
+    }
+
     /**
      * Serializes schema object and sets {@link R#fullObject}.
      */
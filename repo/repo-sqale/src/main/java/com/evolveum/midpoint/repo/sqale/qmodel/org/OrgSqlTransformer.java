@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.org;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.sqale.qmodel.role.AbstractRoleSqlTransformer;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.repo.sqlbase.SqlTransformerContext;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+
+public class OrgSqlTransformer
+        extends AbstractRoleSqlTransformer<OrgType, QOrg, MOrg> {
+
+    public OrgSqlTransformer(
+            SqlTransformerContext transformerContext, QOrgMapping mapping) {
+        super(transformerContext, mapping);
+    }
+
+    @Override
+    public @NotNull MOrg toRowObjectWithoutFullObject(
+            OrgType schemaObject, JdbcSession jdbcSession) {
+        MOrg row = super.toRowObjectWithoutFullObject(schemaObject, jdbcSession);
+
+        row.displayOrder = schemaObject.getDisplayOrder();
+        row.tenant = schemaObject.isTenant();
+
+        return row;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.org;
+
+import com.querydsl.sql.ColumnMetadata;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
+
+/**
+ * Querydsl query type for {@value #TABLE_NAME} materialized view.
+ * It contains all (ancestor, descendant) pairs of orgs, including the org itself as its
+ * own ancestor and descendant.
+ * The view must be refreshed before it is used, see {@link SqaleRepoContext#refreshOrgClosure(boolean)}.
+ * This entity is not registered to any schema type so it doesn't have related mapping class.
+ */
+public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
+
+    private static final long serialVersionUID = 4406075586720866032L;
+
+    public static final String TABLE_NAME = "m_org_closure";
+
+    public static final ColumnMetadata ANCESTOR_OID =
+            ColumnMetadata.named("ancestor_oid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata DESCENDANT_OID =
+            ColumnMetadata.named("descendant_oid").ofType(UuidPath.UUID_TYPE).notNull();
+
+    public final UuidPath ancestorOid = createUuid("ancestorOid", ANCESTOR_OID);
+    public final UuidPath descendantOid = createUuid("descendantOid", DESCENDANT_OID);
+
+    public QOrgClosure(String variable) {
+        this(variable, DEFAULT_SCHEMA_NAME, TABLE_NAME);
+    }
+
+    public QOrgClosure(String variable, String schema, String table) {
+        super(MOrgClosure.class, variable, schema, table);
+    }
+}
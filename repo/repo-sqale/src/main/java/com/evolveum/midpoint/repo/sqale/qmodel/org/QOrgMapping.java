@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.org;
+
+import static com.evolveum.midpoint.repo.sqlbase.mapping.item.SimpleItemFilterProcessor.booleanMapper;
+import static com.evolveum.midpoint.repo.sqlbase.mapping.item.SimpleItemFilterProcessor.integerMapper;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType.F_DISPLAY_ORDER;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType.F_TENANT;
+
+import com.evolveum.midpoint.repo.sqale.qmodel.role.QAbstractRoleMapping;
+import com.evolveum.midpoint.repo.sqlbase.SqlTransformerContext;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+
+/**
+ * Mapping between {@link QOrg} and {@link OrgType}.
+ */
+public class QOrgMapping
+        extends QAbstractRoleMapping<OrgType, QOrg, MOrg> {
+
+    public static final String DEFAULT_ALIAS_NAME = "org";
+
+    public static final QOrgMapping INSTANCE = new QOrgMapping();
+
+    private QOrgMapping() {
+        super(QOrg.TABLE_NAME, DEFAULT_ALIAS_NAME,
+                OrgType.class, QOrg.class);
+
+        addItemMapping(F_DISPLAY_ORDER, integerMapper(path(q -> q.displayOrder)));
+        addItemMapping(F_TENANT, booleanMapper(path(q -> q.tenant)));
+    }
+
+    @Override
+    protected QOrg newAliasInstance(String alias) {
+        return new QOrg(alias);
+    }
+
+    @Override
+    public OrgSqlTransformer createTransformer(SqlTransformerContext transformerContext) {
+        return new OrgSqlTransformer(transformerContext, this);
+    }
+
+    @Override
+    public MOrg newRowObject() {
+        return new MOrg();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.ref;
+
+import java.util.UUID;
+
+/**
+ * Querydsl "row bean" type related to {@link QReference}.
+ */
+public class MReference {
+
+    public UUID ownerOid;
+    public UUID targetOid;
+    public Integer targetType;
+    public Integer relationId;
+
+    @Override
+    public String toString() {
+        return "MReference{" +
+                "ownerOid=" + ownerOid +
+                ", targetOid=" + targetOid +
+                ", targetType=" + targetType +
+                ", relationId=" + relationId +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.ref;
+
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.ForeignKey;
+import com.querydsl.sql.PrimaryKey;
+
+import com.evolveum.midpoint.repo.sqale.qmodel.common.QUri;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
+
+/**
+ * Querydsl query type for reference tables, each table stores values of one multi-value
+ * reference item of the owner object, e.g. {@value #PARENT_ORG_TABLE_NAME} for parentOrgRef.
+ * These entities are not registered to any schema type so they don't have related mapping class.
+ */
+public class QReference extends FlexibleRelationalPathBase<MReference> {
+
+    private static final long serialVersionUID = 2530812735281375186L;
+
+    public static final String PARENT_ORG_TABLE_NAME = "m_ref_object_parent_org";
+
+    public static final QReference PARENT_ORG = new QReference("pref", PARENT_ORG_TABLE_NAME);
+
+    public static final ColumnMetadata OWNER_OID =
+            ColumnMetadata.named("owner_oid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata TARGET_OID =
+            ColumnMetadata.named("targetOid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata TARGET_TYPE =
+            ColumnMetadata.named("targetType").ofType(Types.INTEGER);
+    public static final ColumnMetadata RELATION_ID =
+            ColumnMetadata.named("relation_id").ofType(Types.INTEGER).notNull();
+
+    public final UuidPath ownerOid = createUuid("ownerOid", OWNER_OID);
+    public final UuidPath targetOid = createUuid("targetOid", TARGET_OID);
+    public final NumberPath<Integer> targetType = createInteger("targetType", TARGET_TYPE);
+    public final NumberPath<Integer> relationId = createInteger("relationId", RELATION_ID);
+
+    public final PrimaryKey<MReference> pk = createPrimaryKey(ownerOid, relationId, targetOid);
+    public final ForeignKey<QUri> relationIdFk =
+            createForeignKey(relationId, QUri.ID.getName());
+
+    public QReference(String variable, String table) {
+        this(variable, DEFAULT_SCHEMA_NAME, table);
+    }
+
+    public QReference(String variable, String schema, String table) {
+        super(MReference.class, variable, schema, table);
+    }
+}
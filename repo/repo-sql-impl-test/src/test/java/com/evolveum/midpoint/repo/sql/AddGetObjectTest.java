@@ -33,6 +33,7 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.repo.api.RepoAddOptions;
+import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sql.data.common.RTask;
 import com.evolveum.midpoint.repo.sql.data.common.enums.ROperationResultStatus;
 import com.evolveum.midpoint.repo.sql.type.XMLGregorianCalendarType;
@@ -719,6 +720,43 @@ public class AddGetObjectTest extends BaseSQLRepoTest {
         assertNotNull(user.getAssignment().get(1).asPrismContainerValue().getId());
     }
 
+    /**
+     * Bulk add using the default implementation: the object with conflicting name fails, the others are added.
+     */
+    @Test
+    public void test310AddObjects() throws Exception {
+        OperationResult result = createOperationResult();
+
+        // GIVEN
+        repositoryService.addObject(new UserType(prismContext).name("t310-existing").asPrismObject(), null, result);
+        List<PrismObject<UserType>> users = Arrays.asList(
+                new UserType(prismContext).name("t310-a").asPrismObject(),
+                new UserType(prismContext).name("t310-existing").asPrismObject(),
+                new UserType(prismContext).name("t310-b").asPrismObject());
+
+        // WHEN
+        List<String> oids = repositoryService.addObjects(users, null, result);
+
+        // THEN
+        assertThat(oids).hasSize(3);
+        assertThat(oids.get(0)).isNotNull().isEqualTo(users.get(0).getOid());
+        assertThat(oids.get(1)).isNull();
+        assertThat(oids.get(2)).isNotNull().isEqualTo(users.get(2).getOid());
+        assertThat(repositoryService.getObject(UserType.class, oids.get(0), null, result).getName().getOrig())
+                .isEqualTo("t310-a");
+        assertThat(repositoryService.getObject(UserType.class, oids.get(2), null, result).getName().getOrig())
+                .isEqualTo("t310-b");
+
+        OperationResult addObjectsResult = result.getLastSubresult();
+        assertThat(addObjectsResult.getOperation()).isEqualTo(RepositoryService.ADD_OBJECTS);
+        List<OperationResult> objectResults = addObjectsResult.getSubresults();
+        assertThat(objectResults).hasSize(3);
+        assertThat(objectResults).allMatch(r -> r.getOperation().equals(RepositoryService.ADD_OBJECTS_OBJECT));
+        assertThat(objectResults.get(0).isSuccess()).isTrue();
+        assertThat(objectResults.get(1).isFatalError()).isTrue();
+        assertThat(objectResults.get(2).isSuccess()).isTrue();
+    }
+
     @Test
     public void test990AddResourceWithEmptyConnectorConfiguration() throws Exception {
         OperationResult result = createOperationResult();
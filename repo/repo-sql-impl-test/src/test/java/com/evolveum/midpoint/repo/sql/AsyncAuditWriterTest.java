@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sql;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.repo.sql.audit.AsyncAuditWriter;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+public class AsyncAuditWriterTest extends AbstractUnitTest {
+
+    @Test
+    public void test100WriteInBatchesAndFlush() {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AsyncAuditWriter writer = new AsyncAuditWriter(100, 10, 2, records -> batchSizes.add(records.size()));
+        try {
+            for (int i = 0; i < 50; i++) {
+                writer.submit(record("record " + i));
+            }
+            writer.flush();
+
+            display("Statistics: " + writer.getStatisticsDescription());
+            assertEquals(writer.getWritten(), 50L);
+            assertEquals(writer.getFailed(), 0L);
+            assertEquals(batchSizes.stream().mapToInt(Integer::intValue).sum(), 50);
+            assertTrue(batchSizes.stream().allMatch(size -> size <= 10), "Batch too large: " + batchSizes);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Records submitted after the flush started (here: the one that can't be written yet)
+     * must not prolong the flush.
+     */
+    @Test
+    public void test150FlushDoesNotWaitForLaterRecords() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncAuditWriter writer = new AsyncAuditWriter(10, 1, 2, records -> {
+            if (records.stream().anyMatch(r -> "slow".equals(r.getMessage()))) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        try {
+            long first = writer.submit(record("first"));
+            long slow = writer.submit(record("slow"));
+            assertEquals(slow, first + 1);
+
+            long start = System.currentTimeMillis();
+            assertTrue(writer.flush(first, 60_000), "Flush timed out");
+            long duration = System.currentTimeMillis() - start;
+            display("Flush took " + duration + " ms");
+            assertTrue(duration < 5000, "Flush waited for a later record: " + duration + " ms");
+
+            release.countDown();
+            writer.flush();
+            assertEquals(writer.getWritten(), 2L);
+        } finally {
+            release.countDown();
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Flush gives up after the timeout if the records can't be written.
+     */
+    @Test
+    public void test160FlushTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncAuditWriter writer = new AsyncAuditWriter(10, 1, 1, records -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            long sequence = writer.submit(record("stuck"));
+
+            assertFalse(writer.flush(sequence, 200), "Flush did not time out");
+
+            release.countDown();
+            assertTrue(writer.flush(), "Flush timed out");
+            assertEquals(writer.getWritten(), 1L);
+        } finally {
+            release.countDown();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void test200Backpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncAuditWriter writer = new AsyncAuditWriter(1, 1, 1, records -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            // one record is being written, one is queued, so at least one submission has to wait
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 3; i++) {
+                    writer.submit(record("record " + i));
+                }
+            });
+            submitter.start();
+            Thread.sleep(500);
+            release.countDown();
+            submitter.join(10_000);
+            writer.flush();
+
+            display("Statistics: " + writer.getStatisticsDescription());
+            assertEquals(writer.getWritten(), 3L);
+            assertTrue(writer.getBlockedSubmits() >= 1, "No submission was blocked");
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void test300FailingRecordDoesNotBlockOthers() {
+        AsyncAuditWriter writer = new AsyncAuditWriter(100, 10, 1, records -> {
+            if (records.stream().anyMatch(r -> "bad".equals(r.getMessage()))) {
+                throw new IllegalStateException("Bad record in batch");
+            }
+        });
+        try {
+            for (int i = 0; i < 5; i++) {
+                writer.submit(record(i == 2 ? "bad" : "record " + i));
+            }
+            writer.flush();
+
+            display("Statistics: " + writer.getStatisticsDescription());
+            assertEquals(writer.getWritten(), 4L);
+            assertEquals(writer.getFailed(), 1L);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * An error (not only a runtime exception) must neither kill the writer thread nor block the flush.
+     */
+    @Test
+    public void test310ErrorDoesNotBlockFlush() {
+        AsyncAuditWriter writer = new AsyncAuditWriter(100, 10, 1, records -> {
+            if (records.stream().anyMatch(r -> "error".equals(r.getMessage()))) {
+                throw new AssertionError("Simulated error");
+            }
+        });
+        try {
+            writer.submit(record("error"));
+            assertTrue(writer.flush(), "Flush timed out after an error");
+
+            writer.submit(record("after error"));
+            assertTrue(writer.flush(), "Flush timed out, the writer thread is probably dead");
+
+            display("Statistics: " + writer.getStatisticsDescription());
+            assertEquals(writer.getWritten(), 1L);
+            assertEquals(writer.getFailed(), 1L);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void test400SubmitAfterShutdown() {
+        List<AuditEventRecord> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncAuditWriter writer = new AsyncAuditWriter(10, 10, 1, written::addAll);
+        writer.submit(record("before"));
+        writer.shutdown();
+
+        writer.submit(record("after"));
+
+        assertEquals(written.size(), 2);
+        assertEquals(writer.getWritten(), 2L);
+    }
+
+    private AuditEventRecord record(String message) {
+        AuditEventRecord record = new AuditEventRecord();
+        record.setMessage(message);
+        return record;
+    }
+}
@@ -1285,6 +1285,37 @@ public class AuditSearchTest extends BaseSQLRepoTest {
         assertThat(result.get(0).getParameter()).isEqualTo("2");
     }
 
+    @Test
+    public void test860SearchAfterRecordByRepoId() throws SchemaException {
+        given("first record ordered by timestamp and repo ID");
+        SearchResultList<AuditEventRecordType> first = searchObjects(prismContext
+                .queryFor(AuditEventRecordType.class)
+                .asc(AuditEventRecordType.F_TIMESTAMP)
+                .asc(AuditEventRecordType.F_REPO_ID)
+                .maxSize(1)
+                .build());
+        assertThat(first).hasSize(1);
+        AuditEventRecordType last = first.get(0);
+        assertThat(last.getRepoId()).isNotNull();
+
+        when("searching audit for the records after it (keyset paging)");
+        SearchResultList<AuditEventRecordType> result = searchObjects(prismContext
+                .queryFor(AuditEventRecordType.class)
+                .item(AuditEventRecordType.F_TIMESTAMP).gt(last.getTimestamp())
+                .or()
+                .block()
+                    .item(AuditEventRecordType.F_TIMESTAMP).eq(last.getTimestamp())
+                    .and().item(AuditEventRecordType.F_REPO_ID).gt(last.getRepoId())
+                .endBlock()
+                .asc(AuditEventRecordType.F_TIMESTAMP)
+                .asc(AuditEventRecordType.F_REPO_ID)
+                .build());
+
+        then("the remaining records are returned");
+        assertThat(result).extracting(aer -> aer.getParameter())
+                .containsExactly("2", "3");
+    }
+
     @Test
     public void test900CountWithAllFilter() throws SchemaException {
         when("counting audit objects using ALL filter");
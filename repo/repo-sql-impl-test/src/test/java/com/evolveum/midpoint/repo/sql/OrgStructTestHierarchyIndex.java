@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.sql;
+
+import org.testng.annotations.AfterClass;
+
+/**
+ * Runs {@link OrgStructTest} with subordination queries answered by the in-memory org hierarchy index.
+ */
+public class OrgStructTestHierarchyIndex extends OrgStructTest {
+
+    @Override
+    public void initSystem() throws Exception {
+        super.initSystem();
+        baseHelper.getConfiguration().setUseOrgHierarchyIndex(true);
+    }
+
+    @AfterClass
+    public void resetHierarchyIndex() {
+        baseHelper.getConfiguration().setUseOrgHierarchyIndex(false);
+    }
+}
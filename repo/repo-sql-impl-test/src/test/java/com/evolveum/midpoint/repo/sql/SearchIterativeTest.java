@@ -19,15 +19,19 @@ import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.IterationMethodType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
@@ -200,6 +204,41 @@ public class SearchIterativeTest extends BaseSQLRepoTest {
         assertObjects(objects, COUNT);
     }
 
+    /**
+     * Paging cookie in strictly sequential iterative search means "objects after this OID",
+     * so an interrupted search can be continued.
+     */
+    @Test
+    public void test106StrictlySequentialIterationContinuedAfterCookie() throws Exception {
+        OperationResult result = new OperationResult("test106StrictlySequentialIterationContinuedAfterCookie");
+
+        final List<PrismObject<UserType>> objects = new ArrayList<>();
+
+        ResultHandler<UserType> handler = (object, parentResult) -> {
+            objects.add(object);
+            return true;
+        };
+
+        SearchOpAsserter asserter = new SearchOpAsserter();
+
+        ObjectPaging paging = prismContext.queryFactory().createPaging(null, 70);
+        paging.setCookie("user-" + (BASE + 99) + "-00");
+        ObjectQuery query = prismContext.queryFactory().createQuery(paging);
+        repositoryService.searchObjectsIterative(UserType.class, query, handler,
+                SelectorOptions.createCollection(
+                        GetOperationOptions.createIterationMethod(IterationMethodType.STRICTLY_SEQUENTIAL_PAGING)),
+                true, result);
+        result.recomputeStatus();
+
+        asserter.assertIncrement(2); // assuming 50 + 20
+
+        assertTrue(result.isSuccess());
+        boolean[] numbers = assertObjects(objects, 70);
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals("Wrong presence of user number " + i, i >= 100 && i < 170, numbers[i]);
+        }
+    }
+
     private boolean[] assertObjects(List<PrismObject<UserType>> objects, Integer count) {
         if (count != null) {
             assertEquals("Wrong # of objects", count.intValue(), objects.size());
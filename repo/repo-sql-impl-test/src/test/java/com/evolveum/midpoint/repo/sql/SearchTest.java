@@ -1215,6 +1215,22 @@ public class SearchTest extends BaseSQLRepoTest {
         assertEquals("Wrong # of objects found", users, objects.size());
     }
 
+    @Test
+    public void test960GetObjects() throws Exception {
+        OperationResult result = new OperationResult("getObjects");
+        String nonExistingOid = "b6e1f5c0-4a3d-4e35-9c1b-e7e0c1a2f3d4";
+        List<String> oids = Arrays.asList(x00002Oid, nonExistingOid, beforeConfigOid, x00002Oid);
+
+        SearchResultList<PrismObject<UserType>> users = repositoryService.getObjects(UserType.class, oids, null, result);
+        result.recomputeStatus();
+
+        assertTrue(result.isSuccess());
+        assertEquals("Wrong # of objects found", 2, users.size());
+        assertEquals("Wrong first user", x00002Oid, users.get(0).getOid());
+        assertEquals("Wrong second user", beforeConfigOid, users.get(1).getOid());
+        assertEquals("Wrong user name", "before-config", users.get(1).getName().getOrig());
+    }
+
     // MID-4575
     @Test
     public void test950SearchPasswordCreateTimestamp() throws Exception {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.sql.closure;
+
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Measures the closure maintained by {@link com.evolveum.midpoint.repo.sql.helpers.OrgClosureManager}
+ * on the same hierarchy and operations as the "ORG HIERARCHY benchmark" for the new repository
+ * (closure as a materialized view, see repo-sqale/sql/pgnew-experiments.sql), so the results can be compared:
+ * loading of the hierarchy, isAnySubordinate, subtree search and moving of a subtree.
+ *
+ * The hierarchy is a tree with fan-out 10: root, 10 + 100 + 1000 orgs below it and 10 users in each leaf org.
+ */
+@ContextConfiguration(locations = { "../../../../../../ctx-test.xml" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class OrgClosurePerformanceTest3 extends AbstractOrgClosureTest {
+
+    private static final int[] ORG_CHILDREN_IN_LEVEL = { 1, 10, 10, 10, 0 };
+    private static final int[] USER_CHILDREN_IN_LEVEL = { 0, 0, 0, 0, 10 };
+
+    private static final int QUERY_ITERATIONS = 1000;
+
+    private final OrgClosureTestConfiguration configuration;
+
+    public OrgClosurePerformanceTest3() {
+        configuration = new OrgClosureTestConfiguration();
+        configuration.setCheckChildrenSets(false);
+        configuration.setCheckClosureMatrix(false);
+        configuration.setOrgChildrenInLevel(ORG_CHILDREN_IN_LEVEL);
+        configuration.setUserChildrenInLevel(USER_CHILDREN_IN_LEVEL);
+        configuration.setParentsInLevel(null);
+    }
+
+    @Test
+    public void test100LoadOrgStructure() throws Exception {
+        _test100LoadOrgStructure();
+    }
+
+    @Test
+    public void test200IsAnySubordinate() throws Exception {
+        String upperOid = orgsByLevels.get(1).get(0);
+        List<String> leafOids = orgsByLevels.get(3);
+
+        long start = System.nanoTime();
+        int subordinates = 0;
+        for (int i = 0; i < QUERY_ITERATIONS; i++) {
+            String leafOid = leafOids.get(i % leafOids.size());
+            if (repositoryService.isAnySubordinate(upperOid, Collections.singletonList(leafOid))) {
+                subordinates++;
+            }
+        }
+        long duration = System.nanoTime() - start;
+        System.out.printf("isAnySubordinate: %.2f ms/op (%d of %d subordinate)%n",
+                duration / 1e6 / QUERY_ITERATIONS, subordinates, QUERY_ITERATIONS);
+        assertTrue("No subordinate found", subordinates > 0);
+    }
+
+    @Test
+    public void test210CountUsersInSubtree() throws Exception {
+        OperationResult result = createOperationResult();
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .isChildOf(orgsByLevels.get(1).get(0))
+                .build();
+
+        long start = System.currentTimeMillis();
+        int count = repositoryService.countObjects(UserType.class, query, null, result);
+        System.out.println("Users in subtree: " + count + ", counted in " + (System.currentTimeMillis() - start) + " ms");
+        assertTrue("No users in subtree", count > 0);
+    }
+
+    @Test
+    public void test300MoveSubtree() throws Exception {
+        OperationResult result = createOperationResult();
+        String movedOid = orgsByLevels.get(2).get(0);
+        String newParentOid = orgsByLevels.get(1).get(orgsByLevels.get(1).size() - 1);
+        Collection<? extends ItemDelta<?, ?>> modifications = prismContext.deltaFor(OrgType.class)
+                .item(OrgType.F_PARENT_ORG_REF).replace(new ObjectReferenceType().oid(newParentOid).type(OrgType.COMPLEX_TYPE))
+                .asItemDeltas();
+
+        long start = System.currentTimeMillis();
+        repositoryService.modifyObject(OrgType.class, movedOid, modifications, result);
+        System.out.println("Subtree moved in " + (System.currentTimeMillis() - start) + " ms" + getNetDurationMessage());
+
+        assertTrue("Moved org is not under the new parent",
+                repositoryService.isAnySubordinate(newParentOid, Collections.singletonList(movedOid)));
+    }
+
+    @Override
+    public OrgClosureTestConfiguration getConfiguration() {
+        return configuration;
+    }
+}
@@ -53,6 +53,19 @@ public class SqlAuditServiceFactory implements AuditServiceFactory {
     private static final String CONF_AUDIT_SERVICE_COLUMN_NAME = "columnName";
     private static final String CONF_AUDIT_SERVICE_EVENT_RECORD_PROPERTY_NAME = "eventRecordPropertyName";
 
+    /** Either {@value #WRITE_MODE_SYNCHRONOUS} (default) or {@value #WRITE_MODE_ASYNCHRONOUS}. */
+    private static final String CONF_AUDIT_SERVICE_WRITE_MODE = "writeMode";
+    private static final String CONF_AUDIT_SERVICE_ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    private static final String CONF_AUDIT_SERVICE_ASYNC_BATCH_SIZE = "asyncBatchSize";
+    private static final String CONF_AUDIT_SERVICE_ASYNC_THREADS = "asyncThreads";
+
+    private static final String WRITE_MODE_SYNCHRONOUS = "synchronous";
+    private static final String WRITE_MODE_ASYNCHRONOUS = "asynchronous";
+
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 10_000;
+    private static final int DEFAULT_ASYNC_BATCH_SIZE = 100;
+    private static final int DEFAULT_ASYNC_THREADS = 2;
+
     private final BaseHelper defaultBaseHelper;
     private final SchemaHelper schemaService;
 
@@ -73,6 +86,7 @@ public class SqlAuditServiceFactory implements AuditServiceFactory {
             // base helper is only used for logging/exception handling, so the default one is OK
             auditService = new SqlAuditServiceImpl(defaultBaseHelper, sqlRepoContext, schemaService);
             initCustomColumns(configuration, sqlRepoContext);
+            initWriteMode(configuration);
         } catch (RepositoryServiceFactoryException ex) {
             throw new AuditServiceFactoryException(ex.getMessage(), ex);
         }
@@ -154,6 +168,19 @@ public class SqlAuditServiceFactory implements AuditServiceFactory {
         }
     }
 
+    private void initWriteMode(@NotNull Configuration configuration) {
+        String writeMode = configuration.getString(CONF_AUDIT_SERVICE_WRITE_MODE, WRITE_MODE_SYNCHRONOUS);
+        if (WRITE_MODE_ASYNCHRONOUS.equalsIgnoreCase(writeMode)) {
+            auditService.startAsynchronousWrites(
+                    configuration.getInt(CONF_AUDIT_SERVICE_ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE),
+                    configuration.getInt(CONF_AUDIT_SERVICE_ASYNC_BATCH_SIZE, DEFAULT_ASYNC_BATCH_SIZE),
+                    configuration.getInt(CONF_AUDIT_SERVICE_ASYNC_THREADS, DEFAULT_ASYNC_THREADS));
+        } else if (!WRITE_MODE_SYNCHRONOUS.equalsIgnoreCase(writeMode)) {
+            throw new SystemException("Unsupported audit write mode '" + writeMode + "', supported are '"
+                    + WRITE_MODE_SYNCHRONOUS + "' and '" + WRITE_MODE_ASYNCHRONOUS + "'");
+        }
+    }
+
     private String getStringFromConfig(Configuration config, String key) {
         String value = config.getString(key);
         if (Strings.isNullOrEmpty(value)) {
@@ -17,6 +17,7 @@ import java.util.Map.Entry;
 import java.util.function.BiFunction;
 import javax.xml.datatype.Duration;
 
+import com.querydsl.core.types.Path;
 import com.querydsl.sql.ColumnMetadata;
 import com.querydsl.sql.SQLQuery;
 import com.querydsl.sql.dml.DefaultMapper;
@@ -36,6 +37,7 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.util.CloneUtil;
+import com.evolveum.midpoint.repo.sql.audit.AsyncAuditWriter;
 import com.evolveum.midpoint.repo.sql.audit.AuditSqlQueryContext;
 import com.evolveum.midpoint.repo.sql.audit.beans.MAuditDelta;
 import com.evolveum.midpoint.repo.sql.audit.beans.MAuditEventRecord;
@@ -106,6 +108,9 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
 
     private volatile SystemConfigurationAuditType auditConfiguration;
 
+    /** If not null, records are written asynchronously, see {@link #startAsynchronousWrites}. */
+    private volatile AsyncAuditWriter asyncWriter;
+
     public SqlAuditServiceImpl(
             BaseHelper baseHelper,
             SqlRepoContext sqlRepoContext,
@@ -126,19 +131,53 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
         return (SqlRepositoryConfiguration) sqlRepoContext.getJdbcRepositoryConfiguration();
     }
 
+    /**
+     * Switches to asynchronous writing of audit records.
+     * Records are queued and written in batches by background threads, see {@link AsyncAuditWriter}.
+     * Pending records are written before audit is searched or cleaned up, when {@link #flush()}
+     * is called (e.g. when a task finishes) and on {@link #destroy()}.
+     */
+    public synchronized void startAsynchronousWrites(int queueSize, int batchSize, int threads) {
+        if (asyncWriter == null) {
+            asyncWriter = new AsyncAuditWriter(
+                    queueSize, batchSize, threads, this::auditBatch, getPerformanceMonitor());
+        }
+    }
+
+    public AsyncAuditWriter getAsyncWriter() {
+        return asyncWriter;
+    }
+
     @Override
     public void audit(AuditEventRecord record, Task task) {
         Objects.requireNonNull(record, "Audit event record must not be null.");
         Objects.requireNonNull(task, "Task must not be null.");
 
-        final String operation = "audit";
+        AsyncAuditWriter writer = asyncWriter;
+        if (writer != null) {
+            // The caller can modify the record (e.g. its deltas) after we return.
+            writer.submit(record.clone());
+            return;
+        }
+
+        executeWithRetries("audit", () -> auditAttempt(Collections.singletonList(record)));
+    }
+
+    /**
+     * Writes multiple records in a single transaction.
+     */
+    private void auditBatch(List<AuditEventRecord> records) {
+        executeWithRetries("auditBatch", () -> auditAttempt(records));
+    }
+
+    private void executeWithRetries(String operation, Runnable attemptCode) {
         SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
         long opHandle = pm.registerOperationStart(operation, AuditEventRecord.class);
         int attempt = 1;
 
         while (true) {
             try {
-                auditAttempt(record);
+                attemptCode.run();
                 return;
             } catch (RuntimeException ex) {
                 attempt = baseHelper.logOperationAttempt(null, operation, attempt, ex, null);
@@ -149,54 +188,129 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
         }
     }
 
-    private void auditAttempt(AuditEventRecord record) {
+    /**
+     * Writes the records in a single transaction. Each table is written using one JDBC batch for all
+     * the records (the main audit table only on PostgreSQL, where the generated IDs of a batch insert
+     * are reliably returned; elsewhere the main rows are inserted one by one).
+     */
+    private void auditAttempt(List<AuditEventRecord> records) {
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
             try {
-                long recordId = insertAuditEventRecord(jdbcSession, record);
-
-                Collection<MAuditDelta> deltas =
-                        insertAuditDeltas(jdbcSession, recordId, record.getDeltas());
-                insertChangedItemPaths(jdbcSession, recordId, deltas);
-
-                insertProperties(jdbcSession, recordId, record.getProperties());
-                insertReferences(jdbcSession, recordId, record.getReferences());
-                insertResourceOids(jdbcSession, recordId, record.getResourceOids());
+                List<Long> recordIds = insertAuditEventRecords(jdbcSession, records);
+
+                SQLInsertClause deltaBatch = jdbcSession.newInsert(QAuditDeltaMapping.INSTANCE.defaultAlias());
+                SQLInsertClause itemBatch = jdbcSession.newInsert(QAuditItemMapping.INSTANCE.defaultAlias());
+                SQLInsertClause propertyBatch = jdbcSession.newInsert(QAuditPropertyValueMapping.INSTANCE.defaultAlias());
+                SQLInsertClause referenceBatch = jdbcSession.newInsert(QAuditRefValueMapping.INSTANCE.defaultAlias());
+                SQLInsertClause resourceBatch = jdbcSession.newInsert(QAuditResourceMapping.INSTANCE.defaultAlias());
+                for (int i = 0; i < records.size(); i++) {
+                    AuditEventRecord record = records.get(i);
+                    long recordId = recordIds.get(i);
+
+                    Collection<MAuditDelta> deltas = addAuditDeltas(deltaBatch, recordId, record.getDeltas());
+                    addChangedItemPaths(itemBatch, recordId, deltas);
+
+                    addProperties(propertyBatch, recordId, record.getProperties());
+                    addReferences(referenceBatch, recordId, record.getReferences());
+                    addResourceOids(resourceBatch, recordId, record.getResourceOids());
+                }
+                executeBatch(deltaBatch);
+                executeBatch(itemBatch);
+                executeBatch(propertyBatch);
+                executeBatch(referenceBatch);
+                executeBatch(resourceBatch);
             } catch (RuntimeException ex) {
                 jdbcSession.handleGeneralException(ex, null);
             }
         }
     }
 
+    private void executeBatch(SQLInsertClause insertBatch) {
+        if (insertBatch.getBatchCount() > 0) {
+            insertBatch.setBatchToBulk(true);
+            insertBatch.execute();
+        }
+    }
+
+    @Override
+    public void flush() {
+        AsyncAuditWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (asyncWriter != null) {
+            asyncWriter.shutdown();
+            asyncWriter = null;
+        }
+        super.destroy();
+    }
+
     /**
-     * Inserts audit event record aggregate root without any subentities.
+     * Inserts audit event record aggregate roots without any subentities.
      *
-     * @return ID of created audit event record
+     * @return IDs of created audit event records, in the order of the records
      */
-    private Long insertAuditEventRecord(
-            JdbcSession jdbcSession, AuditEventRecord record) {
+    private List<Long> insertAuditEventRecords(
+            JdbcSession jdbcSession, List<AuditEventRecord> records) {
         QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.INSTANCE;
         QAuditEventRecord aer = aerMapping.defaultAlias();
-        MAuditEventRecord aerBean = aerMapping
-                .createTransformer(sqlTransformerContext)
-                .from(record);
-        SQLInsertClause insert = jdbcSession.newInsert(aer).populate(aerBean);
-
-        Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
-        for (Entry<String, String> property : record.getCustomColumnProperty().entrySet()) {
-            String propertyName = property.getKey();
-            if (!customColumns.containsKey(propertyName)) {
-                throw new IllegalArgumentException("Audit event record table doesn't"
-                        + " contains column for property " + propertyName);
+        boolean batch = records.size() > 1 && jdbcSession.databaseType() == SupportedDatabase.POSTGRESQL;
+
+        List<Long> recordIds = new ArrayList<>(records.size());
+        SQLInsertClause insert = jdbcSession.newInsert(aer);
+        for (AuditEventRecord record : records) {
+            MAuditEventRecord aerBean = aerMapping
+                    .createTransformer(sqlTransformerContext)
+                    .from(record);
+            // All rows of a JDBC batch must have the same columns, so NULLs are bound as well (except for the ID).
+            insert.populate(aerBean, (path, bean) -> {
+                Map<Path<?>, Object> values = DefaultMapper.WITH_NULL_BINDINGS.createMap(path, bean);
+                values.remove(aer.id);
+                return values;
+            });
+
+            Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
+            Map<String, String> customValues = record.getCustomColumnProperty();
+            for (String propertyName : customValues.keySet()) {
+                if (!customColumns.containsKey(propertyName)) {
+                    throw new IllegalArgumentException("Audit event record table doesn't"
+                            + " contains column for property " + propertyName);
+                }
+            }
+            for (String propertyName : customColumns.keySet()) {
+                // Like insert.set, but that one is too parameter-type-safe for our generic usage here.
+                insert.columns(aer.getPath(propertyName)).values(customValues.get(propertyName));
+            }
+
+            if (batch) {
+                insert.addBatch();
+            } else {
+                recordIds.add(insert.executeWithKey(aer.id));
+                insert = jdbcSession.newInsert(aer);
             }
-            // Like insert.set, but that one is too parameter-type-safe for our generic usage here.
-            insert.columns(aer.getPath(propertyName)).values(property.getValue());
         }
 
-        return insert.executeWithKey(aer.id);
+        if (batch) {
+            recordIds.addAll(insert.executeWithKeys(aer.id));
+            if (recordIds.size() != records.size()) {
+                throw new IllegalStateException("Expected " + records.size()
+                        + " generated audit record IDs, got " + recordIds.size());
+            }
+        }
+        return recordIds;
     }
 
-    private Collection<MAuditDelta> insertAuditDeltas(
-            JdbcSession jdbcSession, long recordId, Collection<ObjectDeltaOperation<?>> deltas) {
+    /**
+     * Adds audit deltas of one record to the batch.
+     *
+     * @return deltas added (unique ones only)
+     */
+    private Collection<MAuditDelta> addAuditDeltas(
+            SQLInsertClause insertBatch, long recordId, Collection<ObjectDeltaOperation<?>> deltas) {
         // we want to keep only unique deltas, checksum is also part of PK
         Map<String, MAuditDelta> deltasByChecksum = new HashMap<>();
         for (ObjectDeltaOperation<?> deltaOperation : deltas) {
@@ -208,15 +322,9 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
             deltasByChecksum.put(mAuditDelta.checksum, mAuditDelta);
         }
 
-        if (!deltasByChecksum.isEmpty()) {
-            SQLInsertClause insertBatch = jdbcSession.newInsert(
-                    QAuditDeltaMapping.INSTANCE.defaultAlias());
-            for (MAuditDelta value : deltasByChecksum.values()) {
-                // NULLs are important to keep the value count consistent during the batch
-                insertBatch.populate(value, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
-            }
-            insertBatch.setBatchToBulk(true);
-            insertBatch.execute();
+        for (MAuditDelta value : deltasByChecksum.values()) {
+            // NULLs are important to keep the value count consistent during the batch
+            insertBatch.populate(value, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
         }
         return deltasByChecksum.values();
     }
@@ -271,8 +379,8 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
         return mAuditDelta;
     }
 
-    private void insertChangedItemPaths(
-            JdbcSession jdbcSession, long recordId, Collection<MAuditDelta> deltas) {
+    private void addChangedItemPaths(
+            SQLInsertClause insertBatch, long recordId, Collection<MAuditDelta> deltas) {
         Set<String> changedItemPaths = new HashSet<>();
         for (MAuditDelta delta : deltas) {
             try {
@@ -298,27 +406,17 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
                         + " critical for storing the audit record.", recordId, e);
             }
         }
-        if (!changedItemPaths.isEmpty()) {
-            QAuditItem qAuditItem = QAuditItemMapping.INSTANCE.defaultAlias();
-            SQLInsertClause insertBatch = jdbcSession.newInsert(qAuditItem);
-            for (String changedItemPath : changedItemPaths) {
-                insertBatch.set(qAuditItem.recordId, recordId)
-                        .set(qAuditItem.changedItemPath, changedItemPath)
-                        .addBatch();
-            }
-            insertBatch.setBatchToBulk(true);
-            insertBatch.execute();
+        QAuditItem qAuditItem = QAuditItemMapping.INSTANCE.defaultAlias();
+        for (String changedItemPath : changedItemPaths) {
+            insertBatch.set(qAuditItem.recordId, recordId)
+                    .set(qAuditItem.changedItemPath, changedItemPath)
+                    .addBatch();
         }
     }
 
-    private void insertProperties(
-            JdbcSession jdbcSession, long recordId, Map<String, Set<String>> properties) {
-        if (properties.isEmpty()) {
-            return;
-        }
-
+    private void addProperties(
+            SQLInsertClause insertBatch, long recordId, Map<String, Set<String>> properties) {
         QAuditPropertyValue qAuditPropertyValue = QAuditPropertyValueMapping.INSTANCE.defaultAlias();
-        SQLInsertClause insertBatch = jdbcSession.newInsert(qAuditPropertyValue);
         for (String propertyName : properties.keySet()) {
             for (String propertyValue : properties.get(propertyName)) {
                 // id will be generated, but we're not interested in those here
@@ -328,22 +426,11 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
                         .addBatch();
             }
         }
-        if (insertBatch.getBatchCount() == 0) {
-            return; // strange, no values anywhere?
-        }
-
-        insertBatch.setBatchToBulk(true);
-        insertBatch.execute();
     }
 
-    private void insertReferences(JdbcSession jdbcSession,
+    private void addReferences(SQLInsertClause insertBatch,
             long recordId, Map<String, Set<AuditReferenceValue>> references) {
-        if (references.isEmpty()) {
-            return;
-        }
-
         QAuditRefValue qAuditRefValue = QAuditRefValueMapping.INSTANCE.defaultAlias();
-        SQLInsertClause insertBatch = jdbcSession.newInsert(qAuditRefValue);
         for (String refName : references.keySet()) {
             for (AuditReferenceValue refValue : references.get(refName)) {
                 // id will be generated, but we're not interested in those here
@@ -359,30 +446,16 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
                         .addBatch();
             }
         }
-        if (insertBatch.getBatchCount() == 0) {
-            return; // strange, no values anywhere?
-        }
-
-        insertBatch.setBatchToBulk(true);
-        insertBatch.execute();
     }
 
-    private void insertResourceOids(
-            JdbcSession jdbcSession, long recordId, Set<String> resourceOids) {
-        if (resourceOids.isEmpty()) {
-            return;
-        }
-
+    private void addResourceOids(
+            SQLInsertClause insertBatch, long recordId, Set<String> resourceOids) {
         QAuditResource qAuditResource = QAuditResourceMapping.INSTANCE.defaultAlias();
-        SQLInsertClause insertBatch = jdbcSession.newInsert(qAuditResource);
         for (String resourceOid : resourceOids) {
             insertBatch.set(qAuditResource.recordId, recordId)
                     .set(qAuditResource.resourceOid, resourceOid)
                     .addBatch();
         }
-
-        insertBatch.setBatchToBulk(true);
-        insertBatch.execute();
     }
 
     /** @deprecated use {@link #searchObjects(ObjectQuery, Collection, OperationResult)} instead */
@@ -390,6 +463,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
     @Deprecated
     public List<AuditEventRecord> listRecords(
             String query, Map<String, Object> params, OperationResult parentResult) {
+        flush();
         final String operation = "listRecords";
         SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
         long opHandle = pm.registerOperationStart(operation, AuditEventRecord.class);
@@ -768,6 +842,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
         Objects.requireNonNull(policy, "Cleanup policy must not be null.");
         Objects.requireNonNull(parentResult, "Operation result must not be null.");
 
+        flush();
         // TODO review monitoring performance of these cleanup operations
         // It looks like the attempts (and wasted time) are not counted correctly
         cleanupAuditMaxRecords(policy, parentResult);
@@ -1069,6 +1144,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
     }
 
     public long countObjects(String query, Map<String, Object> params) {
+        flush();
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
             try {
                 SupportedDatabase database = jdbcSession.databaseType();
@@ -1120,6 +1196,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
             @Nullable ObjectQuery query,
             @Nullable Collection<SelectorOptions<GetOperationOptions>> options,
             @NotNull OperationResult parentResult) {
+        flush();
         OperationResult operationResult = parentResult.subresult(OP_NAME_PREFIX + "countObjects")
                 .addParam("query", query)
                 .build();
@@ -1146,6 +1223,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
             @Nullable Collection<SelectorOptions<GetOperationOptions>> options,
             @NotNull OperationResult parentResult)
             throws SchemaException {
+        flush();
         OperationResult operationResult = parentResult.subresult(OP_NAME_PREFIX + "searchObjects")
                 .addParam("query", query)
                 .build();
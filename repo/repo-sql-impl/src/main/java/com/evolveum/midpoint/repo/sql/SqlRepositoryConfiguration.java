@@ -211,6 +211,7 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
     public static final String PROPERTY_IGNORE_ORG_CLOSURE = "ignoreOrgClosure";
     public static final String PROPERTY_ORG_CLOSURE_STARTUP_ACTION = "orgClosureStartupAction";
     public static final String PROPERTY_STOP_ON_ORG_CLOSURE_STARTUP_FAILURE = "stopOnOrgClosureStartupFailure";
+    public static final String PROPERTY_USE_ORG_HIERARCHY_INDEX = "useOrgHierarchyIndex";
 
     public static final String PROPERTY_SKIP_EXPLICIT_SCHEMA_VALIDATION = "skipExplicitSchemaValidation";
     public static final String PROPERTY_MISSING_SCHEMA_ACTION = "missingSchemaAction";
@@ -289,6 +290,7 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
     private final boolean ignoreOrgClosure;
     private final OrgClosureManager.StartupAction orgClosureStartupAction;
     private final boolean stopOnOrgClosureStartupFailure;
+    private boolean useOrgHierarchyIndex; // not final only because of testing
 
     private final boolean createMissingCustomColumns;
 
@@ -420,6 +422,7 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
                 configuration.getString(PROPERTY_ORG_CLOSURE_STARTUP_ACTION,
                         OrgClosureManager.StartupAction.REBUILD_IF_NEEDED.toString()));
         stopOnOrgClosureStartupFailure = configuration.getBoolean(PROPERTY_STOP_ON_ORG_CLOSURE_STARTUP_FAILURE, true);
+        useOrgHierarchyIndex = configuration.getBoolean(PROPERTY_USE_ORG_HIERARCHY_INDEX, false);
 
         skipExplicitSchemaValidation = configuration.getBoolean(PROPERTY_SKIP_EXPLICIT_SCHEMA_VALIDATION,
                 isAutoUpdate(hibernateHbm2ddl) || isValidate(hibernateHbm2ddl));
@@ -796,6 +799,7 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
         return iterativeSearchByPaging;
     }
 
+    @Override
     public int getIterativeSearchByPagingBatchSize() {
         return iterativeSearchByPagingBatchSize;
     }
@@ -873,6 +877,14 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
         return stopOnOrgClosureStartupFailure;
     }
 
+    /**
+     * If true, org subordination queries (isAnySubordinate and friends) are answered from an in-memory index
+     * instead of the closure table, see {@link com.evolveum.midpoint.repo.sql.helpers.OrgHierarchyIndex}.
+     */
+    public boolean isUseOrgHierarchyIndex() {
+        return useOrgHierarchyIndex;
+    }
+
     public boolean isCreateMissingCustomColumns() {
         return createMissingCustomColumns;
     }
@@ -951,4 +963,9 @@ public class SqlRepositoryConfiguration implements JdbcRepositoryConfiguration {
     public void setEnableIndexOnlyItems(boolean enableIndexOnlyItems) {
         this.enableIndexOnlyItems = enableIndexOnlyItems;
     }
+
+    // for testing only
+    public void setUseOrgHierarchyIndex(boolean useOrgHierarchyIndex) {
+        this.useOrgHierarchyIndex = useOrgHierarchyIndex;
+    }
 }
@@ -78,6 +78,12 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
 
     // just a safeguard (watchers per thread should be at most 1-2)
     private static final int MAX_CONFLICT_WATCHERS = 10;
+
+    /**
+     * Max number of OIDs in a single query executed by {@link #getObjects}.
+     * Kept well below the limits for the number of parameters in a statement (e.g. 2100 on SQL Server).
+     */
+    private static final int GET_OBJECTS_BATCH_SIZE = 500;
     public static final int MAX_CONSTRAINT_NAME_LENGTH = 40;
     private static final String IMPLEMENTATION_SHORT_NAME = "SQL";
     private static final String IMPLEMENTATION_DESCRIPTION =
@@ -99,6 +105,7 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
     @Autowired private ObjectRetriever objectRetriever;
     @Autowired private ObjectUpdater objectUpdater;
     @Autowired private OrgClosureManager closureManager;
+    @Autowired private OrgHierarchyIndex orgHierarchyIndex;
     @Autowired private SystemConfigurationChangeDispatcher systemConfigurationChangeDispatcher;
 
     private final ThreadLocal<List<ConflictWatcherImpl>> conflictWatchersThreadLocal =
@@ -175,6 +182,66 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
         return object;
     }
 
+    /**
+     * Objects are fetched using OID filter with the same code path as {@link #searchObjects},
+     * which means one query for each {@link #GET_OBJECTS_BATCH_SIZE} OIDs.
+     */
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(
+            @NotNull Class<T> type, @NotNull Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult result) throws SchemaException {
+        Validate.notNull(type, "Object type must not be null.");
+        Validate.notNull(oids, "OIDs must not be null.");
+        Validate.notNull(result, "Operation result must not be null.");
+
+        LOGGER.debug("Getting {} objects of type '{}': {}", oids.size(), type.getSimpleName(), result.getOperation());
+
+        OperationResult subResult = result.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .setMinor()
+                .addParam("type", type.getName())
+                .addParam("count", oids.size())
+                .build();
+
+        Set<String> uniqueOids = new LinkedHashSet<>();
+        for (String oid : oids) {
+            Validate.notEmpty(oid, "Oid must not be null or empty.");
+            uniqueOids.add(oid);
+            InternalMonitor.recordRepositoryRead(type, oid);
+        }
+
+        Map<String, PrismObject<T>> objectsByOid = new HashMap<>();
+        List<String> batch = new ArrayList<>(Math.min(uniqueOids.size(), GET_OBJECTS_BATCH_SIZE));
+        Iterator<String> iterator = uniqueOids.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == GET_OBJECTS_BATCH_SIZE || !iterator.hasNext()) {
+                ObjectQuery query = prismContext.queryFor(type)
+                        .id(batch.toArray(new String[0]))
+                        .build();
+                SearchResultList<PrismObject<T>> found = executeQueryAttempts(query, OP_GET_OBJECTS, type,
+                        "getting", subResult, () -> new SearchResultList<>(new ArrayList<>(0)),
+                        (q) -> objectRetriever.searchObjectsAttempt(type, q, options, subResult));
+                for (PrismObject<T> object : found) {
+                    objectsByOid.put(object.getOid(), object);
+                    invokeConflictWatchers((w) -> w.afterGetObject(object));
+                }
+                batch.clear();
+            }
+        }
+
+        SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+        for (String oid : uniqueOids) {
+            PrismObject<T> object = objectsByOid.get(oid);
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
     private <RV> RV executeAttempts(String oid, String operationName, Class<?> type, String operationVerb, OperationResult subResult,
             ResultSupplier<RV> supplier) throws ObjectNotFoundException, SchemaException {
         SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
@@ -946,6 +1013,9 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
         SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
         long opHandle = pm.registerOperationStart(OP_IS_ANY_SUBORDINATE, OrgType.class);
         try {
+            if (orgHierarchyIndex.isEnabled()) {
+                return orgHierarchyIndex.isAnySubordinate(upperOrgOid, lowerObjectOids);
+            }
             while (true) {
                 try {
                     return objectRetriever.isAnySubordinateAttempt(upperOrgOid, lowerObjectOids);
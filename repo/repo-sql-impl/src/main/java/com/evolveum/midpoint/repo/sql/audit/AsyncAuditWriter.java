@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sql.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Writes audit records asynchronously, in batches, using a small pool of writer threads.
+ * <p>
+ * Records are put into a bounded queue. If the queue is full, the caller waits until there
+ * is a free slot (backpressure), so the memory consumption is limited and no records are lost
+ * if the database is slower than the producers. The time spent waiting is counted, see
+ * {@link #getBlockedSubmits()} and {@link #getBlockedTime()}. Each wait is also registered
+ * as {@value #OP_SUBMIT_BLOCKED} operation in the performance monitor (if provided), so it shows up
+ * in the repository performance information of the waiting thread (e.g. in task statistics).
+ * <p>
+ * Each writer thread takes up to `batchSize` records from the queue and passes them to
+ * the batch writer (normally writing all of them in a single transaction). If the batch fails,
+ * records are written one by one, so a single bad record does not prevent others from being stored.
+ * Records that can't be written are logged and counted as failed; there is no way to report the
+ * failure to the original caller.
+ * <p>
+ * Each submitted record gets a sequence number. Use {@link #flush()} to wait until the records
+ * submitted before the call are written (or {@link #flush(long, long)} for records up to given number).
+ * Records submitted later do not prolong the wait, so flushing terminates even under continuous load.
+ * The wait is limited, so a stuck database connection does not block the caller forever.
+ * {@link #shutdown()} flushes the queue and stops the threads. Records submitted after the shutdown
+ * started are written synchronously.
+ */
+public class AsyncAuditWriter {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AsyncAuditWriter.class);
+
+    public static final String OP_SUBMIT_BLOCKED = "auditSubmitBlocked";
+
+    private static final long POLL_INTERVAL = 1000L;
+    private static final long FLUSH_TIMEOUT = 60_000L;
+    private static final long SHUTDOWN_TIMEOUT = 60_000L;
+
+    @NotNull private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    @NotNull private final Consumer<List<AuditEventRecord>> batchWriter;
+    @NotNull private final List<Thread> threads = new ArrayList<>();
+    @Nullable private final SqlPerformanceMonitorImpl performanceMonitor;
+
+    private volatile boolean stopping;
+
+    /** Sequence number of the last submitted record. It is also the number of records submitted. */
+    private final AtomicLong submitted = new AtomicLong();
+
+    /**
+     * All records up to this sequence number are processed (written or failed).
+     * Records are processed by multiple threads, so some of the later ones can be done sooner:
+     * these are kept in {@link #processedAhead}. Both are guarded by {@link #processedLock}.
+     */
+    private final Object processedLock = new Object();
+    private long processedUpTo;
+    private final TreeSet<Long> processedAhead = new TreeSet<>();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    public AsyncAuditWriter(int queueSize, int batchSize, int threadCount,
+            @NotNull Consumer<List<AuditEventRecord>> batchWriter) {
+        this(queueSize, batchSize, threadCount, batchWriter, null);
+    }
+
+    public AsyncAuditWriter(int queueSize, int batchSize, int threadCount,
+            @NotNull Consumer<List<AuditEventRecord>> batchWriter,
+            @Nullable SqlPerformanceMonitorImpl performanceMonitor) {
+        if (queueSize < 1 || batchSize < 1 || threadCount < 1) {
+            throw new IllegalArgumentException("Queue size, batch size and thread count must be positive;"
+                    + " got " + queueSize + ", " + batchSize + ", " + threadCount);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.batchWriter = batchWriter;
+        this.performanceMonitor = performanceMonitor;
+        for (int i = 1; i <= threadCount; i++) {
+            Thread thread = new Thread(this::processQueue, "audit-writer-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        LOGGER.info("Started asynchronous audit writer: queue size {}, batch size {}, {} thread(s)",
+                queueSize, batchSize, threadCount);
+    }
+
+    /**
+     * Queues the record for writing. Waits if the queue is full.
+     * The record must not be modified afterwards.
+     *
+     * @return sequence number of the record, see {@link #flush(long)}
+     */
+    public long submit(@NotNull AuditEventRecord record) {
+        Entry entry = new Entry(submitted.incrementAndGet(), record);
+        if (stopping) {
+            LOGGER.debug("Audit writer is stopping, writing the record synchronously: {}", record);
+            write(Collections.singletonList(entry));
+            return entry.sequence;
+        }
+
+        if (!queue.offer(entry) && !putBlocking(entry)) {
+            return entry.sequence; // written synchronously
+        }
+
+        // The shutdown could have started (and even drained the queue) after we checked the flag.
+        // Whoever removes the entry from the queue writes it: either a writer thread, the shutdown, or we.
+        if (stopping && queue.remove(entry)) {
+            LOGGER.debug("Audit writer is stopping, writing the record synchronously: {}", record);
+            write(Collections.singletonList(entry));
+        }
+        return entry.sequence;
+    }
+
+    /**
+     * Waits for a free slot in the queue.
+     *
+     * @return false if the waiting was interrupted; in that case the record was written synchronously
+     */
+    private boolean putBlocking(Entry entry) {
+        LOGGER.debug("Audit queue is full, waiting for a free slot");
+        blockedSubmits.incrementAndGet();
+        long opHandle = performanceMonitor != null
+                ? performanceMonitor.registerOperationStart(OP_SUBMIT_BLOCKED, AuditEventRecord.class)
+                : -1L;
+        long start = System.nanoTime();
+        try {
+            queue.put(entry);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.debug("Interrupted while waiting for a free slot in the audit queue, writing the record synchronously");
+            write(Collections.singletonList(entry));
+            return false;
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+            if (performanceMonitor != null) {
+                performanceMonitor.registerOperationFinish(opHandle, 1);
+            }
+        }
+    }
+
+    /**
+     * Waits until the records submitted before this call are written (or failed), at most {@value #FLUSH_TIMEOUT} ms.
+     *
+     * @return true if the records were processed, false if the wait timed out or was interrupted
+     */
+    public boolean flush() {
+        return flush(submitted.get(), FLUSH_TIMEOUT);
+    }
+
+    /**
+     * Waits until the records with sequence numbers up to (and including) given one are written (or failed),
+     * at most given time (in milliseconds).
+     *
+     * @return true if the records were processed, false if the wait timed out or was interrupted
+     */
+    public boolean flush(long sequence, long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (processedLock) {
+            while (processedUpTo < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    LOGGER.warn("Timed out after {} ms while waiting for the audit queue to be flushed up to {}"
+                            + " (processed up to {}): {}", timeout, sequence, processedUpTo, getStatisticsDescription());
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(processedLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.debug("Interrupted while waiting for the audit queue to be flushed up to {} (processed up to {})",
+                            sequence, processedUpTo);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the remaining records and stops the writer threads.
+     */
+    public void shutdown() {
+        stopping = true;
+        for (Thread thread : threads) {
+            try {
+                thread.join(SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Records submitted concurrently with the shutdown (or left by threads that didn't finish in time).
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            LOGGER.debug("Writing {} remaining audit records", remaining.size());
+            write(remaining);
+        }
+        LOGGER.info("Stopped asynchronous audit writer: {}", getStatisticsDescription());
+    }
+
+    private void processQueue() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Entry first;
+            try {
+                first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null; // we stop only after the queue is empty
+            }
+            if (first == null) {
+                if (stopping) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                write(batch);
+            } catch (Throwable t) {
+                // The records are already accounted for (see write), the thread must go on.
+                LOGGER.error("Unexpected error while writing {} audit record(s): {}", batch.size(), t.getMessage(), t);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the entries as a batch; if that fails, writes them one by one.
+     * The entries are always marked as processed, even if an error is thrown; records that were not
+     * written at that time are counted as failed. Otherwise a flush would wait for them in vain.
+     */
+    private void write(List<Entry> entries) {
+        int accounted = 0; // records counted as written or failed
+        try {
+            if (entries.size() > 1) {
+                if (tryWrite(entries)) {
+                    accounted = entries.size();
+                    return;
+                }
+            }
+            for (Entry entry : entries) {
+                tryWrite(Collections.singletonList(entry));
+                accounted++;
+            }
+        } finally {
+            failed.addAndGet(entries.size() - accounted);
+            markProcessed(entries);
+        }
+    }
+
+    /**
+     * Writes the entries in a single batch and updates the counters.
+     * Errors are propagated, without updating the counters.
+     *
+     * @return false if the batch couldn't be written because of a runtime exception
+     */
+    private boolean tryWrite(List<Entry> entries) {
+        List<AuditEventRecord> records = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            records.add(entry.record);
+        }
+        try {
+            batchWriter.accept(records);
+            batches.incrementAndGet();
+            written.addAndGet(records.size());
+            return true;
+        } catch (RuntimeException e) {
+            if (entries.size() == 1) {
+                failed.incrementAndGet();
+                LOGGER.error("Couldn't write audit record {}: {}", records.get(0), e.getMessage(), e);
+            } else {
+                LOGGER.warn("Couldn't write batch of {} audit records, writing them one by one: {}",
+                        records.size(), e.getMessage(), e);
+            }
+            return false;
+        }
+    }
+
+    private void markProcessed(List<Entry> entries) {
+        synchronized (processedLock) {
+            for (Entry entry : entries) {
+                processedAhead.add(entry.sequence);
+            }
+            while (!processedAhead.isEmpty() && processedAhead.first() == processedUpTo + 1) {
+                processedUpTo = processedAhead.pollFirst();
+            }
+            processedLock.notifyAll();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /** Number of submissions that had to wait for a free slot in the queue. */
+    public long getBlockedSubmits() {
+        return blockedSubmits.get();
+    }
+
+    /** Total time (in milliseconds) the submitters spent waiting for a free slot in the queue. */
+    public long getBlockedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get());
+    }
+
+    public String getStatisticsDescription() {
+        long batchCount = batches.get();
+        return "submitted: " + getSubmitted()
+                + ", written: " + getWritten()
+                + " in " + batchCount + " batch(es)"
+                + (batchCount > 0 ? String.format(" (avg %.1f records)", (double) getWritten() / batchCount) : "")
+                + ", failed: " + getFailed()
+                + ", queued: " + getQueueSize()
+                + ", blocked submits: " + getBlockedSubmits()
+                + " (" + getBlockedTime() + " ms)";
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncAuditWriter{" + getStatisticsDescription() + "}";
+    }
+
+    /** Record with its sequence number. */
+    private static class Entry {
+
+        private final long sequence;
+        @NotNull private final AuditEventRecord record;
+
+        private Entry(long sequence, @NotNull AuditEventRecord record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
+    }
+}
@@ -78,6 +78,7 @@ public class AuditEventRecordSqlTransformer
                 .taskIdentifier(row.taskIdentifier)
                 .taskOID(row.taskOid)
                 .timestamp(MiscUtil.asXMLGregorianCalendar(row.timestamp))
+                .repoId(row.id)
                 .initiatorRef(objectReferenceType(
                         row.initiatorOid,
                         repoObjectType(row.initiatorType, RObjectType.FOCUS),
@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.repo.sql.audit.mapping;
 
 import static com.evolveum.midpoint.repo.sql.audit.querymodel.QAuditEventRecord.TABLE_NAME;
+import static com.evolveum.midpoint.repo.sqlbase.mapping.item.SimpleItemFilterProcessor.longMapper;
 import static com.evolveum.midpoint.repo.sqlbase.mapping.item.SimpleItemFilterProcessor.stringMapper;
 import static com.evolveum.midpoint.xml.ns._public.common.audit_3.AuditEventRecordType.*;
 
@@ -57,6 +58,7 @@ public class QAuditEventRecordMapping
         addItemMapping(F_TASK_IDENTIFIER, stringMapper(path(q -> q.taskIdentifier)));
         addItemMapping(F_TASK_OID, stringMapper(path(q -> q.taskOid)));
         addItemMapping(F_TIMESTAMP, TimestampItemFilterProcessor.mapper(path(q -> q.timestamp)));
+        addItemMapping(F_REPO_ID, longMapper(path(q -> q.id)));
 
         addItemMapping(F_CHANGED_ITEM, DetailTableItemFilterProcessor.mapper(
                 QAuditItem.class,
@@ -501,7 +501,8 @@ public class ObjectRetriever {
         PrismObject<T> prismObject;
         try {
             // "Postel mode": be tolerant what you read. We need this to tolerate (custom) schema changes
-            ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode();
+            ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode()
+                    .itemsToSkip(SelectorOptions.getExcludedTopLevelItems(options));
             prismObject = prismContext.parserFor(serializedForm)
                     .context(parsingContext).parse();
             if (parsingContext.hasWarnings()) {
@@ -930,7 +931,9 @@ public class ObjectRetriever {
      * <p>
      * Constraints:
      * - There can be no ordering prescribed. We use our own ordering.
-     * - We also disallow any explicit paging - except for maxSize setting.
+     * - We also disallow any explicit paging - except for maxSize and cookie settings.
+     * The cookie is the OID of the last object already processed: the search continues after it
+     * (e.g. when a client resumes an interrupted streaming search).
      * <p>
      * Implementation is very simple - we fetch objects ordered by OID, and remember last OID fetched.
      * Obviously no object will be present in output more than once.
@@ -956,7 +959,8 @@ public class ObjectRetriever {
                 pagedQuery = prismContext.queryFactory().createQuery();
             }
 
-            String lastOid = null;
+            // Externally provided cookie means "continue after this OID", just like our own cookies below.
+            String lastOid = query != null && query.getPaging() != null ? query.getPaging().getCookie() : null;
             final int batchSize = getConfiguration().getIterativeSearchByPagingBatchSize();
 
             ObjectPaging paging = prismContext.queryFactory().createPaging();
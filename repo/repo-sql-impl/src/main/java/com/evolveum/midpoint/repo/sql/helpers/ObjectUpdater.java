@@ -71,6 +71,7 @@ public class ObjectUpdater {
     @Autowired private LookupTableHelper lookupTableHelper;
     @Autowired private CertificationCaseHelper caseHelper;
     @Autowired private OrgClosureManager closureManager;
+    @Autowired private OrgHierarchyIndex orgHierarchyIndex;
     @Autowired private ObjectDeltaUpdater objectDeltaUpdater;
     @Autowired private PrismContext prismContext;
     @Autowired private SchemaHelper schemaHelper;
@@ -116,6 +117,9 @@ public class ObjectUpdater {
                 oid = nonOverwriteAddObjectAttempt(object, rObject, originalOid, session, closureContext);
             }
             session.getTransaction().commit();
+            if (closureContext != null) {
+                orgHierarchyIndex.onOrgChanged(oid);
+            }
 
             LOGGER.trace("Saved object '{}' with oid '{}'", classSimpleName, oid);
 
@@ -327,6 +331,9 @@ public class ObjectUpdater {
             }
 
             session.getTransaction().commit();
+            if (closureContext != null) {
+                orgHierarchyIndex.onOrgChanged(oid);
+            }
             return new DeleteObjectResult(
                     RUtil.getSerializedFormFromBytes(object.getFullObject()));
         } catch (ObjectNotFoundException ex) {
@@ -488,6 +495,9 @@ public class ObjectUpdater {
             LOGGER.trace("Before commit...");
             session.getTransaction().commit();
             LOGGER.trace("Committed! (at attempt {})", attempt);
+            if (closureContext != null) {
+                orgHierarchyIndex.onOrgChanged(oid);
+            }
             return rv;
         } catch (ObjectNotFoundException | SchemaException ex) {
             baseHelper.rollbackTransaction(session, ex, result, true);
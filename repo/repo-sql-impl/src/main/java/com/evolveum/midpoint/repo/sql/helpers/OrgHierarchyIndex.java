@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sql.helpers;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.sql.SqlRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sql.data.common.other.RObjectType;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * In-memory index of the org hierarchy (orgs and their parentOrgRef edges) used to answer subordination
+ * queries ({@link #isAnySubordinate(String, Collection)}) without going to the closure table.
+ * These queries are very frequent, e.g. when evaluating org-scoped authorizations.
+ * <p>
+ * The index is loaded lazily on the first query. Org OIDs are mapped to ints; the graph keeps parents
+ * of each node as an int array, and (reflexive) ancestors of nodes are computed on demand and cached
+ * as sorted int arrays.
+ * <p>
+ * Changes are applied incrementally: when an org is added, deleted, or its parents are changed, the node
+ * is re-read from the database after the transaction is committed (see {@link ObjectUpdater}). The graph
+ * is immutable: an updated copy is created and published via a volatile field (copy-on-write), so queries
+ * need no locking and always see a consistent snapshot. Changes made on other nodes come as cache
+ * invalidation events for {@link OrgType}; these are distributed clusterwide when the index is enabled,
+ * see {@link #isClusterwideInvalidationRequired(Class)}. This makes the index eventually consistent:
+ * for a short time after an org move, the index can give answers for the previous hierarchy.
+ * <p>
+ * The closure table itself is still maintained (synchronously) as before, as it is needed
+ * for org filters in searches; these are not answered by the index.
+ * <p>
+ * Used only if {@link SqlRepositoryConfiguration#isUseOrgHierarchyIndex()} is set and the closure
+ * is not ignored.
+ */
+@Component
+public class OrgHierarchyIndex implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(OrgHierarchyIndex.class);
+
+    @Autowired private BaseHelper baseHelper;
+    @Autowired private PrismContext prismContext;
+    @Autowired(required = false) private CacheRegistry cacheRegistry;
+
+    /** Current state of the hierarchy; null if it was not loaded yet (or it was invalidated as a whole). */
+    private volatile Graph graph;
+
+    @PostConstruct
+    public void register() {
+        if (cacheRegistry != null) {
+            cacheRegistry.registerCache(this);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (cacheRegistry != null) {
+            cacheRegistry.unregisterCache(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        SqlRepositoryConfiguration configuration = baseHelper.getConfiguration();
+        return configuration.isUseOrgHierarchyIndex() && !configuration.isIgnoreOrgClosure();
+    }
+
+    /**
+     * Returns true if any of the lower objects is the upper org or its descendant.
+     * Only orgs are considered (as in the closure table).
+     */
+    public boolean isAnySubordinate(@NotNull String upperOrgOid, @NotNull Collection<String> lowerObjectOids) {
+        return getGraph().isAnySubordinate(upperOrgOid, lowerObjectOids);
+    }
+
+    /**
+     * Called after the transaction that added, deleted or changed parents of given org was committed.
+     * Never throws an exception: if the org can't be read, the whole index is cleared (and loaded again when needed).
+     */
+    public void onOrgChanged(@NotNull String oid) {
+        if (!isEnabled()) {
+            return;
+        }
+        // Updates are serialized, so that an older state of the node is not applied after a newer one.
+        synchronized (this) {
+            Graph current = graph;
+            if (current == null) {
+                return; // will be loaded with the change included
+            }
+            try {
+                graph = current.withNode(oid, loadNode(oid));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Couldn't update org hierarchy index for {}, clearing it: {}", oid, e.getMessage(), e);
+                graph = null;
+            }
+        }
+    }
+
+    private Graph getGraph() {
+        Graph current = graph;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (graph == null) {
+                graph = loadGraph();
+            }
+            return graph;
+        }
+    }
+
+    private Graph loadGraph() {
+        long start = System.currentTimeMillis();
+        Session session = null;
+        try {
+            session = baseHelper.beginReadOnlyTransaction();
+            Query<String> orgsQuery = session.createQuery("select o.oid from ROrg o", String.class);
+            List<String> orgs = orgsQuery.list();
+
+            Query<Object[]> edgesQuery = session.createQuery("select parentRef.ownerOid, parentRef.targetOid"
+                    + " from RObjectReference as parentRef join parentRef.owner as owner"
+                    + " where parentRef.referenceType=0 and owner.objectTypeClass = :orgType", Object[].class);
+            edgesQuery.setParameter("orgType", RObjectType.ORG);
+            List<Object[]> edges = edgesQuery.list();
+            session.getTransaction().commit();
+
+            Graph loaded = Graph.create(orgs, edges);
+            LOGGER.debug("Org hierarchy index loaded in {} ms: {} orgs, {} edges",
+                    System.currentTimeMillis() - start, orgs.size(), edges.size());
+            return loaded;
+        } catch (RuntimeException ex) {
+            baseHelper.handleGeneralException(ex, session, null);
+            throw new AssertionError("Shouldn't get here");
+        } finally {
+            baseHelper.cleanupSessionAndResult(session, null);
+        }
+    }
+
+    /**
+     * Returns parents of given org or null if the org does not exist (anymore).
+     */
+    private List<String> loadNode(String oid) {
+        Session session = null;
+        try {
+            session = baseHelper.beginReadOnlyTransaction();
+            Query<String> orgQuery = session.createQuery("select o.oid from ROrg o where o.oid = :oid", String.class);
+            orgQuery.setParameter("oid", oid);
+            List<String> parents;
+            if (orgQuery.list().isEmpty()) {
+                parents = null;
+            } else {
+                Query<String> parentsQuery = session.createQuery("select distinct targetOid from RObjectReference"
+                        + " where ownerOid = :oid and referenceType = 0", String.class);
+                parentsQuery.setParameter("oid", oid);
+                parents = parentsQuery.list();
+            }
+            session.getTransaction().commit();
+            return parents;
+        } catch (RuntimeException ex) {
+            baseHelper.handleGeneralException(ex, session, null);
+            throw new AssertionError("Shouldn't get here");
+        } finally {
+            baseHelper.cleanupSessionAndResult(session, null);
+        }
+    }
+
+    public synchronized void clear() {
+        graph = null;
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null || oid == null) {
+            if (type == null || type.isAssignableFrom(OrgType.class)) {
+                clear();
+            }
+        } else if (type.isAssignableFrom(OrgType.class) && context != null && context.isFromRemoteNode()) {
+            // Local changes are applied directly by ObjectUpdater, after the commit.
+            onOrgChanged(oid);
+        }
+    }
+
+    @Override
+    public boolean isClusterwideInvalidationRequired(@NotNull Class<?> type) {
+        return type.isAssignableFrom(OrgType.class) && isEnabled();
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        Graph current = graph;
+        return Collections.singleton(new SingleCacheStateInformationType(prismContext)
+                .name(OrgHierarchyIndex.class.getName())
+                .size(current != null ? current.getOrgCount() : 0));
+    }
+
+    @Override
+    public void dumpContent() {
+        Graph current = graph;
+        LOGGER.info("Org hierarchy index: {}", current != null
+                ? current.getOrgCount() + " orgs, " + current.ancestors.size() + " cached ancestor sets"
+                : "not loaded");
+    }
+
+    /**
+     * An immutable snapshot of the hierarchy. Changes create a new snapshot, see {@link #withNode(String, List)}.
+     * <p>
+     * Besides parents, the graph keeps children of each node, so that only the cached ancestor sets
+     * of the changed node and its descendants are dropped when the node changes.
+     */
+    private static final class Graph {
+
+        private static final int[] NO_IDS = new int[0];
+
+        /** Internal IDs of all known OIDs: orgs and targets of their parentOrgRefs (that may not exist). */
+        @NotNull private final Map<String, Integer> ids;
+
+        /** Parents of each node (by ID), possibly including non-existing ones. Can be longer than the number of IDs. */
+        @NotNull private final int[][] parents;
+
+        /** Children of each node (by ID); nodes without children are not present. */
+        @NotNull private final Map<Integer, Set<Integer>> children;
+
+        /** IDs that are existing orgs. */
+        @NotNull private final BitSet orgs;
+
+        /**
+         * Sorted IDs of existing ancestors of a given org, including the org itself. Filled in lazily;
+         * as the snapshot does not change, concurrent readers computing the same entry get the same value.
+         */
+        @NotNull private final Map<Integer, int[]> ancestors;
+
+        private Graph(@NotNull Map<String, Integer> ids, @NotNull int[][] parents,
+                @NotNull Map<Integer, Set<Integer>> children, @NotNull BitSet orgs, @NotNull Map<Integer, int[]> ancestors) {
+            this.ids = ids;
+            this.parents = parents;
+            this.children = children;
+            this.orgs = orgs;
+            this.ancestors = ancestors;
+        }
+
+        private static Graph create(List<String> orgOids, List<Object[]> edges) {
+            Map<String, Integer> ids = new HashMap<>();
+            BitSet orgs = new BitSet();
+            for (String oid : orgOids) {
+                orgs.set(intern(ids, oid));
+            }
+            Map<Integer, Set<Integer>> parentSets = new HashMap<>();
+            Map<Integer, Set<Integer>> children = new HashMap<>();
+            for (Object[] edge : edges) {
+                int child = intern(ids, (String) edge[0]);
+                int parent = intern(ids, (String) edge[1]);
+                parentSets.computeIfAbsent(child, k -> new HashSet<>()).add(parent);
+                children.computeIfAbsent(parent, k -> new HashSet<>()).add(child);
+            }
+            int[][] parents = new int[ids.size()][];
+            for (int id = 0; id < parents.length; id++) {
+                parents[id] = toArray(parentSets.get(id));
+            }
+            return new Graph(ids, parents, children, orgs, new ConcurrentHashMap<>());
+        }
+
+        private static int intern(Map<String, Integer> ids, String oid) {
+            return ids.computeIfAbsent(oid, k -> ids.size());
+        }
+
+        private static int[] toArray(Collection<Integer> values) {
+            return values != null && !values.isEmpty()
+                    ? values.stream().mapToInt(Integer::intValue).toArray()
+                    : NO_IDS;
+        }
+
+        /**
+         * Returns a copy of the graph with the node replaced. Maps and arrays are copied shallowly; only the sets
+         * of children that are changed are copied. Cached ancestors are kept, except for those of the node
+         * and its descendants.
+         *
+         * @param parentOids Parents of the org, or null if the org does not exist.
+         */
+        private Graph withNode(String oid, List<String> parentOids) {
+            Map<String, Integer> newIds = new HashMap<>(ids);
+            int id = intern(newIds, oid);
+            List<Integer> newParentIds = new ArrayList<>();
+            if (parentOids != null) {
+                for (String parentOid : parentOids) {
+                    newParentIds.add(intern(newIds, parentOid));
+                }
+            }
+            int[][] newParents = Arrays.copyOf(parents, Math.max(parents.length, newIds.size()));
+            Arrays.fill(newParents, parents.length, newParents.length, NO_IDS);
+
+            Map<Integer, Set<Integer>> newChildren = new HashMap<>(children);
+            for (int oldParent : newParents[id]) {
+                Set<Integer> siblings = newChildren.get(oldParent);
+                if (siblings != null) {
+                    Set<Integer> newSiblings = new HashSet<>(siblings);
+                    newSiblings.remove(id);
+                    if (newSiblings.isEmpty()) {
+                        newChildren.remove(oldParent);
+                    } else {
+                        newChildren.put(oldParent, newSiblings);
+                    }
+                }
+            }
+            for (int parent : newParentIds) {
+                Set<Integer> siblings = new HashSet<>(newChildren.getOrDefault(parent, Collections.emptySet()));
+                siblings.add(id);
+                newChildren.put(parent, siblings);
+            }
+            newParents[id] = toArray(new HashSet<>(newParentIds));
+
+            BitSet newOrgs = (BitSet) orgs.clone();
+            newOrgs.set(id, parentOids != null);
+
+            Map<Integer, int[]> newAncestors = new ConcurrentHashMap<>(ancestors);
+            dropAncestorsOfSubtree(id, newChildren, newAncestors);
+            return new Graph(newIds, newParents, newChildren, newOrgs, newAncestors);
+        }
+
+        /** Ancestors can change only for the node itself and its descendants. */
+        private static void dropAncestorsOfSubtree(int id, Map<Integer, Set<Integer>> children,
+                Map<Integer, int[]> ancestors) {
+            BitSet visited = new BitSet();
+            Deque<Integer> toVisit = new ArrayDeque<>();
+            toVisit.push(id);
+            visited.set(id);
+            while (!toVisit.isEmpty()) {
+                int current = toVisit.pop();
+                ancestors.remove(current);
+                for (int child : children.getOrDefault(current, Collections.emptySet())) {
+                    if (!visited.get(child)) {
+                        visited.set(child);
+                        toVisit.push(child);
+                    }
+                }
+            }
+        }
+
+        private boolean isAnySubordinate(String upperOrgOid, Collection<String> lowerObjectOids) {
+            Integer upper = ids.get(upperOrgOid);
+            if (upper == null || !orgs.get(upper)) {
+                return false;
+            }
+            for (String lowerOid : lowerObjectOids) {
+                Integer lower = ids.get(lowerOid);
+                if (lower != null && orgs.get(lower)
+                        && Arrays.binarySearch(getAncestors(lower), upper) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] getAncestors(int id) {
+            int[] cached = ancestors.get(id);
+            if (cached != null) {
+                return cached;
+            }
+            // Cycles are not possible (they are prevented when the closure is updated), but let's be careful anyway.
+            BitSet visited = new BitSet();
+            Deque<Integer> toVisit = new ArrayDeque<>();
+            toVisit.push(id);
+            visited.set(id);
+            while (!toVisit.isEmpty()) {
+                int current = toVisit.pop();
+                for (int parent : parents[current]) {
+                    if (orgs.get(parent) && !visited.get(parent)) {
+                        visited.set(parent);
+                        toVisit.push(parent);
+                    }
+                }
+            }
+            int[] computed = visited.stream().toArray(); // sorted
+            ancestors.put(id, computed);
+            return computed;
+        }
+
+        private int getOrgCount() {
+            return orgs.cardinality();
+        }
+    }
+}
@@ -33,6 +33,11 @@ public interface JdbcRepositoryConfiguration {
      */
     String PROPERTY_FULL_OBJECT_FORMAT = "fullObjectFormat";
 
+    /**
+     * Number of objects fetched in one page (and one short transaction) during iterative search.
+     */
+    String PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE = "iterativeSearchByPagingBatchSize";
+
     String PROPERTY_PERFORMANCE_STATISTICS_FILE = "performanceStatisticsFile";
     String PROPERTY_PERFORMANCE_STATISTICS_LEVEL = "performanceStatisticsLevel";
 
@@ -64,6 +69,12 @@ public interface JdbcRepositoryConfiguration {
     String getFullObjectFormat();
     String getDefaultEmbeddedJdbcUrlPrefix();
 
+    /**
+     * Returns page size used by iterative search.
+     * Also see {@link #PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE}.
+     */
+    int getIterativeSearchByPagingBatchSize();
+
     String getPerformanceStatisticsFile();
     int getPerformanceStatisticsLevel();
 
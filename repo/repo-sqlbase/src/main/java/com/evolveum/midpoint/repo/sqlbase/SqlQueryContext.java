@@ -28,6 +28,7 @@ import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectOrdering;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.OrgFilter;
 import com.evolveum.midpoint.repo.sqlbase.filtering.FilterProcessor;
 import com.evolveum.midpoint.repo.sqlbase.filtering.ObjectFilterProcessor;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryModelMapping;
@@ -264,6 +265,15 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
         }
     }
 
+    /**
+     * Transforms single result row (bean + extension columns) to schema type.
+     * This is used when rows are processed one by one, e.g. during iterative search,
+     * without creating the whole result list.
+     */
+    public S transformToSchemaType(Tuple row) throws SchemaException {
+        return createTransformer().toSchemaObject(row, root(), options);
+    }
+
     /**
      * Creates transformer for the {@link #mapping}.
      * Made abstract, because the way how to create the transformer can differ on the type
@@ -298,6 +308,22 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
         return mapping.createItemFilterProcessor(itemName, this);
     }
 
+    /**
+     * Returns processor for {@link OrgFilter}.
+     * Org filter requires support for org hierarchy which is repository specific,
+     * by default the filter is not supported.
+     */
+    public FilterProcessor<OrgFilter> createOrgFilterProcessor() throws QueryException {
+        throw new QueryException("Org filter is not supported for " + mapping.schemaType());
+    }
+
+    /**
+     * Called after the query is built, right before it is executed (outside of its transaction).
+     * Nothing is done by default, repository specific contexts can prepare what the query needs.
+     */
+    public void beforeQuery() {
+    }
+
     public void markNotFilterUsage() {
         notFilterUsed = true;
     }
@@ -46,6 +46,7 @@ public class SqlQueryExecutor {
         // TODO MID-6319: all options can be applied, just like for list?
         context.processOptions(options);
 
+        context.beforeQuery();
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
             return context.executeCount(jdbcSession.connection());
         }
@@ -64,6 +65,7 @@ public class SqlQueryExecutor {
         context.processOptions(options);
 
         PageOf<Tuple> result;
+        context.beforeQuery();
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
             result = context.executeQuery(jdbcSession.connection());
         }
@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.repo.sqlbase;
 
+import java.util.Collection;
+import java.util.Collections;
 import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
@@ -49,9 +51,20 @@ public class SqlTransformerContext {
 
     public <T extends Objectable> ParseResult<T> parsePrismObject(String serializedForm)
             throws SchemaException {
+        return parsePrismObject(serializedForm, Collections.emptyList());
+    }
+
+    /**
+     * Parses the object, skipping top-level items with provided names.
+     * Skipped items are present in the object, but empty and marked as incomplete.
+     */
+    public <T extends Objectable> ParseResult<T> parsePrismObject(
+            String serializedForm, Collection<? extends QName> itemsToSkip)
+            throws SchemaException {
         PrismContext prismContext = schemaService.getPrismContext();
         // "Postel mode": be tolerant what you read. We need this to tolerate (custom) schema changes
-        ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode();
+        ParsingContext parsingContext = prismContext.createParsingContextForCompatibilityMode()
+                .itemsToSkip(itemsToSkip);
         PrismObject<T> prismObject = prismContext.parserFor(serializedForm)
                 .context(parsingContext).parse();
         return new ParseResult<>(parsingContext, prismObject);
@@ -35,6 +35,9 @@ public class ObjectFilterProcessor implements FilterProcessor<ObjectFilter> {
         } else if (filter instanceof RefFilter) {
             return new RefFilterProcessor(context)
                     .process((RefFilter) filter);
+        } else if (filter instanceof OrgFilter) {
+            return context.createOrgFilterProcessor()
+                    .process((OrgFilter) filter);
         } else if (filter instanceof AllFilter) {
             return Expressions.asBoolean(true).isTrue();
         } else if (filter instanceof NoneFilter) {
@@ -41,6 +41,13 @@ public class SimpleItemFilterProcessor<T, P extends Path<T>>
                 new SimpleItemFilterProcessor<>(ctx, rootToQueryItem), rootToQueryItem);
     }
 
+    /** Returns the mapper creating the long filter processor from context. */
+    public static ItemSqlMapper longMapper(
+            Function<EntityPath<?>, NumberPath<Long>> rootToQueryItem) {
+        return new ItemSqlMapper(ctx ->
+                new SimpleItemFilterProcessor<>(ctx, rootToQueryItem), rootToQueryItem);
+    }
+
     /** Returns the mapper creating the boolean filter processor from context. */
     public static ItemSqlMapper booleanMapper(
             Function<EntityPath<?>, BooleanPath> rootToQueryItem) {
@@ -8,6 +8,7 @@ package com.evolveum.midpoint.security.api;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
@@ -41,6 +42,13 @@ public class MidPointPrincipal implements UserDetails,  DebugDumpable, ShortDump
     private FocusType attorney;
     private MidPointPrincipal previousPrincipal;
 
+    /**
+     * Authorizations pre-processed by the security enforcer, see {@link #getCompiledAuthorizations(Class)}.
+     * The holder is shared with clones, as they share the authorization instances. So e.g. principals provided
+     * by a cache for each request need not compile them again. Null after deserialization.
+     */
+    private transient volatile AtomicReference<Object> compiledAuthorizations = new AtomicReference<>();
+
     public MidPointPrincipal(@NotNull FocusType focus) {
         Validate.notNull(focus, "Focus must not be null.");
         this.focus = focus;
@@ -183,6 +191,27 @@ public class MidPointPrincipal implements UserDetails,  DebugDumpable, ShortDump
         delegatorWithOtherPrivilegesLimitationsCollection.add(value);
     }
 
+    /**
+     * Returns the authorizations in the form pre-processed (for faster evaluation) by the security enforcer,
+     * or null if there is none of given type. The content is opaque for the principal. As the authorizations
+     * can be modified directly (and the compiled form is shared with clones), the enforcer has to check whether
+     * the compiled form is still up to date.
+     */
+    public <T> T getCompiledAuthorizations(Class<T> type) {
+        AtomicReference<Object> holder = compiledAuthorizations;
+        Object current = holder != null ? holder.get() : null;
+        return type.isInstance(current) ? type.cast(current) : null;
+    }
+
+    public void setCompiledAuthorizations(Object compiledAuthorizations) {
+        AtomicReference<Object> holder = this.compiledAuthorizations;
+        if (holder != null) {
+            holder.set(compiledAuthorizations);
+        } else {
+            this.compiledAuthorizations = new AtomicReference<>(compiledAuthorizations);
+        }
+    }
+
     /**
      * Semi-shallow clone.
      */
@@ -193,10 +222,20 @@ public class MidPointPrincipal implements UserDetails,  DebugDumpable, ShortDump
     }
 
     protected void copyValues(MidPointPrincipal clone) {
+        copyCompiledValues(clone);
+        clone.effectiveActivationStatus = this.effectiveActivationStatus;
+    }
+
+    /**
+     * Copies values compiled from the assignments of the focus, i.e. not the ones derived from the focus object itself.
+     */
+    protected void copyCompiledValues(MidPointPrincipal clone) {
         clone.applicableSecurityPolicy = this.applicableSecurityPolicy;
         clone.authorizations = cloneAuthorities();
-        clone.effectiveActivationStatus = this.effectiveActivationStatus;
         clone.delegatorWithOtherPrivilegesLimitationsCollection.addAll(this.delegatorWithOtherPrivilegesLimitationsCollection);
+        if (this.compiledAuthorizations != null) {
+            clone.compiledAuthorizations = this.compiledAuthorizations;
+        }
     }
 
     private Collection<Authorization> cloneAuthorities() {
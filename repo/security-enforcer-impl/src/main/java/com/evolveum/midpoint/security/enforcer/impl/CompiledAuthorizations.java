@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.security.enforcer.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.security.api.Authorization;
+import com.evolveum.midpoint.security.api.AuthorizationConstants;
+import com.evolveum.midpoint.security.api.MidPointPrincipal;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AuthorizationPhaseType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OwnedObjectSelectorType;
+import com.evolveum.prism.xml.ns._public.query_3.SearchFilterType;
+
+/**
+ * Authorizations of a principal pre-processed for faster evaluation by {@link SecurityEnforcerImpl}.
+ * Built once per principal (and kept in it, see {@link MidPointPrincipal#getCompiledAuthorizations(Class)}),
+ * so the repeated decisions (e.g. for each row of a list page or search result) do not need to go through
+ * all the authorizations again and again.
+ *
+ * Contains:
+ *
+ * 1. Authorizations indexed by action URL and phase. The original order of authorizations is kept,
+ * as the evaluation depends on it.
+ * 2. Object types of `object` selectors of each authorization, resolved to classes. Used to quickly skip
+ * authorizations that cannot be applicable to an object of given type. The selectors themselves are still
+ * evaluated as before for the remaining ones.
+ * 3. Filters from object selectors parsed for specific object definitions (before evaluation of expressions,
+ * as these can depend on the context).
+ *
+ * Thread-safe.
+ */
+class CompiledAuthorizations {
+
+    private static final Authorization[] NO_AUTHORIZATIONS = new Authorization[0];
+
+    /** All authorizations in the original order. This is also the snapshot used to check if we are up to date. */
+    @NotNull private final Authorization[] authorizations;
+
+    /** Positions of authorizations that explicitly mention given action (other than "all"). Sorted. */
+    @NotNull private final Map<String, int[]> positionsByAction;
+
+    /** Positions of authorizations that are applicable to all actions. Sorted. */
+    @NotNull private final int[] allActionsPositions;
+
+    /**
+     * Classes of object types that given authorization can be applicable to (according to its object selectors).
+     * Authorizations applicable to any type are not present here.
+     */
+    @NotNull private final Map<Authorization, Class<?>[]> objectTypes = new IdentityHashMap<>();
+
+    /** Lazily computed lists of authorizations applicable to given action. */
+    @NotNull private final Map<String, ActionAuthorizations> byAction = new ConcurrentHashMap<>();
+
+    /** Lazily computed parsed selector filters. */
+    @NotNull private final Map<FilterKey, ObjectFilter> parsedFilters = new ConcurrentHashMap<>();
+
+    private CompiledAuthorizations(@NotNull Authorization[] authorizations, @NotNull PrismContext prismContext) {
+        this.authorizations = authorizations;
+        Map<String, List<Integer>> positions = new HashMap<>();
+        List<Integer> allActions = new ArrayList<>();
+        for (int i = 0; i < authorizations.length; i++) {
+            Authorization autz = authorizations[i];
+            for (String action : new HashSet<>(autz.getAction())) {
+                if (AuthorizationConstants.AUTZ_ALL_URL.equals(action)) {
+                    allActions.add(i);
+                } else {
+                    positions.computeIfAbsent(action, k -> new ArrayList<>()).add(i);
+                }
+            }
+            Class<?>[] types = resolveObjectTypes(autz.getObject(), prismContext);
+            if (types != null) {
+                objectTypes.put(autz, types);
+            }
+        }
+        this.positionsByAction = new HashMap<>();
+        positions.forEach((action, list) -> positionsByAction.put(action, toArray(list)));
+        this.allActionsPositions = toArray(allActions);
+    }
+
+    /**
+     * Returns compiled authorizations of the principal, compiling them if needed.
+     *
+     * @param principal Null for anonymous access. The compiled form is not stored in this case.
+     */
+    @NotNull
+    static CompiledAuthorizations get(MidPointPrincipal principal, Collection<Authorization> authorizations,
+            @NotNull PrismContext prismContext) {
+        if (principal != null) {
+            CompiledAuthorizations compiled = principal.getCompiledAuthorizations(CompiledAuthorizations.class);
+            if (compiled != null && compiled.isUpToDate(authorizations)) {
+                return compiled;
+            }
+        }
+        Authorization[] array = authorizations != null ? authorizations.toArray(NO_AUTHORIZATIONS) : NO_AUTHORIZATIONS;
+        CompiledAuthorizations compiled = new CompiledAuthorizations(array, prismContext);
+        if (principal != null) {
+            principal.setCompiledAuthorizations(compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Authorizations of a principal can be modified directly (e.g. when the principal is being set up),
+     * so we check if we still have the same ones. This is much cheaper than evaluating them.
+     */
+    private boolean isUpToDate(Collection<Authorization> current) {
+        if (current == null) {
+            return authorizations.length == 0;
+        }
+        if (current.size() != authorizations.length) {
+            return false;
+        }
+        int i = 0;
+        for (Authorization autz : current) {
+            if (autz != authorizations[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    List<Authorization> getAll() {
+        return Arrays.asList(authorizations);
+    }
+
+    /**
+     * Authorizations applicable to given action and phase, in the original order.
+     *
+     * @param phase If null, authorizations for all phases are returned. Otherwise only the ones with no phase or given phase.
+     */
+    @NotNull
+    List<Authorization> getForAction(@NotNull String actionUrl, AuthorizationPhaseType phase) {
+        return byAction.computeIfAbsent(actionUrl, this::computeForAction)
+                .get(phase);
+    }
+
+    /**
+     * Authorizations applicable to any of given actions (regardless of the phase), in the original order.
+     */
+    @NotNull
+    List<Authorization> getForActions(@NotNull String[] actionUrls) {
+        if (actionUrls.length == 1) {
+            return getForAction(actionUrls[0], null);
+        }
+        BitSet positions = new BitSet(authorizations.length);
+        for (int position : allActionsPositions) {
+            positions.set(position);
+        }
+        for (String actionUrl : actionUrls) {
+            for (int position : positionsByAction.getOrDefault(actionUrl, allActionsPositions)) {
+                positions.set(position);
+            }
+        }
+        return select(positions);
+    }
+
+    /**
+     * Returns false if the authorization has object selectors and none of them can match an object of given type.
+     * (True does not mean that the authorization is applicable, of course.)
+     *
+     * This is only a type pre-check: selectors of the remaining authorizations (filters, org, owner, etc.)
+     * are still fully evaluated for each decision, see {@link SecurityEnforcerImpl}.
+     */
+    boolean mayApplyToObjectType(@NotNull Authorization autz, @NotNull Class<?> objectClass) {
+        Class<?>[] types = objectTypes.get(autz);
+        if (types == null) {
+            return true;
+        }
+        for (Class<?> type : types) {
+            if (type.isAssignableFrom(objectClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns (a copy of) the selector filter parsed for given object definition.
+     */
+    ObjectFilter parseFilter(@NotNull SearchFilterType filterBean, PrismObjectDefinition<?> objectDefinition,
+            @NotNull PrismContext prismContext) throws SchemaException {
+        if (objectDefinition == null) {
+            // Nothing to key the cache on; this is just passed through.
+            return prismContext.getQueryConverter().createObjectFilter(objectDefinition, filterBean);
+        }
+        FilterKey key = new FilterKey(filterBean, objectDefinition);
+        ObjectFilter parsed = parsedFilters.get(key);
+        if (parsed == null) {
+            parsed = prismContext.getQueryConverter().createObjectFilter(objectDefinition, filterBean);
+            if (parsed == null) {
+                return null;
+            }
+            parsedFilters.put(key, parsed);
+        }
+        return parsed.clone();
+    }
+
+    private ActionAuthorizations computeForAction(String actionUrl) {
+        BitSet positions = new BitSet(authorizations.length);
+        for (int position : allActionsPositions) {
+            positions.set(position);
+        }
+        int[] specific = positionsByAction.get(actionUrl);
+        if (specific != null) {
+            for (int position : specific) {
+                positions.set(position);
+            }
+        }
+        return new ActionAuthorizations(select(positions));
+    }
+
+    private List<Authorization> select(BitSet positions) {
+        List<Authorization> selected = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            selected.add(authorizations[i]);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns classes of object types in the selectors; or null if the authorization can be applicable to any object type
+     * (no selectors, a selector without type, or a type we cannot resolve - this is to be reported by the selector evaluation).
+     */
+    private static Class<?>[] resolveObjectTypes(List<OwnedObjectSelectorType> selectors, PrismContext prismContext) {
+        if (selectors == null || selectors.isEmpty()) {
+            return null;
+        }
+        Class<?>[] types = new Class<?>[selectors.size()];
+        for (int i = 0; i < types.length; i++) {
+            QName typeName = selectors.get(i).getType();
+            if (typeName == null) {
+                return null;
+            }
+            try {
+                types[i] = prismContext.getSchemaRegistry().getCompileTimeClassForObjectType(
+                        prismContext.getSchemaRegistry().qualifyTypeName(typeName));
+            } catch (SchemaException | RuntimeException e) {
+                return null;
+            }
+            if (types[i] == null) {
+                return null;
+            }
+        }
+        return types;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Authorizations applicable to an action, split by phase. */
+    private static class ActionAuthorizations {
+
+        @NotNull private final List<Authorization> all;
+        @NotNull private final List<Authorization> request = new ArrayList<>();
+        @NotNull private final List<Authorization> execution = new ArrayList<>();
+
+        private ActionAuthorizations(@NotNull List<Authorization> all) {
+            this.all = all;
+            for (Authorization autz : all) {
+                if (autz.getPhase() == null || autz.getPhase() == AuthorizationPhaseType.REQUEST) {
+                    request.add(autz);
+                }
+                if (autz.getPhase() == null || autz.getPhase() == AuthorizationPhaseType.EXECUTION) {
+                    execution.add(autz);
+                }
+            }
+        }
+
+        private List<Authorization> get(AuthorizationPhaseType phase) {
+            if (phase == null) {
+                return all;
+            }
+            switch (phase) {
+                case REQUEST:
+                    return request;
+                case EXECUTION:
+                    return execution;
+                default:
+                    throw new AssertionError(phase);
+            }
+        }
+    }
+
+    /** Filter bean and the object definition it is parsed for (both compared by identity). */
+    private static class FilterKey {
+
+        @NotNull private final SearchFilterType filterBean;
+        @NotNull private final PrismObjectDefinition<?> objectDefinition;
+
+        private FilterKey(@NotNull SearchFilterType filterBean, @NotNull PrismObjectDefinition<?> objectDefinition) {
+            this.filterBean = filterBean;
+            this.objectDefinition = objectDefinition;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FilterKey)) {
+                return false;
+            }
+            FilterKey other = (FilterKey) o;
+            return filterBean == other.filterBean && objectDefinition == other.objectDefinition;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(filterBean) + System.identityHashCode(objectDefinition);
+        }
+    }
+}
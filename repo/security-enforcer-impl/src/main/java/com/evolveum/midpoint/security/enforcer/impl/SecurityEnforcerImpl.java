@@ -137,7 +137,11 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
                 getUsername(midPointPrincipal), operationUrl, phase, params.shortDump());
         }
         final AutzItemPaths allowedItems = new AutzItemPaths();
-        Collection<Authorization> authorities = getAuthorities(midPointPrincipal);
+        CompiledAuthorizations compiledAuthorizations = getCompiledAuthorizations(midPointPrincipal);
+        // Only authorizations applicable for the operation and phase are here, in the original order.
+        Collection<Authorization> authorities = compiledAuthorizations.getForAction(operationUrl, phase);
+        PrismObject<O> anyObject = params.getAnyObject();
+        Class<O> objectClass = anyObject != null ? anyObject.getCompileTimeClass() : null;
         if (authorities != null) {
             for (GrantedAuthority authority: authorities) {
                 if (authority instanceof Authorization) {
@@ -145,26 +149,14 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
                     String autzHumanReadableDesc = autz.getHumanReadableDesc();
                     LOGGER.trace("  Evaluating {}", autzHumanReadableDesc);
 
-                    // First check if the authorization is applicable.
+                    // First check if the authorization is applicable. (Action and phase were already checked.)
 
-                    // action
-                    if (!autz.getAction().contains(operationUrl) && !autz.getAction().contains(AuthorizationConstants.AUTZ_ALL_URL)) {
-                        LOGGER.trace("    {} not applicable for operation {}", autzHumanReadableDesc, operationUrl);
+                    // object type (quick check before full evaluation of object specifications below)
+                    if (objectClass != null && !compiledAuthorizations.mayApplyToObjectType(autz, objectClass)) {
+                        LOGGER.trace("    {} not applicable for object type {}", autzHumanReadableDesc, objectClass.getSimpleName());
                         continue;
                     }
 
-                    // phase
-                    if (autz.getPhase() == null) {
-                        LOGGER.trace("    {} is applicable for all phases (continuing evaluation)", autzHumanReadableDesc);
-                    } else {
-                        if (autz.getPhase() != phase) {
-                            LOGGER.trace("    {} is not applicable for phases {} (breaking evaluation)", autzHumanReadableDesc, phase);
-                            continue;
-                        } else {
-                            LOGGER.trace("    {} is applicable for phases {} (continuing evaluation)", autzHumanReadableDesc, phase);
-                        }
-                    }
-
                     // relation
                     if (!isApplicableRelation(autz, params.getRelation())) {
                         LOGGER.trace("    {} not applicable for relation {}", autzHumanReadableDesc, params.getRelation());
@@ -939,9 +931,11 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
         };
     }
 
-    private <O extends ObjectType> ObjectFilter parseAndEvaluateFilter(MidPointPrincipal principal, PrismObjectDefinition<O> objectDefinition,
-            SearchFilterType specFilterType, String objectTargetDesc, String autzHumanReadableDesc, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException, CommunicationException, ConfigurationException, SecurityViolationException {
-        ObjectFilter specFilter = prismContext.getQueryConverter().createObjectFilter(objectDefinition, specFilterType);
+    private <O extends ObjectType> ObjectFilter parseAndEvaluateFilter(MidPointPrincipal principal, CompiledAuthorizations compiledAuthorizations,
+            PrismObjectDefinition<O> objectDefinition, SearchFilterType specFilterType, String objectTargetDesc, String autzHumanReadableDesc,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException, CommunicationException, ConfigurationException, SecurityViolationException {
+        // Parsing is the same for each call (for given object type), only the expressions need to be evaluated each time.
+        ObjectFilter specFilter = compiledAuthorizations.parseFilter(specFilterType, objectDefinition, prismContext);
         if (specFilter == null) {
             return null;
         }
@@ -1158,6 +1152,14 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
         return (MidPointPrincipal)principal;
     }
 
+    /**
+     * Authorizations of the principal, pre-processed for faster evaluation. They are compiled when first needed
+     * and then kept in the principal (as long as its authorizations do not change).
+     */
+    private CompiledAuthorizations getCompiledAuthorizations(MidPointPrincipal principal) {
+        return CompiledAuthorizations.get(principal, getAuthorities(principal), prismContext);
+    }
+
     private Collection<Authorization> getAuthorities(MidPointPrincipal principal) {
         if (principal == null) {
             // Anonymous access, possibly with elevated privileges
@@ -1186,7 +1188,9 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
             LOGGER.trace("AUTZ: evaluating security constraints principal={}, object={}", getUsername(principal), object);
         }
         ObjectSecurityConstraintsImpl objectSecurityConstraints = new ObjectSecurityConstraintsImpl();
-        Collection<Authorization> authorities = getAuthorities(principal);
+        CompiledAuthorizations compiledAuthorizations = getCompiledAuthorizations(principal);
+        Class<O> objectClass = object.getCompileTimeClass();
+        Collection<Authorization> authorities = compiledAuthorizations.getAll();
         if (authorities != null) {
             for (Authorization autz: authorities) {
                 String autzHumanReadableDesc = autz.getHumanReadableDesc();
@@ -1194,6 +1198,12 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
 
                 // skip action applicability evaluation. We are interested in all actions
 
+                // object type (quick check before full evaluation of object specifications below)
+                if (objectClass != null && !compiledAuthorizations.mayApplyToObjectType(autz, objectClass)) {
+                    LOGGER.trace("    {} not applicable for object type {}", autzHumanReadableDesc, objectClass.getSimpleName());
+                    continue;
+                }
+
                 // object
                 if (isApplicable(autz.getObject(), object, principal, ownerResolver, "object", autzHumanReadableDesc, task, result)) {
                     LOGGER.trace("    {} applicable for object {} (continuing evaluation)", autzHumanReadableDesc, object);
@@ -1336,7 +1346,9 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
             throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException, CommunicationException,
             ConfigurationException, SecurityViolationException {
 
-        Collection<Authorization> authorities = getAuthorities(principal);
+        CompiledAuthorizations compiledAuthorizations = getCompiledAuthorizations(principal);
+        // Only authorizations applicable for (any of) the operations are here, in the original order.
+        Collection<Authorization> authorities = compiledAuthorizations.getForActions(operationUrls);
 
         F securityFilterAllow = null;
         F securityFilterDeny = null;
@@ -1352,14 +1364,6 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
                     String autzHumanReadableDesc = autz.getHumanReadableDesc();
                     LOGGER.trace("    Evaluating {}", autzHumanReadableDesc);
 
-                    // action
-                    if (!isApplicableForActions(autz, operationUrls)) {
-                        if (LOGGER.isTraceEnabled()) {
-                            LOGGER.trace("      Authorization not applicable for operation {}", prettyActionUrl(operationUrls));
-                        }
-                        continue;
-                    }
-
                     // phase
                     if (autz.getPhase() == phase || (includeNullPhase && autz.getPhase() == null)) {
                         LOGGER.trace("      Authorization is applicable for phases {} (continuing evaluation)", phase);
@@ -1534,7 +1538,7 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
                                 if (objectDefinition == null) {
                                     objectDefinition = prismContext.getSchemaRegistry().findObjectDefinitionByCompileTimeClass(objectType);
                                 }
-                                ObjectFilter specFilter = parseAndEvaluateFilter(principal, objectDefinition, specFilterType, objectTargetSpec, autzHumanReadableDesc, task, result);
+                                ObjectFilter specFilter = parseAndEvaluateFilter(principal, compiledAuthorizations, objectDefinition, specFilterType, objectTargetSpec, autzHumanReadableDesc, task, result);
                                 if (specFilter != null) {
                                     ObjectQueryUtil.assertNotRaw(specFilter, "Filter in authorization object has undefined items. Maybe a 'type' specification is missing in the authorization?");
                                     ObjectQueryUtil.assertPropertyOnly(specFilter, "Filter in authorization object is not property-only filter");
@@ -1755,19 +1759,6 @@ public class SecurityEnforcerImpl implements SecurityEnforcer {
         }
     }
 
-    private boolean isApplicableForActions(Authorization autz, String[] requiredActions) {
-        List<String> autzActions = autz.getAction();
-        if (autzActions.contains(AuthorizationConstants.AUTZ_ALL_URL)) {
-            return true;
-        }
-        for (String requiredAction : requiredActions) {
-            if (autzActions.contains(requiredAction)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private boolean isApplicableLimitations(Authorization autz, String limitAuthorizationAction) {
         if (limitAuthorizationAction == null) {
             return true;
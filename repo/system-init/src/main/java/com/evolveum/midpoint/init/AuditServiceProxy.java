@@ -88,6 +88,13 @@ public class AuditServiceProxy implements AuditService, AuditServiceRegistry {
         }
     }
 
+    @Override
+    public void flush() {
+        for (AuditService service : services) {
+            service.flush();
+        }
+    }
+
     @Override
     public void cleanupAudit(CleanupPolicyType policy, OperationResult parentResult) {
         Validate.notNull(policy, "Cleanup policy must not be null.");
@@ -94,6 +94,8 @@ public class TaskManagerConfiguration {
 
     private static final String TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY = "taskExecutionLimitations";
 
+    private static final String VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY = "virtualThreadsForLightweightTasks";      // experimental
+
     @Deprecated private static final String JMX_PORT_PROPERTY = "com.sun.management.jmxremote.port";
     private static final String SUREFIRE_PRESENCE_PROPERTY = "surefire.real.class.path";
 
@@ -167,6 +169,8 @@ public class TaskManagerConfiguration {
 
     private TaskExecutionLimitationsType taskExecutionLimitations;
 
+    private boolean virtualThreadsForLightweightTasks;
+
     private boolean useJmx;
     // JMX credentials for connecting to remote nodes
     @Deprecated private String jmxUsername;
@@ -242,6 +246,7 @@ public class TaskManagerConfiguration {
             WORK_ALLOCATION_RETRY_EXPONENTIAL_THRESHOLD_ENTRY,
             WORK_ALLOCATION_DEFAULT_FREE_BUCKET_WAIT_INTERVAL_ENTRY,
             TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY,
+            VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY,
             CHECK_FOR_TASK_CONCURRENT_EXECUTION_CONFIG_ENTRY,
             NODE_ALIVENESS_TIMEOUT_CONFIG_ENTRY,
             NODE_STARTUP_TIMEOUT_CONFIG_ENTRY,
@@ -365,6 +370,8 @@ public class TaskManagerConfiguration {
         if (c.containsKey(TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY)) {
             taskExecutionLimitations = parseExecutionLimitations(c.getString(TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY));
         }
+
+        virtualThreadsForLightweightTasks = c.getBoolean(VIRTUAL_THREADS_FOR_LIGHTWEIGHT_TASKS_CONFIG_ENTRY, false);
     }
 
     // Examples:
@@ -747,4 +754,12 @@ public class TaskManagerConfiguration {
     public TaskExecutionLimitationsType getTaskExecutionLimitations() {
         return taskExecutionLimitations;
     }
+
+    /**
+     * Should lightweight task handlers (e.g. worker threads of multithreaded tasks) run in virtual threads?
+     * Effective only if the JVM supports them (Java 21+), otherwise platform threads are used.
+     */
+    public boolean isVirtualThreadsForLightweightTasks() {
+        return virtualThreadsForLightweightTasks;
+    }
 }
@@ -174,7 +174,10 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware, Sys
      */
     private final Map<String, RunningTaskQuartzImpl> locallyRunningTaskInstancesMap = new ConcurrentHashMap<>();
 
-    private final ExecutorService lightweightHandlersExecutor = Executors.newCachedThreadPool();
+    /**
+     * Executes lightweight task handlers. Created in {@link #init()}, because its kind depends on the configuration.
+     */
+    private ExecutorService lightweightHandlersExecutor;
 
     private BeanFactory beanFactory;
 
@@ -245,6 +248,8 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware, Sys
             throw new SystemException("Cannot initialize TaskManager", e);
         }
 
+        lightweightHandlersExecutor = createLightweightHandlersExecutor();
+
         systemConfigurationChangeDispatcher.registerListener(this);
 
         // if running in test mode, the postInit will not be executed... so we have to start scheduler here
@@ -255,6 +260,28 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware, Sys
         clusterManager.postConstruct();
     }
 
+    /**
+     * Lightweight handlers (typically worker threads of multithreaded tasks) spend most of their time waiting
+     * for the resources or the repository. If configured and supported by the JVM (Java 21+), they are run
+     * in virtual threads, so hundreds of workers do not require hundreds of OS threads.
+     * The factory method is looked up reflectively, as midPoint is still compiled for older Java versions.
+     */
+    private ExecutorService createLightweightHandlersExecutor() {
+        if (configuration.isVirtualThreadsForLightweightTasks()) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+                LOGGER.info("Lightweight task handlers will be executed in virtual threads.");
+                return executor;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.warn("Virtual threads for lightweight tasks were requested but they are not supported"
+                        + " by this JVM ({}), platform threads will be used: {}", System.getProperty("java.version"), e.toString());
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
     @PreDestroy
     public void destroy() {
         systemConfigurationChangeDispatcher.unregisterListener(this);
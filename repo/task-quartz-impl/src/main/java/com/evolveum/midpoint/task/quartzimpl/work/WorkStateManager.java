@@ -15,6 +15,7 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.util.CloneUtil;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.ModificationPrecondition;
 import com.evolveum.midpoint.repo.api.PreconditionViolationException;
 import com.evolveum.midpoint.repo.api.RepositoryService;
@@ -188,6 +189,9 @@ public class WorkStateManager {
             if (bucket != null) {
                 ctx.register(GET_WORK_BUCKET_FOUND_SELF_ALLOCATED);
                 LOGGER.trace("Returning self-allocated bucket for {}: {}", workerTaskOid, bucket);
+                if (ctx.coordinatorTask != null) {
+                    setDelegationTimestampIfMissing(ctx, bucket, result);
+                }
                 return bucket;
             }
             if (ctx.isStandalone()) {
@@ -224,6 +228,7 @@ public class WorkStateManager {
         TaskWorkManagementType workManagement = ctx.coordinatorTask.getWorkManagement();
         WorkSegmentationStrategy workStateStrategy = strategyFactory.createStrategy(workManagement);
         setOrUpdateEstimatedNumberOfBuckets(ctx.coordinatorTask, workStateStrategy, result);
+        int allocationBatch = getBucketAllocationBatch(workManagement);
 
 waitForAvailableBucket:    // this cycle exits when something is found OR when a definite 'no more buckets' answer is received
         for (;;) {
@@ -238,33 +243,45 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
                 try {
                     if (response instanceof NewBuckets) {
                         NewBuckets newBucketsResponse = (NewBuckets) response;
-                        int selected = newBucketsResponse.selected;
+                        List<WorkBucketType> allocated = selectNewBucketsToAllocate(newBucketsResponse, allocationBatch);
                         List<WorkBucketType> newCoordinatorBuckets = new ArrayList<>(coordinatorWorkState.getBucket());
-                        for (int i = 0; i < newBucketsResponse.newBuckets.size(); i++) {
-                            if (i == selected) {
-                                newCoordinatorBuckets.add(newBucketsResponse.newBuckets.get(i).clone()
+                        WorkBucketType selected = newBucketsResponse.newBuckets.get(newBucketsResponse.selected);
+                        for (WorkBucketType newBucket : newBucketsResponse.newBuckets) {
+                            if (allocated.contains(newBucket)) {
+                                // Buckets allocated in advance get the timestamp when they are started.
+                                newCoordinatorBuckets.add(newBucket.clone()
                                         .state(WorkBucketStateType.DELEGATED)
-                                        .workerRef(ctx.workerTask.getOid(), TaskType.COMPLEX_TYPE));
+                                        .workerRef(ctx.workerTask.getOid(), TaskType.COMPLEX_TYPE)
+                                        .delegationTimestamp(newBucket == selected ? XmlTypeConverter.createXMLGregorianCalendar() : null));
                             } else {
-                                newCoordinatorBuckets.add(newBucketsResponse.newBuckets.get(i).clone());
+                                newCoordinatorBuckets.add(newBucket.clone());
                             }
                         }
                         repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(),
                                 bucketsReplaceDeltas(newCoordinatorBuckets),
                                 bucketsReplacePrecondition(coordinatorWorkState.getBucket()), null, result);
                         repositoryService.modifyObject(TaskType.class, ctx.workerTask.getOid(),
-                                bucketsAddDeltas(newBucketsResponse.newBuckets.subList(selected, selected+1)), null, result);
-                        CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (conflicts: {}) in {}", System.currentTimeMillis() - ctx.start, ctx.conflictCount, ctx.workerTask);
+                                bucketsAddDeltas(allocated), null, result);
+                        CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (conflicts: {}, allocated: {}) in {}",
+                                System.currentTimeMillis() - ctx.start, ctx.conflictCount, allocated.size(), ctx.workerTask);
                         ctx.register(GET_WORK_BUCKET_CREATED_NEW);
-                        return newBucketsResponse.newBuckets.get(selected);
+                        return selected;
                     } else if (response instanceof FoundExisting) {
                         FoundExisting existingResponse = (FoundExisting) response;
+                        List<WorkBucketType> allocated = selectExistingBucketsToAllocate(existingResponse.bucket,
+                                coordinatorWorkState, allocationBatch);
+                        List<ItemDelta<?, ?>> coordinatorDeltas = new ArrayList<>();
+                        for (WorkBucketType bucket : allocated) {
+                            // Buckets allocated in advance get the timestamp when they are started.
+                            coordinatorDeltas.addAll(
+                                    bucketStateChangeDeltas(bucket, WorkBucketStateType.DELEGATED, ctx.workerTask.getOid(),
+                                            bucket == existingResponse.bucket));
+                        }
                         repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(),
-                                bucketStateChangeDeltas(existingResponse.bucket, WorkBucketStateType.DELEGATED, ctx.workerTask.getOid()),
-                                bucketUnchangedPrecondition(existingResponse.bucket), null, result);
+                                coordinatorDeltas, bucketsUnchangedPrecondition(allocated), null, result);
                         WorkBucketType foundBucket = existingResponse.bucket.clone();
                         repositoryService.modifyObject(TaskType.class, ctx.workerTask.getOid(),
-                                bucketsAddDeltas(singletonList(foundBucket)), null, result);
+                                bucketsAddDeltas(allocated), null, result);
                         CONTENTION_LOGGER.trace("Existing bucket acquired after {} ms (conflicts: {}) in {}", System.currentTimeMillis() - ctx.start, ctx.conflictCount, ctx.workerTask);
                         ctx.register(GET_WORK_BUCKET_DELEGATED);
                         return foundBucket;
@@ -331,6 +348,98 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
         }
     }
 
+    /**
+     * Selects buckets to be allocated to the worker: the one selected by the strategy plus (if the allocation batch
+     * is greater than 1) other newly created ones.
+     */
+    private List<WorkBucketType> selectNewBucketsToAllocate(NewBuckets response, int allocationBatch) {
+        List<WorkBucketType> allocated = new ArrayList<>();
+        allocated.add(response.newBuckets.get(response.selected));
+        for (int i = 0; i < response.newBuckets.size() && allocated.size() < allocationBatch; i++) {
+            if (i != response.selected) {
+                allocated.add(response.newBuckets.get(i));
+            }
+        }
+        if (allocated.size() < allocationBatch) {
+            // Only the buckets created now are considered; their number is limited by bucketCreationBatch.
+            LOGGER.trace("Allocating {} new bucket(s) instead of {} because only {} were created (see bucketCreationBatch)",
+                    allocated.size(), allocationBatch, response.newBuckets.size());
+        }
+        return allocated;
+    }
+
+    /**
+     * Buckets allocated in advance (see bucketAllocationBatch) get their delegation timestamp in the coordinator task
+     * only when they are actually started. Otherwise the time they were waiting in the worker would be counted
+     * as their processing time, e.g. by the adaptive segmentation strategy.
+     *
+     * The timestamp is set only if the bucket is still delegated to this worker without the timestamp;
+     * otherwise (e.g. if the bucket was reclaimed in the meanwhile) the coordinator task is left untouched.
+     */
+    private void setDelegationTimestampIfMissing(Context ctx, WorkBucketType bucket, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        TaskWorkStateType coordinatorWorkState = ctx.coordinatorTask.getWorkState();
+        WorkBucketType coordinatorBucket = coordinatorWorkState != null
+                ? TaskWorkStateTypeUtil.findBucketByNumber(coordinatorWorkState.getBucket(), bucket.getSequentialNumber())
+                : null;
+        if (coordinatorBucket == null || coordinatorBucket.getDelegationTimestamp() != null) {
+            return;
+        }
+        List<ItemDelta<?, ?>> deltas = prismContext.deltaFor(TaskType.class)
+                .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, coordinatorBucket.getId(), WorkBucketType.F_DELEGATION_TIMESTAMP)
+                    .replace(XmlTypeConverter.createXMLGregorianCalendar())
+                .asItemDeltas();
+        try {
+            repositoryService.modifyObject(TaskType.class, ctx.coordinatorTask.getOid(), deltas,
+                    delegatedWithoutTimestampPrecondition(bucket.getSequentialNumber(), ctx.workerTask.getOid()), null, result);
+        } catch (PreconditionViolationException e) {
+            LOGGER.debug("Delegation timestamp of bucket {} in {} was not set, because the bucket was changed concurrently: {}",
+                    bucket.getSequentialNumber(), ctx.coordinatorTask, e.getMessage());
+        }
+    }
+
+    private ModificationPrecondition<TaskType> delegatedWithoutTimestampPrecondition(int sequentialNumber, String workerOid) {
+        return taskObject -> {
+            WorkBucketType currentBucket = findBucketByNumber(getWorkStateOrNew(taskObject.asObjectable()).getBucket(),
+                    sequentialNumber);
+            return currentBucket != null
+                    && currentBucket.getState() == WorkBucketStateType.DELEGATED
+                    && currentBucket.getDelegationTimestamp() == null
+                    && currentBucket.getWorkerRef() != null
+                    && workerOid.equals(currentBucket.getWorkerRef().getOid());
+        };
+    }
+
+    /**
+     * Selects buckets to be allocated to the worker: the one found by the strategy plus (if the allocation batch
+     * is greater than 1) other ready buckets, in the order of their sequential numbers.
+     */
+    private List<WorkBucketType> selectExistingBucketsToAllocate(WorkBucketType found, TaskWorkStateType workState,
+            int allocationBatch) {
+        List<WorkBucketType> allocated = new ArrayList<>();
+        allocated.add(found);
+        if (allocationBatch > 1) {
+            List<WorkBucketType> buckets = new ArrayList<>(workState.getBucket());
+            TaskWorkStateTypeUtil.sortBucketsBySequentialNumber(buckets);
+            for (WorkBucketType bucket : buckets) {
+                if (allocated.size() >= allocationBatch) {
+                    break;
+                }
+                if (bucket.getState() == WorkBucketStateType.READY
+                        && !Objects.equals(bucket.getSequentialNumber(), found.getSequentialNumber())) {
+                    allocated.add(bucket);
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private int getBucketAllocationBatch(TaskWorkManagementType workManagement) {
+        WorkAllocationConfigurationType ac = workManagement != null && workManagement.getBuckets() != null ?
+                workManagement.getBuckets().getAllocation() : null;
+        return ac != null && ac.getBucketAllocationBatch() != null ? Math.max(ac.getBucketAllocationBatch(), 1) : 1;
+    }
+
     private BackoffComputer createBackoffComputer(TaskWorkManagementType workManagement) {
         WorkAllocationConfigurationType ac = workManagement != null && workManagement.getBuckets() != null ?
                 workManagement.getBuckets().getAllocation() : null;
@@ -681,16 +790,26 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
     private Collection<ItemDelta<?, ?>> bucketStateChangeDeltas(WorkBucketType bucket, WorkBucketStateType newState) throws SchemaException {
         return prismContext.deltaFor(TaskType.class)
                 .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, bucket.getId(), WorkBucketType.F_STATE)
-                .replace(newState).asItemDeltas();
+                    .replace(newState)
+                .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, bucket.getId(), WorkBucketType.F_COMPLETION_TIMESTAMP)
+                    .replaceRealValues(newState == WorkBucketStateType.COMPLETE ? singletonList(XmlTypeConverter.createXMLGregorianCalendar()) : emptyList())
+                .asItemDeltas();
     }
 
     private Collection<ItemDelta<?, ?>> bucketStateChangeDeltas(WorkBucketType bucket, WorkBucketStateType newState,
             String workerOid) throws SchemaException {
+        return bucketStateChangeDeltas(bucket, newState, workerOid, workerOid != null);
+    }
+
+    private Collection<ItemDelta<?, ?>> bucketStateChangeDeltas(WorkBucketType bucket, WorkBucketStateType newState,
+            String workerOid, boolean setDelegationTimestamp) throws SchemaException {
         return prismContext.deltaFor(TaskType.class)
                 .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, bucket.getId(), WorkBucketType.F_STATE)
                     .replace(newState)
                 .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, bucket.getId(), WorkBucketType.F_WORKER_REF)
                     .replaceRealValues(workerOid != null ? singletonList(new ObjectReferenceType().oid(workerOid).type(TaskType.COMPLEX_TYPE)) : emptyList())
+                .item(TaskType.F_WORK_STATE, TaskWorkStateType.F_BUCKET, bucket.getId(), WorkBucketType.F_DELEGATION_TIMESTAMP)
+                    .replaceRealValues(setDelegationTimestamp ? singletonList(XmlTypeConverter.createXMLGregorianCalendar()) : emptyList())
                 .asItemDeltas();
     }
 
@@ -700,6 +819,17 @@ waitForConflictLessUpdate: // this cycle exits when coordinator task update succ
                 .delete(bucket.clone()).asItemDeltas();
     }
 
+    private ModificationPrecondition<TaskType> bucketsUnchangedPrecondition(List<WorkBucketType> originalBuckets) {
+        return taskObject -> {
+            for (WorkBucketType originalBucket : originalBuckets) {
+                if (!bucketUnchangedPrecondition(originalBucket).holds(taskObject)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
     private ModificationPrecondition<TaskType> bucketUnchangedPrecondition(WorkBucketType originalBucket) {
         return taskObject -> {
             WorkBucketType currentBucket = findBucketByNumber(getWorkStateOrNew(taskObject.asObjectable()).getBucket(),
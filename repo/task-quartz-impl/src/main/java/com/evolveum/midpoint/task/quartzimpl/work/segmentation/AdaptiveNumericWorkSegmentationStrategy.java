@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010-2021 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.task.quartzimpl.work.segmentation;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.schema.util.TaskWorkStateTypeUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Numeric interval segmentation with bucket sizes adapted to the observed processing speed.
+ *
+ * Size of newly created buckets is derived from the most recently completed bucket (its size
+ * and the time between its delegation and completion) so that processing of a bucket takes
+ * approximately {@link NumericWorkSegmentationType#getTargetBucketDuration()}. This keeps the buckets
+ * reasonably small in dense parts of the interval and avoids tiny buckets in sparse parts.
+ *
+ * To avoid oscillations the size can change at most {@link #MAX_CHANGE_FACTOR} times in one step.
+ * Only the buckets that are not created yet are affected; existing buckets are never resized.
+ */
+public class AdaptiveNumericWorkSegmentationStrategy extends NumericWorkSegmentationStrategy {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AdaptiveNumericWorkSegmentationStrategy.class);
+
+    private static final BigInteger MAX_CHANGE_FACTOR = BigInteger.valueOf(4);
+
+    /**
+     * Bucket size computed for the current {@link #createAdditionalBuckets(TaskWorkStateType)} call.
+     */
+    private BigInteger adaptedBucketSize;
+
+    public AdaptiveNumericWorkSegmentationStrategy(@NotNull TaskWorkManagementType configuration,
+            PrismContext prismContext) {
+        super(configuration, prismContext);
+    }
+
+    @NotNull
+    @Override
+    protected List<? extends AbstractWorkBucketContentType> createAdditionalBuckets(TaskWorkStateType workState)
+            throws SchemaException {
+        adaptedBucketSize = computeAdaptedBucketSize(workState);
+        try {
+            return super.createAdditionalBuckets(workState);
+        } finally {
+            adaptedBucketSize = null;
+        }
+    }
+
+    @NotNull
+    @Override
+    protected BigInteger getOrComputeBucketSize() {
+        return adaptedBucketSize != null ? adaptedBucketSize : super.getOrComputeBucketSize();
+    }
+
+    @NotNull
+    private BigInteger computeAdaptedBucketSize(TaskWorkStateType workState) {
+        BigInteger initialSize = super.getOrComputeBucketSize();
+        WorkBucketType lastBucket = TaskWorkStateTypeUtil.getLastBucket(workState.getBucket());
+        BigInteger currentSize = lastBucket != null ? getSize(lastBucket) : null;
+        if (currentSize == null) {
+            currentSize = initialSize;
+        }
+
+        WorkBucketType sample = findLastCompletedBucket(workState);
+        BigInteger sampleSize = sample != null ? getSize(sample) : null;
+        if (sampleSize == null || sampleSize.signum() <= 0) {
+            LOGGER.trace("No usable completed bucket, keeping bucket size of {}", currentSize);
+            return currentSize;
+        }
+
+        long duration = XmlTypeConverter.toMillis(sample.getCompletionTimestamp())
+                - XmlTypeConverter.toMillis(sample.getDelegationTimestamp());
+        long targetDuration = bucketsConfiguration.getTargetBucketDuration();
+        // sub-millisecond buckets are treated as 1 ms ones, this leads to the maximal growth
+        BigInteger proposedSize = sampleSize
+                .multiply(BigInteger.valueOf(targetDuration))
+                .divide(BigInteger.valueOf(Math.max(duration, 1)));
+
+        BigInteger newSize = proposedSize
+                .max(sampleSize.divide(MAX_CHANGE_FACTOR))
+                .min(sampleSize.multiply(MAX_CHANGE_FACTOR))
+                .max(getMinBucketSize());
+        BigInteger maxBucketSize = bucketsConfiguration.getMaxBucketSize();
+        if (maxBucketSize != null) {
+            newSize = newSize.min(maxBucketSize);
+        }
+        LOGGER.trace("Bucket #{} of size {} was processed in {} ms (target is {} ms); new bucket size is {}",
+                sample.getSequentialNumber(), sampleSize, duration, targetDuration, newSize);
+        return newSize;
+    }
+
+    @NotNull
+    private BigInteger getMinBucketSize() {
+        BigInteger minBucketSize = bucketsConfiguration.getMinBucketSize();
+        return minBucketSize != null && minBucketSize.signum() > 0 ? minBucketSize : BigInteger.ONE;
+    }
+
+    /**
+     * Returns the completed bucket with the latest completion timestamp that has timing information.
+     * (Completed buckets are compressed, so usually there is only one of them.)
+     */
+    @Nullable
+    private WorkBucketType findLastCompletedBucket(TaskWorkStateType workState) {
+        WorkBucketType last = null;
+        for (WorkBucketType bucket : workState.getBucket()) {
+            if (bucket.getState() == WorkBucketStateType.COMPLETE
+                    && bucket.getDelegationTimestamp() != null
+                    && bucket.getCompletionTimestamp() != null
+                    && (last == null || XmlTypeConverter.toMillis(bucket.getCompletionTimestamp())
+                            > XmlTypeConverter.toMillis(last.getCompletionTimestamp()))) {
+                last = bucket;
+            }
+        }
+        return last;
+    }
+
+    @Nullable
+    private BigInteger getSize(@NotNull WorkBucketType bucket) {
+        if (bucket.getContent() instanceof NumericIntervalWorkBucketContentType) {
+            NumericIntervalWorkBucketContentType content = (NumericIntervalWorkBucketContentType) bucket.getContent();
+            if (content.getFrom() != null && content.getTo() != null) {
+                return content.getTo().subtract(content.getFrom());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Integer estimateNumberOfBuckets(@Nullable TaskWorkStateType workState) {
+        WorkBucketType lastBucket = workState != null ? TaskWorkStateTypeUtil.getLastBucket(workState.getBucket()) : null;
+        BigInteger lastBucketSize = lastBucket != null ? getSize(lastBucket) : null;
+        if (lastBucketSize == null || lastBucketSize.signum() <= 0) {
+            return super.estimateNumberOfBuckets(workState);
+        }
+        // buckets created so far plus the rest of the interval divided into buckets of the current size
+        BigInteger remaining = getOrComputeTo()
+                .subtract(((NumericIntervalWorkBucketContentType) lastBucket.getContent()).getTo())
+                .max(BigInteger.ZERO);
+        BigInteger[] divideAndRemainder = remaining.divideAndRemainder(lastBucketSize);
+        int rest = divideAndRemainder[0].intValue() + (BigInteger.ZERO.equals(divideAndRemainder[1]) ? 0 : 1);
+        return lastBucket.getSequentialNumber() + rest;
+    }
+}
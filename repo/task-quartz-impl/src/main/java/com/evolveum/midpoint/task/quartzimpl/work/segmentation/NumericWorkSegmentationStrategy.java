@@ -25,7 +25,7 @@ import java.math.BigInteger;
 public class NumericWorkSegmentationStrategy extends BaseWorkSegmentationStrategy {
 
     @NotNull private final TaskWorkManagementType configuration;
-    @NotNull private final NumericWorkSegmentationType bucketsConfiguration;
+    @NotNull protected final NumericWorkSegmentationType bucketsConfiguration;
 
     public NumericWorkSegmentationStrategy(@NotNull TaskWorkManagementType configuration,
             PrismContext prismContext) {
@@ -65,7 +65,7 @@ public class NumericWorkSegmentationStrategy extends BaseWorkSegmentationStrateg
     }
 
     @NotNull
-    private BigInteger getOrComputeBucketSize() {
+    protected BigInteger getOrComputeBucketSize() {
         if (bucketsConfiguration.getBucketSize() != null) {
             return bucketsConfiguration.getBucketSize();
         } else if (bucketsConfiguration.getTo() != null && bucketsConfiguration.getNumberOfBuckets() != null) {
@@ -76,12 +76,12 @@ public class NumericWorkSegmentationStrategy extends BaseWorkSegmentationStrateg
     }
 
     @NotNull
-    private BigInteger getFrom() {
+    protected BigInteger getFrom() {
         return bucketsConfiguration.getFrom() != null ? bucketsConfiguration.getFrom() : BigInteger.ZERO;
     }
 
     @NotNull
-    private BigInteger getOrComputeTo() {
+    protected BigInteger getOrComputeTo() {
         if (bucketsConfiguration.getTo() != null) {
             return bucketsConfiguration.getTo();
         } else if (bucketsConfiguration.getBucketSize() != null && bucketsConfiguration.getNumberOfBuckets() != null) {
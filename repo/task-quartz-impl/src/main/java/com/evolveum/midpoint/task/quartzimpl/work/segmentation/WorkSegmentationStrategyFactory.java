@@ -51,7 +51,9 @@ public class WorkSegmentationStrategyFactory {
             return new SingleNullWorkSegmentationStrategy(configuration, prismContext);
         }
 
-        Class<? extends WorkSegmentationStrategy> strategyClass = strategyClassMap.get(cfg.getClass());
+        Class<? extends WorkSegmentationStrategy> strategyClass = isAdaptive(cfg)
+                ? AdaptiveNumericWorkSegmentationStrategy.class
+                : strategyClassMap.get(cfg.getClass());
         if (strategyClass == null) {
             throw new IllegalStateException("Unknown or unsupported work state management configuration: " + configuration);
         }
@@ -64,6 +66,11 @@ public class WorkSegmentationStrategyFactory {
         }
     }
 
+    private boolean isAdaptive(AbstractWorkSegmentationType cfg) {
+        return cfg instanceof NumericWorkSegmentationType
+                && ((NumericWorkSegmentationType) cfg).getTargetBucketDuration() != null;
+    }
+
     public void registerStrategyClass(Class<? extends AbstractWorkSegmentationType> configurationClass,
             Class<? extends WorkSegmentationStrategy> strategyClass) {
         strategyClassMap.put(configurationClass, strategyClass);
@@ -8,12 +8,17 @@ package com.evolveum.midpoint.task.quartzimpl;
 
 import static java.util.Collections.singletonList;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import static com.evolveum.midpoint.schema.util.TaskWorkStateTypeUtil.findBucketByNumber;
+
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
 import javax.annotation.PostConstruct;
+import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,8 +31,10 @@ import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.quartzimpl.work.WorkStateManager;
+import com.evolveum.midpoint.task.quartzimpl.work.segmentation.AdaptiveNumericWorkSegmentationStrategy;
 import com.evolveum.midpoint.task.quartzimpl.work.segmentation.StringWorkSegmentationStrategy;
 import com.evolveum.midpoint.task.quartzimpl.work.segmentation.WorkSegmentationStrategy;
 import com.evolveum.midpoint.task.quartzimpl.work.segmentation.WorkSegmentationStrategyFactory;
@@ -464,6 +471,125 @@ public class TestWorkBucketStrategies extends AbstractTaskManagerTest {
         suspendAndDeleteTasks(task.getOid());
     }
 
+    @Test
+    public void test160AdaptiveNumericBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+        addObjectFromFile(taskFilename());
+
+        TaskQuartzImpl task = taskManager.getTaskPlain(taskOid(), result);
+
+        // WHEN
+        WorkSegmentationStrategy segmentationStrategy = strategyFactory.createStrategy(task.getWorkManagement());
+
+        // THEN
+        assertTrue("Wrong strategy: " + segmentationStrategy,
+                segmentationStrategy instanceof AdaptiveNumericWorkSegmentationStrategy);
+
+        // WHEN+THEN
+        TaskWorkStateType workState = new TaskWorkStateType(prismContext);
+        // no completed bucket yet: initial size is used
+        WorkBucketType bucket1 = assumeNextNumericInterval(segmentationStrategy, workState, 0, 1000, 1);
+        // processed 1000 in 1 second, target is 10 seconds; growth limited by factor of 4 and then by max size
+        completeBucket(workState, bucket1, 1000);
+        WorkBucketType bucket2 = assumeNextNumericInterval(segmentationStrategy, workState, 1000, 4000, 2);
+        // processed 3000 in 60 seconds; shrinking is limited by factor of 4
+        completeBucket(workState, bucket2, 60000);
+        assumeNextNumericInterval(segmentationStrategy, workState, 4000, 4750, 3);
+
+        suspendAndDeleteTasks(task.getOid());
+    }
+
+    /**
+     * Buckets are allocated to the worker three at a time. Only the bucket that is returned gets the delegation timestamp;
+     * the others get it when they are returned later. The timestamp is not overwritten when the bucket is returned again.
+     */
+    @Test
+    public void test170BucketAllocationBatch() throws Exception {
+        OperationResult result = createOperationResult();
+        addObjectFromFile(coordinatorTaskFilename());
+        addObjectFromFile(workerTaskFilename());
+
+        try {
+            // WHEN
+            WorkBucketType bucket = workStateManager.getWorkBucket(workerTaskOid(), 0, null, null, result);
+
+            // THEN
+            displayValue("allocated bucket", bucket);
+            TaskQuartzImpl coordinatorAfter = taskManager.getTaskPlain(coordinatorTaskOid(), result);
+            TaskQuartzImpl workerAfter = taskManager.getTaskPlain(workerTaskOid(), result);
+            displayDumpable("coordinator task after", coordinatorAfter);
+            displayDumpable("worker task after", workerAfter);
+
+            assertNumericBucket(bucket, null, 1, 0, 100);
+            List<WorkBucketType> wBuckets = workerAfter.getWorkState().getBucket();
+            assertEquals("Wrong # of worker buckets", 3, wBuckets.size());
+            for (int i = 1; i <= 3; i++) {
+                assertNumericBucket(findBucketByNumber(wBuckets, i), WorkBucketStateType.READY, i, (i - 1) * 100, i * 100);
+            }
+            List<WorkBucketType> cBuckets = coordinatorAfter.getWorkState().getBucket();
+            assertEquals("Wrong # of coordinator buckets", 3, cBuckets.size());
+            for (int i = 1; i <= 3; i++) {
+                assertNumericBucket(findBucketByNumber(cBuckets, i), WorkBucketStateType.DELEGATED, i, (i - 1) * 100, i * 100);
+            }
+            assertNotNull("No delegation timestamp in bucket 1", findBucketByNumber(cBuckets, 1).getDelegationTimestamp());
+            assertNull("Delegation timestamp in pre-allocated bucket 2", findBucketByNumber(cBuckets, 2).getDelegationTimestamp());
+            assertNull("Delegation timestamp in pre-allocated bucket 3", findBucketByNumber(cBuckets, 3).getDelegationTimestamp());
+
+            // WHEN (complete and get next)
+            workStateManager.completeWorkBucket(workerTaskOid(), 1, null, result);
+            bucket = workStateManager.getWorkBucket(workerTaskOid(), 0, null, null, result);
+
+            // THEN
+            displayValue("allocated bucket (2)", bucket);
+            coordinatorAfter = taskManager.getTaskPlain(coordinatorTaskOid(), result);
+            workerAfter = taskManager.getTaskPlain(workerTaskOid(), result);
+            displayDumpable("coordinator task after (2)", coordinatorAfter);
+            displayDumpable("worker task after (2)", workerAfter);
+
+            assertNumericBucket(bucket, null, 2, 100, 200);
+            assertEquals("Wrong # of worker buckets (2)", 2, workerAfter.getWorkState().getBucket().size());
+            cBuckets = coordinatorAfter.getWorkState().getBucket();
+            assertEquals("Wrong # of coordinator buckets (2)", 3, cBuckets.size());
+            assertBucket(findBucketByNumber(cBuckets, 1), WorkBucketStateType.COMPLETE, 1);
+            XMLGregorianCalendar bucket2Timestamp = findBucketByNumber(cBuckets, 2).getDelegationTimestamp();
+            assertNotNull("No delegation timestamp in bucket 2", bucket2Timestamp);
+            assertNull("Delegation timestamp in pre-allocated bucket 3", findBucketByNumber(cBuckets, 3).getDelegationTimestamp());
+
+            // WHEN (get the same bucket again)
+            bucket = workStateManager.getWorkBucket(workerTaskOid(), 0, null, null, result);
+
+            // THEN
+            assertNumericBucket(bucket, null, 2, 100, 200);
+            coordinatorAfter = taskManager.getTaskPlain(coordinatorTaskOid(), result);
+            assertEquals("Delegation timestamp of bucket 2 was changed", bucket2Timestamp,
+                    findBucketByNumber(coordinatorAfter.getWorkState().getBucket(), 2).getDelegationTimestamp());
+        } finally {
+            suspendAndDeleteTasks(coordinatorTaskOid());
+        }
+    }
+
+    private WorkBucketType assumeNextNumericInterval(WorkSegmentationStrategy segmentationStrategy,
+            TaskWorkStateType workState, long expectedFrom, long expectedTo, int expectedSequentialNumber)
+            throws SchemaException {
+        WorkBucketType newBucket = getNextBucket(segmentationStrategy, workState, expectedSequentialNumber);
+        AbstractWorkBucketContentType content = newBucket.getContent();
+        assertEquals("Wrong content class", NumericIntervalWorkBucketContentType.class, content.getClass());
+        NumericIntervalWorkBucketContentType intervalContent = (NumericIntervalWorkBucketContentType) content;
+        assertEquals("Wrong next 'from'", BigInteger.valueOf(expectedFrom), intervalContent.getFrom());
+        assertEquals("Wrong next 'to'", BigInteger.valueOf(expectedTo), intervalContent.getTo());
+        return newBucket;
+    }
+
+    private void completeBucket(TaskWorkStateType workState, WorkBucketType bucket, long duration) {
+        long now = System.currentTimeMillis();
+        // only the last complete bucket is kept, as in real work state after the compression
+        workState.getBucket().clear();
+        workState.getBucket().add(bucket.clone()
+                .state(WorkBucketStateType.COMPLETE)
+                .delegationTimestamp(XmlTypeConverter.createXMLGregorianCalendar(now - duration))
+                .completionTimestamp(XmlTypeConverter.createXMLGregorianCalendar(now)));
+    }
+
     private WorkBucketType assumeNextValue(WorkSegmentationStrategy segmentationStrategy, TaskWorkStateType workState,
             String expectedNextValue, int expectedSequentialNumber) throws SchemaException {
         WorkBucketType newBucket = getNextBucket(segmentationStrategy, workState, expectedSequentialNumber);
@@ -10,8 +10,12 @@ import static org.testng.AssertJUnit.*;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.xml.bind.JAXBElement;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -28,6 +32,7 @@ import com.evolveum.midpoint.prism.Referencable;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.delta.ChangeType;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
@@ -50,6 +55,9 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
 
     protected static final File BASE_REQ_DIR = new File("src/test/resources/req/");
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String CONTINUATION_TOKEN = "continuationToken";
+
     // REST, reader and adder authorization
     public static final String USER_DARTHADDER_FILE = "user-darthadder";
     public static final String USER_DARTHADDER_OID = "1696229e-d90a-11e4-9ce6-001e8c717e5b";
@@ -631,6 +639,89 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
         getDummyAuditService().assertLoginLogout(SchemaConstants.CHANNEL_REST_URI);
     }
 
+    @Test
+    public void test210SearchAllUsersStream() throws Exception {
+        given();
+        List<String> expectedOids = getSortedUserOids();
+        WebClient client = prepareStreamClient();
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        displayResponse(response);
+        assertStatus(response, 200);
+        StreamedSearchResult streamed = readStreamedSearchResult(response);
+        assertEquals("Wrong objects streamed", expectedOids, streamed.oids);
+        assertTrue("Unexpected result: " + streamed.result, streamed.result.isSuccess());
+        assertNull("Unexpected continuation token", streamed.getContinuationToken());
+    }
+
+    /**
+     * Gets all users in batches of 2, using the continuation tokens.
+     */
+    @Test
+    public void test212SearchAllUsersStreamContinuation() throws Exception {
+        given();
+        List<String> expectedOids = getSortedUserOids();
+        assertTrue("Too few users for the test: " + expectedOids, expectedOids.size() > 2);
+
+        when();
+        List<String> oids = new ArrayList<>();
+        String continuationToken = null;
+        int requests = 0;
+        do {
+            WebClient client = prepareStreamClient();
+            client.query("maxSize", 2);
+            if (continuationToken != null) {
+                client.query(CONTINUATION_TOKEN, continuationToken);
+            }
+            Response response = client.post(new QueryType());
+            assertStatus(response, 200);
+            StreamedSearchResult streamed = readStreamedSearchResult(response);
+            assertTrue("Unexpected result: " + streamed.result, streamed.result.isSuccess());
+            assertTrue("Too many objects: " + streamed.oids, streamed.oids.size() <= 2);
+            oids.addAll(streamed.oids);
+            continuationToken = streamed.getContinuationToken();
+            requests++;
+            assertTrue("Too many requests", requests <= expectedOids.size());
+        } while (continuationToken != null);
+
+        then();
+        assertEquals("Wrong objects streamed", expectedOids, oids);
+    }
+
+    @Test
+    public void test214SearchUsersStreamWrongContinuationToken() {
+        given();
+        WebClient client = prepareStreamClient();
+        client.query(CONTINUATION_TOKEN, "1-2-3-4-5");
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        displayResponse(response);
+        assertStatus(response, 400);
+    }
+
+    /**
+     * Shadows are searched for by provisioning, which does not guarantee the ordering needed for continuation.
+     */
+    @Test
+    public void test216SearchShadowsStreamContinuationToken() {
+        given();
+        WebClient client = prepareStreamClient("/shadows/search/stream");
+        client.query(CONTINUATION_TOKEN, SystemObjectsType.USER_ADMINISTRATOR.value());
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        displayResponse(response);
+        assertStatus(response, 400);
+    }
+
     @Test
     public void test401AddUserTemplateOverwrite() {
         WebClient client = prepareClient();
@@ -1649,6 +1740,51 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
         return prepareClient(USER_ADMINISTRATOR_USERNAME, USER_ADMINISTRATOR_PASSWORD);
     }
 
+    private WebClient prepareStreamClient() {
+        return prepareStreamClient("/users/search/stream");
+    }
+
+    /** The query is sent in the format of the test, the response is always newline-delimited JSON. */
+    private WebClient prepareStreamClient(String path) {
+        WebClient client = prepareClient();
+        client.replaceHeader(HttpHeaders.ACCEPT, APPLICATION_NDJSON);
+        client.path(path);
+        return client;
+    }
+
+    private List<String> getSortedUserOids() throws SchemaException {
+        return repositoryService.searchObjects(UserType.class, null, null, new OperationResult("getSortedUserOids"))
+                .stream()
+                .map(PrismObject::getOid)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private StreamedSearchResult readStreamedSearchResult(Response response) throws SchemaException {
+        MediaType mediaType = response.getMediaType();
+        assertEquals("Wrong content type", APPLICATION_NDJSON, mediaType.getType() + "/" + mediaType.getSubtype());
+        String body = response.readEntity(String.class);
+        displayValue("Response body", body);
+        List<String> lines = Arrays.asList(body.split("\n"));
+        assertFalse("No operation result in the response", lines.isEmpty());
+        StreamedSearchResult streamed = new StreamedSearchResult();
+        for (String line : lines.subList(0, lines.size() - 1)) {
+            streamed.oids.add(prismContext.parserFor(line).json().parse().getOid());
+        }
+        streamed.result = OperationResult.createOperationResult(
+                prismContext.parserFor(lines.get(lines.size() - 1)).json().parseRealValue(OperationResultType.class));
+        return streamed;
+    }
+
+    private static class StreamedSearchResult {
+        private final List<String> oids = new ArrayList<>();
+        private OperationResult result;
+
+        private String getContinuationToken() {
+            return result.getReturnSingle(CONTINUATION_TOKEN);
+        }
+    }
+
     private void displayResponse(Response response) {
         logger.info("response : {} ", response.getStatus());
         logger.info("response : {} ", response.getStatusInfo().getReasonPhrase());
@@ -16,8 +16,10 @@ import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.repo.api.RepoAddOptions;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class ImportConsumerWorker extends BaseWorker<ImportOptions, PrismObject> {
 
+    /**
+     * Max number of objects passed to the repository in one {@link RepositoryService#addObjects} call.
+     */
+    private static final int BATCH_SIZE = 100;
+
     public ImportConsumerWorker(NinjaContext context, ImportOptions options, BlockingQueue<PrismObject> queue,
                                 OperationStatus operation, List<ImportConsumerWorker> consumers) {
         super(context, options, queue, operation, consumers);
@@ -37,28 +44,25 @@ public class ImportConsumerWorker extends BaseWorker<ImportOptions, PrismObject>
         ApplicationContext ctx = context.getApplicationContext();
         Protector protector = ctx.getBean(Protector.class);
 
+        RepoAddOptions opts = createRepoAddOptions(options);
+        List<PrismObject> batch = new ArrayList<>(BATCH_SIZE);
         try {
             while (!shouldConsumerStop()) {
-                PrismObject object = null;
                 try {
-                    object = queue.poll(CONSUMER_POLL_TIMEOUT, TimeUnit.SECONDS);
+                    PrismObject object = queue.poll(CONSUMER_POLL_TIMEOUT, TimeUnit.SECONDS);
                     if (object == null) {
                         continue;
                     }
 
-                    RepoAddOptions opts = createRepoAddOptions(options);
-
-                    if (!opts.isAllowUnencryptedValues()) {
-                        CryptoUtil.encryptValues(protector, object);
-                    }
-
-                    RepositoryService repository = context.getRepository();
-                    repository.addObject(object, opts, new OperationResult("Import object"));
-
-                    operation.incrementTotal();
-                } catch (Exception ex) {
-                    context.getLog().error("Couldn't add object {}, reason: {}", ex, object, ex.getMessage());
-                    operation.incrementError();
+                    batch.add(object);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    addObjects(batch, opts, protector);
+                } catch (InterruptedException ex) {
+                    context.getLog().error("Import consumer was interrupted", ex);
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    batch.clear();
                 }
             }
         } finally {
@@ -70,6 +74,46 @@ public class ImportConsumerWorker extends BaseWorker<ImportOptions, PrismObject>
         }
     }
 
+    private void addObjects(List<PrismObject> objects, RepoAddOptions opts, Protector protector) {
+        List<PrismObject<ObjectType>> toAdd = new ArrayList<>(objects.size());
+        for (PrismObject object : objects) {
+            try {
+                if (!opts.isAllowUnencryptedValues()) {
+                    CryptoUtil.encryptValues(protector, object);
+                }
+                //noinspection unchecked
+                toAdd.add(object);
+            } catch (Exception ex) {
+                context.getLog().error("Couldn't add object {}, reason: {}", ex, object, ex.getMessage());
+                operation.incrementError();
+            }
+        }
+        if (toAdd.isEmpty()) {
+            return;
+        }
+
+        RepositoryService repository = context.getRepository();
+        OperationResult result = new OperationResult("Import objects");
+        List<String> oids;
+        try {
+            oids = repository.addObjects(toAdd, opts, result);
+        } catch (Exception ex) {
+            // not expected, failures of individual objects are not thrown
+            context.getLog().error("Couldn't add {} object(s), reason: {}", ex, toAdd.size(), ex.getMessage());
+            toAdd.forEach(object -> operation.incrementError());
+            return;
+        }
+
+        for (int i = 0; i < toAdd.size(); i++) {
+            if (oids.get(i) != null) {
+                operation.incrementTotal();
+            } else {
+                context.getLog().error("Couldn't add object {}, reason: {}", toAdd.get(i), result.getMessage());
+                operation.incrementError();
+            }
+        }
+    }
+
     private RepoAddOptions createRepoAddOptions(ImportOptions options) {
         RepoAddOptions opts = new RepoAddOptions();
         opts.setOverwrite(options.isOverwrite());